@@ -6,7 +6,25 @@
  */
 package mthree.flooringmastery;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Period;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import mthree.flooringmastery.controller.FlooringMasteryBatchController;
 import mthree.flooringmastery.controller.FlooringMasteryController;
+import mthree.flooringmastery.dao.FlooringMasteryAuditDaoFileImpl;
+import mthree.flooringmastery.service.FlooringMasteryAdmissionController;
+import mthree.flooringmastery.service.FlooringMasteryAsyncServiceLayerImpl;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 
 /**
@@ -21,14 +39,184 @@ public class App {
     
     /**
      * Main method to start prompt.
+     * With --batch [script] the commands of the script, or of stdin if no
+     * script is given, are run without prompts and the results are written
+     * to stdout. The exit status is 1 if a command failed.
      * @param args command line arguments 
+     * @throws IOException if the script cannot be read in batch mode
      */
-    public static void main(String[] args){
+    public static void main(String[] args) throws IOException {
+        //orders older than this many days are moved to the archive on startup
+        Period archiveAge = getArchiveAge();
+        //bad settings of the beans are reported here, before Spring fails on them
+        checkAuditProperties();
+        checkServiceProperties();
+        checkWriteProperties();
+        
         AnnotationConfigApplicationContext appContext = new AnnotationConfigApplicationContext();
         appContext.scan("mthree.flooringmastery");
         appContext.refresh();
+        //closes the beans on exit, so queued audit entries are written
+        appContext.registerShutdownHook();
+        
+        if (args.length > 0 && args[0].equals("--batch")) {
+            FlooringMasteryBatchController batch = appContext.getBean("flooringMasteryBatchController", FlooringMasteryBatchController.class);
+            int failed;
+            try (BufferedReader in = args.length > 1
+                    ? Files.newBufferedReader(Paths.get(args[1]), StandardCharsets.UTF_8)
+                    : new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 16)) {
+                Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+                failed = archiveAge == null || batch.archiveOrders(archiveAge, out) ? 0 : 1;
+                failed += batch.run(in, out);
+            }
+            System.exit(failed == 0 ? 0 : 1);
+        }
         
         FlooringMasteryController controller = appContext.getBean("flooringMasteryController", FlooringMasteryController.class);
+        
+        if (archiveAge != null) {
+            controller.archiveOrders(archiveAge);
+        }
         controller.run();
     }
+    
+    /**
+     * Helper method to read -Dflooringmastery.archiveAfterDays. Exits with
+     * an error if it is not a number of days.
+     * @return  age of the orders to archive, null if not set
+     */
+    private static Period getArchiveAge() {
+        String archiveAfterDays = System.getProperty("flooringmastery.archiveAfterDays");
+        if (archiveAfterDays == null) {
+            return null;
+        }
+        try {
+            int days = Integer.parseInt(archiveAfterDays.trim());
+            if (days >= 0) {
+                return Period.ofDays(days);
+            }
+        } catch (NumberFormatException e) {
+            //reported below
+        }
+        System.err.println("ERROR: flooringmastery.archiveAfterDays must be a whole number of days, 0 or more, not \""
+                + archiveAfterDays + "\".");
+        System.exit(2);
+        return null;
+    }
+    
+    /**
+     * Helper method to check the -Dflooringmastery.audit* properties read by
+     * the audit dao. Exits with an error naming the first bad one.
+     */
+    private static void checkAuditProperties() {
+        checkWholeNumber("flooringmastery.auditQueueSize", 1, 1 << 30);
+        checkWholeNumber("flooringmastery.auditFlushMillis", 0, Long.MAX_VALUE / 1_000_000);
+        checkOneOf("flooringmastery.auditBackpressure", FlooringMasteryAuditDaoFileImpl.Backpressure.values());
+        checkWholeNumber("flooringmastery.auditMaxBytes", 1, Long.MAX_VALUE);
+        //the log rotates every day at most
+        checkOneOf("flooringmastery.auditRotateEvery", Arrays.copyOf(ChronoUnit.values(), ChronoUnit.DAYS.ordinal() + 1));
+        checkWholeNumber("flooringmastery.auditRetainSegments", 0, Integer.MAX_VALUE);
+        checkWholeNumber("flooringmastery.auditRetainDays", 0, Long.MAX_VALUE / 86_400);
+        checkOneOf("flooringmastery.auditDurability", FlooringMasteryAuditDaoFileImpl.Durability.values());
+    }
+    
+    /**
+     * Helper method to check the -Dflooringmastery.service* properties read
+     * by the asynchronous service. Exits with an error naming the bad one.
+     */
+    private static void checkServiceProperties() {
+        checkOneOf("flooringmastery.serviceExecution", FlooringMasteryAsyncServiceLayerImpl.ExecutionMode.values());
+        checkWholeNumber("flooringmastery.serviceThreads", 1, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Helper method to check the -Dflooringmastery.write* properties read by
+     * the admission controller. Exits with an error naming the bad one.
+     */
+    private static void checkWriteProperties() {
+        checkWholeNumber("flooringmastery.writeQueue", 1, Integer.MAX_VALUE);
+        checkWholeNumber("flooringmastery.writeWaiters", 1, Integer.MAX_VALUE);
+        checkRate("flooringmastery.writeRate");
+        checkRate("flooringmastery.writeBurst");
+        checkOneOf("flooringmastery.writePolicy", FlooringMasteryAdmissionController.Policy.values());
+        checkWholeNumber("flooringmastery.writeWaitMillis", 0, Long.MAX_VALUE);
+    }
+    
+    /**
+     * Helper method to check a whole number property, read the way
+     * Integer.getInteger and Long.getLong read it.
+     * Exits with an error if it is set and not a number from min to max.
+     * @param property  system property name
+     * @param min       lowest valid value
+     * @param max       highest valid value
+     */
+    private static void checkWholeNumber(String property, long min, long max) {
+        String value = System.getProperty(property);
+        if (value == null) {
+            return;
+        }
+        try {
+            long number = Long.decode(value);
+            if (number >= min && number <= max) {
+                return;
+            }
+        } catch (NumberFormatException e) {
+            //reported below
+        }
+        exitWithError(property, max >= Integer.MAX_VALUE ? "a whole number, " + min + " or more"
+                : "a whole number from " + min + " to " + max, value);
+    }
+    
+    /**
+     * Helper method to check a rate property, read with Double.parseDouble.
+     * Exits with an error if it is set and not a number, 0 or more.
+     * @param property  system property name
+     */
+    private static void checkRate(String property) {
+        String value = System.getProperty(property);
+        if (value == null) {
+            return;
+        }
+        try {
+            double rate = Double.parseDouble(value);
+            if (rate >= 0 && !Double.isInfinite(rate)) {
+                return;
+            }
+        } catch (NumberFormatException e) {
+            //reported below
+        }
+        exitWithError(property, "a number, 0 or more", value);
+    }
+    
+    /**
+     * Helper method to check a property naming an enum constant, in any case.
+     * Exits with an error if it is set and not one of the constants.
+     * @param property  system property name
+     * @param constants valid constants
+     */
+    private static void checkOneOf(String property, Enum<?>[] constants) {
+        String value = System.getProperty(property);
+        if (value == null) {
+            return;
+        }
+        for (Enum<?> constant : constants) {
+            if (constant.name().equals(value.toUpperCase())) {
+                return;
+            }
+        }
+        exitWithError(property, "one of " + Arrays.stream(constants)
+                .map(constant -> constant.name().toLowerCase(Locale.ROOT))
+                .collect(Collectors.joining(", ")), value);
+    }
+    
+    /**
+     * Helper method to report a bad property and exit
+     * @param property  system property name
+     * @param expected  what the value must be
+     * @param value     value that was set
+     */
+    private static void exitWithError(String property, String expected, String value) {
+        System.err.println("ERROR: " + property + " must be " + expected + ", not \"" + value + "\".");
+        System.exit(2);
+    }
 }
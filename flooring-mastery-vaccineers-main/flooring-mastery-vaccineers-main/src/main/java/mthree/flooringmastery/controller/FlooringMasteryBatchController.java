@@ -0,0 +1,502 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.controller;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import mthree.flooringmastery.dto.Order;
+import mthree.flooringmastery.service.FlooringMasteryCustomerSpend;
+import mthree.flooringmastery.service.FlooringMasteryDatedOrder;
+import mthree.flooringmastery.service.FlooringMasteryReportService;
+import mthree.flooringmastery.service.FlooringMasteryRepriceResult;
+import mthree.flooringmastery.service.FlooringMasterySalesReport;
+import mthree.flooringmastery.service.FlooringMasterySalesTotals;
+import mthree.flooringmastery.service.FlooringMasteryServiceFailureException;
+import mthree.flooringmastery.service.FlooringMasteryServiceLayer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Batch controller. Runs a script of commands without prompts or banners,
+ * e.g. for nightly jobs, and writes one result line per command.
+ *
+ * A command is one line of fields separated by '|', dates are yyyy-MM-dd.
+ * Blank lines and lines starting with '#' are skipped.
+ * add|date|customer name|state|product type|area[|request id]
+ * edit|date|order number|customer name|state|product type|area, empty fields are kept
+ * remove|date|order number
+ * get|date[|order number]
+ * export
+ * reprice
+ * archive|days
+ * report|sales|from|to|state, product_type, month or year
+ * report|top|from|to|count
+ * report|largest|from|to|count
+ *
+ * Results are tab separated and start with the line number of the command.
+ * A command which succeeds writes its rows, if any, and then an OK line:
+ * ORDER   line  date  order number  customer name  state  product type  area  tax  total
+ * ROW     line  name  order count  area  revenue  tax
+ * OK      line  command  fields of the command
+ * A command which fails writes one line and the script goes on:
+ * ERR     line  kind  message
+ * The kind is one of FlooringMasteryServiceFailureException.Kind or BAD_COMMAND.
+ * The last line is DONE  commands  failed.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+@Component
+public class FlooringMasteryBatchController {
+
+    /** Separates the fields of a command */
+    private static final char FIELD_DELIMITER = '|';
+
+    /** Separates the fields of a result */
+    private static final char RESULT_DELIMITER = '\t';
+
+    /** Kind of a command which cannot be read */
+    public static final String BAD_COMMAND = "BAD_COMMAND";
+
+    /** Service layer */
+    private FlooringMasteryServiceLayer service;
+    /** Reports over the orders */
+    private FlooringMasteryReportService reportService;
+
+    /** Result line being built, reused for every command */
+    private final StringBuilder result = new StringBuilder(256);
+
+    /**
+     * Dependency injection constructor.
+     * @param service       service layer
+     * @param reportService reports over the orders
+     */
+    @Autowired
+    public FlooringMasteryBatchController(FlooringMasteryServiceLayer service,
+            FlooringMasteryReportService reportService) {
+        this.service = service;
+        this.reportService = reportService;
+    }
+
+    /**
+     * Runs every command of a script. The results are only flushed at the
+     * end, the caller should pass a buffered writer.
+     * The script runs as one service batch: the order folder is scanned once
+     * and added orders are written together, at the latest when the script
+     * ends. If they cannot be written then, an ERR line with the line number
+     * of the last command is written and counted as failed.
+     * @param in    script, one command per line
+     * @param out   results
+     * @return  number of commands which failed
+     * @throws IOException if the script cannot be read or the results written
+     */
+    public int run(BufferedReader in, Writer out) throws IOException {
+        int lineNumber = 0;
+        int commands = 0;
+        int failed = 0;
+        boolean batched = true;
+        try {
+            service.beginBatch();
+        } catch (Exception e) {
+            //the commands still run, each on its own
+            batched = false;
+            failed(0, e);
+            out.append(result);
+            result.setLength(0);
+        }
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty() || line.charAt(0) == '#' || line.trim().isEmpty()) {
+                    continue;
+                }
+                commands++;
+                if (!execute(split(line), lineNumber, out)) {
+                    failed++;
+                }
+            }
+        } finally {
+            if (batched) {
+                try {
+                    service.endBatch();
+                } catch (Exception e) {
+                    failed(lineNumber, e);
+                    out.append(result);
+                    failed++;
+                }
+            }
+        }
+        result.setLength(0);
+        result.append("DONE").append(RESULT_DELIMITER).append(commands)
+                .append(RESULT_DELIMITER).append(failed).append('\n');
+        out.append(result);
+        out.flush();
+        return failed;
+    }
+
+    /**
+     * Archives orders older than the given age before the script runs. The
+     * result has line number 0.
+     * @param age   orders dated before today minus this age are archived
+     * @param out   results
+     * @return  true if the orders were archived
+     * @throws IOException if the result cannot be written
+     */
+    public boolean archiveOrders(Period age, Writer out) throws IOException {
+        boolean succeeded = true;
+        try {
+            archiveOrders(age, 0);
+        } catch (Exception e) {
+            succeeded = failed(0, e);
+        }
+        out.append(result);
+        result.setLength(0);
+        return succeeded;
+    }
+
+    /**
+     * Helper method to run one command and write its result.
+     * @param fields        fields of the command
+     * @param lineNumber    line of the command in the script
+     * @param out           results
+     * @return  true if the command succeeded
+     * @throws IOException if the result cannot be written
+     */
+    private boolean execute(String[] fields, int lineNumber, Writer out) throws IOException {
+        boolean succeeded = true;
+        try {
+            String command = fields[0].trim().toLowerCase();
+            switch (command) {
+                case "add":
+                    addOrder(fields, lineNumber);
+                    break;
+                case "edit":
+                    editOrder(fields, lineNumber);
+                    break;
+                case "remove":
+                    removeOrder(fields, lineNumber);
+                    break;
+                case "get":
+                    getOrders(fields, lineNumber, out);
+                    break;
+                case "export":
+                    expectFields(fields, 1, 1);
+                    service.exportData();
+                    ok(lineNumber, command).append('\n');
+                    break;
+                case "reprice":
+                    expectFields(fields, 1, 1);
+                    FlooringMasteryRepriceResult reprice = service.repriceFutureOrders();
+                    ok(lineNumber, command);
+                    field(reprice.getOrdersChecked());
+                    field(reprice.getOrdersRepriced());
+                    field(reprice.getDatesWritten());
+                    field(reprice.getOrdersSkipped());
+                    result.append('\n');
+                    break;
+                case "archive":
+                    expectFields(fields, 2, 2);
+                    archiveOrders(Period.ofDays(Integer.parseInt(fields[1].trim())), lineNumber);
+                    break;
+                case "report":
+                    report(fields, lineNumber, out);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown command " + fields[0]);
+            }
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            succeeded = failed(lineNumber, e);
+        }
+        out.append(result);
+        result.setLength(0);
+        return succeeded;
+    }
+
+    /**
+     * Helper method to archive orders.
+     */
+    private void archiveOrders(Period age, int lineNumber) throws Exception {
+        int archivedDates = service.archiveOrders(age);
+        ok(lineNumber, "archive");
+        field(archivedDates);
+        result.append('\n');
+    }
+
+    /**
+     * Helper method to replace the result with the ERR line of a failed command.
+     * @return  false, the command did not succeed
+     */
+    private boolean failed(int lineNumber, Exception e) {
+        if (e instanceof IllegalArgumentException || e instanceof DateTimeParseException
+                || e instanceof ArithmeticException) {
+            //a field could not be read, NumberFormatException is an IllegalArgumentException
+            error(lineNumber, BAD_COMMAND, e.getMessage());
+        } else {
+            FlooringMasteryServiceFailureException failure = FlooringMasteryServiceFailureException.of(e);
+            error(lineNumber, failure.getKind().name(), failure.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Helper method to add an order.
+     */
+    private void addOrder(String[] fields, int lineNumber) throws Exception {
+        expectFields(fields, 6, 7);
+        LocalDate date = date(fields[1]);
+        Order order = new Order(fields[2].trim(), fields[3].trim(), fields[4].trim(), new BigDecimal(fields[5].trim()));
+        String requestId = fields.length > 6 && !fields[6].trim().isEmpty() ? fields[6].trim() : null;
+        order = service.addOrder(date, order, requestId);
+        ok(lineNumber, "add", date, order.getOrderNumber());
+        field(order.getTotalMoney());
+        result.append('\n');
+    }
+
+    /**
+     * Helper method to edit an order. Empty fields keep what the order has.
+     */
+    private void editOrder(String[] fields, int lineNumber) throws Exception {
+        expectFields(fields, 7, 7);
+        LocalDate date = date(fields[1]);
+        int orderNumber = Integer.parseInt(fields[2].trim());
+        String area = fields[6].trim();
+        Order newOrder = new Order(fields[3].trim(), fields[4].trim(), fields[5].trim(),
+                area.isEmpty() ? null : new BigDecimal(area));
+        Order edited = service.editOrder(date, orderNumber, newOrder);
+        ok(lineNumber, "edit", date, orderNumber);
+        field(edited.getTotalMoney());
+        result.append('\n');
+    }
+
+    /**
+     * Helper method to remove an order.
+     */
+    private void removeOrder(String[] fields, int lineNumber) throws Exception {
+        expectFields(fields, 3, 3);
+        LocalDate date = date(fields[1]);
+        int orderNumber = Integer.parseInt(fields[2].trim());
+        Order removed = service.removeOrder(date, orderNumber);
+        ok(lineNumber, "remove", date, orderNumber);
+        field(removed.getTotalMoney());
+        result.append('\n');
+    }
+
+    /**
+     * Helper method to write one order, or every order of a date.
+     */
+    private void getOrders(String[] fields, int lineNumber, Writer out) throws Exception {
+        expectFields(fields, 2, 3);
+        LocalDate date = date(fields[1]);
+        List<Order> orders;
+        if (fields.length == 3) {
+            orders = new ArrayList<>(1);
+            orders.add(service.getOrder(date, Integer.parseInt(fields[2].trim())));
+        } else {
+            Map<Integer, Order> dateOrders = service.getAllOrders(date);
+            orders = new ArrayList<>(dateOrders.values());
+        }
+        for (Order order : orders) {
+            orderRow(lineNumber, date, order);
+            flushRows(out);
+        }
+        ok(lineNumber, "get", date, orders.size()).append('\n');
+    }
+
+    /**
+     * Helper method to run a report.
+     */
+    private void report(String[] fields, int lineNumber, Writer out) throws Exception {
+        expectFields(fields, 5, 5);
+        String report = fields[1].trim().toLowerCase();
+        LocalDate from = date(fields[2]);
+        LocalDate to = date(fields[3]);
+        String last = fields[4].trim();
+        int rows = 0;
+        switch (report) {
+            case "sales":
+                FlooringMasterySalesReport sales = reportService.getSalesReport(from, to,
+                        FlooringMasterySalesReport.GroupBy.valueOf(last.toUpperCase()));
+                for (Map.Entry<String, FlooringMasterySalesTotals> row : sales.getRows().entrySet()) {
+                    totalsRow(lineNumber, row.getKey(), row.getValue());
+                    flushRows(out);
+                    rows++;
+                }
+                totalsRow(lineNumber, "TOTAL", sales.getTotal());
+                flushRows(out);
+                break;
+            case "top":
+                for (FlooringMasteryCustomerSpend spend : reportService.getTopCustomers(from, to, Integer.parseInt(last))) {
+                    start("ROW", lineNumber);
+                    field(spend.getCustomerName());
+                    field(spend.getOrderCount());
+                    field(spend.getTotal());
+                    result.append('\n');
+                    flushRows(out);
+                    rows++;
+                }
+                break;
+            case "largest":
+                for (FlooringMasteryDatedOrder dated : reportService.getLargestOrders(from, to, Integer.parseInt(last))) {
+                    orderRow(lineNumber, dated.getDate(), dated.getOrder());
+                    flushRows(out);
+                    rows++;
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown report " + fields[1]);
+        }
+        ok(lineNumber, "report");
+        field(report);
+        field(rows);
+        result.append('\n');
+    }
+
+    /**
+     * Helper method to write a row of an order.
+     */
+    private void orderRow(int lineNumber, LocalDate date, Order order) {
+        start("ORDER", lineNumber);
+        field(date);
+        field(order.getOrderNumber());
+        field(order.getCustomerName());
+        field(order.getState());
+        field(order.getProductType());
+        field(order.getArea());
+        field(order.getTaxMoney());
+        field(order.getTotalMoney());
+        result.append('\n');
+    }
+
+    /**
+     * Helper method to write a row of sales totals.
+     */
+    private void totalsRow(int lineNumber, String name, FlooringMasterySalesTotals totals) {
+        start("ROW", lineNumber);
+        field(name);
+        field(totals.getOrderCount());
+        field(totals.getArea());
+        field(totals.getRevenue());
+        field(totals.getTax());
+        result.append('\n');
+    }
+
+    /**
+     * Helper method to write the rows built so far, so a failure later in
+     * the command leaves only complete lines before its ERR line.
+     */
+    private void flushRows(Writer out) throws IOException {
+        out.append(result);
+        result.setLength(0);
+    }
+
+    /**
+     * Helper method to start an OK line.
+     * @return  the result, to append more fields to
+     */
+    private StringBuilder ok(int lineNumber, String command, Object... fields) {
+        start("OK", lineNumber);
+        field(command);
+        for (Object value : fields) {
+            field(value);
+        }
+        return result;
+    }
+
+    /**
+     * Helper method to replace the result with an ERR line.
+     */
+    private void error(int lineNumber, String kind, String message) {
+        result.setLength(0);
+        start("ERR", lineNumber);
+        field(kind);
+        field(message);
+        result.append('\n');
+    }
+
+    /**
+     * Helper method to start a result line.
+     */
+    private void start(String type, int lineNumber) {
+        result.append(type).append(RESULT_DELIMITER).append(lineNumber);
+    }
+
+    /**
+     * Helper method to append a field. Tabs and line breaks in it become
+     * spaces, so the result stays one line.
+     */
+    private void field(Object value) {
+        result.append(RESULT_DELIMITER);
+        String text = String.valueOf(value);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            result.append(c == RESULT_DELIMITER || c == '\n' || c == '\r' ? ' ' : c);
+        }
+    }
+
+    /**
+     * Helper method to append a number without making a string of it.
+     */
+    private void field(int value) {
+        result.append(RESULT_DELIMITER).append(value);
+    }
+
+    /**
+     * Helper method to check the number of fields of a command.
+     */
+    private static void expectFields(String[] fields, int min, int max) {
+        if (fields.length < min || fields.length > max) {
+            throw new IllegalArgumentException(fields[0].trim() + " takes " + (min == max ? min : min + " to " + max)
+                    + " fields, got " + fields.length);
+        }
+    }
+
+    /**
+     * Helper method to read a date, yyyy-MM-dd.
+     */
+    private static LocalDate date(String field) {
+        return LocalDate.parse(field.trim());
+    }
+
+    /**
+     * Helper method to split a command into its fields, without the regex
+     * String.split would use for '|'.
+     * @param line  command
+     * @return  fields, empty ones included
+     */
+    static String[] split(String line) {
+        int count = 1;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == FIELD_DELIMITER) {
+                count++;
+            }
+        }
+        String[] fields = new String[count];
+        int start = 0;
+        int field = 0;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == FIELD_DELIMITER) {
+                fields[field++] = line.substring(start, i);
+                start = i + 1;
+            }
+        }
+        fields[field] = line.substring(start);
+        return fields;
+    }
+}
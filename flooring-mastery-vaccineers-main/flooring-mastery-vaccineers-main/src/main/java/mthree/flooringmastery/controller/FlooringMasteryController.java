@@ -7,6 +7,7 @@
 package mthree.flooringmastery.controller;
 
 import java.time.LocalDate;
+import java.time.Period;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -19,6 +20,7 @@ import mthree.flooringmastery.service.FlooringMasteryInvalidAreaException;
 import mthree.flooringmastery.service.FlooringMasteryInvalidDateException;
 import mthree.flooringmastery.service.FlooringMasteryInvalidOrderNumberException;
 import mthree.flooringmastery.service.FlooringMasteryProductNotFoundException;
+import mthree.flooringmastery.service.FlooringMasteryReportService;
 import mthree.flooringmastery.service.FlooringMasteryServiceLayer;
 import mthree.flooringmastery.service.FlooringMasteryStateNotFoundException;
 import mthree.flooringmastery.ui.FlooringMasteryView;
@@ -40,16 +42,21 @@ public class FlooringMasteryController {
     private FlooringMasteryView view;
     /** Service layer */
     private FlooringMasteryServiceLayer service;
+    /** Reports over the orders */
+    private FlooringMasteryReportService reportService;
 
     /**
      * Dependency injection constructor.
-     * @param view      view layer
-     * @param service   service layer
+     * @param view          view layer
+     * @param service       service layer
+     * @param reportService reports over the orders
      */
     @Autowired
-    public FlooringMasteryController(FlooringMasteryView view, FlooringMasteryServiceLayer service) {
+    public FlooringMasteryController(FlooringMasteryView view, FlooringMasteryServiceLayer service,
+            FlooringMasteryReportService reportService) {
         this.view = view;
         this.service = service;
+        this.reportService = reportService;
     }
     
     /**
@@ -83,6 +90,15 @@ public class FlooringMasteryController {
                             exportAllData();
                             break;
                         case 6:
+                            displayTopCustomers();
+                            break;
+                        case 7:
+                            displayLargestOrders();
+                            break;
+                        case 8:
+                            repriceFutureOrders();
+                            break;
+                        case 9:
                             keepGoing = false;
                             break;
                         default:
@@ -249,6 +265,56 @@ public class FlooringMasteryController {
         view.displaySuccessfulExport();
     }
     
+    /**
+     * Displays the customers who spent the most in a date range.
+     * @throws FlooringMasteryPersistenceException
+     * @throws FlooringMasteryInvalidDateException 
+     */
+    private void displayTopCustomers() throws FlooringMasteryPersistenceException,
+            FlooringMasteryInvalidDateException {
+        view.displayBanner(" TOP CUSTOMERS ");
+        LocalDate from = view.getDate("Enter first date");
+        LocalDate to = view.getDate("Enter last date");
+        int count = view.getReportSize("How many customers");
+        view.displayTopCustomers(reportService.getTopCustomers(from, to, count));
+    }
+    
+    /**
+     * Displays the orders with the largest totals in a date range.
+     * @throws FlooringMasteryPersistenceException
+     * @throws FlooringMasteryInvalidDateException 
+     */
+    private void displayLargestOrders() throws FlooringMasteryPersistenceException,
+            FlooringMasteryInvalidDateException {
+        view.displayBanner(" LARGEST ORDERS ");
+        LocalDate from = view.getDate("Enter first date");
+        LocalDate to = view.getDate("Enter last date");
+        int count = view.getReportSize("How many orders");
+        view.displayLargestOrders(reportService.getLargestOrders(from, to, count));
+    }
+    
+    /**
+     * Reprices future orders after the tax or product file changed.
+     * @throws FlooringMasteryPersistenceException 
+     */
+    private void repriceFutureOrders() throws FlooringMasteryPersistenceException {
+        view.displayBanner(" REPRICE FUTURE ORDERS ");
+        view.displayRepriceResult(service.repriceFutureOrders());
+    }
+    
+    /**
+     * Archives orders older than the given age before the menu starts.
+     * @param age   orders dated before today minus this age are archived
+     */
+    public void archiveOrders(Period age) {
+        try {
+            int archivedDates = service.archiveOrders(age);
+            view.displayArchivedDates(archivedDates);
+        } catch(FlooringMasteryPersistenceException e) {
+            view.displayErrorMessage(e.getMessage());
+        }
+    }
+    
     /** Displays goodbye */
     private void showBye() {
         view.displayBye();
@@ -6,6 +6,10 @@
  */
 package mthree.flooringmastery.dao;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import mthree.flooringmastery.dto.AuditRecord;
+
 /**
  * Controller class. 
  * Calls view and service layer methods to fulfill project requirements.
@@ -15,7 +19,7 @@ package mthree.flooringmastery.dao;
  * @author Adem Coklar
  * @author Illarion Eremenko
  */
-public interface FlooringMasteryAuditDao {
+public interface FlooringMasteryAuditDao extends AutoCloseable {
     
     /**
      * Writes entry to audit log file.
@@ -23,4 +27,36 @@ public interface FlooringMasteryAuditDao {
      * @throws FlooringMasteryPersistenceException 
      */
     public void writeAuditEntry(String entry) throws FlooringMasteryPersistenceException;
+    
+    /**
+     * Writes a structured record to the audit log.
+     * @param record    record to add
+     * @throws FlooringMasteryPersistenceException 
+     */
+    public void writeAuditRecord(AuditRecord record) throws FlooringMasteryPersistenceException;
+    
+    /**
+     * Gets the records written in a time range, oldest first.
+     * @param from  first time, inclusive
+     * @param to    last time, exclusive
+     * @return  List of audit records
+     * @throws FlooringMasteryPersistenceException 
+     */
+    public List<AuditRecord> getAuditRecords(LocalDateTime from, LocalDateTime to) throws FlooringMasteryPersistenceException;
+    
+    /**
+     * Gets the records of one order, oldest first.
+     * @param orderNumber   order number
+     * @return  List of audit records
+     * @throws FlooringMasteryPersistenceException 
+     */
+    public List<AuditRecord> getAuditRecords(int orderNumber) throws FlooringMasteryPersistenceException;
+    
+    /**
+     * Writes any entries still waiting and closes the audit log.
+     * No entries can be written after this.
+     * @throws FlooringMasteryPersistenceException 
+     */
+    @Override
+    public void close() throws FlooringMasteryPersistenceException;
 }
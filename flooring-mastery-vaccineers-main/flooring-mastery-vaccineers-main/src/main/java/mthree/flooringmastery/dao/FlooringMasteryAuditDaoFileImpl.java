@@ -6,16 +6,65 @@
  */
 package mthree.flooringmastery.dao;
 
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import mthree.flooringmastery.dto.AuditRecord;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 /**
  * File implementation of AuditDao.
- * 
+ *
+ * Entries are structured records, one per line (see
+ * FlooringMasteryAuditFormat). Callers put them on a pre-allocated ring
+ * buffer without taking a lock (see FlooringMasteryAuditRingBuffer) and a
+ * background thread marshalls and writes them, keeping the audit file open.
+ * The writer waits up to the flush interval after the first entry so
+ * entries arriving together are written at once. What happens when the
+ * ring is full is set by the backpressure policy. Closing writes every
+ * queued entry before the file is closed. The time callers spend queueing
+ * an entry is kept in a latency histogram.
+ *
+ * How far an entry must get before the caller returns is set by the
+ * durability mode. ASYNC returns once the entry is queued. The other modes
+ * wait for the writer, which then writes whatever is queued right away
+ * instead of waiting for the flush interval, so callers arriving together
+ * share one write and one fsync.
+ *
+ * The writer rotates the audit file when it would grow past the maximum size
+ * or when a new period (e.g. day) starts. Rotated segments are compressed in
+ * the background and old ones deleted, see FlooringMasteryAuditSegments.
+ * Compressed segments have a sparse index used by the queries.
+ *
+ * Settings of the default constructor:
+ * -Dflooringmastery.auditQueueSize      entries the ring holds, rounded up
+ *                                       to a power of two (1024)
+ * -Dflooringmastery.auditFlushMillis    flush interval in milliseconds (100)
+ * -Dflooringmastery.auditBackpressure   BLOCK, DROP or FAIL (BLOCK)
+ * -Dflooringmastery.auditDurability     ASYNC, FLUSH_PER_BATCH, FSYNC_PER_BATCH
+ *                                       or FSYNC_PER_ENTRY (ASYNC)
+ * -Dflooringmastery.auditMaxBytes       size to rotate at (10485760)
+ * -Dflooringmastery.auditRotateEvery    MINUTES, HOURS or DAYS (DAYS)
+ * -Dflooringmastery.auditRetainSegments segments to keep, 0 for all (30)
+ * -Dflooringmastery.auditRetainDays     days to keep segments, 0 for all (90)
+ *
  * @author Andy Bae
  * @author Alexi Mellovich
  * @author Adem Coklar
@@ -23,35 +72,586 @@ import org.springframework.stereotype.Component;
  */
 @Component
 public class FlooringMasteryAuditDaoFileImpl implements FlooringMasteryAuditDao{
-    
+
+    /** What to do with an entry when the ring is full */
+    public enum Backpressure {
+        /** Wait until the writer makes room */
+        BLOCK,
+        /** Drop the entry. Dropped entries are counted */
+        DROP,
+        /** Throw FlooringMasteryPersistenceException */
+        FAIL
+    }
+
+    /** When a call writing an entry returns */
+    public enum Durability {
+        /** Once queued. Queued entries are lost if the program dies */
+        ASYNC,
+        /** Once its batch is written to the file. Lost only if the OS dies */
+        FLUSH_PER_BATCH,
+        /** Once its batch is written and forced to disk */
+        FSYNC_PER_BATCH,
+        /** Once it is written and forced to disk on its own */
+        FSYNC_PER_ENTRY
+    }
+
+    /** Most entries written in one batch */
+    private static final int MAX_BATCH = 512;
+
+    /** How long a query waits before checking the writer again */
+    private static final long BLOCK_CHECK_MILLIS = 100;
+
+    /** Times a blocked caller spins before it starts parking */
+    private static final int BLOCK_SPINS = 100;
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    /** How long the writer sleeps when idle, callers wake it sooner */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /** How often the writer checks for more entries while filling a batch */
+    private static final long BATCH_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
     /** Audit file */
     private final String AUDIT_FILE;
-    
+    private final long FLUSH_INTERVAL_NANOS;
+    private final Backpressure BACKPRESSURE;
+    private final Durability DURABILITY;
+    private final long MAX_FILE_BYTES;
+    private final ChronoUnit ROTATE_EVERY;
+
+    /** Rotated segments */
+    private final FlooringMasteryAuditSegments segments;
+
+    /** Entries waiting for the writer */
+    private final FlooringMasteryAuditRingBuffer ring;
+
+    /** Time callers spend in writeAuditRecord() and writeAuditEntry() */
+    private final FlooringMasteryLatencyHistogram writeLatency = new FlooringMasteryLatencyHistogram();
+
+    private final AtomicLong droppedEntries = new AtomicLong();
+    /**
+     * Signalled by the writer after each batch, so callers and queries can
+     * wait for entries. A lock rather than wait and notify, so waiting
+     * virtual threads do not pin their carrier threads.
+     */
+    private final ReentrantLock writtenLock = new ReentrantLock();
+    private final Condition writtenChanged = writtenLock.newCondition();
+    /** Every sequence below this is written, and forced in the FSYNC modes */
+    private volatile long written = 0;
+    /** Set and read under the lock of this object, so no writer starts after close() */
+    private volatile Thread writer;
+    private volatile boolean closed = false;
+    /** True while the writer sleeps with nothing to write, callers then wake it */
+    private volatile boolean writerIdle = false;
+    private volatile IOException failure;
+
+    /** Only used by the writer thread */
+    private FileChannel channel;
+    private long fileBytes;
+    private LocalDateTime filePeriod;
+
     @Autowired
     public FlooringMasteryAuditDaoFileImpl() {
-        this.AUDIT_FILE = "audit.txt";
+        this("audit.txt",
+                Integer.getInteger("flooringmastery.auditQueueSize", 1024),
+                Long.getLong("flooringmastery.auditFlushMillis", 100),
+                Backpressure.valueOf(System.getProperty("flooringmastery.auditBackpressure", "BLOCK").toUpperCase()),
+                Long.getLong("flooringmastery.auditMaxBytes", 10L * 1024 * 1024),
+                ChronoUnit.valueOf(System.getProperty("flooringmastery.auditRotateEvery", "DAYS").toUpperCase()),
+                Integer.getInteger("flooringmastery.auditRetainSegments", 30),
+                Duration.ofDays(Long.getLong("flooringmastery.auditRetainDays", 90)),
+                Durability.valueOf(System.getProperty("flooringmastery.auditDurability", "ASYNC").toUpperCase()));
     }
-    
+
     public FlooringMasteryAuditDaoFileImpl(String auditTestFile) {
-        this.AUDIT_FILE = auditTestFile;
+        this(auditTestFile, 1024, 100, Backpressure.BLOCK);
     }
-    
+
+    public FlooringMasteryAuditDaoFileImpl(String auditFile, int queueSize, long flushIntervalMillis, Backpressure backpressure) {
+        this(auditFile, queueSize, flushIntervalMillis, backpressure, 10L * 1024 * 1024, ChronoUnit.DAYS, 30, Duration.ofDays(90));
+    }
+
+    public FlooringMasteryAuditDaoFileImpl(String auditFile, int queueSize, long flushIntervalMillis, Backpressure backpressure,
+            long maxFileBytes, ChronoUnit rotateEvery, int retainSegments, Duration retainAge) {
+        this(auditFile, queueSize, flushIntervalMillis, backpressure, maxFileBytes, rotateEvery, retainSegments, retainAge,
+                Durability.ASYNC);
+    }
+
+    public FlooringMasteryAuditDaoFileImpl(String auditFile, int queueSize, long flushIntervalMillis, Backpressure backpressure,
+            long maxFileBytes, ChronoUnit rotateEvery, int retainSegments, Duration retainAge, Durability durability) {
+        if (rotateEvery.compareTo(ChronoUnit.DAYS) > 0) {
+            throw new IllegalArgumentException("Audit log can rotate every day at most");
+        }
+        this.AUDIT_FILE = auditFile;
+        this.FLUSH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.BACKPRESSURE = backpressure;
+        this.DURABILITY = durability;
+        this.MAX_FILE_BYTES = maxFileBytes;
+        this.ROTATE_EVERY = rotateEvery;
+        //a zero age keeps segments forever
+        this.segments = new FlooringMasteryAuditSegments(auditFile, retainSegments,
+                retainAge.isZero() ? null : retainAge);
+        this.ring = new FlooringMasteryAuditRingBuffer(queueSize);
+    }
+
 
     /**
      * Writes entry to audit log file.
+     * The entry is a MESSAGE record timestamped now. Unless the durability
+     * is ASYNC, returns once the writer wrote it.
      * @param entry     String to add to file
-     * @throws FlooringMasteryPersistenceException 
+     * @throws FlooringMasteryPersistenceException if the log is closed, the
+     * writer failed, or the ring is full with the FAIL policy
      */
     @Override
     public void writeAuditEntry(String entry) throws FlooringMasteryPersistenceException {
-         PrintWriter out;
-         try {
-             out = new PrintWriter(new FileWriter(AUDIT_FILE, true));
-         } catch (IOException e) {
-             throw new FlooringMasteryPersistenceException("Could not persist audit information", e);
-         }
-         LocalDateTime timestamp = LocalDateTime.now();
-         out.println(timestamp.toString() + " : " +entry);
-         out.flush();
+        write(LocalDateTime.now(), AuditRecord.Operation.MESSAGE, null, 0, null, null, entry);
+    }
+
+    /**
+     * Writes a record to the audit log file.
+     * The record is written by the background writer. Unless the
+     * durability is ASYNC, returns once the writer wrote it.
+     * @param record    record to add
+     * @throws FlooringMasteryPersistenceException if the log is closed, the
+     * writer failed, or the ring is full with the FAIL policy
+     */
+    @Override
+    public void writeAuditRecord(AuditRecord record) throws FlooringMasteryPersistenceException {
+        write(record.getTimestamp(), record.getOperation(), record.getOrderDate(), record.getOrderNumber(),
+                record.getBefore(), record.getAfter(), record.getMessage());
+    }
+
+    /**
+     * Writes the queued entries and closes the audit file.
+     * Calling it again does nothing.
+     * @throws FlooringMasteryPersistenceException if entries could not be written
+     */
+    @Override
+    public void close() throws FlooringMasteryPersistenceException {
+        Thread runningWriter;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            runningWriter = writer;
+        }
+
+        if (runningWriter != null) {
+            //the writer drains the ring and stops once it sees closed
+            LockSupport.unpark(runningWriter);
+            try {
+                runningWriter.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new FlooringMasteryPersistenceException("Interrupted while closing audit log", e);
+            }
+        }
+        checkFailure();
+        try {
+            segments.close();
+        } catch (IOException e) {
+            throw new FlooringMasteryPersistenceException("Could not compress audit log", e);
+        }
+    }
+
+    /**
+     * Compressed audit segments, oldest first.
+     * @return  paths of the segments
+     * @throws FlooringMasteryPersistenceException
+     */
+    public List<Path> getAuditSegments() throws FlooringMasteryPersistenceException {
+        try {
+            return segments.getSegments();
+        } catch (IOException e) {
+            throw new FlooringMasteryPersistenceException("Could not list audit segments", e);
+        }
+    }
+
+    /**
+     * Gets the records written in a time range, oldest first.
+     * Waits for entries already queued to be written first.
+     * @param from  first time, inclusive
+     * @param to    last time, exclusive
+     * @return  List of audit records
+     * @throws FlooringMasteryPersistenceException 
+     */
+    @Override
+    public List<AuditRecord> getAuditRecords(LocalDateTime from, LocalDateTime to) throws FlooringMasteryPersistenceException {
+        awaitQueuedEntries();
+        try {
+            return segments.findByTime(from, to);
+        } catch (IOException e) {
+            throw new FlooringMasteryPersistenceException("Could not read audit log", e);
+        }
+    }
+
+    /**
+     * Gets the records of one order, oldest first.
+     * Waits for entries already queued to be written first.
+     * @param orderNumber   order number
+     * @return  List of audit records
+     * @throws FlooringMasteryPersistenceException 
+     */
+    @Override
+    public List<AuditRecord> getAuditRecords(int orderNumber) throws FlooringMasteryPersistenceException {
+        awaitQueuedEntries();
+        try {
+            return segments.findByOrderNumber(orderNumber);
+        } catch (IOException e) {
+            throw new FlooringMasteryPersistenceException("Could not read audit log", e);
+        }
+    }
+
+    /**
+     * Time callers spent queueing entries, including waiting for room with
+     * the BLOCK policy and waiting for the write unless the durability is
+     * ASYNC. This is what the audit log adds to each service call.
+     * @return  live histogram of latencies in nanoseconds
+     */
+    public FlooringMasteryLatencyHistogram getWriteLatency() {
+        return writeLatency;
+    }
+
+    /**
+     * Number of entries dropped because the ring was full.
+     * Only the DROP policy drops entries.
+     * @return  dropped entries
+     */
+    public long getDroppedEntries() {
+        return droppedEntries.get();
+    }
+
+    /**
+     * Helper method to put one entry on the ring. The fields are copied into
+     * the reused event of a claimed slot, the writer marshalls them.
+     * @throws FlooringMasteryPersistenceException
+     */
+    private void write(LocalDateTime timestamp, AuditRecord.Operation operation, LocalDate orderDate, int orderNumber,
+            String before, String after, String message) throws FlooringMasteryPersistenceException {
+        long start = System.nanoTime();
+        try {
+            if (closed) {
+                throw new FlooringMasteryPersistenceException("Audit log is closed");
+            }
+            checkFailure();
+            Thread runningWriter = writer;
+            if (runningWriter == null) {
+                runningWriter = startWriter();
+            }
+            long sequence = claim();
+            if (sequence < 0) {
+                return;
+            }
+            ring.get(sequence).set(timestamp, operation, orderDate, orderNumber, before, after, message);
+            ring.publish(sequence);
+            if (writerIdle) {
+                LockSupport.unpark(runningWriter);
+            }
+            if (closed) {
+                confirmWritten(sequence, runningWriter);
+            } else if (DURABILITY != Durability.ASYNC && !awaitWritten(sequence + 1)) {
+                throw new FlooringMasteryPersistenceException("Audit log is closed");
+            }
+        } finally {
+            writeLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Helper method to claim a slot, applying the backpressure policy when
+     * the ring is full.
+     * @return  sequence of the slot, -1 if the entry was dropped
+     * @throws FlooringMasteryPersistenceException
+     */
+    private long claim() throws FlooringMasteryPersistenceException {
+        long sequence = ring.tryClaim();
+        if (sequence >= 0) {
+            return sequence;
+        }
+        switch (BACKPRESSURE) {
+            case DROP:
+                droppedEntries.incrementAndGet();
+                return -1;
+            case FAIL:
+                throw new FlooringMasteryPersistenceException("Audit queue is full");
+            default:
+                int spins = 0;
+                while ((sequence = ring.tryClaim()) < 0) {
+                    //keep checking the writer, it will not make room if it failed or stopped
+                    if (closed) {
+                        throw new FlooringMasteryPersistenceException("Audit log is closed");
+                    }
+                    checkFailure();
+                    if (Thread.interrupted()) {
+                        Thread.currentThread().interrupt();
+                        throw new FlooringMasteryPersistenceException("Interrupted while writing audit entry");
+                    }
+                    if (spins < BLOCK_SPINS) {
+                        spins++;
+                        Thread.onSpinWait();
+                    } else {
+                        LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                    }
+                }
+                return sequence;
+        }
+    }
+
+    /**
+     * Helper method for an entry published while close() ran. The writer
+     * may have stopped before it saw the entry, so wait for it and fail if
+     * the entry was not written.
+     * @throws FlooringMasteryPersistenceException
+     */
+    private void confirmWritten(long sequence, Thread runningWriter) throws FlooringMasteryPersistenceException {
+        try {
+            runningWriter.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FlooringMasteryPersistenceException("Interrupted while writing audit entry", e);
+        }
+        if (written <= sequence) {
+            throw new FlooringMasteryPersistenceException("Audit log is closed");
+        }
+    }
+
+    /**
+     * Helper method to start the writer on the first entry.
+     * Synchronized with close(), so no writer starts once it is closed.
+     * @return  the writer thread
+     * @throws FlooringMasteryPersistenceException if the log is closed
+     */
+    private synchronized Thread startWriter() throws FlooringMasteryPersistenceException {
+        if (closed) {
+            throw new FlooringMasteryPersistenceException("Audit log is closed");
+        }
+        if (writer == null) {
+            Thread newWriter = new Thread(this::runWriter, "audit-writer");
+            //close() is called from the shutdown hook, the writer must not keep the program running
+            newWriter.setDaemon(true);
+            newWriter.start();
+            writer = newWriter;
+        }
+        return writer;
+    }
+
+    /**
+     * Helper method to wait until the entries queued so far are written.
+     * @throws FlooringMasteryPersistenceException
+     */
+    private void awaitQueuedEntries() throws FlooringMasteryPersistenceException {
+        awaitWritten(ring.getClaimed());
+    }
+
+    /**
+     * Helper method to wait until the writer wrote every sequence below a
+     * target, or stopped.
+     * @param target    sequence after the last entry to wait for
+     * @return  true if written, false if the writer stopped before
+     * @throws FlooringMasteryPersistenceException if the writer failed
+     */
+    private boolean awaitWritten(long target) throws FlooringMasteryPersistenceException {
+        try {
+            writtenLock.lock();
+            try {
+                while (written < target && failure == null && writer != null && writer.isAlive()) {
+                    writtenChanged.await(BLOCK_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+                }
+            } finally {
+                writtenLock.unlock();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FlooringMasteryPersistenceException("Interrupted while waiting for audit log", e);
+        }
+        checkFailure();
+        return written >= target;
+    }
+
+    /**
+     * Helper method to wake the callers waiting for the writer.
+     */
+    private void signalWritten() {
+        writtenLock.lock();
+        try {
+            writtenChanged.signalAll();
+        } finally {
+            writtenLock.unlock();
+        }
+    }
+
+    /**
+     * Helper method to throw the error of the writer, if there was one.
+     * @throws FlooringMasteryPersistenceException
+     */
+    private void checkFailure() throws FlooringMasteryPersistenceException {
+        IOException writerFailure = failure;
+        if (writerFailure != null) {
+            throw new FlooringMasteryPersistenceException("Could not persist audit information", writerFailure);
+        }
+    }
+
+    /**
+     * Writer thread. Writes batches of published events until closed and
+     * every claimed event is written.
+     */
+    private void runWriter() {
+        try {
+            segments.compressPending();
+            openAuditFile();
+            //callers wait in the other modes, so only ASYNC holds a batch open
+            boolean waitForBatch = DURABILITY == Durability.ASYNC;
+            int maxBatch = DURABILITY == Durability.FSYNC_PER_ENTRY ? 1 : MAX_BATCH;
+            boolean force = DURABILITY == Durability.FSYNC_PER_BATCH || DURABILITY == Durability.FSYNC_PER_ENTRY;
+            StringBuilder text = new StringBuilder(maxBatch * 128);
+            long next = 0;
+            while (true) {
+                long end = ring.availableTo(next, maxBatch);
+                if (end == next) {
+                    if (closed && ring.getClaimed() == next) {
+                        break;
+                    }
+                    //check again after raising the flag, a caller may have published before seeing it
+                    writerIdle = true;
+                    if (ring.availableTo(next, 1) == next && !closed) {
+                        LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    }
+                    writerIdle = false;
+                    continue;
+                }
+                long deadline = System.nanoTime() + FLUSH_INTERVAL_NANOS;
+                while (waitForBatch && end - next < maxBatch && !closed) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    LockSupport.parkNanos(Math.min(remaining, BATCH_PARK_NANOS));
+                    end = ring.availableTo(next, maxBatch);
+                }
+                for (long sequence = next; sequence < end; sequence++) {
+                    FlooringMasteryAuditRingBuffer.Event event = ring.get(sequence);
+                    FlooringMasteryAuditFormat.appendRecord(text, event.timestamp, event.operation, event.orderDate,
+                            event.orderNumber, event.before, event.after, event.message);
+                    text.append(System.lineSeparator());
+                }
+                //the events are copied into text, so their slots can be reused before the write
+                ring.release(next, end);
+                next = end;
+                writeBatch(text, force);
+                text.setLength(0);
+                written = end;
+                signalWritten();
+            }
+        } catch (IOException e) {
+            failure = e;
+        } finally {
+            closeAuditFile();
+            signalWritten();
+        }
+    }
+
+    /**
+     * Helper method to open the audit file for appending. The period of an
+     * existing file is the period of its last write.
+     * @throws IOException
+     */
+    private void openAuditFile() throws IOException {
+        Path auditPath = Paths.get(AUDIT_FILE);
+        channel = FileChannel.open(auditPath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        fileBytes = channel.size();
+        LocalDateTime lastWrite = fileBytes == 0
+                ? LocalDateTime.now()
+                : LocalDateTime.ofInstant(Files.getLastModifiedTime(auditPath).toInstant(), ZoneId.systemDefault());
+        filePeriod = lastWrite.truncatedTo(ROTATE_EVERY);
+    }
+
+    private void closeAuditFile() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+            channel = null;
+        }
+    }
+
+    /**
+     * Helper method to rotate the audit file.
+     * @param force     force the file to disk before closing it
+     * @throws IOException
+     */
+    private void rotate(boolean force) throws IOException {
+        if (force) {
+            channel.force(false);
+        }
+        closeAuditFile();
+        segments.rotate(LocalDateTime.now());
+        openAuditFile();
+    }
+
+    /**
+     * Helper method to write a batch of lines. Written with one write unless
+     * the file has to be rotated part way: then the batch is split at line
+     * ends, so a file only goes past the maximum size when it holds a
+     * single line that is larger.
+     * @param text      marshalled lines, each ending with a line break
+     * @param force     force the lines to disk before returning
+     * @throws IOException
+     */
+    private void writeBatch(CharSequence text, boolean force) throws IOException {
+        byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+        int start = 0;
+        while (start < bytes.length) {
+            if (fileBytes > 0 && !LocalDateTime.now().truncatedTo(ROTATE_EVERY).equals(filePeriod)) {
+                rotate(force);
+            }
+            int end = lastLineEnd(bytes, start, MAX_FILE_BYTES - fileBytes);
+            if (end == start && fileBytes > 0) {
+                rotate(force);
+                end = lastLineEnd(bytes, start, MAX_FILE_BYTES);
+            }
+            if (end == start) {
+                end = firstLineEnd(bytes, start);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, start, end - start);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            fileBytes += end - start;
+            start = end;
+        }
+        if (force) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Helper method to find where the last whole line within a limit ends.
+     * A line break byte never appears inside a UTF-8 character.
+     * @return  index after its line break, start if no line fits
+     */
+    private static int lastLineEnd(byte[] bytes, int start, long limit) {
+        int max = (int) Math.min(bytes.length, start + Math.max(0, limit));
+        for (int i = max - 1; i >= start; i--) {
+            if (bytes[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return start;
+    }
+
+    private static int firstLineEnd(byte[] bytes, int start) {
+        for (int i = start; i < bytes.length; i++) {
+            if (bytes[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return bytes.length;
     }
 }
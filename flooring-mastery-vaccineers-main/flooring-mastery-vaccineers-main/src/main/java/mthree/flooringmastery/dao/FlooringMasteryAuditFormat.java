@@ -0,0 +1,195 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.dao;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import mthree.flooringmastery.dto.AuditRecord;
+
+/**
+ * Line format of the audit log, shared by the writer and the segments.
+ * One record per line:
+ * Timestamp|Operation|OrderDate|OrderNumber|Before|After|Message
+ * Empty fields are null. "\", "|" and line breaks in text are escaped with
+ * a backslash. Lines of the old "timestamp : text" format are read as
+ * MESSAGE records.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+final class FlooringMasteryAuditFormat {
+
+    private static final char DELIMITER = '|';
+    private static final char ESCAPE = '\\';
+    private static final int FIELDS = 7;
+    private static final String OLD_DELIMITER = " : ";
+
+    private FlooringMasteryAuditFormat() {}
+
+    /**
+     * Helper method to marshall a record, without the line break
+     * @param record    audit record
+     * @return  one line of text
+     */
+    static String marshallRecord(AuditRecord record) {
+        StringBuilder line = new StringBuilder(128);
+        appendRecord(line, record.getTimestamp(), record.getOperation(), record.getOrderDate(),
+                record.getOrderNumber(), record.getBefore(), record.getAfter(), record.getMessage());
+        return line.toString();
+    }
+
+    /**
+     * Helper method to marshall the fields of a record onto the end of a
+     * builder, without the line break. Lets the writer marshall a whole
+     * batch into one builder without building the records.
+     * @param line          builder to append to
+     * @param timestamp     when it happened
+     * @param operation     what happened
+     * @param orderDate     date of the order, null if no order
+     * @param orderNumber   number of the order, 0 if no order
+     * @param before        order fields before, null if none
+     * @param after         order fields after, null if none
+     * @param message       free text, null if none
+     */
+    static void appendRecord(StringBuilder line, LocalDateTime timestamp, AuditRecord.Operation operation,
+            LocalDate orderDate, int orderNumber, String before, String after, String message) {
+        line.append(timestamp).append(DELIMITER);
+        line.append(operation).append(DELIMITER);
+        if (orderDate != null) {
+            line.append(orderDate);
+        }
+        line.append(DELIMITER);
+        if (orderNumber != 0) {
+            line.append(orderNumber);
+        }
+        line.append(DELIMITER);
+        appendEscaped(line, before);
+        line.append(DELIMITER);
+        appendEscaped(line, after);
+        line.append(DELIMITER);
+        appendEscaped(line, message);
+    }
+
+    /**
+     * Helper method to unmarshall a record
+     * @param line  one line of the audit log
+     * @return  audit record, null if the line is not a record
+     */
+    static AuditRecord unmarshallRecord(String line) {
+        if (line.endsWith("\r")) {
+            line = line.substring(0, line.length() - 1);
+        }
+        List<String> fields = split(line);
+        try {
+            if (fields.size() != FIELDS) {
+                return unmarshallOldRecord(line);
+            }
+            return new AuditRecord(
+                    LocalDateTime.parse(fields.get(0)),
+                    AuditRecord.Operation.valueOf(fields.get(1)),
+                    fields.get(2) == null ? null : LocalDate.parse(fields.get(2)),
+                    fields.get(3) == null ? 0 : Integer.parseInt(fields.get(3)),
+                    fields.get(4),
+                    fields.get(5),
+                    fields.get(6));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Helper method to read the timestamp and order number of a line
+     * without building the record. Used when indexing segments.
+     * @param line  one line of the audit log
+     * @return  record with only timestamp, operation and order number, null
+     * if the line is not a record
+     */
+    static AuditRecord unmarshallKey(String line) {
+        int first = line.indexOf(DELIMITER);
+        if (first < 0) {
+            return unmarshallRecord(line);
+        }
+        int second = line.indexOf(DELIMITER, first + 1);
+        int third = second < 0 ? -1 : line.indexOf(DELIMITER, second + 1);
+        int fourth = third < 0 ? -1 : line.indexOf(DELIMITER, third + 1);
+        if (fourth < 0) {
+            return unmarshallRecord(line);
+        }
+        try {
+            String number = line.substring(third + 1, fourth);
+            return new AuditRecord(
+                    LocalDateTime.parse(line.substring(0, first)),
+                    AuditRecord.Operation.valueOf(line.substring(first + 1, second)),
+                    null,
+                    number.isEmpty() ? 0 : Integer.parseInt(number),
+                    null, null, null);
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            //e.g. an old format line with a "|" in its text
+            return unmarshallRecord(line);
+        }
+    }
+
+    private static AuditRecord unmarshallOldRecord(String line) {
+        int delimiter = line.indexOf(OLD_DELIMITER);
+        if (delimiter < 0) {
+            return null;
+        }
+        return new AuditRecord(LocalDateTime.parse(line.substring(0, delimiter)), AuditRecord.Operation.MESSAGE,
+                null, 0, null, null, line.substring(delimiter + OLD_DELIMITER.length()));
+    }
+
+    private static void appendEscaped(StringBuilder line, String text) {
+        if (text == null) {
+            return;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case ESCAPE:
+                case DELIMITER:
+                    line.append(ESCAPE).append(c);
+                    break;
+                case '\n':
+                    line.append(ESCAPE).append('n');
+                    break;
+                case '\r':
+                    line.append(ESCAPE).append('r');
+                    break;
+                default:
+                    line.append(c);
+            }
+        }
+    }
+
+    /**
+     * Helper method to split a line on unescaped delimiters and unescape
+     * the fields. Empty fields are null.
+     */
+    private static List<String> split(String line) {
+        List<String> fields = new ArrayList<>(FIELDS);
+        StringBuilder field = new StringBuilder();
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == ESCAPE && i + 1 < line.length()) {
+                char next = line.charAt(++i);
+                field.append(next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else if (c == DELIMITER) {
+                fields.add(field.length() == 0 ? null : field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.length() == 0 ? null : field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.dao;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import mthree.flooringmastery.dto.AuditRecord;
+
+/**
+ * Bounded ring of audit events between many producers and one consumer.
+ *
+ * Every slot holds an Event allocated up front and reused for every entry
+ * that passes through it. A producer claims the next sequence with a
+ * compare-and-set on the claim counter, fills the event of its slot and
+ * publishes it by storing the sequence in the slot's published array entry.
+ * The consumer reads published events in sequence order and releases the
+ * slots when it is done with them. No locks are taken on either side.
+ *
+ * A slot is free to claim once the consumer has released the sequence one
+ * capacity earlier, so a producer never writes an event still being read.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+final class FlooringMasteryAuditRingBuffer {
+
+    /**
+     * One entry of the ring. Written only by the producer that claimed the
+     * slot, then only read by the consumer until released.
+     */
+    static final class Event {
+        LocalDateTime timestamp;
+        AuditRecord.Operation operation;
+        LocalDate orderDate;
+        int orderNumber;
+        String before;
+        String after;
+        String message;
+
+        void set(LocalDateTime timestamp, AuditRecord.Operation operation, LocalDate orderDate, int orderNumber,
+                String before, String after, String message) {
+            this.timestamp = timestamp;
+            this.operation = operation;
+            this.orderDate = orderDate;
+            this.orderNumber = orderNumber;
+            this.before = before;
+            this.after = after;
+            this.message = message;
+        }
+
+        /**
+         * Drops the references so released slots do not keep the text alive
+         */
+        void clear() {
+            set(null, null, null, 0, null, null, null);
+        }
+    }
+
+    private final Event[] events;
+    private final int mask;
+
+    /** Sequence stored in each slot when its event is published */
+    private final AtomicLongArray published;
+
+    /** Next sequence to claim */
+    private final AtomicLong claimed = new AtomicLong();
+
+    /** Every sequence below this was released by the consumer */
+    private volatile long released = 0;
+
+    /**
+     * Ring buffer.
+     * @param capacity  events it holds, rounded up to a power of two
+     */
+    FlooringMasteryAuditRingBuffer(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Audit queue size must be between 1 and " + (1 << 30));
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        events = new Event[size];
+        published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            events[i] = new Event();
+            //no sequence is negative, so nothing is published yet
+            published.set(i, -1);
+        }
+        mask = size - 1;
+    }
+
+    int getCapacity() {
+        return events.length;
+    }
+
+    /**
+     * Claims the next slot for a producer.
+     * @return  sequence of the slot, -1 if the ring is full
+     */
+    long tryClaim() {
+        long next;
+        do {
+            next = claimed.get();
+            if (next - released >= events.length) {
+                return -1;
+            }
+        } while (!claimed.compareAndSet(next, next + 1));
+        return next;
+    }
+
+    /**
+     * Event of a claimed or published sequence.
+     * @param sequence  sequence of the slot
+     * @return  the reused event of the slot
+     */
+    Event get(long sequence) {
+        return events[(int) sequence & mask];
+    }
+
+    /**
+     * Makes the event of a claimed sequence visible to the consumer.
+     * @param sequence  sequence from tryClaim()
+     */
+    void publish(long sequence) {
+        published.set((int) sequence & mask, sequence);
+    }
+
+    /**
+     * End of the run of published events starting at a sequence. Stops at
+     * the first slot a producer claimed but has not published yet.
+     * @param from  first sequence to check
+     * @param max   most events to return
+     * @return  sequence after the last published event, from if none
+     */
+    long availableTo(long from, int max) {
+        long end = from;
+        long limit = from + max;
+        while (end < limit && published.get((int) end & mask) == end) {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Gives the slots of the consumed events back to the producers.
+     * Only called by the consumer.
+     * @param from  first consumed sequence
+     * @param to    sequence after the last consumed event
+     */
+    void release(long from, long to) {
+        for (long sequence = from; sequence < to; sequence++) {
+            get(sequence).clear();
+        }
+        released = to;
+    }
+
+    /**
+     * Number of sequences claimed so far
+     * @return  next sequence to claim
+     */
+    long getClaimed() {
+        return claimed.get();
+    }
+}
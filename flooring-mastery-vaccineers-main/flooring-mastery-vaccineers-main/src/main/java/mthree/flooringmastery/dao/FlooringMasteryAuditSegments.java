@@ -0,0 +1,502 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.dao;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import mthree.flooringmastery.dto.AuditRecord;
+
+/**
+ * Rotated segments of the audit log.
+ * A full audit file is renamed to audit-yyyyMMdd'T'HHmmssSSS.txt next to it,
+ * then compressed to .txt.gz on a background thread. After each compression
+ * the retention policy deletes the oldest segments.
+ *
+ * Segments are compressed in blocks of records, each block its own gzip
+ * member, so the file is still one valid gzip file. A sparse index next to
+ * the segment (.idx) has one line per block:
+ * FirstTimestamp,LastTimestamp,Offset,Length,OrderNumbers
+ * Queries read the index and only decompress the blocks that can match.
+ * The active file and segments waiting for compression are read in full.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public class FlooringMasteryAuditSegments {
+
+    private static final String TEXT_SUFFIX = ".txt";
+    private static final String GZIP_SUFFIX = ".txt.gz";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final DateTimeFormatter SEGMENT_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmssSSS");
+
+    /** Records per compressed block */
+    private static final int BLOCK_RECORDS = 128;
+
+    /** Active audit file */
+    private final Path AUDIT_FILE;
+    /** Folder of the audit file and its segments */
+    private final Path FOLDER;
+    /** Audit file name without .txt, segments start with it and a dash */
+    private final String BASE_NAME;
+    /** Most compressed segments kept, 0 keeps all */
+    private final int RETAIN_SEGMENTS;
+    /** Segments older than this are deleted, null keeps all */
+    private final Duration RETAIN_AGE;
+
+    /** Single background thread compressing segments in rotation order */
+    private final ExecutorService compressor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "audit-compressor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile IOException failure;
+
+    /** Queries hold the read lock, renames and deletes take the write lock */
+    private final ReadWriteLock fileLock = new ReentrantReadWriteLock();
+
+    /** Indexes read so far. Segment --> blocks */
+    private final Map<Path, List<Block>> indexes = new ConcurrentHashMap<>();
+
+    public FlooringMasteryAuditSegments(String auditFile, int retainSegments, Duration retainAge) {
+        this.AUDIT_FILE = Paths.get(auditFile).toAbsolutePath();
+        this.FOLDER = AUDIT_FILE.getParent();
+        String fileName = AUDIT_FILE.getFileName().toString();
+        this.BASE_NAME = fileName.endsWith(TEXT_SUFFIX)
+                ? fileName.substring(0, fileName.length() - TEXT_SUFFIX.length())
+                : fileName;
+        this.RETAIN_SEGMENTS = retainSegments;
+        this.RETAIN_AGE = retainAge;
+    }
+
+    /**
+     * Renames the active audit file to a new segment and compresses it in
+     * the background. The audit file must be closed.
+     * @param time  time the segment was rotated, used in its name
+     * @return  path of the uncompressed segment
+     * @throws IOException
+     */
+    public Path rotate(LocalDateTime time) throws IOException {
+        String stamp = time.format(SEGMENT_TIME);
+        Path segment = FOLDER.resolve(BASE_NAME + "-" + stamp + TEXT_SUFFIX);
+        for (int i = 1; Files.exists(segment) || Files.exists(gzipPath(segment)); i++) {
+            //"_" sorts after ".", so later segments of the same millisecond sort last
+            segment = FOLDER.resolve(BASE_NAME + "-" + stamp + String.format("_%03d", i) + TEXT_SUFFIX);
+        }
+        fileLock.writeLock().lock();
+        try {
+            Files.move(AUDIT_FILE, segment, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            fileLock.writeLock().unlock();
+        }
+        Path rotated = segment;
+        compressor.execute(() -> compress(rotated));
+        return segment;
+    }
+
+    /**
+     * Compresses segments left uncompressed, e.g. when the program stopped
+     * right after a rotation.
+     * @throws IOException
+     */
+    public void compressPending() throws IOException {
+        for (Path segment : listSegments(TEXT_SUFFIX)) {
+            compressor.execute(() -> compress(segment));
+        }
+    }
+
+    /**
+     * Compressed segments, oldest first.
+     * @return  paths of the .txt.gz segments
+     * @throws IOException
+     */
+    public List<Path> getSegments() throws IOException {
+        return listSegments(GZIP_SUFFIX);
+    }
+
+    /**
+     * Records written in a time range, oldest first.
+     * @param from  first time, inclusive
+     * @param to    last time, exclusive
+     * @return  matching records
+     * @throws IOException
+     */
+    public List<AuditRecord> findByTime(LocalDateTime from, LocalDateTime to) throws IOException {
+        return find(block -> block.first.isBefore(to) && !block.last.isBefore(from),
+                record -> !record.getTimestamp().isBefore(from) && record.getTimestamp().isBefore(to));
+    }
+
+    /**
+     * Records of one order, oldest first.
+     * @param orderNumber   order number
+     * @return  matching records
+     * @throws IOException
+     */
+    public List<AuditRecord> findByOrderNumber(int orderNumber) throws IOException {
+        return find(block -> Arrays.binarySearch(block.orderNumbers, orderNumber) >= 0,
+                record -> record.getOrderNumber() == orderNumber);
+    }
+
+    /**
+     * Waits for queued compressions and stops the compressor thread.
+     * @throws IOException if a segment could not be compressed
+     */
+    public void close() throws IOException {
+        compressor.shutdown();
+        try {
+            compressor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Helper method to run a query over compressed segments, segments
+     * waiting for compression and the active file, in that time order.
+     * @param blockFilter   blocks that can hold a match
+     * @param recordFilter  records to return
+     * @return  matching records
+     * @throws IOException
+     */
+    private List<AuditRecord> find(Predicate<Block> blockFilter, Predicate<AuditRecord> recordFilter) throws IOException {
+        List<AuditRecord> found = new ArrayList<>();
+        fileLock.readLock().lock();
+        try {
+            List<Path> segments = new ArrayList<>(getSegments());
+            segments.addAll(listSegments(TEXT_SUFFIX));
+            //name without suffix sorts in rotation order
+            segments.sort((a, b) -> segmentName(a).compareTo(segmentName(b)));
+            for (Path segment : segments) {
+                if (segment.getFileName().toString().endsWith(GZIP_SUFFIX)) {
+                    findInSegment(segment, blockFilter, recordFilter, found);
+                } else {
+                    findInText(segment, recordFilter, found);
+                }
+            }
+            findInText(AUDIT_FILE, recordFilter, found);
+        } finally {
+            fileLock.readLock().unlock();
+        }
+        return found;
+    }
+
+    private void findInSegment(Path segment, Predicate<Block> blockFilter, Predicate<AuditRecord> recordFilter,
+            List<AuditRecord> found) throws IOException {
+        List<Block> blocks = readIndex(segment);
+        try (FileChannel channel = FileChannel.open(segment)) {
+            for (Block block : blocks) {
+                if (block.isIndexed() && !blockFilter.test(block)) {
+                    continue;
+                }
+                ByteBuffer compressed = ByteBuffer.allocate(block.length);
+                while (compressed.hasRemaining() && channel.read(compressed, block.offset + compressed.position()) >= 0) {
+                    //keep reading
+                }
+                readLines(new GZIPInputStream(new ByteArrayInputStream(compressed.array())), recordFilter, found);
+            }
+        }
+    }
+
+    private void findInText(Path file, Predicate<AuditRecord> recordFilter, List<AuditRecord> found) throws IOException {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        //a line still being written has no line break yet
+        int end = bytes.length;
+        while (end > 0 && bytes[end - 1] != '\n') {
+            end--;
+        }
+        readLines(new ByteArrayInputStream(bytes, 0, end), recordFilter, found);
+    }
+
+    private void readLines(InputStream in, Predicate<AuditRecord> recordFilter, List<AuditRecord> found)
+            throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                AuditRecord record = FlooringMasteryAuditFormat.unmarshallRecord(line);
+                if (record != null && recordFilter.test(record)) {
+                    found.add(record);
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper method to read the index of a segment. Segments written before
+     * the index existed are one block covering everything.
+     */
+    private List<Block> readIndex(Path segment) throws IOException {
+        List<Block> blocks = indexes.get(segment);
+        if (blocks != null) {
+            return blocks;
+        }
+        Path index = indexPath(segment);
+        blocks = new ArrayList<>();
+        if (Files.exists(index)) {
+            for (String line : Files.readAllLines(index, StandardCharsets.UTF_8)) {
+                if (!line.isEmpty()) {
+                    blocks.add(Block.unmarshall(line));
+                }
+            }
+        } else {
+            blocks.add(Block.whole(segment));
+        }
+        indexes.put(segment, blocks);
+        return blocks;
+    }
+
+    /**
+     * Helper method to gzip one segment in blocks, write its index, replace
+     * it by the .gz file and apply the retention policy. Runs on the
+     * compressor thread.
+     */
+    private void compress(Path segment) {
+        Path gzip = gzipPath(segment);
+        Path partial = FOLDER.resolve(gzip.getFileName() + ".tmp");
+        Path index = indexPath(gzip);
+        try {
+            List<Block> blocks = new ArrayList<>();
+            try (BufferedReader in = Files.newBufferedReader(segment, StandardCharsets.UTF_8);
+                    CountingOutputStream out = new CountingOutputStream(Files.newOutputStream(partial))) {
+                List<String> lines = new ArrayList<>(BLOCK_RECORDS);
+                String line;
+                while ((line = in.readLine()) != null) {
+                    lines.add(line);
+                    if (lines.size() == BLOCK_RECORDS) {
+                        blocks.add(writeBlock(lines, out));
+                        lines.clear();
+                    }
+                }
+                if (!lines.isEmpty()) {
+                    blocks.add(writeBlock(lines, out));
+                }
+            }
+            StringBuilder indexText = new StringBuilder();
+            for (Block block : blocks) {
+                indexText.append(block.marshall()).append('\n');
+            }
+            Files.write(index, indexText.toString().getBytes(StandardCharsets.UTF_8));
+            Files.setLastModifiedTime(partial, Files.getLastModifiedTime(segment));
+
+            fileLock.writeLock().lock();
+            try {
+                Files.move(partial, gzip, StandardCopyOption.ATOMIC_MOVE);
+                Files.delete(segment);
+                applyRetention();
+            } finally {
+                fileLock.writeLock().unlock();
+            }
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    /**
+     * Helper method to write lines as one gzip member.
+     * @return  index entry of the block
+     */
+    private Block writeBlock(List<String> lines, CountingOutputStream out) throws IOException {
+        long offset = out.count;
+        LocalDateTime first = null;
+        LocalDateTime last = null;
+        TreeSet<Integer> orderNumbers = new TreeSet<>();
+        GZIPOutputStream gzip = new GZIPOutputStream(new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                //leave the segment open for the next block
+                flush();
+            }
+        });
+        for (String line : lines) {
+            gzip.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+            AuditRecord key = FlooringMasteryAuditFormat.unmarshallKey(line);
+            if (key == null) {
+                continue;
+            }
+            if (first == null || key.getTimestamp().isBefore(first)) {
+                first = key.getTimestamp();
+            }
+            if (last == null || key.getTimestamp().isAfter(last)) {
+                last = key.getTimestamp();
+            }
+            if (key.getOrderNumber() != 0) {
+                orderNumbers.add(key.getOrderNumber());
+            }
+        }
+        gzip.close();
+        int[] numbers = orderNumbers.stream().mapToInt(Integer::intValue).toArray();
+        if (first == null) {
+            //no records, never matches a time range
+            first = LocalDateTime.MAX;
+            last = LocalDateTime.MIN;
+        }
+        return new Block(first, last, offset, (int) (out.count - offset), numbers);
+    }
+
+    /**
+     * Helper method to delete compressed segments over the count or older
+     * than the retention age. Called under the write lock.
+     * @throws IOException
+     */
+    private void applyRetention() throws IOException {
+        List<Path> segments = getSegments();
+        int excess = RETAIN_SEGMENTS > 0 ? segments.size() - RETAIN_SEGMENTS : 0;
+        Instant oldest = RETAIN_AGE == null ? null : Instant.now().minus(RETAIN_AGE);
+        for (int i = 0; i < segments.size(); i++) {
+            Path segment = segments.get(i);
+            if (i < excess || (oldest != null && Files.getLastModifiedTime(segment).toInstant().isBefore(oldest))) {
+                Files.deleteIfExists(segment);
+                Files.deleteIfExists(indexPath(segment));
+                indexes.remove(segment);
+            }
+        }
+    }
+
+    /**
+     * Helper method to list segments with a suffix. Segment names sort in
+     * rotation order.
+     */
+    private List<Path> listSegments(String suffix) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(FOLDER, BASE_NAME + "-*" + suffix)) {
+            for (Path segment : stream) {
+                segments.add(segment);
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private String segmentName(Path segment) {
+        String name = segment.getFileName().toString();
+        return name.substring(0, name.indexOf(TEXT_SUFFIX));
+    }
+
+    private Path gzipPath(Path segment) {
+        String name = segment.getFileName().toString();
+        return FOLDER.resolve(name.substring(0, name.length() - TEXT_SUFFIX.length()) + GZIP_SUFFIX);
+    }
+
+    private Path indexPath(Path gzipSegment) {
+        return FOLDER.resolve(segmentName(gzipSegment) + INDEX_SUFFIX);
+    }
+
+    /** Index entry of one compressed block */
+    private static final class Block {
+        private final LocalDateTime first;
+        private final LocalDateTime last;
+        private final long offset;
+        private final int length;
+        /** Sorted order numbers in the block, null if the segment has no index */
+        private final int[] orderNumbers;
+
+        private Block(LocalDateTime first, LocalDateTime last, long offset, int length, int[] orderNumbers) {
+            this.first = first;
+            this.last = last;
+            this.offset = offset;
+            this.length = length;
+            this.orderNumbers = orderNumbers;
+        }
+
+        /** Block covering a whole segment without index, read by every query */
+        private static Block whole(Path segment) throws IOException {
+            return new Block(null, null, 0, (int) Files.size(segment), null);
+        }
+
+        private boolean isIndexed() {
+            return orderNumbers != null;
+        }
+
+        private String marshall() {
+            StringBuilder line = new StringBuilder();
+            line.append(first).append(',').append(last).append(',').append(offset).append(',').append(length).append(',');
+            for (int i = 0; i < orderNumbers.length; i++) {
+                if (i > 0) {
+                    line.append(' ');
+                }
+                line.append(orderNumbers[i]);
+            }
+            return line.toString();
+        }
+
+        private static Block unmarshall(String line) {
+            String[] tokens = line.split(",", -1);
+            int[] numbers = tokens[4].isEmpty()
+                    ? new int[0]
+                    : Arrays.stream(tokens[4].split(" ")).mapToInt(Integer::parseInt).toArray();
+            return new Block(LocalDateTime.parse(tokens[0]), LocalDateTime.parse(tokens[1]),
+                    Long.parseLong(tokens[2]), Integer.parseInt(tokens[3]), numbers);
+        }
+    }
+
+    /** Counts bytes written, for block offsets */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count = 0;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
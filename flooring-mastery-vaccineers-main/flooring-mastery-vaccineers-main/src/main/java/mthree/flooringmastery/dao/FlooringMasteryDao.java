@@ -7,8 +7,15 @@
 package mthree.flooringmastery.dao;
 
 import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import mthree.flooringmastery.dto.DailySummary;
 import mthree.flooringmastery.dto.Order;
+import mthree.flooringmastery.dto.PeriodSummary;
 import mthree.flooringmastery.dto.Product;
 import mthree.flooringmastery.dto.State;
 
@@ -26,16 +33,38 @@ public interface FlooringMasteryDao {
      * Adds an order to appropriate file.
      * @param date      date of the order
      * @param order     complete order object
-     * @return          the added Order with populated order number
+     * @return          the added Order with populated order number, a read
+     *                  only copy of it is stored
      * @throws FlooringMasteryPersistenceException 
      */
     public Order addOrder(LocalDate date, Order order) throws FlooringMasteryPersistenceException;
+
+    /**
+     * Adds an order once per client request id. A retry of a request whose
+     * order is still there gets that order back and nothing is added.
+     * @param date      date of the order
+     * @param order     complete order object
+     * @param requestId client request id, one line of text
+     * @return  the given order with populated order number, or the order
+     *          already added for the request id
+     * @throws FlooringMasteryPersistenceException 
+     */
+    public Order addOrder(LocalDate date, Order order, String requestId) throws FlooringMasteryPersistenceException;
+
+    /**
+     * Gets the order already added for a client request id.
+     * @param requestId client request id, one line of text
+     * @return  order of the request, null if the request is unknown,
+     *          expired or its order was removed
+     * @throws FlooringMasteryPersistenceException 
+     */
+    public Order getRequestedOrder(String requestId) throws FlooringMasteryPersistenceException;
     
     /**
      * Get a single order.
      * @param date          Gets a single order from the file
      * @param orderNumber   positive integer
-     * @return              order if exists, null if not
+     * @return              read only order if exists, null if not
      * @throws FlooringMasteryPersistenceException 
      */
     public Order getOrder(LocalDate date, int orderNumber) throws FlooringMasteryPersistenceException;
@@ -43,7 +72,7 @@ public interface FlooringMasteryDao {
     /**
      * Gets all orders for a provided date.
      * @param date  order date
-     * @return  Map of all orders. Order number (key) to Order (value)
+     * @return  Read only map of all orders, the orders read only too. Order number (key) to Order (value)
      * @throws FlooringMasteryPersistenceException 
      */
     public Map<Integer, Order> getAllOrders(LocalDate date) throws FlooringMasteryPersistenceException;
@@ -60,6 +89,28 @@ public interface FlooringMasteryDao {
      */
     public Order editOrder(LocalDate date, int orderNumber, Order newOrder) throws FlooringMasteryPersistenceException;
     
+    /**
+     * Edits several orders of one date, e.g. repriced orders. The date is
+     * saved once for the whole batch.
+     * @param date      order date
+     * @param newOrders orders with updated information, by order number
+     * @return  old orders, in the order of the new ones, null where none
+     * @throws FlooringMasteryPersistenceException 
+     */
+    public List<Order> editOrders(LocalDate date, Collection<Order> newOrders) throws FlooringMasteryPersistenceException;
+    
+    /**
+     * Edits several orders of one date, each only if it is still the same
+     * as when it was read. The check and the write are one step, so an
+     * order edited or removed in the meantime is left as it is.
+     * @param date          order date
+     * @param readOrders    orders as they were read
+     * @param newOrders     orders with updated information, in the order of the read ones
+     * @return  new orders which were saved
+     * @throws FlooringMasteryPersistenceException 
+     */
+    public List<Order> editUnchangedOrders(LocalDate date, List<Order> readOrders, List<Order> newOrders) throws FlooringMasteryPersistenceException;
+
     /**
      * Removes a specified order.
      * @param date          order date
@@ -75,6 +126,28 @@ public interface FlooringMasteryDao {
      */
     public void exportData() throws FlooringMasteryPersistenceException;
     
+    /**
+     * Moves every order date before the cutoff into the archive.
+     * Archived dates can still be read, edited and exported.
+     * @param cutoff    dates before this one get archived
+     * @return          number of dates archived
+     * @throws FlooringMasteryPersistenceException 
+     */
+    public int archiveOrders(LocalDate cutoff) throws FlooringMasteryPersistenceException;
+    
+    /**
+     * Starts a batch of calls. Until endBatch, order files changed by others
+     * may not be seen, and added orders may be written later, together.
+     * @throws FlooringMasteryPersistenceException 
+     */
+    public void beginBatch() throws FlooringMasteryPersistenceException;
+    
+    /**
+     * Ends a batch, writing what it kept.
+     * @throws FlooringMasteryPersistenceException 
+     */
+    public void endBatch() throws FlooringMasteryPersistenceException;
+    
     /**
      * Gets all products
      * @return  Map of products. Name of product (key) and product dto (value)
@@ -89,4 +162,60 @@ public interface FlooringMasteryDao {
      */
     public Map<String, State> getAllStates() throws FlooringMasteryPersistenceException;
 
+    /**
+     * Version of the products and states. It changes whenever a product or
+     * state changes, so callers can keep a copy of the catalog and only get
+     * it again when the version moved.
+     * @return  catalog version
+     * @throws FlooringMasteryPersistenceException 
+     */
+    public long getCatalogVersion() throws FlooringMasteryPersistenceException;
+
+    /**
+     * Version of the orders of one date. It changes whenever an order of
+     * the date is added, edited or removed, or its file is changed by hand,
+     * so callers can keep something made from the orders and only make it
+     * again when the version moved.
+     * @param date  order date
+     * @return  orders version of the date
+     * @throws FlooringMasteryPersistenceException 
+     */
+    public long getOrdersVersion(LocalDate date) throws FlooringMasteryPersistenceException;
+
+    /**
+     * Totals of the orders on a date: count, area, material and labor cost,
+     * tax and total. Kept up to date as orders change, so no orders are
+     * read to answer it.
+     * @param date  order date
+     * @return  summary of the date, with everything 0 if it has no orders
+     * @throws FlooringMasteryPersistenceException 
+     */
+    public DailySummary getDailySummary(LocalDate date) throws FlooringMasteryPersistenceException;
+
+    /**
+     * Summaries of every date with orders in a range, active or archived.
+     * @param from  first date, inclusive
+     * @param to    last date, inclusive
+     * @return  order date --> summary, sorted by date
+     * @throws FlooringMasteryPersistenceException 
+     */
+    public SortedMap<LocalDate, DailySummary> getDailySummaries(LocalDate from, LocalDate to) throws FlooringMasteryPersistenceException;
+
+    /**
+     * Totals of every month with orders in a range, active or archived.
+     * @param from  first month, inclusive
+     * @param to    last month, inclusive
+     * @return  month --> summary, sorted by month
+     * @throws FlooringMasteryPersistenceException 
+     */
+    public SortedMap<YearMonth, PeriodSummary> getMonthlySummaries(YearMonth from, YearMonth to) throws FlooringMasteryPersistenceException;
+
+    /**
+     * Totals of every year with orders in a range, active or archived.
+     * @param from  first year, inclusive
+     * @param to    last year, inclusive
+     * @return  year --> summary, sorted by year
+     * @throws FlooringMasteryPersistenceException 
+     */
+    public SortedMap<Year, PeriodSummary> getYearlySummaries(Year from, Year to) throws FlooringMasteryPersistenceException;
 }
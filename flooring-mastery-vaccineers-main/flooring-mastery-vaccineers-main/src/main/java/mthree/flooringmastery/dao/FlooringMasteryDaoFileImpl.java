@@ -7,6 +7,7 @@
 package mthree.flooringmastery.dao;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
@@ -15,14 +16,33 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Year;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import mthree.flooringmastery.dto.DailySummary;
+import mthree.flooringmastery.dto.Money;
 import mthree.flooringmastery.dto.Order;
+import mthree.flooringmastery.dto.PeriodSummary;
 import mthree.flooringmastery.dto.Product;
 import mthree.flooringmastery.dto.State;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,6 +51,18 @@ import org.springframework.stereotype.Component;
 /**
  * File implementation of the main dao. 
  * 
+ * Every call holds one lock, so requests from many threads take turns on
+ * the maps and files. It is a ReentrantLock rather than synchronized, so a
+ * virtual thread waiting for it, or doing file I/O under it, does not pin
+ * its carrier thread.
+ * 
+ * Reads do not need the lock once their data is loaded. Products, states
+ * and, with a snapshot store, the orders of each date are immutable maps
+ * which writers replace instead of changing. A reader gets the current map
+ * as it is, without a copy, and keeps a consistent view of it while writers
+ * go on. Reads still take the lock to load data or to pick up a file
+ * changed by hand.
+ * 
  * @author Andy Bae
  * @author Alexi Mellovich
  * @author Adem Coklar
@@ -51,36 +83,146 @@ public class FlooringMasteryDaoFileImpl implements FlooringMasteryDao{
     /** Backup file name */
     private final String BACKUP_FILE;
     
+    /** Daily summary file name, next to the order files */
+    private final String SUMMARY_FILE;
+    
+    /** Month and year rollup file name, next to the orders folder */
+    private final String ROLLUP_FILE;
+    
     /** Delimiter when saving orders */
     private static final String DELIMITER = ",";
     
-    /** Orders map. Order date --> ( order number --> order object) */
-    private Map<LocalDate, Map<Integer, Order>> orders = new HashMap<>();
+    /** First line of the summary file */
+    private static final String SUMMARY_HEADER = "Date,OrderCount,Area,MaterialCost,LaborCost,Tax,Total";
+    
+    /** First line of the rollup file. Period is yyyy-MM for a month, yyyy for a year */
+    private static final String ROLLUP_HEADER = "Period,OrderCount,Area,MaterialCost,LaborCost,Tax,Total";
+    
+    /** Fewest lines the summary and rollup files grow to before they are written again */
+    private static final int MIN_COMPACT_LINES = 1024;
+    
+    /** Most orders a batch adds before it writes them */
+    private static final int BATCH_MAX_ORDERS = 4096;
+    
+    /** Date format of the summary file */
+    private static final DateTimeFormatter SUMMARY_DATE = DateTimeFormatter.ofPattern("MM-dd-yyyy");
+    
+    /** First line of every order file */
+    private static final String ORDER_HEADER = "OrderNumber,CustomerName,State,TaxRate,ProductType,Area,CostPerSquareFoot,LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total";
+    
+    /** Compressed segments of old order dates */
+    private final FlooringMasteryOrderArchive archive;
+    
+    /** Request ids of recently added orders */
+    private final FlooringMasteryRequestLog requests;
+    
+    /** Active orders. Order date --> ( order number --> order object) */
+    private final FlooringMasteryOrderStore orders;
+    
+    /** Order files read so far. File name --> last modified time when read */
+    private final Map<String, Long> loadedFiles = new ConcurrentHashMap<>();
     
-    /** Map of products. Product type --> Product */
-    private Map<String, Product> products = new HashMap<>();
+    /** Read only map of products, replaced when it changes. Product type --> Product */
+    private volatile Map<String, Product> products = Collections.emptyMap();
     
-    /** Map of states. State name --> State*/
-    private Map<String, State> states = new HashMap<>();
+    /** Read only map of states, replaced when it changes. State name --> State*/
+    private volatile Map<String, State> states = Collections.emptyMap();
+    
+    /** Bumped whenever a loaded product or state changes */
+    private long catalogVersion = 0;
+    
+    /** Bumped whenever the orders of a date are written or read again */
+    private long ordersVersion = 0;
+    
+    /** Version of each date changed so far. Order date --> orders version when it last changed */
+    private final Map<LocalDate, Long> dateVersions = new ConcurrentHashMap<>();
+    
+    /** Last modified times of the product and tax files when last read */
+    private volatile long productsModified = -1;
+    private volatile long statesModified = -1;
+    
+    /** Totals of each date, active or archived. Order date --> summary. Null until first read */
+    private Map<LocalDate, DailySummary> summaries;
+    
+    /** Sums of the daily summaries of each month and year. Period --> summary */
+    private SortedMap<YearMonth, PeriodSummary> monthRollups;
+    private SortedMap<Year, PeriodSummary> yearRollups;
+    
+    /** Lines in the summary and rollup files, live or not */
+    private int summaryFileLines;
+    private int rollupFileLines;
+    
+    /** Archived dates read so far. Order date --> ( order number --> order object) */
+    private Map<LocalDate, Map<Integer, Order>> archivedOrders = new HashMap<>();
     private int maxOrderNumber = 0;
     
+    /** Nesting of beginBatch calls, 0 outside of a batch */
+    private int batchDepth = 0;
+    
+    /** True once the batch scanned the order folder */
+    private boolean batchScanned = false;
+    
+    /** Orders added in the batch, not written yet. Order date --> orders, oldest first */
+    private final Map<LocalDate, List<Order>> batchOrders = new HashMap<>();
+    private int batchOrderCount = 0;
+    
+    /** Held by every call */
+    private final ReentrantLock lock = new ReentrantLock();
+    
     @Autowired
     public FlooringMasteryDaoFileImpl() {
         this.ORDER_PATH = "Orders";
         this.PRODUCT_FILE = "Data/Products.txt";
         this.TAX_FILE = "Data/Taxes.txt";
         this.BACKUP_FILE = "Backup/DataExport.txt";
+        this.SUMMARY_FILE = "Orders/Summaries.txt";
+        this.ROLLUP_FILE = "Rollups.txt";
+        this.archive = new FlooringMasteryOrderArchive("Archive");
+        this.requests = new FlooringMasteryRequestLog("Requests.txt",
+                Integer.getInteger("flooringmastery.requestLogSize", 10_000),
+                Duration.ofHours(Long.getLong("flooringmastery.requestTtlHours", 24)));
+        //"offheap" keeps orders outside of the heap for very large histories
+        if ("offheap".equalsIgnoreCase(System.getProperty("flooringmastery.orderStore"))) {
+            this.orders = new FlooringMasteryOffHeapOrderStore(abbreviation -> states.get(abbreviation),
+                    productType -> products.get(productType));
+        } else {
+            this.orders = new FlooringMasteryHeapOrderStore();
+        }
         createOrdersFolder();
     }
     
     public FlooringMasteryDaoFileImpl(String orderPath, String productFile, String taxFile, String backupFile) {
+        this(orderPath, productFile, taxFile, backupFile, siblingPath(orderPath, "Archive"));
+    }
+    
+    public FlooringMasteryDaoFileImpl(String orderPath, String productFile, String taxFile, String backupFile, String archivePath) {
+        this(orderPath, productFile, taxFile, backupFile, archivePath, new FlooringMasteryHeapOrderStore());
+    }
+    
+    public FlooringMasteryDaoFileImpl(String orderPath, String productFile, String taxFile, String backupFile, String archivePath, FlooringMasteryOrderStore orderStore) {
         this.ORDER_PATH = orderPath;
         this.PRODUCT_FILE = productFile;
         this.TAX_FILE = taxFile;
         this.BACKUP_FILE  = backupFile;
+        this.SUMMARY_FILE = orderPath + "/Summaries.txt";
+        this.ROLLUP_FILE = siblingPath(orderPath, "Rollups.txt");
+        this.archive = new FlooringMasteryOrderArchive(archivePath);
+        this.requests = new FlooringMasteryRequestLog(siblingPath(orderPath, "Requests.txt"), 10_000, Duration.ofHours(24));
+        this.orders = orderStore;
         createOrdersFolder();
     }
     
+    /**
+     * Helper method to get a folder next to the orders folder
+     * @param orderPath orders folder
+     * @param name      name of the other folder
+     * @return  path of the other folder
+     */
+    private static String siblingPath(String orderPath, String name) {
+        String parent = new File(orderPath).getParent();
+        return parent == null ? name : parent + "/" + name;
+    }
+    
     private void createOrdersFolder() {
         File folder = new File(ORDER_PATH);
         if(!folder.exists())
@@ -96,18 +238,72 @@ public class FlooringMasteryDaoFileImpl implements FlooringMasteryDao{
      */
     @Override
     public Order addOrder(LocalDate date, Order order) throws FlooringMasteryPersistenceException {
-        loadOrders();
-        maxOrderNumber++;
-        order.setOrderNumber(maxOrderNumber);
-        Map<Integer, Order> dateOrders = orders.get(date);
-        if (dateOrders == null) {
-            dateOrders = new HashMap<Integer, Order>();       
-        }
+        lock.lock();
+        try {
+            loadOrders();
+            maxOrderNumber = Math.max(maxOrderNumber, archive.getMaxOrderNumber());
+            maxOrderNumber++;
+            order.setOrderNumber(maxOrderNumber);
+            activateArchivedDate(date);
+            DailySummary summary = summaryOf(date);
         
-        dateOrders.put(maxOrderNumber, order);
-        orders.put(date, dateOrders);
-        saveOrders();
-        return order;
+            orders.putOrder(date, maxOrderNumber, order);
+            if (batchDepth > 0) {
+                keepForBatch(date, summary.plus(order));
+            } else {
+                appendOrders(date, Collections.singletonList(order));
+                saveSummary(summary.plus(order));
+            }
+            return order;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Adds an order once per client request id. The receipt of the request
+     * is checked and kept under the same lock as the order, so two retries
+     * arriving together still add one order. An order removed since its
+     * request is added again.
+     * @param date      date of the order
+     * @param order     complete order object
+     * @param requestId client request id, one line of text
+     * @return  the given order with populated order number, or the order
+     *          already added for the request id
+     * @throws FlooringMasteryPersistenceException 
+     */
+    @Override
+    public Order addOrder(LocalDate date, Order order, String requestId) throws FlooringMasteryPersistenceException {
+        lock.lock();
+        try {
+            Order placed = getRequestedOrder(requestId);
+            if (placed != null) {
+                return placed;
+            }
+            Order added = addOrder(date, order);
+            requests.put(requestId, date, added.getOrderNumber(), LocalDateTime.now());
+            return added;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Gets the order already added for a client request id.
+     * @param requestId client request id, one line of text
+     * @return  order of the request, null if the request is unknown,
+     *          expired or its order was removed
+     * @throws FlooringMasteryPersistenceException 
+     */
+    @Override
+    public Order getRequestedOrder(String requestId) throws FlooringMasteryPersistenceException {
+        lock.lock();
+        try {
+            FlooringMasteryRequestLog.Receipt receipt = requests.get(requestId, LocalDateTime.now());
+            return receipt == null ? null : getOrder(receipt.getDate(), receipt.getOrderNumber());
+        } finally {
+            lock.unlock();
+        }
     }
     
     /**
@@ -119,9 +315,22 @@ public class FlooringMasteryDaoFileImpl implements FlooringMasteryDao{
      */
     @Override
     public Order getOrder(LocalDate date, int orderNumber) throws FlooringMasteryPersistenceException {
-        Map<Integer, Order> dateOrders = getAllOrders(date);
-        Order order = dateOrders.get(orderNumber);
-        return order;
+        Map<Integer, Order> snapshot = readSnapshot(date);
+        if (snapshot != null) {
+            return snapshot.get(orderNumber);
+        }
+        lock.lock();
+        try {
+            loadOrders();
+            if (orders.hasDate(date)) {
+                return orders.getOrder(date, orderNumber);
+            }
+            Map<Integer, Order> dateOrders = loadArchivedOrders(date);
+            Order order = dateOrders == null ? null : dateOrders.get(orderNumber);
+            return order;
+        } finally {
+            lock.unlock();
+        }
     }
     
     /**
@@ -132,9 +341,23 @@ public class FlooringMasteryDaoFileImpl implements FlooringMasteryDao{
      */
     @Override
     public Map<Integer, Order> getAllOrders(LocalDate date) throws FlooringMasteryPersistenceException {
-        loadOrders();
-        Map<Integer, Order> dateOrders = orders.get(date);
-        return dateOrders;
+        Map<Integer, Order> snapshot = readSnapshot(date);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        lock.lock();
+        try {
+            loadOrders();
+            Map<Integer, Order> dateOrders = orders.getOrders(date);
+            if (dateOrders == null) {
+                //archived dates are read once and never changed
+                dateOrders = loadArchivedOrders(date);
+                return dateOrders == null ? null : Collections.unmodifiableMap(dateOrders);
+            }
+            return dateOrders;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -149,11 +372,89 @@ public class FlooringMasteryDaoFileImpl implements FlooringMasteryDao{
      */
     @Override
     public Order editOrder(LocalDate date, int orderNumber, Order newOrder) throws FlooringMasteryPersistenceException {
-        Map<Integer, Order> dateOrders = getAllOrders(date);
-        Order oldOrder = dateOrders.put(orderNumber, newOrder);
-        orders.put(date, dateOrders);
-        saveOrders();
-        return oldOrder;
+        lock.lock();
+        try {
+            loadOrders();
+            flushBatch();
+            activateArchivedDate(date);
+            DailySummary summary = summaryOf(date);
+            Order oldOrder = orders.putOrder(date, orderNumber, newOrder);
+            saveOrders(date);
+            if (oldOrder != null) {
+                summary = summary.minus(oldOrder);
+            }
+            saveSummary(summary.plus(newOrder));
+            return oldOrder;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Edits several orders of one date. The order file and the summary are
+     * saved once for the whole batch, not once per order.
+     * @param date      order date
+     * @param newOrders orders with updated information, by order number
+     * @return  old orders, in the order of the new ones, null where none
+     * @throws FlooringMasteryPersistenceException 
+     */
+    @Override
+    public List<Order> editOrders(LocalDate date, Collection<Order> newOrders) throws FlooringMasteryPersistenceException {
+        lock.lock();
+        try {
+            loadOrders();
+            flushBatch();
+            activateArchivedDate(date);
+            DailySummary summary = summaryOf(date);
+            List<Order> oldOrders = orders.putOrders(date, newOrders);
+            for (Order oldOrder : oldOrders) {
+                if (oldOrder != null) {
+                    summary = summary.minus(oldOrder);
+                }
+            }
+            for (Order newOrder : newOrders) {
+                summary = summary.plus(newOrder);
+            }
+            saveOrders(date);
+            saveSummary(summary);
+            return oldOrders;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Edits several orders of one date, each only if it is still the same
+     * as when it was read. The orders are compared and saved under the same
+     * lock, so a concurrent edit is never overwritten and a concurrent
+     * remove is never undone.
+     * @param date          order date
+     * @param readOrders    orders as they were read
+     * @param newOrders     orders with updated information, in the order of the read ones
+     * @return  new orders which were saved
+     * @throws FlooringMasteryPersistenceException 
+     */
+    @Override
+    public List<Order> editUnchangedOrders(LocalDate date, List<Order> readOrders, List<Order> newOrders) throws FlooringMasteryPersistenceException {
+        lock.lock();
+        try {
+            loadOrders();
+            flushBatch();
+            activateArchivedDate(date);
+            List<Order> unchangedOrders = new ArrayList<>();
+            for (int i = 0; i < readOrders.size(); i++) {
+                Order readOrder = readOrders.get(i);
+                if (readOrder.equals(orders.getOrder(date, readOrder.getOrderNumber()))) {
+                    unchangedOrders.add(newOrders.get(i));
+                }
+            }
+            if (!unchangedOrders.isEmpty()) {
+                editOrders(date, unchangedOrders);
+            }
+            return unchangedOrders;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -165,11 +466,21 @@ public class FlooringMasteryDaoFileImpl implements FlooringMasteryDao{
      */
     @Override
     public Order removeOrder(LocalDate date, int orderNumber) throws FlooringMasteryPersistenceException {
-        Map<Integer, Order> dateOrders = getAllOrders(date);
-        Order removedOrder = dateOrders.remove(orderNumber);
-        orders.put(date, dateOrders);
-        saveOrders();
-        return removedOrder;
+        lock.lock();
+        try {
+            loadOrders();
+            flushBatch();
+            activateArchivedDate(date);
+            DailySummary summary = summaryOf(date);
+            Order removedOrder = orders.removeOrder(date, orderNumber);
+            saveOrders(date);
+            if (removedOrder != null) {
+                saveSummary(summary.minus(removedOrder));
+            }
+            return removedOrder;
+        } finally {
+            lock.unlock();
+        }
     }
     
     /**
@@ -178,34 +489,141 @@ public class FlooringMasteryDaoFileImpl implements FlooringMasteryDao{
      */
     @Override
     public void exportData() throws FlooringMasteryPersistenceException{
-        loadOrders();
-        PrintWriter out;
-        try{
-            out = new PrintWriter(new FileWriter(BACKUP_FILE));
-        }catch(IOException e){
-            throw new FlooringMasteryPersistenceException("Could not backup order data.", e);
-        }
-        out.println("OrderNumber,CustomerName,State,TaxRate,ProductType,Area,CostPerSquareFoot,LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total,OrderDate");
-        out.flush();
+        lock.lock();
+        try {
+            loadOrders();
+            flushBatch();
+            PrintWriter out;
+            try{
+                out = new PrintWriter(new FileWriter(BACKUP_FILE));
+            }catch(IOException e){
+                throw new FlooringMasteryPersistenceException("Could not backup order data.", e);
+            }
+            out.println("OrderNumber,CustomerName,State,TaxRate,ProductType,Area,CostPerSquareFoot,LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total,OrderDate");
+            out.flush();
         
-        Set<LocalDate> allDates = orders.keySet();
-        allDates.stream().forEach(date -> {
+            Map<LocalDate, Map<Integer, Order>> allOrders = new HashMap<>();
+            for (LocalDate date : archive.getDates()) {
+                allOrders.put(date, loadArchivedOrders(date));
+            }
+            for (LocalDate date : orders.getDates()) {
+                allOrders.put(date, orders.getOrders(date));
+            }
+        
+            Set<LocalDate> allDates = allOrders.keySet();
+            allDates.stream().forEach(date -> {
             
-            Map<Integer, Order> ordersInDate = orders.get(date);
-            String orderAsText;
+                Map<Integer, Order> ordersInDate = allOrders.get(date);
+                String orderAsText;
             
-            for(Order currentOrder : ordersInDate.values()){
-                orderAsText = marshallOrder(currentOrder);
-                //adding on date at the end for the backup file
-                orderAsText += DELIMITER + date.format(DateTimeFormatter.ofPattern("MM-dd-yyyy"));
-                out.println(orderAsText);
-                out.flush();
-            }
-        });
-        out.close();
+                for(Order currentOrder : ordersInDate.values()){
+                    orderAsText = marshallOrder(currentOrder);
+                    //adding on date at the end for the backup file
+                    orderAsText += DELIMITER + date.format(DateTimeFormatter.ofPattern("MM-dd-yyyy"));
+                    out.println(orderAsText);
+                    out.flush();
+                }
+            });
+            out.close();
+        } finally {
+            lock.unlock();
+        }
     }
 
     
+    /**
+     * Moves every order date before the cutoff into the archive.
+     * The order files of those dates are deleted afterwards.
+     * @param cutoff    dates before this one get archived
+     * @return          number of dates archived
+     * @throws FlooringMasteryPersistenceException 
+     */
+    @Override
+    public int archiveOrders(LocalDate cutoff) throws FlooringMasteryPersistenceException {
+        lock.lock();
+        try {
+            loadOrders();
+            flushBatch();
+            Map<LocalDate, String> dateFiles = new HashMap<>();
+            Map<LocalDate, Integer> orderCounts = new HashMap<>();
+            Map<LocalDate, Integer> maxNumbers = new HashMap<>();
+        
+            for (LocalDate date : orders.getDates()) {
+                if (!date.isBefore(cutoff)) {
+                    continue;
+                }
+                Map<Integer, Order> ordersInDate = orders.getOrders(date);
+                StringBuilder fileText = new StringBuilder(ORDER_HEADER).append("\n");
+                int maxNumber = 0;
+                for (Order currentOrder : ordersInDate.values()) {
+                    fileText.append(marshallOrder(currentOrder)).append("\n");
+                    maxNumber = Math.max(maxNumber, currentOrder.getOrderNumber());
+                }
+                dateFiles.put(date, fileText.toString());
+                orderCounts.put(date, ordersInDate.size());
+                maxNumbers.put(date, maxNumber);
+            }
+        
+            if (dateFiles.isEmpty()) {
+                return 0;
+            }
+            archive.archiveDates(dateFiles, orderCounts, maxNumbers);
+        
+            for (LocalDate date : dateFiles.keySet()) {
+                orders.removeDate(date);
+                archivedOrders.remove(date);
+                File file = new File(orderFileName(date));
+                loadedFiles.remove(file.getName());
+                file.delete();
+            }
+            return dateFiles.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Starts a batch of calls, e.g. a batch script. The order folder is
+     * scanned now and not again until the batch ends, so files changed by
+     * others in between are not seen. Added orders are kept and written
+     * together, one append per date, with their summaries and rollups
+     * written once. Any other change writes them first.
+     * Batches can nest, only the outer endBatch writes.
+     * @throws FlooringMasteryPersistenceException 
+     */
+    @Override
+    public void beginBatch() throws FlooringMasteryPersistenceException {
+        lock.lock();
+        try {
+            if (batchDepth == 0) {
+                loadOrders();
+                batchScanned = true;
+            }
+            batchDepth++;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Ends a batch, writing the orders it added.
+     * @throws FlooringMasteryPersistenceException if the orders could not
+     * be written, the batch is ended anyway
+     */
+    @Override
+    public void endBatch() throws FlooringMasteryPersistenceException {
+        lock.lock();
+        try {
+            if (batchDepth == 0 || --batchDepth > 0) {
+                return;
+            }
+            batchScanned = false;
+            flushBatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
     /**
      * Gets all products
      * @return  Map of products. Name of product (key) and product dto (value)
@@ -213,8 +631,19 @@ public class FlooringMasteryDaoFileImpl implements FlooringMasteryDao{
      */
     @Override
     public Map<String, Product> getAllProducts() throws FlooringMasteryPersistenceException {
-        loadProducts();
-        return products;
+        //read before the map, which is published first
+        long modified = productsModified;
+        Map<String, Product> snapshot = products;
+        if (!snapshot.isEmpty() && new File(PRODUCT_FILE).lastModified() == modified) {
+            return snapshot;
+        }
+        lock.lock();
+        try {
+            loadProducts();
+            return products;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -224,12 +653,165 @@ public class FlooringMasteryDaoFileImpl implements FlooringMasteryDao{
      */
     @Override
     public Map<String, State> getAllStates() throws FlooringMasteryPersistenceException {
-        loadStates();
-        return states;
+        //read before the map, which is published first
+        long modified = statesModified;
+        Map<String, State> snapshot = states;
+        if (!snapshot.isEmpty() && new File(TAX_FILE).lastModified() == modified) {
+            return snapshot;
+        }
+        lock.lock();
+        try {
+            loadStates();
+            return states;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Version of the products and states. Only reads the product and tax
+     * files again if they were modified since they were last read.
+     * @return  catalog version
+     * @throws FlooringMasteryPersistenceException 
+     */
+    @Override
+    public long getCatalogVersion() throws FlooringMasteryPersistenceException {
+        lock.lock();
+        try {
+            if (new File(PRODUCT_FILE).lastModified() != productsModified) {
+                loadProducts();
+            }
+            if (new File(TAX_FILE).lastModified() != statesModified) {
+                loadStates();
+            }
+            return catalogVersion;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Version of the orders of a date. Without the lock while the file of
+     * the date is as it was last read or written; otherwise the order files
+     * are read again first. A version is always bumped before its file is
+     * marked as read, so a current file never comes with an old version.
+     * @param date  order date
+     * @return  orders version of the date, 0 if it never changed
+     * @throws FlooringMasteryPersistenceException 
+     */
+    @Override
+    public long getOrdersVersion(LocalDate date) throws FlooringMasteryPersistenceException {
+        File file = new File(orderFileName(date));
+        Long lastModified = loadedFiles.get(file.getName());
+        boolean isCurrent = file.exists() ? lastModified != null && lastModified == file.lastModified() : lastModified == null;
+        if (isCurrent) {
+            return dateVersions.getOrDefault(date, 0L);
+        }
+        lock.lock();
+        try {
+            loadOrders();
+            return dateVersions.getOrDefault(date, 0L);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Totals of the orders on a date, kept up to date on every change, so
+     * no orders are read or summed.
+     * @param date  order date
+     * @return  summary of the date, with everything 0 if it has no orders
+     * @throws FlooringMasteryPersistenceException 
+     */
+    @Override
+    public DailySummary getDailySummary(LocalDate date) throws FlooringMasteryPersistenceException {
+        lock.lock();
+        try {
+            loadOrders();
+            return summaryOf(date);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Summaries of every date with orders in a range, active or archived.
+     * The order files are checked once for the whole range.
+     * @param from  first date, inclusive
+     * @param to    last date, inclusive
+     * @return  order date --> summary, sorted by date
+     * @throws FlooringMasteryPersistenceException 
+     */
+    @Override
+    public SortedMap<LocalDate, DailySummary> getDailySummaries(LocalDate from, LocalDate to) throws FlooringMasteryPersistenceException {
+        lock.lock();
+        try {
+            loadOrders();
+            Set<LocalDate> dates = new HashSet<>(archive.getDates());
+            dates.addAll(orders.getDates());
+            SortedMap<LocalDate, DailySummary> rangeSummaries = new TreeMap<>();
+            for (LocalDate date : dates) {
+                if (date.isBefore(from) || date.isAfter(to)) {
+                    continue;
+                }
+                DailySummary summary = summaryOf(date);
+                if (summary.getOrderCount() > 0) {
+                    rangeSummaries.put(date, summary);
+                }
+            }
+            return rangeSummaries;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Totals of every month with orders in a range. Kept up to date with
+     * the daily summaries, so a long range reads one entry per month.
+     * @param from  first month, inclusive
+     * @param to    last month, inclusive
+     * @return  month --> summary, sorted by month
+     * @throws FlooringMasteryPersistenceException 
+     */
+    @Override
+    public SortedMap<YearMonth, PeriodSummary> getMonthlySummaries(YearMonth from, YearMonth to) throws FlooringMasteryPersistenceException {
+        lock.lock();
+        try {
+            loadOrders();
+            if (to.isBefore(from)) {
+                return new TreeMap<>();
+            }
+            return new TreeMap<>(monthRollups.subMap(from, to.plusMonths(1)));
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Totals of every year with orders in a range. Kept up to date with
+     * the daily summaries, so a long range reads one entry per year.
+     * @param from  first year, inclusive
+     * @param to    last year, inclusive
+     * @return  year --> summary, sorted by year
+     * @throws FlooringMasteryPersistenceException 
+     */
+    @Override
+    public SortedMap<Year, PeriodSummary> getYearlySummaries(Year from, Year to) throws FlooringMasteryPersistenceException {
+        lock.lock();
+        try {
+            loadOrders();
+            if (to.isBefore(from)) {
+                return new TreeMap<>();
+            }
+            return new TreeMap<>(yearRollups.subMap(from, to.plusYears(1)));
+        } finally {
+            lock.unlock();
+        }
     }
     
     /**
-     * Helper method to unmarshall order
+     * Helper method to unmarshall order.
+     * Orders point at the loaded catalog entries of their state and product.
      * @param orderAsText   order given as a line of text from a file
      * @return Complete order object
      */
@@ -239,9 +821,20 @@ public class FlooringMasteryDaoFileImpl implements FlooringMasteryDao{
         Order orderFromFile = new Order();
         orderFromFile.setOrderNumber(Integer.parseInt(orderTokens[0]));
         orderFromFile.setCustomerName(orderTokens[1]);
-        orderFromFile.setState(orderTokens[2]);
+        //point at the catalog entries before the rates, so equal rates are not copied
+        State state = states.get(orderTokens[2]);
+        if (state != null) {
+            orderFromFile.setStateEntry(state);
+        } else {
+            orderFromFile.setState(orderTokens[2]);
+        }
+        Product product = products.get(orderTokens[4]);
+        if (product != null) {
+            orderFromFile.setProductEntry(product);
+        } else {
+            orderFromFile.setProductType(orderTokens[4]);
+        }
         orderFromFile.setTaxRate(new BigDecimal(orderTokens[3]).setScale(2, RoundingMode.HALF_UP));
-        orderFromFile.setProductType(orderTokens[4]);
         orderFromFile.setArea(new BigDecimal(orderTokens[5]).setScale(2, RoundingMode.HALF_UP));
         orderFromFile.setCostPerSquareFoot(new BigDecimal(orderTokens[6]).setScale(2, RoundingMode.HALF_UP));
         orderFromFile.setLaborCostPerSquareFoot(new BigDecimal(orderTokens[7]).setScale(2, RoundingMode.HALF_UP));
@@ -249,7 +842,7 @@ public class FlooringMasteryDaoFileImpl implements FlooringMasteryDao{
         orderFromFile.setLaborCost(new BigDecimal(orderTokens[9]).setScale(2, RoundingMode.HALF_UP));
         orderFromFile.setTax(new BigDecimal(orderTokens[10]).setScale(2, RoundingMode.HALF_UP));
         orderFromFile.setTotal(new BigDecimal(orderTokens[11]).setScale(2, RoundingMode.HALF_UP));
-        return orderFromFile;
+        return orderFromFile.freeze();
     }
 
     /**
@@ -283,15 +876,111 @@ public class FlooringMasteryDaoFileImpl implements FlooringMasteryDao{
     }
 
     /**
-     * Helper method to load orders from the order file
+     * Helper method to read one archived date.
+     * Dates read once are kept so the segment is not decompressed again.
+     * @param date  order date
+     * @return  Map of order number to order, null if the date is not archived
+     * @throws FlooringMasteryPersistenceException 
+     */
+    private Map<Integer, Order> loadArchivedOrders(LocalDate date) throws FlooringMasteryPersistenceException {
+        Map<Integer, Order> ordersInDate = archivedOrders.get(date);
+        if (ordersInDate != null) {
+            return ordersInDate;
+        }
+        String fileText = archive.readDate(date);
+        if (fileText == null) {
+            return null;
+        }
+        
+        loadCatalog();
+        FlooringMasteryIntMap<Order> archivedDate = new FlooringMasteryIntMap<>();
+        String[] lines = fileText.split("\n");
+        //skip first line since it's not part of the data
+        for (int i = 1; i < lines.length; i++) {
+            if (lines[i].isEmpty()) {
+                continue;
+            }
+            Order currentOrder = unmarshallOrder(lines[i]);
+            archivedDate.put(currentOrder.getOrderNumber(), currentOrder);
+        }
+        ordersInDate = archivedDate.asMap();
+        archivedOrders.put(date, ordersInDate);
+        return ordersInDate;
+    }
+    
+    /**
+     * Helper method to make an archived date active again before changing it.
+     * Does nothing if the date is already active or not archived.
+     * @param date  order date
+     * @throws FlooringMasteryPersistenceException 
+     */
+    private void activateArchivedDate(LocalDate date) throws FlooringMasteryPersistenceException {
+        if (orders.hasDate(date)) {
+            return;
+        }
+        Map<Integer, Order> ordersInDate = loadArchivedOrders(date);
+        if (ordersInDate != null) {
+            maxOrderNumber = Math.max(maxOrderNumber, archive.getMaxOrderNumber());
+            orders.putDate(date, ordersInDate);
+            archivedOrders.remove(date);
+            //the order file is written before the date leaves the archive, so a crash loses nothing
+            saveOrders(date);
+            archive.removeDates(Collections.singleton(date));
+        }
+    }
+    
+    /**
+     * Helper method to read the orders of a date without the lock. Only
+     * works with a snapshot store, for a date already loaded whose order
+     * file has not changed since.
+     * @param date  order date
+     * @return  snapshot of the orders, null if the lock is needed
+     */
+    private Map<Integer, Order> readSnapshot(LocalDate date) {
+        if (!orders.hasSnapshots()) {
+            return null;
+        }
+        Map<Integer, Order> snapshot = orders.getOrders(date);
+        if (snapshot == null) {
+            return null;
+        }
+        File file = new File(orderFileName(date));
+        Long lastModified = loadedFiles.get(file.getName());
+        return lastModified != null && lastModified == file.lastModified() ? snapshot : null;
+    }
+
+    /**
+     * Helper method to get the order file of a date
+     * @param date  order date
+     * @return  path of the order file
+     */
+    private String orderFileName(LocalDate date) {
+        return ORDER_PATH + "/Orders_" + date.format(DateTimeFormatter.ofPattern("MMddyyy")) + ".txt";
+    }
+
+    /**
+     * Helper method to load orders from the order file.
+     * Files which have not changed since they were last read are skipped.
+     * A batch scans the folder once, when it begins.
      * @throws FlooringMasteryPersistenceException 
      */
     private void loadOrders() throws FlooringMasteryPersistenceException{
+        loadSummaries();
+        if (batchScanned) {
+            return;
+        }
+        List<DailySummary> changedSummaries = new ArrayList<>();
         
         File folder = new File(ORDER_PATH);
-        File[] listOfFiles = folder.listFiles();
+        File[] listOfFiles = folder.listFiles(file -> file.isFile() && file.getName().startsWith("Orders_"));
         
         for (File file : listOfFiles) {
+            Long lastModified = loadedFiles.get(file.getName());
+            if (lastModified != null && lastModified == file.lastModified()) {
+                continue;
+            }
+            
+            loadCatalog();
             Scanner scanner;
             try{
                 scanner = new Scanner(new BufferedReader(new FileReader(file)));
@@ -321,12 +1010,500 @@ public class FlooringMasteryDaoFileImpl implements FlooringMasteryDao{
                 }
                 ordersInDate.put(currentOrder.getOrderNumber(), currentOrder);
             }
-            orders.put(orderDate, ordersInDate);
+            orders.putDate(orderDate, ordersInDate);
+            dateVersions.put(orderDate, ++ordersVersion);
             
             scanner.close();
             if(ordersInDate.isEmpty()) {
                 file.delete();
+                loadedFiles.remove(file.getName());
+            } else {
+                loadedFiles.put(file.getName(), file.lastModified());
+            }
+            
+            //the file may have been changed by hand, so its summary is made again
+            DailySummary summary = DailySummary.of(orderDate, ordersInDate.values());
+            if (!summary.equals(summaries.get(orderDate))) {
+                putSummary(summary);
+                changedSummaries.add(summary);
+            }
+        }
+        if (!changedSummaries.isEmpty()) {
+            appendSummaries(changedSummaries);
+        }
+    }
+    
+    /**
+     * Helper method to get the summary of a date. A date without one, e.g.
+     * archived before summaries were kept, is summed once.
+     * @param date  order date
+     * @return  summary, with everything 0 if the date has no orders
+     * @throws FlooringMasteryPersistenceException 
+     */
+    private DailySummary summaryOf(LocalDate date) throws FlooringMasteryPersistenceException {
+        DailySummary summary = summaries.get(date);
+        if (summary != null) {
+            return summary;
+        }
+        Map<Integer, Order> ordersInDate = orders.getOrders(date);
+        if (ordersInDate == null) {
+            ordersInDate = loadArchivedOrders(date);
+        }
+        if (ordersInDate == null || ordersInDate.isEmpty()) {
+            return DailySummary.empty(date);
+        }
+        summary = DailySummary.of(date, ordersInDate.values());
+        putSummary(summary);
+        return summary;
+    }
+    
+    /**
+     * Helper method to keep a summary, dropping dates without orders.
+     * The month and year of the date are moved by the difference.
+     * @param summary   new summary of its date
+     */
+    private void putSummary(DailySummary summary) {
+        DailySummary old;
+        if (summary.getOrderCount() == 0) {
+            old = summaries.remove(summary.getDate());
+        } else {
+            old = summaries.put(summary.getDate(), summary);
+        }
+        rollUp(old, summary);
+    }
+    
+    /**
+     * Helper method to replace the totals of one date in its month and year.
+     * @param old       previous summary of the date, null if it had none
+     * @param summary   new summary of the date
+     */
+    private void rollUp(DailySummary old, DailySummary summary) {
+        YearMonth month = YearMonth.from(summary.getDate());
+        Year year = Year.from(summary.getDate());
+        putRollup(monthRollups, month, rolledUp(monthRollups.get(month), month.toString(), old, summary));
+        putRollup(yearRollups, year, rolledUp(yearRollups.get(year), year.toString(), old, summary));
+    }
+    
+    /**
+     * Helper method to swap the totals of one date in a rollup.
+     * @param rollup    month or year summary, null if it had no orders
+     * @param period    name of the month or year
+     * @param old       previous summary of the date, null if it had none
+     * @param summary   new summary of the date
+     * @return  new rollup
+     */
+    private static PeriodSummary rolledUp(PeriodSummary rollup, String period, DailySummary old, DailySummary summary) {
+        if (rollup == null) {
+            rollup = PeriodSummary.empty(period);
+        }
+        if (old != null) {
+            rollup = rollup.minus(old);
+        }
+        return rollup.plus(summary);
+    }
+    
+    /**
+     * Helper method to keep a rollup, dropping periods without orders.
+     */
+    private static <K> void putRollup(Map<K, PeriodSummary> rollups, K period, PeriodSummary rollup) {
+        if (rollup.getOrderCount() == 0) {
+            rollups.remove(period);
+        } else {
+            rollups.put(period, rollup);
+        }
+    }
+    
+    /**
+     * Helper method to keep a changed summary and append it to the summary file.
+     * @param summary   new summary of its date
+     * @throws FlooringMasteryPersistenceException 
+     */
+    private void saveSummary(DailySummary summary) throws FlooringMasteryPersistenceException {
+        putSummary(summary);
+        appendSummaries(Collections.singletonList(summary));
+    }
+    
+    /**
+     * Helper method to keep an order added in a batch until the batch
+     * writes it. Its date gets a new version at once, so cached reads of
+     * the date miss.
+     * @param date      order date
+     * @param summary   new summary of the date
+     * @throws FlooringMasteryPersistenceException if the batch had to write and could not
+     */
+    private void keepForBatch(LocalDate date, DailySummary summary) throws FlooringMasteryPersistenceException {
+        putSummary(summary);
+        //the stored order, the caller may still change the one it added
+        batchOrders.computeIfAbsent(date, d -> new ArrayList<>()).add(orders.getOrder(date, maxOrderNumber));
+        dateVersions.put(date, ++ordersVersion);
+        if (++batchOrderCount >= BATCH_MAX_ORDERS) {
+            flushBatch();
+        }
+    }
+    
+    /**
+     * Helper method to write the orders a batch added so far, one append
+     * per date, and then their summaries and rollups at once. Called before
+     * any other change, so the files see the changes in the order made.
+     * @throws FlooringMasteryPersistenceException 
+     */
+    private void flushBatch() throws FlooringMasteryPersistenceException {
+        if (batchOrders.isEmpty()) {
+            return;
+        }
+        List<DailySummary> changed = new ArrayList<>();
+        Iterator<Map.Entry<LocalDate, List<Order>>> dates = batchOrders.entrySet().iterator();
+        try {
+            while (dates.hasNext()) {
+                Map.Entry<LocalDate, List<Order>> date = dates.next();
+                appendOrders(date.getKey(), date.getValue());
+                //written dates are dropped at once, so a failed write is not repeated for them
+                dates.remove();
+                changed.add(summaryOf(date.getKey()));
+            }
+        } finally {
+            batchOrderCount = 0;
+            for (List<Order> dateOrders : batchOrders.values()) {
+                batchOrderCount += dateOrders.size();
+            }
+        }
+        appendSummaries(changed);
+    }
+    
+    /**
+     * Helper method to read the summary file once.
+     * @throws FlooringMasteryPersistenceException 
+     */
+    private void loadSummaries() throws FlooringMasteryPersistenceException {
+        if (summaries != null) {
+            return;
+        }
+        Map<LocalDate, DailySummary> summariesFromFile = new HashMap<>();
+        int lines = 0;
+        File file = new File(SUMMARY_FILE);
+        if (file.exists()) {
+            Scanner scanner;
+            try{
+                scanner = new Scanner(new BufferedReader(new FileReader(file)));
+            }catch(FileNotFoundException e){
+                throw new FlooringMasteryPersistenceException("Could not load summary data into memory.", e);
+            }
+            try {
+                scanner.nextLine(); //skip first line since it's not part of the data
+                //later lines replace earlier ones, a date with no orders was emptied
+                while(scanner.hasNextLine()){
+                    DailySummary summary = unmarshallSummary(scanner.nextLine());
+                    if (summary.getOrderCount() == 0) {
+                        summariesFromFile.remove(summary.getDate());
+                    } else {
+                        summariesFromFile.put(summary.getDate(), summary);
+                    }
+                    lines++;
+                }
+            } catch (RuntimeException e) {
+                throw new FlooringMasteryPersistenceException("Summary file is invalid.", e);
+            } finally {
+                scanner.close();
+            }
+        }
+        summaries = summariesFromFile;
+        summaryFileLines = lines;
+        loadRollups();
+        
+        //archived dates without a summary are summed once, so every rollup is whole
+        boolean summariesChanged = false;
+        for (LocalDate date : archive.getDates()) {
+            if (!summaries.containsKey(date)) {
+                boolean wasRead = archivedOrders.containsKey(date);
+                summaryOf(date);
+                if (!wasRead) {
+                    archivedOrders.remove(date);
+                }
+                summariesChanged = true;
+            }
+        }
+        if (summariesChanged) {
+            saveSummaries();
+        }
+    }
+    
+    /**
+     * Helper method to read the rollup file. Rollups which do not add up to
+     * the daily summaries, e.g. after a crash between saving the two files,
+     * or a missing file are made again from the summaries.
+     * @throws FlooringMasteryPersistenceException 
+     */
+    private void loadRollups() throws FlooringMasteryPersistenceException {
+        monthRollups = new TreeMap<>();
+        yearRollups = new TreeMap<>();
+        int lines = 0;
+        File file = new File(ROLLUP_FILE);
+        if (file.exists()) {
+            Scanner scanner;
+            try{
+                scanner = new Scanner(new BufferedReader(new FileReader(file)));
+            }catch(FileNotFoundException e){
+                throw new FlooringMasteryPersistenceException("Could not load rollup data into memory.", e);
+            }
+            try {
+                scanner.nextLine(); //skip first line since it's not part of the data
+                //later lines replace earlier ones, a period with no orders was emptied
+                while(scanner.hasNextLine()){
+                    PeriodSummary rollup = unmarshallRollup(scanner.nextLine());
+                    if (rollup.getPeriod().length() == 4) {
+                        putRollup(yearRollups, Year.parse(rollup.getPeriod()), rollup);
+                    } else {
+                        putRollup(monthRollups, YearMonth.parse(rollup.getPeriod()), rollup);
+                    }
+                    lines++;
+                }
+            } catch (RuntimeException e) {
+                throw new FlooringMasteryPersistenceException("Rollup file is invalid.", e);
+            } finally {
+                scanner.close();
+            }
+        }
+        rollupFileLines = lines;
+        
+        PeriodSummary allDates = PeriodSummary.empty("");
+        for (DailySummary summary : summaries.values()) {
+            allDates = allDates.plus(summary);
+        }
+        PeriodSummary allMonths = PeriodSummary.empty("");
+        for (PeriodSummary rollup : monthRollups.values()) {
+            allMonths = plus(allMonths, rollup);
+        }
+        PeriodSummary allYears = PeriodSummary.empty("");
+        for (PeriodSummary rollup : yearRollups.values()) {
+            allYears = plus(allYears, rollup);
+        }
+        if (!allDates.equals(allMonths) || !allDates.equals(allYears)) {
+            monthRollups.clear();
+            yearRollups.clear();
+            for (DailySummary summary : summaries.values()) {
+                rollUp(null, summary);
             }
+            saveRollups();
+        }
+    }
+    
+    /**
+     * Helper method to add two rollups, keeping the name of the first.
+     */
+    private static PeriodSummary plus(PeriodSummary rollup, PeriodSummary added) {
+        return new PeriodSummary(rollup.getPeriod(), rollup.getOrderCount() + added.getOrderCount(),
+                Math.addExact(rollup.getAreaHundredths(), added.getAreaHundredths()),
+                rollup.getMaterialCost().plus(added.getMaterialCost()),
+                rollup.getLaborCost().plus(added.getLaborCost()),
+                rollup.getTax().plus(added.getTax()),
+                rollup.getTotal().plus(added.getTotal()));
+    }
+    
+    /**
+     * Helper method to append changed summaries, and the rollups of their
+     * months and years, so a write costs the same however many dates there
+     * are. A file which has grown to twice its live lines is written again
+     * instead.
+     * @param changed   summaries already kept, one per changed date
+     * @throws FlooringMasteryPersistenceException 
+     */
+    private void appendSummaries(Collection<DailySummary> changed) throws FlooringMasteryPersistenceException {
+        Set<YearMonth> months = new HashSet<>();
+        Set<Year> years = new HashSet<>();
+        List<String> summaryLines = new ArrayList<>();
+        for (DailySummary summary : changed) {
+            summaryLines.add(marshallSummary(summary));
+            months.add(YearMonth.from(summary.getDate()));
+            years.add(Year.from(summary.getDate()));
+        }
+        if (summaryFileLines + summaryLines.size() >= 2 * Math.max(summaries.size(), MIN_COMPACT_LINES)) {
+            saveSummaries();
+            return;
+        }
+        appendFile(SUMMARY_FILE, SUMMARY_HEADER, summaryLines, "Could not save summary data.");
+        summaryFileLines += summaryLines.size();
+        
+        List<String> rollupLines = new ArrayList<>();
+        for (YearMonth month : months) {
+            rollupLines.add(marshallRollup(monthRollups.getOrDefault(month, PeriodSummary.empty(month.toString()))));
+        }
+        for (Year year : years) {
+            rollupLines.add(marshallRollup(yearRollups.getOrDefault(year, PeriodSummary.empty(year.toString()))));
+        }
+        int rollupCount = monthRollups.size() + yearRollups.size();
+        if (rollupFileLines + rollupLines.size() >= 2 * Math.max(rollupCount, MIN_COMPACT_LINES)) {
+            saveRollups();
+            return;
+        }
+        appendFile(ROLLUP_FILE, ROLLUP_HEADER, rollupLines, "Could not save rollup data.");
+        rollupFileLines += rollupLines.size();
+    }
+    
+    /**
+     * Helper method to write every summary, sorted by date, and then the
+     * rollups of their months and years.
+     * @throws FlooringMasteryPersistenceException 
+     */
+    private void saveSummaries() throws FlooringMasteryPersistenceException {
+        List<String> lines = new ArrayList<>();
+        for (DailySummary summary : new TreeMap<>(summaries).values()) {
+            lines.add(marshallSummary(summary));
+        }
+        replaceFile(SUMMARY_FILE, SUMMARY_HEADER, lines, "Could not save summary data.");
+        summaryFileLines = lines.size();
+        saveRollups();
+    }
+    
+    /**
+     * Helper method to write every rollup, months first, each sorted.
+     * @throws FlooringMasteryPersistenceException 
+     */
+    private void saveRollups() throws FlooringMasteryPersistenceException {
+        List<String> lines = new ArrayList<>();
+        for (PeriodSummary rollup : monthRollups.values()) {
+            lines.add(marshallRollup(rollup));
+        }
+        for (PeriodSummary rollup : yearRollups.values()) {
+            lines.add(marshallRollup(rollup));
+        }
+        replaceFile(ROLLUP_FILE, ROLLUP_HEADER, lines, "Could not save rollup data.");
+        rollupFileLines = lines.size();
+    }
+    
+    /**
+     * Helper method to add lines to the end of a file, starting it with its
+     * header if it does not exist yet.
+     * @param fileName  file to append to
+     * @param header    first line of a new file
+     * @param lines     lines of data
+     * @param error     message if the file cannot be written
+     * @throws FlooringMasteryPersistenceException 
+     */
+    private void appendFile(String fileName, String header, List<String> lines, String error) throws FlooringMasteryPersistenceException {
+        boolean isNew = !new File(fileName).exists();
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(fileName, true)))) {
+            if (isNew) {
+                out.println(header);
+            }
+            for (String line : lines) {
+                out.println(line);
+            }
+            if (out.checkError()) {
+                throw new FlooringMasteryPersistenceException(error);
+            }
+        } catch (IOException e) {
+            throw new FlooringMasteryPersistenceException(error, e);
+        }
+    }
+    
+    /**
+     * Helper method to write a whole file. The file is replaced at once, so
+     * a crash never leaves half of it.
+     * @param fileName  file to replace
+     * @param header    first line
+     * @param lines     lines of data
+     * @param error     message if the file cannot be written
+     * @throws FlooringMasteryPersistenceException 
+     */
+    private void replaceFile(String fileName, String header, List<String> lines, String error) throws FlooringMasteryPersistenceException {
+        File file = new File(fileName);
+        File tempFile = new File(fileName + ".tmp");
+        PrintWriter out;
+        try{
+            out = new PrintWriter(new BufferedWriter(new FileWriter(tempFile)));
+        }catch(IOException e){
+            throw new FlooringMasteryPersistenceException(error, e);
+        }
+        out.println(header);
+        for (String line : lines) {
+            out.println(line);
+        }
+        out.close();
+        if (out.checkError()) {
+            throw new FlooringMasteryPersistenceException(error);
+        }
+        try {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new FlooringMasteryPersistenceException(error, e);
+        }
+    }
+    
+    /**
+     * Helper method to marshall a summary
+     * @param summary   summary of one date
+     * @return  One line of text with all its totals
+     */
+    private String marshallSummary(DailySummary summary) {
+        return summary.getDate().format(SUMMARY_DATE) + DELIMITER
+                + summary.getOrderCount() + DELIMITER
+                + summary.getArea() + DELIMITER
+                + summary.getMaterialCost() + DELIMITER
+                + summary.getLaborCost() + DELIMITER
+                + summary.getTax() + DELIMITER
+                + summary.getTotal();
+    }
+    
+    /**
+     * Helper method to unmarshall a summary
+     * @param summaryAsText line of the summary file
+     * @return  summary of one date
+     */
+    private DailySummary unmarshallSummary(String summaryAsText) {
+        String[] summaryTokens = summaryAsText.split(DELIMITER);
+        return new DailySummary(
+                LocalDate.parse(summaryTokens[0], SUMMARY_DATE),
+                Integer.parseInt(summaryTokens[1]),
+                Money.toHundredths(new BigDecimal(summaryTokens[2])),
+                Money.of(new BigDecimal(summaryTokens[3])),
+                Money.of(new BigDecimal(summaryTokens[4])),
+                Money.of(new BigDecimal(summaryTokens[5])),
+                Money.of(new BigDecimal(summaryTokens[6])));
+    }
+
+    /**
+     * Helper method to marshall a rollup
+     * @param rollup    summary of one month or year
+     * @return  One line of text with all its totals
+     */
+    private String marshallRollup(PeriodSummary rollup) {
+        return rollup.getPeriod() + DELIMITER
+                + rollup.getOrderCount() + DELIMITER
+                + rollup.getArea() + DELIMITER
+                + rollup.getMaterialCost() + DELIMITER
+                + rollup.getLaborCost() + DELIMITER
+                + rollup.getTax() + DELIMITER
+                + rollup.getTotal();
+    }
+    
+    /**
+     * Helper method to unmarshall a rollup
+     * @param rollupAsText  line of the rollup file
+     * @return  summary of one month or year
+     */
+    private PeriodSummary unmarshallRollup(String rollupAsText) {
+        String[] rollupTokens = rollupAsText.split(DELIMITER);
+        return new PeriodSummary(
+                rollupTokens[0],
+                Integer.parseInt(rollupTokens[1]),
+                Money.toHundredths(new BigDecimal(rollupTokens[2])),
+                Money.of(new BigDecimal(rollupTokens[3])),
+                Money.of(new BigDecimal(rollupTokens[4])),
+                Money.of(new BigDecimal(rollupTokens[5])),
+                Money.of(new BigDecimal(rollupTokens[6])));
+    }
+
+    /**
+     * Helper method to load the products and states once, so orders read
+     * from files can point at them.
+     * @throws FlooringMasteryPersistenceException 
+     */
+    private void loadCatalog() throws FlooringMasteryPersistenceException {
+        if (states.isEmpty()) {
+            loadStates();
+        }
+        if (products.isEmpty()) {
+            loadProducts();
         }
     }
 
@@ -337,6 +1514,8 @@ public class FlooringMasteryDaoFileImpl implements FlooringMasteryDao{
     private void loadProducts() throws FlooringMasteryPersistenceException{
         Scanner scanner;
 
+        //taken before reading, so a change during the read is seen next time
+        long modified = new File(PRODUCT_FILE).lastModified();
         try{
             scanner = new Scanner(new BufferedReader(new FileReader(PRODUCT_FILE)));
         }catch(FileNotFoundException e){
@@ -345,13 +1524,24 @@ public class FlooringMasteryDaoFileImpl implements FlooringMasteryDao{
 
         String currentLine;
         Product currentProduct;
+        Map<String, Product> loadedProducts = new HashMap<>(products);
+        boolean changed = false;
         scanner.nextLine(); //skip first line since it's not part of the data
         while(scanner.hasNextLine()){
             currentLine = scanner.nextLine();
             currentProduct = unmarshallProduct(currentLine);
-            products.put(currentProduct.getProductType(), currentProduct);
+            //keep the entry orders already point at if it has not changed
+            if (!currentProduct.equals(loadedProducts.get(currentProduct.getProductType()))) {
+                loadedProducts.put(currentProduct.getProductType(), currentProduct);
+                catalogVersion++;
+                changed = true;
+            }
         }
         scanner.close();
+        if (changed) {
+            products = Collections.unmodifiableMap(loadedProducts);
+        }
+        productsModified = modified;
     }
 
     /**
@@ -361,6 +1551,8 @@ public class FlooringMasteryDaoFileImpl implements FlooringMasteryDao{
     private void loadStates() throws FlooringMasteryPersistenceException{
         Scanner scanner;
 
+        //taken before reading, so a change during the read is seen next time
+        long modified = new File(TAX_FILE).lastModified();
         try{
             scanner = new Scanner(new BufferedReader(new FileReader(TAX_FILE)));
         }catch(FileNotFoundException e){
@@ -369,13 +1561,24 @@ public class FlooringMasteryDaoFileImpl implements FlooringMasteryDao{
 
         String currentLine;
         State currentState;
+        Map<String, State> loadedStates = new HashMap<>(states);
+        boolean changed = false;
         scanner.nextLine(); //skip first line since it's not part of the data
         while(scanner.hasNextLine()){
             currentLine = scanner.nextLine();
             currentState = unmarshallState(currentLine);
-            states.put(currentState.getStateAbbreviation(), currentState);
+            //keep the entry orders already point at if it has not changed
+            if (!currentState.equals(loadedStates.get(currentState.getStateAbbreviation()))) {
+                loadedStates.put(currentState.getStateAbbreviation(), currentState);
+                catalogVersion++;
+                changed = true;
+            }
         }
         scanner.close();
+        if (changed) {
+            states = Collections.unmodifiableMap(loadedStates);
+        }
+        statesModified = modified;
     }
 
     /**
@@ -401,33 +1604,64 @@ public class FlooringMasteryDaoFileImpl implements FlooringMasteryDao{
     }
 
     /**
-     * Helper method to save all the orders to order file
+     * Helper method to add new orders to the end of their order file. The
+     * file is only appended to if it is still as it was last read or
+     * written, otherwise the whole date is saved.
+     * @param date          order date
+     * @param addedOrders   orders just added to the date
+     * @throws FlooringMasteryPersistenceException 
+     */
+    private void appendOrders(LocalDate date, List<Order> addedOrders) throws FlooringMasteryPersistenceException {
+        File file = new File(orderFileName(date));
+        Long lastModified = loadedFiles.get(file.getName());
+        if (lastModified == null || lastModified != file.lastModified()) {
+            saveOrders(date);
+            return;
+        }
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(file, true)))) {
+            for (Order order : addedOrders) {
+                out.println(marshallOrder(order));
+            }
+            if (out.checkError()) {
+                throw new FlooringMasteryPersistenceException("Could not save order data.");
+            }
+        } catch (IOException e) {
+            throw new FlooringMasteryPersistenceException("Could not save order data.", e);
+        }
+        dateVersions.put(date, ++ordersVersion);
+        loadedFiles.put(file.getName(), file.lastModified());
+    }
+
+    /**
+     * Helper method to save the orders of one date to its order file.
+     * Only the changed date is written, the other files stay as they are.
+     * @param date  order date
      * @throws FlooringMasteryPersistenceException 
      */
-    private void saveOrders() throws FlooringMasteryPersistenceException{
+    private void saveOrders(LocalDate date) throws FlooringMasteryPersistenceException{
+        File file = new File(orderFileName(date));
+        PrintWriter out;
+        try{
+            out = new PrintWriter(new BufferedWriter(new FileWriter(file)));
+        }catch(IOException e){
+            throw new FlooringMasteryPersistenceException("Could not save order data.", e);
+        }
         
-        Set<LocalDate> allDates = orders.keySet();
+        out.println(ORDER_HEADER);
         
-        for (LocalDate date : allDates) {
-            PrintWriter out;
-            String dateString = date.format(DateTimeFormatter.ofPattern("MMddyyy"));
-            try{
-                out = new PrintWriter(new FileWriter(ORDER_PATH + "/Orders_" + dateString + ".txt"));
-            }catch(IOException e){
-                throw new FlooringMasteryPersistenceException("Could not save order data.", e);
-            }
-            
-            out.println("OrderNumber,CustomerName,State,TaxRate,ProductType,Area,CostPerSquareFoot,LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total");
-            
-            Map<Integer, Order> ordersInDate = orders.get(date);
-            String orderAsText;
-            
-            for(Order currentOrder : ordersInDate.values()){
-                orderAsText = marshallOrder(currentOrder);
-                out.println(orderAsText);
-                out.flush();
-            }
-            out.close();
+        Map<Integer, Order> ordersInDate = orders.getOrders(date);
+        String orderAsText;
+        
+        for(Order currentOrder : ordersInDate.values()){
+            orderAsText = marshallOrder(currentOrder);
+            out.println(orderAsText);
+        }
+        out.close();
+        if (out.checkError()) {
+            throw new FlooringMasteryPersistenceException("Could not save order data.");
         }
+        //no need to read back what was just written
+        dateVersions.put(date, ++ordersVersion);
+        loadedFiles.put(file.getName(), file.lastModified());
     }
 }
@@ -0,0 +1,120 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.dao;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import mthree.flooringmastery.dto.Order;
+
+/**
+ * Order store keeping every order object on the heap.
+ * Orders of a date are kept in a primitive int map, so order numbers are not
+ * boxed. Callers get a read only view of that map, and stored orders are
+ * read only copies of the orders put in, so callers cannot change them.
+ *
+ * The int map of a date is copy on write: it is never changed once stored,
+ * a write stores a changed copy in its place. So the view a reader got stays
+ * the same snapshot while writers go on, and readers need no lock. A write
+ * copies only the date it changes, like the dao rewrites only its file.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public class FlooringMasteryHeapOrderStore implements FlooringMasteryOrderStore {
+
+    /** Orders map. Order date --> ( order number --> order object) */
+    private final Map<LocalDate, FlooringMasteryIntMap<Order>> orders = new ConcurrentHashMap<>();
+
+    @Override
+    public Map<Integer, Order> getOrders(LocalDate date) {
+        FlooringMasteryIntMap<Order> dateOrders = orders.get(date);
+        return dateOrders == null ? null : dateOrders.asMap();
+    }
+
+    @Override
+    public Order getOrder(LocalDate date, int orderNumber) {
+        FlooringMasteryIntMap<Order> dateOrders = orders.get(date);
+        return dateOrders == null ? null : dateOrders.get(orderNumber);
+    }
+
+    @Override
+    public Order putOrder(LocalDate date, int orderNumber, Order order) {
+        FlooringMasteryIntMap<Order> dateOrders = copyOf(date);
+        Order oldOrder = dateOrders.put(orderNumber, order.readOnly());
+        orders.put(date, dateOrders);
+        return oldOrder;
+    }
+
+    @Override
+    public List<Order> putOrders(LocalDate date, Collection<Order> newOrders) {
+        FlooringMasteryIntMap<Order> dateOrders = copyOf(date);
+        List<Order> oldOrders = new ArrayList<>();
+        for (Order newOrder : newOrders) {
+            oldOrders.add(dateOrders.put(newOrder.getOrderNumber(), newOrder.readOnly()));
+        }
+        orders.put(date, dateOrders);
+        return oldOrders;
+    }
+
+    @Override
+    public Order removeOrder(LocalDate date, int orderNumber) {
+        FlooringMasteryIntMap<Order> dateOrders = orders.get(date);
+        if (dateOrders == null || !dateOrders.containsKey(orderNumber)) {
+            return null;
+        }
+        dateOrders = dateOrders.copy();
+        Order removedOrder = dateOrders.remove(orderNumber);
+        orders.put(date, dateOrders);
+        return removedOrder;
+    }
+
+    @Override
+    public void putDate(LocalDate date, Map<Integer, Order> dateOrders) {
+        FlooringMasteryIntMap<Order> newOrders = new FlooringMasteryIntMap<>(dateOrders.size());
+        for (Map.Entry<Integer, Order> entry : dateOrders.entrySet()) {
+            newOrders.put(entry.getKey(), entry.getValue().readOnly());
+        }
+        orders.put(date, newOrders);
+    }
+
+    @Override
+    public void removeDate(LocalDate date) {
+        orders.remove(date);
+    }
+
+    @Override
+    public Set<LocalDate> getDates() {
+        return new HashSet<>(orders.keySet());
+    }
+
+    @Override
+    public boolean hasDate(LocalDate date) {
+        return orders.containsKey(date);
+    }
+
+    @Override
+    public boolean hasSnapshots() {
+        return true;
+    }
+
+    /**
+     * Helper method to copy the orders of a date before changing them.
+     * @return  copy to change and store, empty if the date is not stored
+     */
+    private FlooringMasteryIntMap<Order> copyOf(LocalDate date) {
+        FlooringMasteryIntMap<Order> dateOrders = orders.get(date);
+        return dateOrders == null ? new FlooringMasteryIntMap<>() : dateOrders.copy();
+    }
+}
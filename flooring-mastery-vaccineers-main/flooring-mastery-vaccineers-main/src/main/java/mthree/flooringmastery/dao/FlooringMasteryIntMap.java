@@ -0,0 +1,265 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.dao;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Map from primitive int keys to objects using open addressing.
+ * Keys are kept in an int array and values in an object array, so there is no
+ * boxing and no entry object per mapping. Used for order number --> order.
+ *
+ * Null values are not allowed, a null value marks an empty slot.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public class FlooringMasteryIntMap<V> {
+
+    /** Table fills up to 3/4 before growing */
+    private static final int MAX_LOAD_NUMERATOR = 3;
+    private static final int MAX_LOAD_DENOMINATOR = 4;
+
+    private int[] keys;
+    private Object[] values;
+    private int size = 0;
+
+    /** Read only view handed out to callers */
+    private final Map<Integer, V> view = new ReadOnlyView();
+
+    public FlooringMasteryIntMap() {
+        this(8);
+    }
+
+    public FlooringMasteryIntMap(int expectedSize) {
+        int capacity = 8;
+        while (capacity * MAX_LOAD_NUMERATOR < expectedSize * MAX_LOAD_DENOMINATOR) {
+            capacity *= 2;
+        }
+        keys = new int[capacity];
+        values = new Object[capacity];
+    }
+
+    private FlooringMasteryIntMap(FlooringMasteryIntMap<V> other) {
+        keys = other.keys.clone();
+        values = other.values.clone();
+        size = other.size;
+    }
+
+    /**
+     * Copy of this map. Changing either one does not change the other.
+     * @return  copy with the same mappings
+     */
+    public FlooringMasteryIntMap<V> copy() {
+        return new FlooringMasteryIntMap<>(this);
+    }
+
+    /**
+     * Gets the value of a key.
+     * @param key   key to look up
+     * @return      value, null if absent
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int mask = keys.length - 1;
+        int i = index(key, mask);
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                return (V) values[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Stores a value.
+     * @param key   key
+     * @param value value, not null
+     * @return      previous value, null if none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new NullPointerException("Null values are not allowed");
+        }
+        if ((size + 1) * MAX_LOAD_DENOMINATOR > keys.length * MAX_LOAD_NUMERATOR) {
+            resize();
+        }
+        int mask = keys.length - 1;
+        int i = index(key, mask);
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                V old = (V) values[i];
+                values[i] = value;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+        return null;
+    }
+
+    /**
+     * Removes a key.
+     * @param key   key
+     * @return      removed value, null if absent
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int mask = keys.length - 1;
+        int i = index(key, mask);
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                V old = (V) values[i];
+                values[i] = null;
+                size--;
+                shiftBack(i, mask);
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Read only Map view of this map. Reflects later changes.
+     * @return  view backed by this map
+     */
+    public Map<Integer, V> asMap() {
+        return view;
+    }
+
+    /**
+     * Same spreading as HashMap, so sequential order numbers land in
+     * sequential slots and iterate in ascending order.
+     */
+    private static int index(int key, int mask) {
+        return (key ^ (key >>> 16)) & mask;
+    }
+
+    /**
+     * Helper method to move entries after a removed slot back, so lookups
+     * do not stop at the new gap.
+     */
+    private void shiftBack(int gap, int mask) {
+        int i = (gap + 1) & mask;
+        while (values[i] != null) {
+            int home = index(keys[i], mask);
+            //move the entry if the gap lies between its home slot and its slot
+            boolean move = gap <= i ? (home <= gap || home > i) : (home <= gap && home > i);
+            if (move) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                values[i] = null;
+                gap = i;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new Object[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldValues[j] != null) {
+                int i = index(oldKeys[j], mask);
+                while (values[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    /** Read only Map view. Lookups go straight to the int map */
+    private class ReadOnlyView extends AbstractMap<Integer, V> {
+
+        @Override
+        public V get(Object key) {
+            return key instanceof Integer ? FlooringMasteryIntMap.this.get((Integer) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Set<Map.Entry<Integer, V>> entrySet() {
+            return new AbstractSet<Map.Entry<Integer, V>>() {
+                @Override
+                public Iterator<Map.Entry<Integer, V>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+    }
+
+    /** Walks the table in slot order */
+    private class EntryIterator implements Iterator<Map.Entry<Integer, V>> {
+        private int next = advance(0);
+
+        private int advance(int from) {
+            while (from < values.length && values[from] == null) {
+                from++;
+            }
+            return from;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < values.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map.Entry<Integer, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<Integer, V> entry = new AbstractMap.SimpleImmutableEntry<>(keys[next], (V) values[next]);
+            next = advance(next + 1);
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.dao;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies in nanoseconds with one bucket per power of two.
+ * Bucket b counts the values from 2^(b-1) to 2^b - 1, so percentiles are
+ * upper bounds at most twice the real value. Recording is safe from any
+ * number of threads and does not lock; the counters are striped so callers
+ * do not contend on one cache line.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public final class FlooringMasteryLatencyHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+    private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+    public FlooringMasteryLatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Adds one value.
+     * @param nanos latency in nanoseconds, negative values count as 0
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts[BUCKETS - Long.numberOfLeadingZeros(nanos)].increment();
+        max.accumulate(nanos);
+    }
+
+    /**
+     * Number of values recorded.
+     * @return  count of values
+     */
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : counts) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * Largest value recorded.
+     * @return  latency in nanoseconds, 0 if none
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Upper bound of a percentile.
+     * @param percentile    percentile from 0 to 100, e.g. 99.9
+     * @return  latency in nanoseconds that at least that share of values
+     * is not above, 0 if none
+     */
+    public long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        }
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts[i].sum();
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Clears every bucket. Values recorded at the same time may be kept.
+     */
+    public void reset() {
+        for (LongAdder bucket : counts) {
+            bucket.reset();
+        }
+        max.reset();
+    }
+
+    private static long upperBound(int bucket) {
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + getCount()
+                + ", p50<=" + getPercentile(50) + "ns"
+                + ", p99<=" + getPercentile(99) + "ns"
+                + ", p99.9<=" + getPercentile(99.9) + "ns"
+                + ", max=" + getMax() + "ns";
+    }
+}
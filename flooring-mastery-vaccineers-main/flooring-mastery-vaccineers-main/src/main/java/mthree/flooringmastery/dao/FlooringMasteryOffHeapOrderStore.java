@@ -0,0 +1,528 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.dao;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import mthree.flooringmastery.dto.Order;
+import mthree.flooringmastery.dto.Product;
+import mthree.flooringmastery.dto.State;
+
+/**
+ * Order store keeping orders outside of the heap.
+ * Every order is a fixed size record in direct byte buffers. Amounts are kept
+ * as their unscaled long value (scale 2) and strings are replaced by ids into
+ * a string dictionary, so repeated names, states and products are stored once.
+ * Dictionary entries are counted by the records using them and dropped with
+ * the last one. Order objects are only built when they are asked for.
+ *
+ * Not thread safe by itself. Records change in place, so the file dao calls
+ * it only while holding its lock, reads included.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public class FlooringMasteryOffHeapOrderStore implements FlooringMasteryOrderStore {
+
+    /** Record layout. Byte offsets inside a record */
+    private static final int ORDER_NUMBER = 0;
+    private static final int CUSTOMER_NAME = 4;
+    private static final int STATE = 8;
+    private static final int PRODUCT_TYPE = 12;
+    private static final int TAX_RATE = 16;
+    private static final int AREA = 24;
+    private static final int COST_PER_SQUARE_FOOT = 32;
+    private static final int LABOR_COST_PER_SQUARE_FOOT = 40;
+    private static final int MATERIAL_COST = 48;
+    private static final int LABOR_COST = 56;
+    private static final int TAX = 64;
+    private static final int TOTAL = 72;
+
+    /** Size of a single record in bytes */
+    public static final int RECORD_SIZE = 80;
+
+    /** Records per buffer chunk */
+    private static final int CHUNK_RECORDS = 16384;
+
+    /** Marks a null amount */
+    private static final long NULL_AMOUNT = Long.MIN_VALUE;
+
+    /** Marks a null string */
+    private static final int NULL_STRING = -1;
+
+    /** Record buffers, each holding CHUNK_RECORDS records */
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+
+    /** Next never used slot */
+    private int nextSlot = 0;
+
+    /** Slots freed by removed orders */
+    private int[] freeSlots = new int[16];
+    private int freeCount = 0;
+
+    /** Order date --> slots of the orders on that date */
+    private final Map<LocalDate, SlotList> dates = new HashMap<>();
+
+    /** (epoch day, order number) --> slot */
+    private final SlotIndex index = new SlotIndex();
+
+    /** String dictionary. Id --> string, null for a free id */
+    private final List<String> strings = new ArrayList<>();
+
+    /** String dictionary. Id --> number of record fields using it */
+    private int[] stringUses = new int[64];
+
+    /** Ids freed by strings no record uses anymore */
+    private final List<Integer> freeStringIds = new ArrayList<>();
+
+    /** String dictionary. String --> id */
+    private final Map<String, Integer> stringIds = new HashMap<>();
+
+    /** State abbreviation --> catalog state, null if not in the catalog */
+    private final Function<String, State> stateCatalog;
+
+    /** Product type --> catalog product, null if not in the catalog */
+    private final Function<String, Product> productCatalog;
+
+    /**
+     * Store whose orders do not point at catalog entries.
+     */
+    public FlooringMasteryOffHeapOrderStore() {
+        this(abbreviation -> null, productType -> null);
+    }
+
+    /**
+     * Store whose orders point at the current catalog entries when they are
+     * built, like the orders the dao reads from a file.
+     * @param stateCatalog      state abbreviation --> catalog state, null if none
+     * @param productCatalog    product type --> catalog product, null if none
+     */
+    public FlooringMasteryOffHeapOrderStore(Function<String, State> stateCatalog,
+            Function<String, Product> productCatalog) {
+        this.stateCatalog = stateCatalog;
+        this.productCatalog = productCatalog;
+    }
+
+    @Override
+    public Map<Integer, Order> getOrders(LocalDate date) {
+        SlotList slots = dates.get(date);
+        if (slots == null) {
+            return null;
+        }
+        Map<Integer, Order> dateOrders = new HashMap<>();
+        for (int i = 0; i < slots.size; i++) {
+            Order order = readRecord(slots.slots[i]);
+            dateOrders.put(order.getOrderNumber(), order);
+        }
+        return Collections.unmodifiableMap(dateOrders);
+    }
+
+    @Override
+    public Order getOrder(LocalDate date, int orderNumber) {
+        int slot = index.get(key(date, orderNumber));
+        return slot < 0 ? null : readRecord(slot);
+    }
+
+    @Override
+    public Order putOrder(LocalDate date, int orderNumber, Order order) {
+        long key = key(date, orderNumber);
+        int slot = index.get(key);
+        Order oldOrder = null;
+        if (slot < 0) {
+            slot = allocateSlot();
+            index.put(key, slot);
+            dates.computeIfAbsent(date, d -> new SlotList()).add(slot);
+            writeRecord(slot, orderNumber, order);
+        } else {
+            oldOrder = readRecord(slot);
+            int[] oldStrings = recordStrings(slot);
+            //the new strings are counted before the old ones are released, so shared ones stay
+            writeRecord(slot, orderNumber, order);
+            releaseStrings(oldStrings);
+        }
+        return oldOrder;
+    }
+
+    @Override
+    public List<Order> putOrders(LocalDate date, Collection<Order> newOrders) {
+        List<Order> oldOrders = new ArrayList<>();
+        for (Order newOrder : newOrders) {
+            oldOrders.add(putOrder(date, newOrder.getOrderNumber(), newOrder));
+        }
+        return oldOrders;
+    }
+
+    @Override
+    public Order removeOrder(LocalDate date, int orderNumber) {
+        long key = key(date, orderNumber);
+        int slot = index.remove(key);
+        if (slot < 0) {
+            return null;
+        }
+        Order removedOrder = readRecord(slot);
+        dates.get(date).remove(slot);
+        releaseStrings(recordStrings(slot));
+        freeSlot(slot);
+        return removedOrder;
+    }
+
+    @Override
+    public void putDate(LocalDate date, Map<Integer, Order> dateOrders) {
+        removeDate(date);
+        dates.put(date, new SlotList());
+        for (Map.Entry<Integer, Order> entry : dateOrders.entrySet()) {
+            putOrder(date, entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public void removeDate(LocalDate date) {
+        SlotList slots = dates.remove(date);
+        if (slots == null) {
+            return;
+        }
+        for (int i = 0; i < slots.size; i++) {
+            int slot = slots.slots[i];
+            index.remove(key(date, recordBuffer(slot).getInt(recordOffset(slot) + ORDER_NUMBER)));
+            releaseStrings(recordStrings(slot));
+            freeSlot(slot);
+        }
+    }
+
+    @Override
+    public Set<LocalDate> getDates() {
+        return new HashSet<>(dates.keySet());
+    }
+
+    @Override
+    public boolean hasDate(LocalDate date) {
+        return dates.containsKey(date);
+    }
+
+    /**
+     * Records are changed in place, so reads need the dao lock.
+     * @return  false
+     */
+    @Override
+    public boolean hasSnapshots() {
+        return false;
+    }
+
+    /**
+     * Number of orders currently stored.
+     * @return  order count
+     */
+    public int getOrderCount() {
+        return nextSlot - freeCount;
+    }
+
+    /**
+     * Bytes allocated outside of the heap for order records.
+     * @return  off heap bytes
+     */
+    public long getOffHeapBytes() {
+        return (long) chunks.size() * CHUNK_RECORDS * RECORD_SIZE;
+    }
+
+    /**
+     * Number of distinct strings in the dictionary.
+     * @return  dictionary size
+     */
+    public int getDictionarySize() {
+        return stringIds.size();
+    }
+
+    /**
+     * Helper method to build an order from its record
+     * @param slot  record slot
+     * @return  new order object
+     */
+    private Order readRecord(int slot) {
+        ByteBuffer buffer = recordBuffer(slot);
+        int base = recordOffset(slot);
+
+        Order order = new Order();
+        order.setOrderNumber(buffer.getInt(base + ORDER_NUMBER));
+        order.setCustomerName(readString(buffer.getInt(base + CUSTOMER_NAME)));
+        //point at the catalog entries before the rates, so equal rates are not copied
+        String stateAbbreviation = readString(buffer.getInt(base + STATE));
+        State state = stateAbbreviation == null ? null : stateCatalog.apply(stateAbbreviation);
+        if (state != null) {
+            order.setStateEntry(state);
+        } else {
+            order.setState(stateAbbreviation);
+        }
+        String productType = readString(buffer.getInt(base + PRODUCT_TYPE));
+        Product product = productType == null ? null : productCatalog.apply(productType);
+        if (product != null) {
+            order.setProductEntry(product);
+        } else {
+            order.setProductType(productType);
+        }
+        order.setArea(readAmount(buffer.getLong(base + AREA)));
+
+        BigDecimal taxRate = readAmount(buffer.getLong(base + TAX_RATE));
+        if (taxRate != null) {
+            order.setTaxRate(taxRate);
+        }
+        BigDecimal costPerSquareFoot = readAmount(buffer.getLong(base + COST_PER_SQUARE_FOOT));
+        if (costPerSquareFoot != null) {
+            order.setCostPerSquareFoot(costPerSquareFoot);
+        }
+        BigDecimal laborCostPerSquareFoot = readAmount(buffer.getLong(base + LABOR_COST_PER_SQUARE_FOOT));
+        if (laborCostPerSquareFoot != null) {
+            order.setLaborCostPerSquareFoot(laborCostPerSquareFoot);
+        }
+        BigDecimal materialCost = readAmount(buffer.getLong(base + MATERIAL_COST));
+        if (materialCost != null) {
+            order.setMaterialCost(materialCost);
+        }
+        BigDecimal laborCost = readAmount(buffer.getLong(base + LABOR_COST));
+        if (laborCost != null) {
+            order.setLaborCost(laborCost);
+        }
+        BigDecimal tax = readAmount(buffer.getLong(base + TAX));
+        if (tax != null) {
+            order.setTax(tax);
+        }
+        BigDecimal total = readAmount(buffer.getLong(base + TOTAL));
+        if (total != null) {
+            order.setTotal(total);
+        }
+        //built per read, but the dao and the service cache hand it out to every caller
+        return order.freeze();
+    }
+
+    /**
+     * Helper method to write an order into its record
+     * @param slot          record slot
+     * @param orderNumber   number the order is stored under
+     * @param order         order to write
+     */
+    private void writeRecord(int slot, int orderNumber, Order order) {
+        ByteBuffer buffer = recordBuffer(slot);
+        int base = recordOffset(slot);
+
+        buffer.putInt(base + ORDER_NUMBER, orderNumber);
+        buffer.putInt(base + CUSTOMER_NAME, stringId(order.getCustomerName()));
+        buffer.putInt(base + STATE, stringId(order.getState()));
+        buffer.putInt(base + PRODUCT_TYPE, stringId(order.getProductType()));
+        buffer.putLong(base + TAX_RATE, amount(order.getTaxRate()));
+        buffer.putLong(base + AREA, amount(order.getArea()));
+        buffer.putLong(base + COST_PER_SQUARE_FOOT, amount(order.getCostPerSquareFoot()));
+        buffer.putLong(base + LABOR_COST_PER_SQUARE_FOOT, amount(order.getLaborCostPerSquareFoot()));
+        buffer.putLong(base + MATERIAL_COST, amount(order.getMaterialCost()));
+        buffer.putLong(base + LABOR_COST, amount(order.getLaborCost()));
+        buffer.putLong(base + TAX, amount(order.getTax()));
+        buffer.putLong(base + TOTAL, amount(order.getTotal()));
+    }
+
+    private static long amount(BigDecimal value) {
+        if (value == null) {
+            return NULL_AMOUNT;
+        }
+        return value.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static BigDecimal readAmount(long value) {
+        return value == NULL_AMOUNT ? null : BigDecimal.valueOf(value, 2);
+    }
+
+    private int stringId(String value) {
+        if (value == null) {
+            return NULL_STRING;
+        }
+        Integer id = stringIds.get(value);
+        if (id == null) {
+            if (freeStringIds.isEmpty()) {
+                id = strings.size();
+                strings.add(value);
+                if (id == stringUses.length) {
+                    stringUses = Arrays.copyOf(stringUses, id * 2);
+                }
+            } else {
+                id = freeStringIds.remove(freeStringIds.size() - 1);
+                strings.set(id, value);
+            }
+            stringIds.put(value, id);
+        }
+        stringUses[id]++;
+        return id;
+    }
+
+    /**
+     * Helper method to get the dictionary ids a record uses
+     * @param slot  record slot
+     * @return  customer name, state and product type ids
+     */
+    private int[] recordStrings(int slot) {
+        ByteBuffer buffer = recordBuffer(slot);
+        int base = recordOffset(slot);
+        return new int[] {buffer.getInt(base + CUSTOMER_NAME), buffer.getInt(base + STATE),
+                buffer.getInt(base + PRODUCT_TYPE)};
+    }
+
+    /**
+     * Helper method to stop counting a record's dictionary ids, dropping
+     * strings no record uses anymore
+     * @param ids   ids the record used
+     */
+    private void releaseStrings(int[] ids) {
+        for (int id : ids) {
+            if (id != NULL_STRING && --stringUses[id] == 0) {
+                stringIds.remove(strings.set(id, null));
+                freeStringIds.add(id);
+            }
+        }
+    }
+
+    private String readString(int id) {
+        return id == NULL_STRING ? null : strings.get(id);
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (nextSlot == chunks.size() * CHUNK_RECORDS) {
+            chunks.add(ByteBuffer.allocateDirect(CHUNK_RECORDS * RECORD_SIZE));
+        }
+        return nextSlot++;
+    }
+
+    private void freeSlot(int slot) {
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    private ByteBuffer recordBuffer(int slot) {
+        return chunks.get(slot / CHUNK_RECORDS);
+    }
+
+    private int recordOffset(int slot) {
+        return (slot % CHUNK_RECORDS) * RECORD_SIZE;
+    }
+
+    private static long key(LocalDate date, int orderNumber) {
+        return (date.toEpochDay() << 32) | (orderNumber & 0xffffffffL);
+    }
+
+    /** Growable list of slots for one date */
+    private static class SlotList {
+        private int[] slots = new int[8];
+        private int size = 0;
+
+        private void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+
+        private void remove(int slot) {
+            for (int i = 0; i < size; i++) {
+                if (slots[i] == slot) {
+                    slots[i] = slots[--size];
+                    return;
+                }
+            }
+        }
+    }
+
+    /** Open addressing map of long keys to slot numbers, -1 meaning absent */
+    private static class SlotIndex {
+        private static final long EMPTY = Long.MIN_VALUE;
+        private long[] keys = newKeys(64);
+        private int[] values = new int[64];
+        private int size = 0;
+
+        private static long[] newKeys(int capacity) {
+            long[] newKeys = new long[capacity];
+            Arrays.fill(newKeys, EMPTY);
+            return newKeys;
+        }
+
+        private int slotOf(long key, long[] table) {
+            int mask = table.length - 1;
+            int i = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+            while (table[i] != EMPTY && table[i] != key) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        private int get(long key) {
+            int i = slotOf(key, keys);
+            return keys[i] == EMPTY ? -1 : values[i];
+        }
+
+        private void put(long key, int value) {
+            if ((size + 1) * 4 > keys.length * 3) {
+                resize();
+            }
+            int i = slotOf(key, keys);
+            if (keys[i] == EMPTY) {
+                keys[i] = key;
+                size++;
+            }
+            values[i] = value;
+        }
+
+        private int remove(long key) {
+            int i = slotOf(key, keys);
+            if (keys[i] == EMPTY) {
+                return -1;
+            }
+            int removed = values[i];
+            keys[i] = EMPTY;
+            size--;
+            //shift back the following entries so lookups do not stop early
+            int mask = keys.length - 1;
+            int j = (i + 1) & mask;
+            while (keys[j] != EMPTY) {
+                long movedKey = keys[j];
+                int movedValue = values[j];
+                keys[j] = EMPTY;
+                int target = slotOf(movedKey, keys);
+                keys[target] = movedKey;
+                values[target] = movedValue;
+                j = (j + 1) & mask;
+            }
+            return removed;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = newKeys(oldKeys.length * 2);
+            values = new int[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int target = slotOf(oldKeys[i], keys);
+                    keys[target] = oldKeys[i];
+                    values[target] = oldValues[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,405 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.dao;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Cold storage for old order dates.
+ * Order files are packed into compressed segment files, one per month or per
+ * year. Each segment is a zip file, so every date is compressed on its own and
+ * can be found through the zip directory. Reading a date only decompresses
+ * that one entry.
+ *
+ * Each segment also has a small index entry listing its dates, how many orders
+ * each date has and the highest order number in it.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public class FlooringMasteryOrderArchive {
+
+    /** How many dates go into one segment file */
+    public enum Granularity {
+        MONTH("MMyyyy"),
+        YEAR("yyyy");
+
+        private final DateTimeFormatter format;
+
+        Granularity(String pattern) {
+            this.format = DateTimeFormatter.ofPattern(pattern);
+        }
+    }
+
+    /** Name of the index entry inside every segment */
+    private static final String INDEX_ENTRY = "index.txt";
+
+    /** Header of the index entry */
+    private static final String INDEX_HEADER = "Date,Orders,MaxOrderNumber";
+
+    /** Delimiter used in the index entry */
+    private static final String DELIMITER = ",";
+
+    /** Date format used in order file names */
+    private static final DateTimeFormatter FILE_DATE = DateTimeFormatter.ofPattern("MMddyyyy");
+
+    /** Directory of segment files */
+    private final String ARCHIVE_PATH;
+
+    /** Segment size */
+    private final Granularity GRANULARITY;
+
+    /** Archived date --> index line of that date. Null until first read */
+    private Map<LocalDate, IndexLine> index;
+
+    /** Held while reading or writing segments, without pinning virtual threads */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public FlooringMasteryOrderArchive(String archivePath) {
+        this(archivePath, Granularity.MONTH);
+    }
+
+    public FlooringMasteryOrderArchive(String archivePath, Granularity granularity) {
+        this.ARCHIVE_PATH = archivePath;
+        this.GRANULARITY = granularity;
+    }
+
+    /**
+     * Packs the given order files into their segments.
+     * Dates which are already archived get replaced.
+     * @param dateFiles     order date --> full text of the order file
+     * @param orderCounts   order date --> number of orders in the file
+     * @param maxNumbers    order date --> highest order number in the file
+     * @throws FlooringMasteryPersistenceException
+     */
+    public void archiveDates(Map<LocalDate, String> dateFiles,
+            Map<LocalDate, Integer> orderCounts,
+            Map<LocalDate, Integer> maxNumbers) throws FlooringMasteryPersistenceException {
+        lock.lock();
+        try {
+            loadIndex();
+            File folder = new File(ARCHIVE_PATH);
+            if(!folder.exists())
+                folder.mkdirs();
+
+            //group dates by the segment they belong to
+            Map<String, List<LocalDate>> segments = new TreeMap<>();
+            for (LocalDate date : dateFiles.keySet()) {
+                segments.computeIfAbsent(segmentName(date), s -> new ArrayList<>()).add(date);
+            }
+
+            for (Map.Entry<String, List<LocalDate>> segment : segments.entrySet()) {
+                File segmentFile = new File(folder, segment.getKey());
+                File tempFile = new File(folder, segment.getKey() + ".tmp");
+                Map<LocalDate, IndexLine> segmentIndex = new TreeMap<>();
+
+                try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(tempFile))) {
+                    //copy over the dates that are not being replaced
+                    if (segmentFile.exists()) {
+                        try (ZipFile zip = new ZipFile(segmentFile)) {
+                            Enumeration<? extends ZipEntry> entries = zip.entries();
+                            while (entries.hasMoreElements()) {
+                                ZipEntry entry = entries.nextElement();
+                                LocalDate entryDate = entryDate(entry.getName());
+                                if (entryDate == null || dateFiles.containsKey(entryDate)) {
+                                    continue;
+                                }
+                                out.putNextEntry(new ZipEntry(entry.getName()));
+                                try (InputStream in = zip.getInputStream(entry)) {
+                                    in.transferTo(out);
+                                }
+                                out.closeEntry();
+                                segmentIndex.put(entryDate, index.get(entryDate));
+                            }
+                        }
+                    }
+
+                    for (LocalDate date : segment.getValue()) {
+                        out.putNextEntry(new ZipEntry(entryName(date)));
+                        out.write(dateFiles.get(date).getBytes(StandardCharsets.UTF_8));
+                        out.closeEntry();
+                        segmentIndex.put(date, new IndexLine(orderCounts.get(date), maxNumbers.get(date)));
+                    }
+
+                    out.putNextEntry(new ZipEntry(INDEX_ENTRY));
+                    out.write(marshallIndex(segmentIndex).getBytes(StandardCharsets.UTF_8));
+                    out.closeEntry();
+                } catch (IOException e) {
+                    tempFile.delete();
+                    throw new FlooringMasteryPersistenceException("Could not archive order data.", e);
+                }
+
+                try {
+                    Files.move(tempFile.toPath(), segmentFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                } catch (IOException e) {
+                    throw new FlooringMasteryPersistenceException("Could not archive order data.", e);
+                }
+                index.putAll(segmentIndex);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes dates out of their segments, e.g. once they are active again,
+     * so the archive never brings back orders removed later. A segment left
+     * without dates is deleted.
+     * @param dates dates to take out, those not archived are skipped
+     * @throws FlooringMasteryPersistenceException
+     */
+    public void removeDates(Collection<LocalDate> dates) throws FlooringMasteryPersistenceException {
+        lock.lock();
+        try {
+            loadIndex();
+            Map<String, List<LocalDate>> segments = new TreeMap<>();
+            for (LocalDate date : dates) {
+                if (index.containsKey(date)) {
+                    segments.computeIfAbsent(segmentName(date), s -> new ArrayList<>()).add(date);
+                }
+            }
+
+            for (Map.Entry<String, List<LocalDate>> segment : segments.entrySet()) {
+                File segmentFile = new File(ARCHIVE_PATH, segment.getKey());
+                File tempFile = new File(ARCHIVE_PATH, segment.getKey() + ".tmp");
+                Map<LocalDate, IndexLine> segmentIndex = new TreeMap<>();
+
+                try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(tempFile))) {
+                    try (ZipFile zip = new ZipFile(segmentFile)) {
+                        Enumeration<? extends ZipEntry> entries = zip.entries();
+                        while (entries.hasMoreElements()) {
+                            ZipEntry entry = entries.nextElement();
+                            LocalDate entryDate = entryDate(entry.getName());
+                            if (entryDate == null || segment.getValue().contains(entryDate)) {
+                                continue;
+                            }
+                            out.putNextEntry(new ZipEntry(entry.getName()));
+                            try (InputStream in = zip.getInputStream(entry)) {
+                                in.transferTo(out);
+                            }
+                            out.closeEntry();
+                            segmentIndex.put(entryDate, index.get(entryDate));
+                        }
+                    }
+                    out.putNextEntry(new ZipEntry(INDEX_ENTRY));
+                    out.write(marshallIndex(segmentIndex).getBytes(StandardCharsets.UTF_8));
+                    out.closeEntry();
+                } catch (IOException e) {
+                    tempFile.delete();
+                    throw new FlooringMasteryPersistenceException("Could not update archived order data.", e);
+                }
+
+                try {
+                    if (segmentIndex.isEmpty()) {
+                        tempFile.delete();
+                        Files.deleteIfExists(segmentFile.toPath());
+                    } else {
+                        Files.move(tempFile.toPath(), segmentFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    }
+                } catch (IOException e) {
+                    throw new FlooringMasteryPersistenceException("Could not update archived order data.", e);
+                }
+                index.keySet().removeAll(segment.getValue());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads a single archived date.
+     * Only the entry of that date gets decompressed.
+     * @param date  order date
+     * @return      full text of the archived order file, null if not archived
+     * @throws FlooringMasteryPersistenceException
+     */
+    public String readDate(LocalDate date) throws FlooringMasteryPersistenceException {
+        lock.lock();
+        try {
+            loadIndex();
+            if (!index.containsKey(date)) {
+                return null;
+            }
+            File segmentFile = new File(ARCHIVE_PATH, segmentName(date));
+            try (ZipFile zip = new ZipFile(segmentFile)) {
+                ZipEntry entry = zip.getEntry(entryName(date));
+                if (entry == null) {
+                    return null;
+                }
+                try (InputStream in = zip.getInputStream(entry)) {
+                    return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                }
+            } catch (IOException e) {
+                throw new FlooringMasteryPersistenceException("Could not load archived order data.", e);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks if a date is in the archive.
+     * @param date  order date
+     * @return      true if the date was archived
+     * @throws FlooringMasteryPersistenceException
+     */
+    public boolean containsDate(LocalDate date) throws FlooringMasteryPersistenceException {
+        lock.lock();
+        try {
+            loadIndex();
+            return index.containsKey(date);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets all archived dates in order.
+     * @return  sorted archived dates
+     * @throws FlooringMasteryPersistenceException
+     */
+    public List<LocalDate> getDates() throws FlooringMasteryPersistenceException {
+        lock.lock();
+        try {
+            loadIndex();
+            return new ArrayList<>(new TreeSet<>(index.keySet()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Highest order number found in any segment.
+     * Used so new orders never reuse an archived order number.
+     * @return  max order number, 0 if nothing is archived
+     * @throws FlooringMasteryPersistenceException
+     */
+    public int getMaxOrderNumber() throws FlooringMasteryPersistenceException {
+        lock.lock();
+        try {
+            loadIndex();
+            int max = 0;
+            for (IndexLine line : index.values()) {
+                max = Math.max(max, line.maxOrderNumber);
+            }
+            return max;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Helper method to read the index entry of every segment.
+     * Only done once, the index is kept up to date when archiving.
+     * @throws FlooringMasteryPersistenceException
+     */
+    private void loadIndex() throws FlooringMasteryPersistenceException {
+        if (index != null) {
+            return;
+        }
+        Map<LocalDate, IndexLine> loaded = new HashMap<>();
+        File[] segmentFiles = new File(ARCHIVE_PATH).listFiles((dir, name) -> name.endsWith(".zip"));
+        if (segmentFiles != null) {
+            for (File segmentFile : segmentFiles) {
+                try (ZipFile zip = new ZipFile(segmentFile)) {
+                    ZipEntry entry = zip.getEntry(INDEX_ENTRY);
+                    if (entry == null) {
+                        continue;
+                    }
+                    try (BufferedReader in = new BufferedReader(
+                            new InputStreamReader(zip.getInputStream(entry), StandardCharsets.UTF_8))) {
+                        in.readLine(); //skip first line since it's not part of the data
+                        String currentLine;
+                        while ((currentLine = in.readLine()) != null) {
+                            String[] tokens = currentLine.split(DELIMITER);
+                            loaded.put(LocalDate.parse(tokens[0], FILE_DATE),
+                                    new IndexLine(Integer.parseInt(tokens[1]), Integer.parseInt(tokens[2])));
+                        }
+                    }
+                } catch (IOException | DateTimeParseException | NumberFormatException e) {
+                    throw new FlooringMasteryPersistenceException("Could not load archive index.", e);
+                }
+            }
+        }
+        index = loaded;
+    }
+
+    /**
+     * Helper method to marshall a segment index
+     * @param segmentIndex  date --> index line
+     * @return  text of the index entry
+     */
+    private String marshallIndex(Map<LocalDate, IndexLine> segmentIndex) {
+        StringBuilder build = new StringBuilder(INDEX_HEADER).append("\n");
+        for (Map.Entry<LocalDate, IndexLine> line : segmentIndex.entrySet()) {
+            build.append(line.getKey().format(FILE_DATE)).append(DELIMITER)
+                    .append(line.getValue().orderCount).append(DELIMITER)
+                    .append(line.getValue().maxOrderNumber).append("\n");
+        }
+        return build.toString();
+    }
+
+    private String segmentName(LocalDate date) {
+        return "Orders_" + date.format(GRANULARITY.format) + ".zip";
+    }
+
+    private String entryName(LocalDate date) {
+        return "Orders_" + date.format(FILE_DATE) + ".txt";
+    }
+
+    /**
+     * Gets the date out of an entry name.
+     * @param name  zip entry name
+     * @return      date of the entry, null if it is not an order entry
+     */
+    private LocalDate entryDate(String name) {
+        if (!name.startsWith("Orders_") || name.length() < 15) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(name.substring(7, 15), FILE_DATE);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /** One line of a segment index */
+    private static class IndexLine {
+        private final int orderCount;
+        private final int maxOrderNumber;
+
+        private IndexLine(int orderCount, int maxOrderNumber) {
+            this.orderCount = orderCount;
+            this.maxOrderNumber = maxOrderNumber;
+        }
+    }
+}
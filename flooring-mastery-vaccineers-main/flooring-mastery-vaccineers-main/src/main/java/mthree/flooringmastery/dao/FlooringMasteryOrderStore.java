@@ -0,0 +1,108 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.dao;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import mthree.flooringmastery.dto.Order;
+
+/**
+ * In memory storage of the active orders used by the file dao.
+ * The file dao reads and writes the order files, the store only decides how
+ * the loaded orders are kept in memory.
+ *
+ * The maps and orders handed out are read only. Writes are made by one thread at a
+ * time, under the dao lock. A store with snapshots also lets readers in
+ * while a write runs, without the lock.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public interface FlooringMasteryOrderStore {
+
+    /**
+     * Gets all orders for a date.
+     * @param date  order date
+     * @return  read only Map of order number to order, null if the date is
+     *          not stored
+     */
+    public Map<Integer, Order> getOrders(LocalDate date);
+
+    /**
+     * Gets a single order.
+     * @param date          order date
+     * @param orderNumber   order number
+     * @return  order if exists, null if not
+     */
+    public Order getOrder(LocalDate date, int orderNumber);
+
+    /**
+     * Stores an order under the given number. Adds the date if needed.
+     * @param date          order date
+     * @param orderNumber   order number
+     * @param order         order to store
+     * @return  the order previously stored under that number, null if none
+     */
+    public Order putOrder(LocalDate date, int orderNumber, Order order);
+
+    /**
+     * Stores several orders of one date under their order numbers. Adds the
+     * date if needed.
+     * @param date          order date
+     * @param newOrders     orders to store
+     * @return  the orders previously stored under their numbers, in the
+     *          order of the new ones, null where none
+     */
+    public List<Order> putOrders(LocalDate date, Collection<Order> newOrders);
+
+    /**
+     * Removes an order. The date stays stored even if it has no orders left.
+     * @param date          order date
+     * @param orderNumber   order number
+     * @return  the removed order, null if none
+     */
+    public Order removeOrder(LocalDate date, int orderNumber);
+
+    /**
+     * Replaces all orders of a date.
+     * @param date      order date
+     * @param orders    order number --> order
+     */
+    public void putDate(LocalDate date, Map<Integer, Order> orders);
+
+    /**
+     * Removes a date and all its orders.
+     * @param date  order date
+     */
+    public void removeDate(LocalDate date);
+
+    /**
+     * Gets all stored dates.
+     * @return  copy of the stored dates
+     */
+    public Set<LocalDate> getDates();
+
+    /**
+     * Whether a date is stored, without reading its orders.
+     * @param date  order date
+     * @return  true if the date is stored, even with no orders left
+     */
+    public boolean hasDate(LocalDate date);
+
+    /**
+     * Whether getOrders and getOrder can run without the dao lock while
+     * another thread writes. Each date is then an immutable snapshot, which
+     * writes replace instead of changing.
+     * @return  true if reads need no lock
+     */
+    public boolean hasSnapshots();
+}
@@ -0,0 +1,290 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.dao;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Client request ids of the orders added recently, so a retried request
+ * gets the order it already placed instead of a new one.
+ *
+ * Receipts are kept in memory, oldest first, and dropped once they are older
+ * than the time to live or when there are more than the capacity. The log
+ * file is read once, on first use, and each new receipt is appended to it.
+ * When the file has grown to twice the capacity it is written again with
+ * only the live receipts.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public class FlooringMasteryRequestLog {
+
+    /** Where the order of one request went */
+    public static final class Receipt {
+        private final LocalDateTime received;
+        private final LocalDate date;
+        private final int orderNumber;
+
+        private Receipt(LocalDateTime received, LocalDate date, int orderNumber) {
+            this.received = received;
+            this.date = date;
+            this.orderNumber = orderNumber;
+        }
+
+        public LocalDateTime getReceived() {
+            return received;
+        }
+
+        public LocalDate getDate() {
+            return date;
+        }
+
+        public int getOrderNumber() {
+            return orderNumber;
+        }
+    }
+
+    /** Delimiter of the log file. The request id is last, so it may contain it */
+    private static final String DELIMITER = ",";
+
+    /** Log file name */
+    private final String LOG_FILE;
+
+    /** Most receipts kept */
+    private final int CAPACITY;
+
+    /** How long a receipt is kept */
+    private final Duration TIME_TO_LIVE;
+
+    /** Request id --> receipt, oldest first. Null until first read */
+    private LinkedHashMap<String, Receipt> receipts;
+
+    /** Lines in the log file, live or not */
+    private int fileLines;
+
+    /** Held by every call */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public FlooringMasteryRequestLog(String logFile, int capacity, Duration timeToLive) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        }
+        this.LOG_FILE = logFile;
+        this.CAPACITY = capacity;
+        this.TIME_TO_LIVE = timeToLive;
+    }
+
+    /**
+     * Gets the receipt of a request.
+     * @param requestId client request id
+     * @param now       current time
+     * @return  receipt, null if the request is unknown or expired
+     * @throws FlooringMasteryPersistenceException
+     */
+    public Receipt get(String requestId, LocalDateTime now) throws FlooringMasteryPersistenceException {
+        checkRequestId(requestId);
+        lock.lock();
+        try {
+            load(now);
+            expire(now);
+            return receipts.get(requestId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Keeps the receipt of a request and appends it to the log file.
+     * A receipt already kept for the same id is replaced.
+     * @param requestId     client request id
+     * @param date          order date
+     * @param orderNumber   number of the added order
+     * @param now           current time
+     * @throws FlooringMasteryPersistenceException
+     */
+    public void put(String requestId, LocalDate date, int orderNumber, LocalDateTime now) throws FlooringMasteryPersistenceException {
+        checkRequestId(requestId);
+        lock.lock();
+        try {
+            load(now);
+            expire(now);
+            Receipt receipt = new Receipt(now, date, orderNumber);
+            //removed first, so the id moves to the newest end
+            receipts.remove(requestId);
+            receipts.put(requestId, receipt);
+            trim();
+            if (fileLines + 1 >= 2 * CAPACITY) {
+                save();
+            } else {
+                append(requestId, receipt);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Number of receipts kept.
+     * @param now   current time
+     * @return  live receipts
+     * @throws FlooringMasteryPersistenceException
+     */
+    public int size(LocalDateTime now) throws FlooringMasteryPersistenceException {
+        lock.lock();
+        try {
+            load(now);
+            expire(now);
+            return receipts.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Helper method to check a request id fits on one line of the log.
+     */
+    private static void checkRequestId(String requestId) {
+        if (requestId == null || requestId.trim().isEmpty()
+                || requestId.indexOf('\n') >= 0 || requestId.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("Request id must be one line of text");
+        }
+    }
+
+    /**
+     * Helper method to drop the receipts older than the time to live.
+     * Receipts are in the order they were received, so only the oldest
+     * ones are looked at.
+     */
+    private void expire(LocalDateTime now) {
+        LocalDateTime oldest = now.minus(TIME_TO_LIVE);
+        Iterator<Receipt> iterator = receipts.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getReceived().isAfter(oldest)) {
+                return;
+            }
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Helper method to drop the oldest receipts over the capacity.
+     */
+    private void trim() {
+        Iterator<Receipt> iterator = receipts.values().iterator();
+        while (receipts.size() > CAPACITY) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Helper method to read the log file once. Later lines replace earlier
+     * ones with the same request id.
+     * @param now   current time, receipts already expired are skipped
+     * @throws FlooringMasteryPersistenceException
+     */
+    private void load(LocalDateTime now) throws FlooringMasteryPersistenceException {
+        if (receipts != null) {
+            return;
+        }
+        LinkedHashMap<String, Receipt> receiptsFromFile = new LinkedHashMap<>();
+        int lines = 0;
+        File file = new File(LOG_FILE);
+        if (file.exists()) {
+            try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+                    lines++;
+                    String[] tokens = line.split(DELIMITER, 4);
+                    Receipt receipt = new Receipt(LocalDateTime.parse(tokens[0]), LocalDate.parse(tokens[1]),
+                            Integer.parseInt(tokens[2]));
+                    receiptsFromFile.remove(tokens[3]);
+                    receiptsFromFile.put(tokens[3], receipt);
+                }
+            } catch (IOException e) {
+                throw new FlooringMasteryPersistenceException("Could not load request log into memory.", e);
+            } catch (RuntimeException e) {
+                throw new FlooringMasteryPersistenceException("Request log is invalid.", e);
+            }
+        }
+        receipts = receiptsFromFile;
+        fileLines = lines;
+        expire(now);
+        trim();
+    }
+
+    /**
+     * Helper method to add one receipt to the end of the log file.
+     * @throws FlooringMasteryPersistenceException
+     */
+    private void append(String requestId, Receipt receipt) throws FlooringMasteryPersistenceException {
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(LOG_FILE, true)))) {
+            out.println(marshallReceipt(requestId, receipt));
+            if (out.checkError()) {
+                throw new FlooringMasteryPersistenceException("Could not save request log.");
+            }
+        } catch (IOException e) {
+            throw new FlooringMasteryPersistenceException("Could not save request log.", e);
+        }
+        fileLines++;
+    }
+
+    /**
+     * Helper method to write the live receipts only. The file is replaced
+     * at once, so a crash never leaves half of it.
+     * @throws FlooringMasteryPersistenceException
+     */
+    private void save() throws FlooringMasteryPersistenceException {
+        File file = new File(LOG_FILE);
+        File tempFile = new File(LOG_FILE + ".tmp");
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(tempFile)))) {
+            for (Map.Entry<String, Receipt> entry : receipts.entrySet()) {
+                out.println(marshallReceipt(entry.getKey(), entry.getValue()));
+            }
+            if (out.checkError()) {
+                throw new FlooringMasteryPersistenceException("Could not save request log.");
+            }
+        } catch (IOException e) {
+            throw new FlooringMasteryPersistenceException("Could not save request log.", e);
+        }
+        try {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new FlooringMasteryPersistenceException("Could not save request log.", e);
+        }
+        fileLines = receipts.size();
+    }
+
+    /**
+     * Helper method to marshall a receipt
+     * @return  one line of the log file
+     */
+    private static String marshallReceipt(String requestId, Receipt receipt) {
+        return receipt.getReceived() + DELIMITER + receipt.getDate() + DELIMITER
+                + receipt.getOrderNumber() + DELIMITER + requestId;
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * AuditRecord DTO. One entry of the audit log.
+ * Order changes keep the order fields before and after the change, written
+ * with describe(Order).
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public class AuditRecord {
+
+    /** What the entry is about */
+    public enum Operation {
+        ORDER_ADDED,
+        ORDER_EDITED,
+        ORDER_REMOVED,
+        DATA_EXPORTED,
+        ORDERS_ARCHIVED,
+        /** Summary of a bulk reprice after the catalog changed */
+        ORDERS_REPRICED,
+        /** Free text entry */
+        MESSAGE
+    }
+
+    private final LocalDateTime timestamp;
+    private final Operation operation;
+    private final LocalDate orderDate;
+    private final int orderNumber;
+    private final String before;
+    private final String after;
+    private final String message;
+
+    /**
+     * Audit record.
+     * @param timestamp     when it happened
+     * @param operation     what happened
+     * @param orderDate     date of the order, null if no order
+     * @param orderNumber   number of the order, 0 if no order
+     * @param before        order fields before, null if none
+     * @param after         order fields after, null if none
+     * @param message       free text, null if none
+     */
+    public AuditRecord(LocalDateTime timestamp, Operation operation, LocalDate orderDate, int orderNumber,
+            String before, String after, String message) {
+        this.timestamp = timestamp;
+        this.operation = operation;
+        this.orderDate = orderDate;
+        this.orderNumber = orderNumber;
+        this.before = before;
+        this.after = after;
+        this.message = message;
+    }
+
+    /**
+     * Order fields as one line of text, named like the columns of the order
+     * files.
+     * @param order order to describe
+     * @return  fields of the order
+     */
+    public static String describe(Order order) {
+        return "CustomerName=" + order.getCustomerName()
+                + ";State=" + order.getState()
+                + ";TaxRate=" + order.getTaxRate()
+                + ";ProductType=" + order.getProductType()
+                + ";Area=" + order.getArea()
+                + ";CostPerSquareFoot=" + order.getCostPerSquareFoot()
+                + ";LaborCostPerSquareFoot=" + order.getLaborCostPerSquareFoot()
+                + ";MaterialCost=" + order.getMaterialCost()
+                + ";LaborCost=" + order.getLaborCost()
+                + ";Tax=" + order.getTax()
+                + ";Total=" + order.getTotal();
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public LocalDate getOrderDate() {
+        return orderDate;
+    }
+
+    public int getOrderNumber() {
+        return orderNumber;
+    }
+
+    public String getBefore() {
+        return before;
+    }
+
+    public String getAfter() {
+        return after;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "AuditRecord{" + "timestamp=" + timestamp + ", operation=" + operation
+                + ", orderDate=" + orderDate + ", orderNumber=" + orderNumber + '}';
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 5;
+        hash = 41 * hash + Objects.hashCode(this.timestamp);
+        hash = 41 * hash + Objects.hashCode(this.operation);
+        hash = 41 * hash + Objects.hashCode(this.orderDate);
+        hash = 41 * hash + this.orderNumber;
+        hash = 41 * hash + Objects.hashCode(this.before);
+        hash = 41 * hash + Objects.hashCode(this.after);
+        hash = 41 * hash + Objects.hashCode(this.message);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final AuditRecord other = (AuditRecord) obj;
+        if (this.orderNumber != other.orderNumber) {
+            return false;
+        }
+        if (!Objects.equals(this.timestamp, other.timestamp)) {
+            return false;
+        }
+        if (this.operation != other.operation) {
+            return false;
+        }
+        if (!Objects.equals(this.orderDate, other.orderDate)) {
+            return false;
+        }
+        if (!Objects.equals(this.before, other.before)) {
+            return false;
+        }
+        if (!Objects.equals(this.after, other.after)) {
+            return false;
+        }
+        if (!Objects.equals(this.message, other.message)) {
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,175 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * DailySummary DTO. Immutable totals of every order on one date: how many
+ * orders, their area, material and labor cost, tax and total.
+ * Kept up to date one order at a time with plus and minus.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public final class DailySummary {
+
+    private final LocalDate date;
+    private final int orderCount;
+    private final long area;
+    private final Money materialCost;
+    private final Money laborCost;
+    private final Money tax;
+    private final Money total;
+
+    /**
+     * Daily summary.
+     * @param date              order date
+     * @param orderCount        number of orders
+     * @param areaHundredths    area in hundredths of ft^2
+     * @param materialCost      material cost of all orders
+     * @param laborCost         labor cost of all orders
+     * @param tax               tax of all orders
+     * @param total             total of all orders
+     */
+    public DailySummary(LocalDate date, int orderCount, long areaHundredths,
+            Money materialCost, Money laborCost, Money tax, Money total) {
+        this.date = date;
+        this.orderCount = orderCount;
+        this.area = areaHundredths;
+        this.materialCost = materialCost;
+        this.laborCost = laborCost;
+        this.tax = tax;
+        this.total = total;
+    }
+
+    /**
+     * Summary of a date without orders.
+     * @param date  order date
+     * @return  summary with everything 0
+     */
+    public static DailySummary empty(LocalDate date) {
+        return new DailySummary(date, 0, 0, Money.ZERO, Money.ZERO, Money.ZERO, Money.ZERO);
+    }
+
+    /**
+     * Summary of the given orders of one date.
+     * @param date      order date
+     * @param orders    every order on that date
+     * @return  summary of the orders
+     */
+    public static DailySummary of(LocalDate date, Iterable<Order> orders) {
+        DailySummary summary = empty(date);
+        for (Order order : orders) {
+            summary = summary.plus(order);
+        }
+        return summary;
+    }
+
+    /**
+     * Summary with one more order.
+     * @param order added order
+     * @return  new summary
+     */
+    public DailySummary plus(Order order) {
+        return new DailySummary(date, orderCount + 1, Math.addExact(area, order.getAreaHundredths()),
+                materialCost.plus(orZero(order.getMaterialCostMoney())),
+                laborCost.plus(orZero(order.getLaborCostMoney())),
+                tax.plus(orZero(order.getTaxMoney())),
+                total.plus(orZero(order.getTotalMoney())));
+    }
+
+    /**
+     * Summary with one order less.
+     * @param order removed order
+     * @return  new summary
+     */
+    public DailySummary minus(Order order) {
+        return new DailySummary(date, orderCount - 1, Math.subtractExact(area, order.getAreaHundredths()),
+                materialCost.minus(orZero(order.getMaterialCostMoney())),
+                laborCost.minus(orZero(order.getLaborCostMoney())),
+                tax.minus(orZero(order.getTaxMoney())),
+                total.minus(orZero(order.getTotalMoney())));
+    }
+
+    private static Money orZero(Money money) {
+        return money == null ? Money.ZERO : money;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    public BigDecimal getArea() {
+        return BigDecimal.valueOf(area, 2);
+    }
+
+    public long getAreaHundredths() {
+        return area;
+    }
+
+    public Money getMaterialCost() {
+        return materialCost;
+    }
+
+    public Money getLaborCost() {
+        return laborCost;
+    }
+
+    public Money getTax() {
+        return tax;
+    }
+
+    public Money getTotal() {
+        return total;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 5;
+        hash = 41 * hash + Objects.hashCode(date);
+        hash = 41 * hash + orderCount;
+        hash = 41 * hash + Long.hashCode(area);
+        hash = 41 * hash + Objects.hashCode(materialCost);
+        hash = 41 * hash + Objects.hashCode(laborCost);
+        hash = 41 * hash + Objects.hashCode(tax);
+        hash = 41 * hash + Objects.hashCode(total);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        final DailySummary other = (DailySummary) obj;
+        return orderCount == other.orderCount && area == other.area
+                && Objects.equals(date, other.date)
+                && Objects.equals(materialCost, other.materialCost)
+                && Objects.equals(laborCost, other.laborCost)
+                && Objects.equals(tax, other.tax)
+                && Objects.equals(total, other.total);
+    }
+
+    @Override
+    public String toString() {
+        return "DailySummary{" + "date=" + date + ", orderCount=" + orderCount + ", area=" + getArea()
+                + ", materialCost=" + materialCost + ", laborCost=" + laborCost + ", tax=" + tax
+                + ", total=" + total + '}';
+    }
+}
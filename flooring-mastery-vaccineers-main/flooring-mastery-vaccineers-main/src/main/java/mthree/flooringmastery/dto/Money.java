@@ -0,0 +1,107 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.dto;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Money DTO. An immutable amount of dollars kept as a whole number of cents.
+ * Converts to and from the BigDecimal values with scale 2 used in the files.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0);
+
+    private final long cents;
+
+    private Money(long cents) {
+        this.cents = cents;
+    }
+
+    /**
+     * Money from a number of cents.
+     * @param cents amount in cents
+     * @return      money of that amount
+     */
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    /**
+     * Money from a dollar amount, rounded half up to cents like the rest of
+     * the program does.
+     * @param amount    dollar amount
+     * @return          money of that amount
+     * @throws ArithmeticException if the amount does not fit in a long of cents
+     */
+    public static Money of(BigDecimal amount) {
+        return ofCents(toHundredths(amount));
+    }
+
+    /**
+     * Rounds a decimal half up to 2 places and returns it as a whole number
+     * of hundredths. Used for cents, basis points and hundredths of ft^2.
+     * @param value decimal value
+     * @return      value times 100
+     * @throws ArithmeticException if the value does not fit in a long
+     */
+    public static long toHundredths(BigDecimal value) {
+        return value.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public long getCents() {
+        return cents;
+    }
+
+    public Money plus(Money other) {
+        return ofCents(Math.addExact(cents, other.cents));
+    }
+
+    public Money minus(Money other) {
+        return ofCents(Math.subtractExact(cents, other.cents));
+    }
+
+    /**
+     * Same amount as a BigDecimal with scale 2.
+     * @return  dollar amount
+     */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(cents);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        return cents == ((Money) obj).cents;
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toString();
+    }
+}
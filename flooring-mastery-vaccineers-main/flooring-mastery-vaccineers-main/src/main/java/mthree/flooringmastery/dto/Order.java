@@ -1,4 +1,4 @@
- /**
+/**
  * Team Vaccineers.
  *
  * Contains the full solution to assessment Flooring Mastery for
@@ -7,38 +7,75 @@
 package mthree.flooringmastery.dto;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.Objects;
 
 /**
  * Order DTO. Used all over the program to transport order information 
  * 
+ * Amounts are kept as whole numbers of hundredths: cents for money, basis
+ * points for the tax rate and hundredths of ft^2 for the area. The BigDecimal
+ * getters and setters convert with scale 2 and HALF_UP rounding as before.
+ * 
+ * The state and product are references to the shared catalog entries. The
+ * tax rate and costs per square foot are read from those entries, and only
+ * kept in the order when they differ from the catalog (e.g. the catalog
+ * changed after the order was placed). Setting a state or product by name
+ * which is not in the catalog keeps an entry with only the name.
+ * 
+ * Orders the dao stores are read only and their setters throw, so a caller
+ * holding one cannot change saved orders or their summaries. Changes are
+ * made on a copy and saved through the dao.
+ * 
  * @author Andy Bae
  * @author Alexi Mellovich
  * @author Adem Coklar
  * @author Illarion Eremenko
  */
 public class Order {
+
+    /** Value of a field in hundredths that has not been set */
+    public static final long NOT_SET = Long.MIN_VALUE;
+
     private int orderNumber;
     private String customerName;
-    private String state;
-    private BigDecimal taxRate;
-    private String productType;
-    private BigDecimal area;
-    private BigDecimal costPerSquareFoot;
-    private BigDecimal laborCostPerSquareFoot;
-    private BigDecimal materialCost;
-    private BigDecimal laborCost;
-    private BigDecimal tax;
-    private BigDecimal total;
+    private State state;
+    private Product product;
+    /** Rates of the order, null when they are the same as the catalog */
+    private Rates rates;
+    private long area = NOT_SET;
+    private long materialCost = NOT_SET;
+    private long laborCost = NOT_SET;
+    private long tax = NOT_SET;
+    private long total = NOT_SET;
+    /** Set once the order is stored, never unset */
+    private boolean readOnly = false;
 
     public Order() {}
     
+    /**
+     * Copy of an order, pointing at the same catalog entries. Used to change
+     * an order without changing the one other threads may be reading. The
+     * copy can be changed even if the order is read only.
+     * @param order order to copy
+     */
+    public Order(Order order) {
+        this.orderNumber = order.orderNumber;
+        this.customerName = order.customerName;
+        this.state = order.state;
+        this.product = order.product;
+        this.rates = order.rates;
+        this.area = order.area;
+        this.materialCost = order.materialCost;
+        this.laborCost = order.laborCost;
+        this.tax = order.tax;
+        this.total = order.total;
+    }
+
     public Order(String customerName, String state, String productType, BigDecimal area) {
         this.customerName = customerName;
-        this.state = state;
-        this.productType = productType;
-        this.area = area;
+        setState(state);
+        setProductType(productType);
+        setArea(area);
     }
 
     public int getOrderNumber() {
@@ -46,6 +83,7 @@ public class Order {
     }
 
     public void setOrderNumber(int orderNumber) {
+        checkWritable();
         this.orderNumber = orderNumber;
     }
 
@@ -54,100 +92,328 @@ public class Order {
     }
 
     public void setCustomerName(String customerName) {
+        checkWritable();
         this.customerName = customerName;
     }
 
     public String getState() {
-        return state;
+        return state == null ? null : state.getStateAbbreviation();
     }
 
     public void setState(String state) {
+        checkWritable();
+        if (state == null) {
+            setStateEntry(null);
+        } else if (this.state == null || !state.equals(this.state.getStateAbbreviation())) {
+            setStateEntry(new State(state));
+        }
+    }
+
+    /**
+     * State entry of the order. Orders matched to the catalog share the
+     * same entry, so they can be grouped by identity.
+     * @return  state entry, null if not set
+     */
+    public State getStateEntry() {
+        return state;
+    }
+
+    /**
+     * Points the order at a state entry. The tax rate of the order does not
+     * change.
+     * @param state catalog state
+     */
+    public void setStateEntry(State state) {
+        checkWritable();
+        long taxRate = getTaxRateBasisPoints();
+        long costPerSquareFoot = getCostPerSquareFootCents();
+        long laborCostPerSquareFoot = getLaborCostPerSquareFootCents();
         this.state = state;
+        keepRates(taxRate, costPerSquareFoot, laborCostPerSquareFoot);
     }
 
     public BigDecimal getTaxRate() {
-        return taxRate;
+        return toDecimal(getTaxRateBasisPoints());
     }
 
     public void setTaxRate(BigDecimal taxRate) {
-        taxRate = taxRate.setScale(2, RoundingMode.HALF_UP);
-        this.taxRate = taxRate;
+        checkWritable();
+        setTaxRateBasisPoints(Money.toHundredths(taxRate));
+    }
+
+    /**
+     * Tax rate in basis points, 25.00% is 2500.
+     * @return  tax rate, NOT_SET if not set
+     */
+    public long getTaxRateBasisPoints() {
+        return rates != null ? rates.taxRate : catalogTaxRate();
+    }
+
+    public void setTaxRateBasisPoints(long taxRate) {
+        checkWritable();
+        keepRates(taxRate, getCostPerSquareFootCents(), getLaborCostPerSquareFootCents());
     }
 
     public String getProductType() {
-        return productType;
+        return product == null ? null : product.getProductType();
     }
 
     public void setProductType(String productType) {
-        this.productType = productType;
+        checkWritable();
+        if (productType == null) {
+            setProductEntry(null);
+        } else if (product == null || !productType.equals(product.getProductType())) {
+            setProductEntry(new Product(productType));
+        }
+    }
+
+    /**
+     * Product entry of the order. Orders matched to the catalog share the
+     * same entry, so they can be grouped by identity.
+     * @return  product entry, null if not set
+     */
+    public Product getProductEntry() {
+        return product;
+    }
+
+    /**
+     * Points the order at a product entry. The costs per square foot of the
+     * order do not change.
+     * @param product   catalog product
+     */
+    public void setProductEntry(Product product) {
+        checkWritable();
+        long taxRate = getTaxRateBasisPoints();
+        long costPerSquareFoot = getCostPerSquareFootCents();
+        long laborCostPerSquareFoot = getLaborCostPerSquareFootCents();
+        this.product = product;
+        keepRates(taxRate, costPerSquareFoot, laborCostPerSquareFoot);
     }
 
     public BigDecimal getArea() {
-        return area;
+        return toDecimal(area);
     }
 
     public void setArea(BigDecimal area) {
+        checkWritable();
         if(area == null) {
-            this.area = null;
+            this.area = NOT_SET;
         }
         else {
-            area = area.setScale(2, RoundingMode.HALF_UP);
-            this.area = area;
+            this.area = Money.toHundredths(area);
         }
     }
 
+    /**
+     * Area in hundredths of ft^2, 100.00ft^2 is 10000.
+     * @return  area, NOT_SET if not set
+     */
+    public long getAreaHundredths() {
+        return area;
+    }
+
+    public void setAreaHundredths(long area) {
+        checkWritable();
+        this.area = area;
+    }
+
     public BigDecimal getCostPerSquareFoot() {
-        return costPerSquareFoot;
+        return toDecimal(getCostPerSquareFootCents());
     }
 
     public void setCostPerSquareFoot(BigDecimal costPerSquareFoot) {
-        costPerSquareFoot = costPerSquareFoot.setScale(2, RoundingMode.HALF_UP);
-        this.costPerSquareFoot = costPerSquareFoot;
+        checkWritable();
+        setCostPerSquareFootCents(Money.toHundredths(costPerSquareFoot));
+    }
+
+    public Money getCostPerSquareFootMoney() {
+        return toMoney(getCostPerSquareFootCents());
+    }
+
+    public void setCostPerSquareFoot(Money costPerSquareFoot) {
+        checkWritable();
+        setCostPerSquareFootCents(costPerSquareFoot.getCents());
+    }
+
+    private long getCostPerSquareFootCents() {
+        return rates != null ? rates.costPerSquareFoot : catalogCostPerSquareFoot();
+    }
+
+    private void setCostPerSquareFootCents(long costPerSquareFoot) {
+        keepRates(getTaxRateBasisPoints(), costPerSquareFoot, getLaborCostPerSquareFootCents());
     }
 
     public BigDecimal getLaborCostPerSquareFoot() {
-        return laborCostPerSquareFoot;
+        return toDecimal(getLaborCostPerSquareFootCents());
     }
 
     public void setLaborCostPerSquareFoot(BigDecimal laborCostPerSquareFoot) {
-        laborCostPerSquareFoot = laborCostPerSquareFoot.setScale(2, RoundingMode.HALF_UP);
-        this.laborCostPerSquareFoot = laborCostPerSquareFoot;
+        checkWritable();
+        setLaborCostPerSquareFootCents(Money.toHundredths(laborCostPerSquareFoot));
+    }
+
+    public Money getLaborCostPerSquareFootMoney() {
+        return toMoney(getLaborCostPerSquareFootCents());
+    }
+
+    public void setLaborCostPerSquareFoot(Money laborCostPerSquareFoot) {
+        checkWritable();
+        setLaborCostPerSquareFootCents(laborCostPerSquareFoot.getCents());
+    }
+
+    private long getLaborCostPerSquareFootCents() {
+        return rates != null ? rates.laborCostPerSquareFoot : catalogLaborCostPerSquareFoot();
+    }
+
+    private void setLaborCostPerSquareFootCents(long laborCostPerSquareFoot) {
+        keepRates(getTaxRateBasisPoints(), getCostPerSquareFootCents(), laborCostPerSquareFoot);
     }
 
     public BigDecimal getMaterialCost() {
-        return materialCost;
+        return toDecimal(materialCost);
     }
 
     public void setMaterialCost(BigDecimal materialCost) {
-        materialCost = materialCost.setScale(2, RoundingMode.HALF_UP);
-        this.materialCost = materialCost;
+        checkWritable();
+        this.materialCost = Money.toHundredths(materialCost);
+    }
+
+    public Money getMaterialCostMoney() {
+        return toMoney(materialCost);
+    }
+
+    public void setMaterialCost(Money materialCost) {
+        checkWritable();
+        this.materialCost = materialCost.getCents();
     }
 
     public BigDecimal getLaborCost() {
-        return laborCost;
+        return toDecimal(laborCost);
     }
 
     public void setLaborCost(BigDecimal laborCost) {
-        laborCost = laborCost.setScale(2, RoundingMode.HALF_UP);
-        this.laborCost = laborCost;
+        checkWritable();
+        this.laborCost = Money.toHundredths(laborCost);
+    }
+
+    public Money getLaborCostMoney() {
+        return toMoney(laborCost);
+    }
+
+    public void setLaborCost(Money laborCost) {
+        checkWritable();
+        this.laborCost = laborCost.getCents();
     }
 
     public BigDecimal getTax() {
-        return tax;
+        return toDecimal(tax);
     }
 
     public void setTax(BigDecimal tax) {
-        tax = tax.setScale(2, RoundingMode.HALF_UP);
-        this.tax = tax;
+        checkWritable();
+        this.tax = Money.toHundredths(tax);
+    }
+
+    public Money getTaxMoney() {
+        return toMoney(tax);
+    }
+
+    public void setTax(Money tax) {
+        checkWritable();
+        this.tax = tax.getCents();
     }
 
     public BigDecimal getTotal() {
-        return total;
+        return toDecimal(total);
     }
 
     public void setTotal(BigDecimal total) {
-        total = total.setScale(2, RoundingMode.HALF_UP);
-        this.total = total;
+        checkWritable();
+        this.total = Money.toHundredths(total);
+    }
+
+    public Money getTotalMoney() {
+        return toMoney(total);
+    }
+
+    public void setTotal(Money total) {
+        checkWritable();
+        this.total = total.getCents();
+    }
+
+    /**
+     * Makes this order read only, its setters then throw. Only for an order
+     * no one else holds yet, e.g. one just read from a file.
+     * @return  this order
+     */
+    public Order freeze() {
+        readOnly = true;
+        return this;
+    }
+
+    /**
+     * Read only version of this order.
+     * @return  this order if it is read only, else a read only copy
+     */
+    public Order readOnly() {
+        return readOnly ? this : new Order(this).freeze();
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Order " + orderNumber + " is stored and read only, change a copy");
+        }
+    }
+
+    private long catalogTaxRate() {
+        return state == null ? NOT_SET : state.getTaxRateBasisPoints();
+    }
+
+    private long catalogCostPerSquareFoot() {
+        return product == null ? NOT_SET : product.getCostPerSquareFootCents();
+    }
+
+    private long catalogLaborCostPerSquareFoot() {
+        return product == null ? NOT_SET : product.getLaborCostPerSquareFootCents();
+    }
+
+    /**
+     * Helper method to store the rates of the order. They are only kept
+     * when they differ from the state and product entries.
+     * @param taxRate                   tax rate in basis points
+     * @param costPerSquareFoot         cost per square foot in cents
+     * @param laborCostPerSquareFoot    labor cost per square foot in cents
+     */
+    private void keepRates(long taxRate, long costPerSquareFoot, long laborCostPerSquareFoot) {
+        if (taxRate == catalogTaxRate()
+                && costPerSquareFoot == catalogCostPerSquareFoot()
+                && laborCostPerSquareFoot == catalogLaborCostPerSquareFoot()) {
+            rates = null;
+        } else {
+            rates = new Rates(taxRate, costPerSquareFoot, laborCostPerSquareFoot);
+        }
+    }
+
+    /**
+     * Helper method to turn a value in hundredths into a BigDecimal
+     * @param hundredths    value in hundredths
+     * @return  BigDecimal with scale 2, null if not set
+     */
+    private static BigDecimal toDecimal(long hundredths) {
+        return hundredths == NOT_SET ? null : BigDecimal.valueOf(hundredths, 2);
+    }
+
+    /**
+     * Helper method to turn a value in cents into money
+     * @param cents value in cents
+     * @return  money, null if not set
+     */
+    private static Money toMoney(long cents) {
+        return cents == NOT_SET ? null : Money.ofCents(cents);
     }
 
     @Override
@@ -160,16 +426,16 @@ public class Order {
         int hash = 7;
         hash = 23 * hash + this.orderNumber;
         hash = 23 * hash + Objects.hashCode(this.customerName);
-        hash = 23 * hash + Objects.hashCode(this.state);
-        hash = 23 * hash + Objects.hashCode(this.taxRate);
-        hash = 23 * hash + Objects.hashCode(this.productType);
-        hash = 23 * hash + Objects.hashCode(this.area);
-        hash = 23 * hash + Objects.hashCode(this.costPerSquareFoot);
-        hash = 23 * hash + Objects.hashCode(this.laborCostPerSquareFoot);
-        hash = 23 * hash + Objects.hashCode(this.materialCost);
-        hash = 23 * hash + Objects.hashCode(this.laborCost);
-        hash = 23 * hash + Objects.hashCode(this.tax);
-        hash = 23 * hash + Objects.hashCode(this.total);
+        hash = 23 * hash + Objects.hashCode(getState());
+        hash = 23 * hash + Long.hashCode(getTaxRateBasisPoints());
+        hash = 23 * hash + Objects.hashCode(getProductType());
+        hash = 23 * hash + Long.hashCode(this.area);
+        hash = 23 * hash + Long.hashCode(getCostPerSquareFootCents());
+        hash = 23 * hash + Long.hashCode(getLaborCostPerSquareFootCents());
+        hash = 23 * hash + Long.hashCode(this.materialCost);
+        hash = 23 * hash + Long.hashCode(this.laborCost);
+        hash = 23 * hash + Long.hashCode(this.tax);
+        hash = 23 * hash + Long.hashCode(this.total);
         return hash;
     }
 
@@ -191,38 +457,50 @@ public class Order {
         if (!Objects.equals(this.customerName, other.customerName)) {
             return false;
         }
-        if (!Objects.equals(this.state, other.state)) {
+        //same catalog entries need no string compare
+        if (this.state != other.state && !Objects.equals(getState(), other.getState())) {
             return false;
         }
-        if (!Objects.equals(this.productType, other.productType)) {
+        if (this.product != other.product && !Objects.equals(getProductType(), other.getProductType())) {
             return false;
         }
-        if (!Objects.equals(this.taxRate, other.taxRate)) {
+        if (getTaxRateBasisPoints() != other.getTaxRateBasisPoints()) {
             return false;
         }
-        if (!Objects.equals(this.area, other.area)) {
+        if (this.area != other.area) {
             return false;
         }
-        if (!Objects.equals(this.costPerSquareFoot, other.costPerSquareFoot)) {
+        if (getCostPerSquareFootCents() != other.getCostPerSquareFootCents()) {
             return false;
         }
-        if (!Objects.equals(this.laborCostPerSquareFoot, other.laborCostPerSquareFoot)) {
+        if (getLaborCostPerSquareFootCents() != other.getLaborCostPerSquareFootCents()) {
             return false;
         }
-        if (!Objects.equals(this.materialCost, other.materialCost)) {
+        if (this.materialCost != other.materialCost) {
             return false;
         }
-        if (!Objects.equals(this.laborCost, other.laborCost)) {
+        if (this.laborCost != other.laborCost) {
             return false;
         }
-        if (!Objects.equals(this.tax, other.tax)) {
+        if (this.tax != other.tax) {
             return false;
         }
-        if (!Objects.equals(this.total, other.total)) {
+        if (this.total != other.total) {
             return false;
         }
         return true;
     }
-    
-    
+
+    /** Rates which differ from the catalog */
+    private static final class Rates {
+        private final long taxRate;
+        private final long costPerSquareFoot;
+        private final long laborCostPerSquareFoot;
+
+        private Rates(long taxRate, long costPerSquareFoot, long laborCostPerSquareFoot) {
+            this.taxRate = taxRate;
+            this.costPerSquareFoot = costPerSquareFoot;
+            this.laborCostPerSquareFoot = laborCostPerSquareFoot;
+        }
+    }
 }
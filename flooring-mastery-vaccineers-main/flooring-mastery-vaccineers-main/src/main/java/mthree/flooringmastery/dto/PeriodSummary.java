@@ -0,0 +1,154 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.dto;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * PeriodSummary DTO. Immutable totals of every order in a month or a year,
+ * the sum of the daily summaries of its dates. Kept up to date one date at a
+ * time with plus and minus.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public final class PeriodSummary {
+
+    private final String period;
+    private final int orderCount;
+    private final long area;
+    private final Money materialCost;
+    private final Money laborCost;
+    private final Money tax;
+    private final Money total;
+
+    /**
+     * Period summary.
+     * @param period            yyyy-MM for a month, yyyy for a year
+     * @param orderCount        number of orders
+     * @param areaHundredths    area in hundredths of ft^2
+     * @param materialCost      material cost of all orders
+     * @param laborCost         labor cost of all orders
+     * @param tax               tax of all orders
+     * @param total             total of all orders
+     */
+    public PeriodSummary(String period, int orderCount, long areaHundredths,
+            Money materialCost, Money laborCost, Money tax, Money total) {
+        this.period = period;
+        this.orderCount = orderCount;
+        this.area = areaHundredths;
+        this.materialCost = materialCost;
+        this.laborCost = laborCost;
+        this.tax = tax;
+        this.total = total;
+    }
+
+    /**
+     * Summary of a period without orders.
+     * @param period    yyyy-MM for a month, yyyy for a year
+     * @return  summary with everything 0
+     */
+    public static PeriodSummary empty(String period) {
+        return new PeriodSummary(period, 0, 0, Money.ZERO, Money.ZERO, Money.ZERO, Money.ZERO);
+    }
+
+    /**
+     * Summary with the orders of one more date.
+     * @param day   summary of a date in the period
+     * @return  new summary
+     */
+    public PeriodSummary plus(DailySummary day) {
+        return new PeriodSummary(period, orderCount + day.getOrderCount(),
+                Math.addExact(area, day.getAreaHundredths()),
+                materialCost.plus(day.getMaterialCost()), laborCost.plus(day.getLaborCost()),
+                tax.plus(day.getTax()), total.plus(day.getTotal()));
+    }
+
+    /**
+     * Summary without the orders of one date.
+     * @param day   summary of a date in the period
+     * @return  new summary
+     */
+    public PeriodSummary minus(DailySummary day) {
+        return new PeriodSummary(period, orderCount - day.getOrderCount(),
+                Math.subtractExact(area, day.getAreaHundredths()),
+                materialCost.minus(day.getMaterialCost()), laborCost.minus(day.getLaborCost()),
+                tax.minus(day.getTax()), total.minus(day.getTotal()));
+    }
+
+    public String getPeriod() {
+        return period;
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    public BigDecimal getArea() {
+        return BigDecimal.valueOf(area, 2);
+    }
+
+    public long getAreaHundredths() {
+        return area;
+    }
+
+    public Money getMaterialCost() {
+        return materialCost;
+    }
+
+    public Money getLaborCost() {
+        return laborCost;
+    }
+
+    public Money getTax() {
+        return tax;
+    }
+
+    public Money getTotal() {
+        return total;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 5;
+        hash = 43 * hash + Objects.hashCode(period);
+        hash = 43 * hash + orderCount;
+        hash = 43 * hash + Long.hashCode(area);
+        hash = 43 * hash + Objects.hashCode(materialCost);
+        hash = 43 * hash + Objects.hashCode(laborCost);
+        hash = 43 * hash + Objects.hashCode(tax);
+        hash = 43 * hash + Objects.hashCode(total);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        final PeriodSummary other = (PeriodSummary) obj;
+        return orderCount == other.orderCount && area == other.area
+                && Objects.equals(period, other.period)
+                && Objects.equals(materialCost, other.materialCost)
+                && Objects.equals(laborCost, other.laborCost)
+                && Objects.equals(tax, other.tax)
+                && Objects.equals(total, other.total);
+    }
+
+    @Override
+    public String toString() {
+        return "PeriodSummary{" + "period=" + period + ", orderCount=" + orderCount + ", area=" + getArea()
+                + ", materialCost=" + materialCost + ", laborCost=" + laborCost + ", tax=" + tax
+                + ", total=" + total + '}';
+    }
+}
@@ -12,52 +12,77 @@ import java.util.Objects;
 /**
  * Product DTO. Used all over the program to transport product information 
  * 
+ * Costs are kept in cents and rounded half up to cents when set.
+ * Immutable, a cost change loads a new Product instead of editing this one.
+ * 
  * @author Andy Bae
  * @author Alexi Mellovich
  * @author Adem Coklar
  * @author Illarion Eremenko
  */
 public class Product {
-    private String productType;
-    private BigDecimal costPerSquareFoot;
-    private BigDecimal laborCostPerSquareFoot;
+    private final String productType;
+    private final long costPerSquareFoot;
+    private final long laborCostPerSquareFoot;
 
     public Product(String productType, BigDecimal costPerSquareFoot, BigDecimal laborCostPerSquareFoot) {
         this.productType = productType;
-        this.costPerSquareFoot = costPerSquareFoot;
-        this.laborCostPerSquareFoot = laborCostPerSquareFoot;
+        this.costPerSquareFoot = Money.toHundredths(costPerSquareFoot);
+        this.laborCostPerSquareFoot = Money.toHundredths(laborCostPerSquareFoot);
+    }
+
+    /**
+     * Product which is not in the catalog. Only has the product type.
+     * @param productType   product type
+     */
+    Product(String productType) {
+        this.productType = productType;
+        this.costPerSquareFoot = Order.NOT_SET;
+        this.laborCostPerSquareFoot = Order.NOT_SET;
     }
 
     public String getProductType() {
         return productType;
     }
 
-    public void setProductType(String productType) {
-        this.productType = productType;
+    public BigDecimal getCostPerSquareFoot() {
+        return costPerSquareFoot == Order.NOT_SET ? null : BigDecimal.valueOf(costPerSquareFoot, 2);
     }
 
-    public BigDecimal getCostPerSquareFoot() {
-        return costPerSquareFoot;
+    public Money getCostPerSquareFootMoney() {
+        return Money.ofCents(costPerSquareFoot);
     }
 
-    public void setCostPerSquareFoot(BigDecimal costPerSquareFoot) {
-        this.costPerSquareFoot = costPerSquareFoot;
+    /**
+     * Cost per square foot in cents.
+     * @return  cost, Order.NOT_SET if not known
+     */
+    public long getCostPerSquareFootCents() {
+        return costPerSquareFoot;
     }
 
     public BigDecimal getLaborCostPerSquareFoot() {
-        return laborCostPerSquareFoot;
+        return laborCostPerSquareFoot == Order.NOT_SET ? null : BigDecimal.valueOf(laborCostPerSquareFoot, 2);
     }
 
-    public void setLaborCostPerSquareFoot(BigDecimal laborCostPerSquareFoot) {
-        this.laborCostPerSquareFoot = laborCostPerSquareFoot;
+    public Money getLaborCostPerSquareFootMoney() {
+        return Money.ofCents(laborCostPerSquareFoot);
+    }
+
+    /**
+     * Labor cost per square foot in cents.
+     * @return  cost, Order.NOT_SET if not known
+     */
+    public long getLaborCostPerSquareFootCents() {
+        return laborCostPerSquareFoot;
     }
 
     @Override
     public int hashCode() {
         int hash = 7;
         hash = 37 * hash + Objects.hashCode(this.productType);
-        hash = 37 * hash + Objects.hashCode(this.costPerSquareFoot);
-        hash = 37 * hash + Objects.hashCode(this.laborCostPerSquareFoot);
+        hash = 37 * hash + Long.hashCode(this.costPerSquareFoot);
+        hash = 37 * hash + Long.hashCode(this.laborCostPerSquareFoot);
         return hash;
     }
 
@@ -76,10 +101,10 @@ public class Product {
         if (!Objects.equals(this.productType, other.productType)) {
             return false;
         }
-        if (!Objects.equals(this.costPerSquareFoot, other.costPerSquareFoot)) {
+        if (this.costPerSquareFoot != other.costPerSquareFoot) {
             return false;
         }
-        if (!Objects.equals(this.laborCostPerSquareFoot, other.laborCostPerSquareFoot)) {
+        if (this.laborCostPerSquareFoot != other.laborCostPerSquareFoot) {
             return false;
         }
         return true;
@@ -12,44 +12,53 @@ import java.util.Objects;
 /**
  * Product DTO. Used all over the program to transport product information 
  * 
+ * The tax rate is kept in basis points and rounded half up when set.
+ * Immutable, a tax change loads a new State instead of editing this one.
+ * 
  * @author Andy Bae
  * @author Alexi Mellovich
  * @author Adem Coklar
  * @author Illarion Eremenko
  */
 public class State {
-    private String stateAbbreviation;
-    private String stateName;
-    private BigDecimal taxRate;
+    private final String stateAbbreviation;
+    private final String stateName;
+    private final long taxRate;
 
     public State(String stateAbbreviation, String stateName, BigDecimal taxRate) {
         this.stateAbbreviation = stateAbbreviation;
         this.stateName = stateName;
-        this.taxRate = taxRate;
+        this.taxRate = Money.toHundredths(taxRate);
     }
 
-    public String getStateAbbreviation() {
-        return stateAbbreviation;
+    /**
+     * State which is not in the catalog. Only has the abbreviation.
+     * @param stateAbbreviation state abbreviation
+     */
+    State(String stateAbbreviation) {
+        this.stateAbbreviation = stateAbbreviation;
+        this.stateName = null;
+        this.taxRate = Order.NOT_SET;
     }
 
-    public void setStateAbbreviation(String stateAbbreviation) {
-        this.stateAbbreviation = stateAbbreviation;
+    public String getStateAbbreviation() {
+        return stateAbbreviation;
     }
 
     public String getStateName() {
         return stateName;
     }
 
-    public void setStateName(String stateName) {
-        this.stateName = stateName;
-    }
-
     public BigDecimal getTaxRate() {
-        return taxRate;
+        return taxRate == Order.NOT_SET ? null : BigDecimal.valueOf(taxRate, 2);
     }
 
-    public void setTaxRate(BigDecimal taxRate) {
-        this.taxRate = taxRate;
+    /**
+     * Tax rate in basis points, 25.00% is 2500.
+     * @return  tax rate, Order.NOT_SET if not known
+     */
+    public long getTaxRateBasisPoints() {
+        return taxRate;
     }
 
     @Override
@@ -57,7 +66,7 @@ public class State {
         int hash = 7;
         hash = 53 * hash + Objects.hashCode(this.stateAbbreviation);
         hash = 53 * hash + Objects.hashCode(this.stateName);
-        hash = 53 * hash + Objects.hashCode(this.taxRate);
+        hash = 53 * hash + Long.hashCode(this.taxRate);
         return hash;
     }
 
@@ -79,7 +88,7 @@ public class State {
         if (!Objects.equals(this.stateName, other.stateName)) {
             return false;
         }
-        if (!Objects.equals(this.taxRate, other.taxRate)) {
+        if (this.taxRate != other.taxRate) {
             return false;
         }
         return true;
@@ -0,0 +1,352 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.service;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Admission control for writes. A write must be admitted before it is
+ * queued and released once it is done, so a burst of writes cannot pile up
+ * without bound behind the dao.
+ *
+ * Two limits apply. At most the queue depth of writes are admitted and not
+ * yet done. A token bucket bounds the rate: it holds up to the burst size
+ * of tokens, refills at the rate per second and each write takes one. A
+ * rate of 0 turns the bucket off. Both are checked together, and again
+ * after every wait, so callers woken at once never admit more writes than
+ * the queue depth.
+ *
+ * When a limit is hit the policy decides. REJECT fails the write at once.
+ * WAIT blocks the caller until there is room, up to the longest wait, so a
+ * producer is slowed down to what the service can take. Callers waiting are
+ * bounded too: a caller finding the most waiting callers already there is
+ * rejected at once. So the queue depth reported, admitted plus waiting, is
+ * never more than the two bounds together.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+@Component
+public class FlooringMasteryAdmissionController {
+
+    /** What happens to a write over a limit */
+    public enum Policy {
+        /** Fail the write at once */
+        REJECT,
+        /** Block the caller until there is room or the longest wait passed */
+        WAIT
+    }
+
+    /** Most writes admitted and not yet released */
+    private final int MAX_QUEUE_DEPTH;
+
+    /** Most callers waiting to be admitted */
+    private final int MAX_WAITING_CALLERS;
+
+    /** Writes per second, 0 for no rate limit */
+    private final double RATE;
+
+    /** Most tokens the bucket holds */
+    private final double BURST;
+
+    private final Policy POLICY;
+
+    /** Longest a caller waits under the WAIT policy */
+    private final long MAX_WAIT_NANOS;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** Signalled when a write is released */
+    private final Condition released = lock.newCondition();
+
+    /** Writes admitted and not yet released */
+    private int admittedWrites = 0;
+
+    /** Callers waiting to be admitted */
+    private int waitingCallers = 0;
+
+    private double tokens;
+    private long refilledAt;
+
+    private long admitted = 0;
+    private long rejected = 0;
+    private long waited = 0;
+    private long waitNanos = 0;
+    private int maxQueueDepth = 0;
+
+    /**
+     * Admission controller configured by system properties:
+     * -Dflooringmastery.writeQueue, most writes admitted and not yet done (1024)
+     * -Dflooringmastery.writeWaiters, most callers waiting to be admitted (the queue depth)
+     * -Dflooringmastery.writeRate, writes per second, 0 for no limit (0)
+     * -Dflooringmastery.writeBurst, token bucket size (the rate, at least 1)
+     * -Dflooringmastery.writePolicy, "wait" or "reject" (wait)
+     * -Dflooringmastery.writeWaitMillis, longest wait (5000)
+     */
+    @Autowired
+    public FlooringMasteryAdmissionController() {
+        this(Integer.getInteger("flooringmastery.writeQueue", 1024),
+                Integer.getInteger("flooringmastery.writeWaiters", Integer.getInteger("flooringmastery.writeQueue", 1024)),
+                Double.parseDouble(System.getProperty("flooringmastery.writeRate", "0")),
+                Double.parseDouble(System.getProperty("flooringmastery.writeBurst", "0")),
+                Policy.valueOf(System.getProperty("flooringmastery.writePolicy", "wait").toUpperCase()),
+                Duration.ofMillis(Long.getLong("flooringmastery.writeWaitMillis", 5000)));
+    }
+
+    /**
+     * Admission controller letting as many callers wait as writes are admitted.
+     * @param maxQueueDepth most writes admitted and not yet released
+     * @param rate          writes per second, 0 for no rate limit
+     * @param burst         token bucket size, 0 for the rate (at least 1)
+     * @param policy        what happens to a write over a limit
+     * @param maxWait       longest a caller waits under the WAIT policy
+     */
+    public FlooringMasteryAdmissionController(int maxQueueDepth, double rate, double burst, Policy policy, Duration maxWait) {
+        this(maxQueueDepth, maxQueueDepth, rate, burst, policy, maxWait);
+    }
+
+    /**
+     * Admission controller.
+     * @param maxQueueDepth     most writes admitted and not yet released
+     * @param maxWaitingCallers most callers waiting to be admitted
+     * @param rate              writes per second, 0 for no rate limit
+     * @param burst             token bucket size, 0 for the rate (at least 1)
+     * @param policy            what happens to a write over a limit
+     * @param maxWait           longest a caller waits under the WAIT policy
+     */
+    public FlooringMasteryAdmissionController(int maxQueueDepth, int maxWaitingCallers, double rate, double burst,
+            Policy policy, Duration maxWait) {
+        if (maxQueueDepth < 1 || maxWaitingCallers < 1) {
+            throw new IllegalArgumentException("Queue depth and waiting callers must be at least 1");
+        }
+        if (rate < 0 || burst < 0) {
+            throw new IllegalArgumentException("Rate and burst cannot be negative");
+        }
+        this.MAX_QUEUE_DEPTH = maxQueueDepth;
+        this.MAX_WAITING_CALLERS = maxWaitingCallers;
+        this.RATE = rate;
+        this.BURST = burst > 0 ? burst : Math.max(1, rate);
+        this.POLICY = policy;
+        this.MAX_WAIT_NANOS = maxWait.toNanos();
+        this.tokens = BURST;
+        this.refilledAt = System.nanoTime();
+    }
+
+    /**
+     * Admits one write. Every admitted write must be released.
+     * @throws FlooringMasteryOverloadedException if the write is over a limit
+     *          and the policy is REJECT, the longest wait passed or too
+     *          many callers are already waiting
+     */
+    public void acquire() throws FlooringMasteryOverloadedException {
+        lock.lock();
+        try {
+            long start = System.nanoTime();
+            long deadline = start + MAX_WAIT_NANOS;
+            boolean hadToWait = false;
+            if (waitingCallers >= MAX_WAITING_CALLERS) {
+                throw reject("ERROR: Too many orders are waiting to be saved, try again later.");
+            }
+            waitingCallers++;
+            updateMaxQueueDepth();
+            try {
+                //the lock is let go while waiting, so both limits are checked again after every wait
+                while (true) {
+                    if (admittedWrites >= MAX_QUEUE_DEPTH) {
+                        hadToWait = true;
+                        awaitUntil(released, deadline, "ERROR: Too many orders are being saved, try again later.");
+                    } else if (RATE > 0 && !takeToken()) {
+                        hadToWait = true;
+                        long untilToken = (long) Math.ceil((1 - tokens) / RATE * TimeUnit.SECONDS.toNanos(1));
+                        if (POLICY == Policy.REJECT || System.nanoTime() + untilToken > deadline) {
+                            throw reject("ERROR: Orders are being saved too fast, try again later.");
+                        }
+                        released.awaitNanos(untilToken);
+                    } else {
+                        break;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw reject("ERROR: Interrupted while waiting to save.");
+            } finally {
+                waitingCallers--;
+            }
+            admittedWrites++;
+            admitted++;
+            if (hadToWait) {
+                waited++;
+                waitNanos += System.nanoTime() - start;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases an admitted write once it is done.
+     */
+    public void release() {
+        lock.lock();
+        try {
+            admittedWrites--;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes admitted and not yet done plus callers waiting to be admitted.
+     * @return  current queue depth
+     */
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return admittedWrites + waitingCallers;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Highest queue depth so far, counting callers which were then rejected.
+     * @return  most writes admitted and waiting at once
+     */
+    public int getMaxQueueDepth() {
+        lock.lock();
+        try {
+            return maxQueueDepth;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes admitted so far.
+     * @return  number of admitted writes
+     */
+    public long getAdmitted() {
+        lock.lock();
+        try {
+            return admitted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes rejected so far.
+     * @return  number of rejected writes
+     */
+    public long getRejected() {
+        lock.lock();
+        try {
+            return rejected;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Admitted writes which had to wait for room first.
+     * @return  number of writes which waited
+     */
+    public long getWaited() {
+        lock.lock();
+        try {
+            return waited;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Time admitted writes spent waiting, in total.
+     * @return  total wait
+     */
+    public Duration getTotalWait() {
+        lock.lock();
+        try {
+            return Duration.ofNanos(waitNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Policy getPolicy() {
+        return POLICY;
+    }
+
+    /**
+     * Helper method to wait for a release under the WAIT policy.
+     * @param condition condition to wait on
+     * @param deadline  System.nanoTime() when the wait ends
+     * @param message   message if the write is rejected
+     * @throws FlooringMasteryOverloadedException if the policy is REJECT or the deadline passed
+     * @throws InterruptedException
+     */
+    private void awaitUntil(Condition condition, long deadline, String message)
+            throws FlooringMasteryOverloadedException, InterruptedException {
+        long remaining = deadline - System.nanoTime();
+        if (POLICY == Policy.REJECT || remaining <= 0) {
+            throw reject(message);
+        }
+        condition.awaitNanos(remaining);
+    }
+
+    /**
+     * Helper method to refill the bucket for the time passed and take a
+     * token if there is one.
+     * @return  true if a token was taken
+     */
+    private boolean takeToken() {
+        long now = System.nanoTime();
+        tokens = Math.min(BURST, tokens + (now - refilledAt) * RATE / TimeUnit.SECONDS.toNanos(1));
+        refilledAt = now;
+        if (tokens >= 1) {
+            tokens--;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Helper method to count a rejection.
+     * @return  exception to throw
+     */
+    private FlooringMasteryOverloadedException reject(String message) {
+        rejected++;
+        return new FlooringMasteryOverloadedException(message);
+    }
+
+    /**
+     * Helper method to keep the highest queue depth.
+     */
+    private void updateMaxQueueDepth() {
+        maxQueueDepth = Math.max(maxQueueDepth, admittedWrites + waitingCallers);
+    }
+
+    @Override
+    public String toString() {
+        lock.lock();
+        try {
+            return "AdmissionController{" + "policy=" + POLICY + ", queueDepth=" + (admittedWrites + waitingCallers)
+                    + ", maxQueueDepth=" + maxQueueDepth + ", admitted=" + admitted + ", rejected=" + rejected
+                    + ", waited=" + waited + ", totalWait=" + Duration.ofNanos(waitNanos) + '}';
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.service;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import mthree.flooringmastery.dto.Order;
+
+/**
+ * Asynchronous service layer interface. Every method returns at once; the
+ * future completes with the result, or exceptionally with a
+ * FlooringMasteryServiceFailureException whose kind names the error.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public interface FlooringMasteryAsyncServiceLayer {
+
+    /**
+     * Adds an order to appropriate file.
+     * @param date      date of the order
+     * @param order     order with customer name, state, product type and area
+     * @return          the added Order with populated order number
+     */
+    public CompletableFuture<Order> addOrder(LocalDate date, Order order);
+
+    /**
+     * Adds an order once per client request id.
+     * @param date      date of the order
+     * @param order     order with customer name, state, product type and area
+     * @param requestId client request id, null to always add
+     * @return          the added Order, or the one already added for the id
+     */
+    public CompletableFuture<Order> addOrder(LocalDate date, Order order, String requestId);
+
+    /**
+     * Gets a single order
+     * @param date          date of order
+     * @param orderNumber   order number
+     * @return              order associated with date and number
+     */
+    public CompletableFuture<Order> getOrder(LocalDate date, int orderNumber);
+
+    /**
+     * Returns all orders for given date
+     * @param date  order date
+     * @return      map of order num --> order object
+     */
+    public CompletableFuture<Map<Integer, Order>> getAllOrders(LocalDate date);
+
+    /**
+     * Edits an order. Empty fields of the new order are left as they are.
+     * @param date          order date
+     * @param orderNumber   order number
+     * @param newOrder      changed fields
+     * @return  the order as it was saved
+     */
+    public CompletableFuture<Order> editOrder(LocalDate date, int orderNumber, Order newOrder);
+
+    /**
+     * Removes a specified order.
+     * @param date          order date
+     * @param orderNumber   order number
+     * @return  the removed order
+     */
+    public CompletableFuture<Order> removeOrder(LocalDate date, int orderNumber);
+
+    /**
+     * Exports data to Backup/DataExport.txt
+     * @return  completes when the export is written
+     */
+    public CompletableFuture<Void> exportData();
+}
@@ -0,0 +1,283 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.service;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import mthree.flooringmastery.dto.Order;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Asynchronous service layer implementation. Runs the calls of the blocking
+ * service on a dedicated executor, so callers can queue many requests
+ * without a platform thread each.
+ *
+ * By default one I/O thread runs every call, so requests complete in the
+ * order they were made. The flooringmastery.serviceExecution property picks
+ * another mode: "virtual" runs each request on its own virtual thread on a
+ * JDK that has them, "platform" on a fixed pool of
+ * flooringmastery.serviceThreads threads. Those modes run requests at the
+ * same time, the daos take turns on their files with locks that do not pin
+ * virtual threads, and completion order is not kept. Without virtual threads
+ * the "virtual" mode falls back to the platform pool.
+ *
+ * Writes pass an admission controller before they are queued, so a burst
+ * of writes is slowed down or turned away instead of piling up without bound
+ * in the executor. The caller is held or rejected on its own thread, and the
+ * write is released once it completes. Reads are not limited.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+@Component
+public class FlooringMasteryAsyncServiceLayerImpl implements FlooringMasteryAsyncServiceLayer, AutoCloseable {
+
+    private final long CLOSE_TIMEOUT_SECONDS = 30;
+
+    /** How requests are run */
+    public enum ExecutionMode {
+        /** One I/O thread, in order */
+        SERIAL,
+        /** A new virtual thread per request */
+        VIRTUAL,
+        /** A fixed pool of platform threads */
+        PLATFORM
+    }
+
+    /** A call of the blocking service */
+    @FunctionalInterface
+    private interface ServiceCall<T> {
+        T call() throws Exception;
+    }
+
+    private final FlooringMasteryServiceLayer service;
+    private final ExecutorService executor;
+    private final ExecutionMode EXECUTION_MODE;
+    private final FlooringMasteryAdmissionController admission;
+
+    public FlooringMasteryAsyncServiceLayerImpl(FlooringMasteryServiceLayer service) {
+        this(service, new FlooringMasteryAdmissionController());
+    }
+
+    @Autowired
+    public FlooringMasteryAsyncServiceLayerImpl(FlooringMasteryServiceLayer service, FlooringMasteryAdmissionController admission) {
+        this(service, ExecutionMode.valueOf(System.getProperty("flooringmastery.serviceExecution", "serial").toUpperCase()),
+                Integer.getInteger("flooringmastery.serviceThreads", Runtime.getRuntime().availableProcessors()), admission);
+    }
+
+    /**
+     * Asynchronous service with the admission controller of the system
+     * properties.
+     * @param service   blocking service to run
+     * @param mode      how requests are run
+     * @param threads   pool size of the platform mode
+     */
+    public FlooringMasteryAsyncServiceLayerImpl(FlooringMasteryServiceLayer service, ExecutionMode mode, int threads) {
+        this(service, mode, threads, new FlooringMasteryAdmissionController());
+    }
+
+    /**
+     * Asynchronous service.
+     * @param service   blocking service to run
+     * @param mode      how requests are run
+     * @param threads   pool size of the platform mode
+     * @param admission admission control of the writes
+     */
+    public FlooringMasteryAsyncServiceLayerImpl(FlooringMasteryServiceLayer service, ExecutionMode mode, int threads,
+            FlooringMasteryAdmissionController admission) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Service needs at least one thread");
+        }
+        this.service = service;
+        this.admission = admission;
+        ExecutorService virtualThreads = mode == ExecutionMode.VIRTUAL ? newVirtualThreadExecutor() : null;
+        if (virtualThreads != null) {
+            this.executor = virtualThreads;
+            this.EXECUTION_MODE = ExecutionMode.VIRTUAL;
+        } else if (mode == ExecutionMode.SERIAL) {
+            this.executor = Executors.newSingleThreadExecutor(ioThreads());
+            this.EXECUTION_MODE = ExecutionMode.SERIAL;
+        } else {
+            this.executor = Executors.newFixedThreadPool(threads, ioThreads());
+            this.EXECUTION_MODE = ExecutionMode.PLATFORM;
+        }
+    }
+
+    /**
+     * Mode requests really run in, PLATFORM if virtual threads were asked
+     * for on a JDK without them.
+     * @return  execution mode
+     */
+    public ExecutionMode getExecutionMode() {
+        return EXECUTION_MODE;
+    }
+
+    /**
+     * Admission controller of the writes, for its queue depth and rejections.
+     * @return  admission controller
+     */
+    public FlooringMasteryAdmissionController getAdmission() {
+        return admission;
+    }
+
+    /**
+     * Whether this JDK can run requests on virtual threads.
+     * @return  true on Java 21 and later
+     */
+    public static boolean isVirtualThreadsSupported() {
+        ExecutorService executor = newVirtualThreadExecutor();
+        if (executor == null) {
+            return false;
+        }
+        executor.shutdown();
+        return true;
+    }
+
+    @Override
+    public CompletableFuture<Order> addOrder(LocalDate date, Order order) {
+        return submitWrite(() -> service.addOrder(date, order));
+    }
+
+    @Override
+    public CompletableFuture<Order> addOrder(LocalDate date, Order order, String requestId) {
+        return submitWrite(() -> service.addOrder(date, order, requestId));
+    }
+
+    @Override
+    public CompletableFuture<Order> getOrder(LocalDate date, int orderNumber) {
+        return submit(() -> service.getOrder(date, orderNumber));
+    }
+
+    @Override
+    public CompletableFuture<Map<Integer, Order>> getAllOrders(LocalDate date) {
+        return submit(() -> service.getAllOrders(date));
+    }
+
+    @Override
+    public CompletableFuture<Order> editOrder(LocalDate date, int orderNumber, Order newOrder) {
+        return submitWrite(() -> service.editOrder(date, orderNumber, newOrder));
+    }
+
+    @Override
+    public CompletableFuture<Order> removeOrder(LocalDate date, int orderNumber) {
+        return submitWrite(() -> service.removeOrder(date, orderNumber));
+    }
+
+    @Override
+    public CompletableFuture<Void> exportData() {
+        return submitWrite(() -> {
+            service.exportData();
+            return null;
+        });
+    }
+
+    /**
+     * Stops taking calls and waits for the queued ones to finish.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Helper method to make the daemon I/O threads of the platform modes.
+     * @return  thread factory
+     */
+    private static ThreadFactory ioThreads() {
+        AtomicInteger count = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, "flooring-io-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Helper method to make a virtual thread per task executor. Looked up
+     * by reflection so the code still builds and runs on Java 11.
+     * @return  executor, null if this JDK has no virtual threads
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            //missing before Java 21, or a preview feature which is not enabled
+            return null;
+        }
+    }
+
+    /**
+     * Helper method to admit a write and queue it on the executor. Under the
+     * WAIT policy the caller blocks here until the write is admitted.
+     * @param call  write call of the blocking service
+     * @return  future of its result, failed with OVERLOADED if not admitted
+     */
+    private <T> CompletableFuture<T> submitWrite(ServiceCall<T> call) {
+        try {
+            admission.acquire();
+        } catch (FlooringMasteryOverloadedException e) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            future.completeExceptionally(FlooringMasteryServiceFailureException.of(e));
+            return future;
+        }
+        return submit(call, admission::release);
+    }
+
+    /**
+     * Helper method to queue a call on the executor.
+     * @param call  call of the blocking service
+     * @return  future of its result, failed with the kind of its error
+     */
+    private <T> CompletableFuture<T> submit(ServiceCall<T> call) {
+        return submit(call, () -> { });
+    }
+
+    /**
+     * Helper method to queue a call on the executor.
+     * @param call  call of the blocking service
+     * @param done  runs once the call is done or turned away, before the
+     *              future completes
+     * @return  future of its result, failed with the kind of its error
+     */
+    private <T> CompletableFuture<T> submit(ServiceCall<T> call, Runnable done) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                T result;
+                try {
+                    result = call.call();
+                } catch (Throwable e) {
+                    done.run();
+                    future.completeExceptionally(FlooringMasteryServiceFailureException.of(e));
+                    return;
+                }
+                done.run();
+                future.complete(result);
+            });
+        } catch (RejectedExecutionException e) {
+            done.run();
+            future.completeExceptionally(new FlooringMasteryServiceFailureException(
+                    FlooringMasteryServiceFailureException.Kind.CLOSED, "Service is closed", e));
+        }
+        return future;
+    }
+}
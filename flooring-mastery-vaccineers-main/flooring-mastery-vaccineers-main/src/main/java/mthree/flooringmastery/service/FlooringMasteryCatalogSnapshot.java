@@ -0,0 +1,72 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import mthree.flooringmastery.dto.Product;
+import mthree.flooringmastery.dto.State;
+
+/**
+ * Copy of the products and states at one catalog version. It never changes,
+ * so it can be read from any thread and an order checked against it can be
+ * priced with the same entries.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public final class FlooringMasteryCatalogSnapshot {
+
+    private final long version;
+    private final Map<String, State> states;
+    private final Map<String, Product> products;
+
+    /**
+     * Snapshot of the catalog. The maps are copied.
+     * @param version   catalog version of the dao
+     * @param states    state abbreviation --> state
+     * @param products  product type --> product
+     */
+    public FlooringMasteryCatalogSnapshot(long version, Map<String, State> states, Map<String, Product> products) {
+        this.version = version;
+        this.states = Collections.unmodifiableMap(new HashMap<>(states));
+        this.products = Collections.unmodifiableMap(new HashMap<>(products));
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets a state
+     * @param stateAbbreviation abbreviation, e.g. TX
+     * @return  the state, null if not in the catalog
+     */
+    public State getState(String stateAbbreviation) {
+        return states.get(stateAbbreviation);
+    }
+
+    /**
+     * Gets a product
+     * @param productType   product type, e.g. Tile
+     * @return  the product, null if not in the catalog
+     */
+    public Product getProduct(String productType) {
+        return products.get(productType);
+    }
+
+    public Map<String, State> getStates() {
+        return states;
+    }
+
+    public Map<String, Product> getProducts() {
+        return products;
+    }
+}
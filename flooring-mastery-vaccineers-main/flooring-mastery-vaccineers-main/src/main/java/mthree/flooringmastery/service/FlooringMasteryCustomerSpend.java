@@ -0,0 +1,76 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.service;
+
+import java.util.Objects;
+import mthree.flooringmastery.dto.Money;
+
+/**
+ * How much one customer spent in a date range.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public final class FlooringMasteryCustomerSpend {
+
+    private final String customerName;
+    private final int orderCount;
+    private final Money total;
+
+    /**
+     * Customer spend.
+     * @param customerName  customer name as on the orders
+     * @param orderCount    number of orders
+     * @param total         sum of the order totals
+     */
+    public FlooringMasteryCustomerSpend(String customerName, int orderCount, Money total) {
+        this.customerName = customerName;
+        this.orderCount = orderCount;
+        this.total = total;
+    }
+
+    public String getCustomerName() {
+        return customerName;
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    public Money getTotal() {
+        return total;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        hash = 59 * hash + Objects.hashCode(customerName);
+        hash = 59 * hash + orderCount;
+        hash = 59 * hash + Objects.hashCode(total);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        final FlooringMasteryCustomerSpend other = (FlooringMasteryCustomerSpend) obj;
+        return orderCount == other.orderCount && Objects.equals(customerName, other.customerName)
+                && Objects.equals(total, other.total);
+    }
+
+    @Override
+    public String toString() {
+        return "CustomerSpend{" + "customerName=" + customerName + ", orderCount=" + orderCount + ", total=" + total + '}';
+    }
+}
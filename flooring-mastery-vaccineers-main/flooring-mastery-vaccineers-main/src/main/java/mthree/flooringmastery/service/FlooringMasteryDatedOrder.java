@@ -0,0 +1,60 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.service;
+
+import java.time.LocalDate;
+import java.util.Objects;
+import mthree.flooringmastery.dto.Order;
+
+/**
+ * An order with its date, since orders do not keep their own date.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public final class FlooringMasteryDatedOrder {
+
+    private final LocalDate date;
+    private final Order order;
+
+    public FlooringMasteryDatedOrder(LocalDate date, Order order) {
+        this.date = date;
+        this.order = order;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Objects.hashCode(date) + Objects.hashCode(order);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        final FlooringMasteryDatedOrder other = (FlooringMasteryDatedOrder) obj;
+        return Objects.equals(date, other.date) && Objects.equals(order, other.order);
+    }
+
+    @Override
+    public String toString() {
+        return "DatedOrder{" + "date=" + date + ", order=" + order + '}';
+    }
+}
@@ -0,0 +1,453 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.service;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import mthree.flooringmastery.dto.Order;
+
+/**
+ * Read-through cache of the orders of a date, bounded by a memory budget.
+ *
+ * Eviction is W-TinyLFU. New dates go into a small least recently used
+ * window. A date pushed out of the window only enters the main area if it
+ * was read more often than the date the main area would evict for it, so a
+ * scan over many dates read once cannot flush the dates read all the time.
+ * How often a date was read is kept in a count-min sketch of 4 bit
+ * counters, which are halved now and then so old reads count less. The
+ * main area is split into probation, for dates read once since they came
+ * in, and protected, for dates read again.
+ *
+ * Each date weighs the estimated bytes of its orders, and the weights of all
+ * cached dates stay within the budget. Reads for a date go to the dao only
+ * on a miss. Each date is cached with the orders version the dao gave for
+ * it, and a read with another version misses, so changes the service did
+ * not make, e.g. an order file edited by hand, are seen. Writes invalidate
+ * the date, and a dao read which raced with an invalidation is not cached.
+ * Hits, misses, evictions and invalidations are counted.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public final class FlooringMasteryOrderCache {
+
+    /** Share of the budget of the window */
+    private final double WINDOW_SHARE = 0.01;
+
+    /** Share of the main area of the protected dates */
+    private final double PROTECTED_SHARE = 0.8;
+
+    /** Estimated bytes of a cached date without its orders */
+    private static final long DATE_BYTES = 128;
+
+    /** Estimated bytes of an order without its customer name */
+    private static final long ORDER_BYTES = 320;
+
+    /** Most a sketch counter counts */
+    private static final int MAX_FREQUENCY = 15;
+
+    /** Where a date is cached */
+    private enum Region {
+        WINDOW,
+        PROBATION,
+        PROTECTED
+    }
+
+    /** Orders of one date */
+    private static final class Entry {
+        private final Map<Integer, Order> orders;
+        private final long version;
+        private final long weight;
+        private Region region;
+
+        private Entry(Map<Integer, Order> orders, long version, long weight) {
+            this.orders = orders;
+            this.version = version;
+            this.weight = weight;
+        }
+    }
+
+    private final long MAX_WEIGHT;
+    private final long WINDOW_MAX_WEIGHT;
+    private final long MAIN_MAX_WEIGHT;
+    private final long PROTECTED_MAX_WEIGHT;
+
+    /** Each region oldest read first */
+    private final LinkedHashMap<LocalDate, Entry> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<LocalDate, Entry> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<LocalDate, Entry> protectedDates = new LinkedHashMap<>(16, 0.75f, true);
+    private long windowWeight = 0;
+    private long probationWeight = 0;
+    private long protectedWeight = 0;
+
+    /** Count-min sketch, 4 rows of counters, two counters per byte */
+    private final byte[][] sketch;
+    private final int sketchMask;
+    private int sketchAdditions = 0;
+    private final int SKETCH_SAMPLE;
+
+    /** Bumped by every invalidation, so a read which raced with one is not cached */
+    private long generation = 0;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Order cache.
+     * @param maxBytes  memory budget of the cached orders, 0 to cache nothing
+     */
+    public FlooringMasteryOrderCache(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Order cache budget cannot be negative");
+        }
+        this.MAX_WEIGHT = maxBytes;
+        this.WINDOW_MAX_WEIGHT = Math.max(1, (long) (maxBytes * WINDOW_SHARE));
+        this.MAIN_MAX_WEIGHT = maxBytes - Math.min(maxBytes, WINDOW_MAX_WEIGHT);
+        this.PROTECTED_MAX_WEIGHT = (long) (MAIN_MAX_WEIGHT * PROTECTED_SHARE);
+        //four counters a row per date of one order the budget can hold
+        long dates = Math.max(16, Math.min(1 << 16, maxBytes / (DATE_BYTES + ORDER_BYTES)));
+        int width = Integer.highestOneBit((int) (4 * dates) * 2 - 1);
+        this.sketch = new byte[4][width / 2];
+        this.sketchMask = width - 1;
+        this.SKETCH_SAMPLE = (int) (10 * dates);
+    }
+
+    /**
+     * Orders of a date, counted as a hit or a miss. A date cached at another
+     * version is dropped.
+     * @param date      order date
+     * @param version   current orders version of the date
+     * @return  read only orders, null if the date is not cached at the version
+     */
+    public Map<Integer, Order> get(LocalDate date, long version) {
+        lock.lock();
+        try {
+            increment(date);
+            Entry entry = window.get(date);
+            if (entry == null) {
+                entry = probation.remove(date);
+                if (entry != null) {
+                    //read again, so it moves up to protected
+                    probationWeight -= entry.weight;
+                    addProtected(date, entry);
+                } else {
+                    entry = protectedDates.get(date);
+                }
+            }
+            if (entry != null && entry.version != version) {
+                remove(date);
+                invalidations.increment();
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.orders;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ticket to take before reading a date from the dao after a miss.
+     * @return  ticket for put
+     */
+    public long ticket() {
+        lock.lock();
+        try {
+            return generation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Caches the orders of a date read from the dao. They are not cached if
+     * any date was invalidated since the ticket was taken, or if they weigh
+     * more than the main area holds.
+     * @param date      order date
+     * @param orders    orders read, not changed afterwards
+     * @param version   orders version of the date got before the read
+     * @param ticket    ticket taken before the read
+     */
+    public void put(LocalDate date, Map<Integer, Order> orders, long version, long ticket) {
+        long weight = weigh(orders);
+        lock.lock();
+        try {
+            if (ticket != generation || weight > MAIN_MAX_WEIGHT) {
+                return;
+            }
+            remove(date);
+            Entry entry = new Entry(Collections.unmodifiableMap(orders), version, weight);
+            entry.region = Region.WINDOW;
+            window.put(date, entry);
+            windowWeight += weight;
+            while (windowWeight > WINDOW_MAX_WEIGHT) {
+                Iterator<Map.Entry<LocalDate, Entry>> eldest = window.entrySet().iterator();
+                Map.Entry<LocalDate, Entry> candidate = eldest.next();
+                eldest.remove();
+                windowWeight -= candidate.getValue().weight;
+                admit(candidate.getKey(), candidate.getValue());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops the orders of a date after they changed.
+     * @param date  order date
+     */
+    public void invalidate(LocalDate date) {
+        lock.lock();
+        try {
+            generation++;
+            if (remove(date)) {
+                invalidations.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops every cached date.
+     */
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            generation++;
+            invalidations.add(window.size() + probation.size() + protectedDates.size());
+            window.clear();
+            probation.clear();
+            protectedDates.clear();
+            windowWeight = 0;
+            probationWeight = 0;
+            protectedWeight = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    /**
+     * Share of lookups that were hits.
+     * @return  hit rate from 0 to 1, 0 before the first lookup
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    /**
+     * Number of cached dates.
+     * @return  dates in the cache
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return window.size() + probation.size() + protectedDates.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Estimated bytes of the cached orders.
+     * @return  weight of every cached date, at most the budget
+     */
+    public long getWeight() {
+        lock.lock();
+        try {
+            return windowWeight + probationWeight + protectedWeight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getMaxWeight() {
+        return MAX_WEIGHT;
+    }
+
+    /**
+     * Estimated bytes of the orders of a date.
+     * @param orders    orders of a date
+     * @return  weight in the budget
+     */
+    static long weigh(Map<Integer, Order> orders) {
+        long weight = DATE_BYTES;
+        for (Order order : orders.values()) {
+            String name = order.getCustomerName();
+            weight += ORDER_BYTES + (name == null ? 0 : 2L * name.length());
+        }
+        return weight;
+    }
+
+    /**
+     * Helper method to let a date pushed out of the window into the main
+     * area. While the main area is full the date and the eldest date of
+     * probation, else of protected, are compared and the one read less
+     * often is evicted. A tie evicts the new date.
+     */
+    private void admit(LocalDate date, Entry candidate) {
+        while (probationWeight + protectedWeight + candidate.weight > MAIN_MAX_WEIGHT) {
+            LinkedHashMap<LocalDate, Entry> victims = probation.isEmpty() ? protectedDates : probation;
+            Iterator<Map.Entry<LocalDate, Entry>> eldest = victims.entrySet().iterator();
+            Map.Entry<LocalDate, Entry> victim = eldest.next();
+            evictions.increment();
+            if (frequency(date) <= frequency(victim.getKey())) {
+                return;
+            }
+            eldest.remove();
+            if (victims == probation) {
+                probationWeight -= victim.getValue().weight;
+            } else {
+                protectedWeight -= victim.getValue().weight;
+            }
+        }
+        candidate.region = Region.PROBATION;
+        probation.put(date, candidate);
+        probationWeight += candidate.weight;
+    }
+
+    /**
+     * Helper method to add a date to protected. The eldest protected dates
+     * over its share go back to probation.
+     */
+    private void addProtected(LocalDate date, Entry entry) {
+        entry.region = Region.PROTECTED;
+        protectedDates.put(date, entry);
+        protectedWeight += entry.weight;
+        Iterator<Map.Entry<LocalDate, Entry>> eldest = protectedDates.entrySet().iterator();
+        while (protectedWeight > PROTECTED_MAX_WEIGHT && protectedDates.size() > 1) {
+            Map.Entry<LocalDate, Entry> demoted = eldest.next();
+            eldest.remove();
+            protectedWeight -= demoted.getValue().weight;
+            demoted.getValue().region = Region.PROBATION;
+            probation.put(demoted.getKey(), demoted.getValue());
+            probationWeight += demoted.getValue().weight;
+        }
+    }
+
+    /**
+     * Helper method to remove a date from its region.
+     * @return  true if it was cached
+     */
+    private boolean remove(LocalDate date) {
+        Entry entry = window.remove(date);
+        if (entry == null) {
+            entry = probation.remove(date);
+        }
+        if (entry == null) {
+            entry = protectedDates.remove(date);
+        }
+        if (entry == null) {
+            return false;
+        }
+        switch (entry.region) {
+            case WINDOW:
+                windowWeight -= entry.weight;
+                break;
+            case PROBATION:
+                probationWeight -= entry.weight;
+                break;
+            default:
+                protectedWeight -= entry.weight;
+        }
+        return true;
+    }
+
+    /**
+     * Helper method to count a read of a date in the sketch. Every counter
+     * is halved once the sketch has seen ten reads per date the budget
+     * holds.
+     */
+    private void increment(LocalDate date) {
+        int hash = spread(date.hashCode());
+        for (int row = 0; row < sketch.length; row++) {
+            int index = index(hash, row);
+            if (counter(row, index) < MAX_FREQUENCY) {
+                sketch[row][index >>> 1] += 1 << shift(index);
+            }
+        }
+        if (++sketchAdditions >= SKETCH_SAMPLE) {
+            for (byte[] counters : sketch) {
+                for (int i = 0; i < counters.length; i++) {
+                    //both counters of the byte, the bit moving between them is masked out
+                    counters[i] = (byte) (((counters[i] & 0xFF) >>> 1) & 0x77);
+                }
+            }
+            sketchAdditions /= 2;
+        }
+    }
+
+    /**
+     * Helper method to estimate how often a date was read.
+     * @return  lowest counter of the date
+     */
+    private int frequency(LocalDate date) {
+        int hash = spread(date.hashCode());
+        int frequency = MAX_FREQUENCY;
+        for (int row = 0; row < sketch.length; row++) {
+            frequency = Math.min(frequency, counter(row, index(hash, row)));
+        }
+        return frequency;
+    }
+
+    private int counter(int row, int index) {
+        return (sketch[row][index >>> 1] >>> shift(index)) & 0xF;
+    }
+
+    /** Bit of the counter in its byte, even counters low, odd counters high */
+    private static int shift(int index) {
+        return (index & 1) << 2;
+    }
+
+    private int index(int hash, int row) {
+        int h = (hash + row * 0x9E3779B9) * 0x85EBCA6B;
+        return (h ^ (h >>> 16)) & sketchMask;
+    }
+
+    private static int spread(int hash) {
+        hash *= 0xCC9E2D51;
+        return hash ^ (hash >>> 15);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits=%d, misses=%d, hitRate=%.3f, evictions=%d, invalidations=%d, size=%d, bytes=%d",
+                getHits(), getMisses(), getHitRate(), getEvictions(), getInvalidations(), size(), getWeight());
+    }
+}
@@ -0,0 +1,208 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import mthree.flooringmastery.dao.FlooringMasteryDao;
+import mthree.flooringmastery.dao.FlooringMasteryPersistenceException;
+import mthree.flooringmastery.dto.Order;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Checks the input of orders against the business rules.
+ *
+ * The rules are set up once: the customer name is checked against a table
+ * of allowed characters and the area against a whole number of hundredths.
+ * States and products are looked up in a snapshot of the catalog, taken
+ * again only when the catalog version of the dao changes.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+@Component
+public class FlooringMasteryOrderValidator {
+
+    /** Smallest area of an order in hundredths of ft^2 (100ft^2) */
+    private final long MIN_AREA = 10_000;
+
+    /** Characters allowed in a customer name: numbers, letters, dots, space */
+    private final boolean[] NAME_CHARACTERS = new boolean[128];
+
+    /** Rules in the order they are checked, values() copies the array each call */
+    private final FlooringMasteryOrderViolation.Rule[] RULES = FlooringMasteryOrderViolation.Rule.values();
+
+    private final FlooringMasteryDao dao;
+
+    /** Catalog the last orders were checked against */
+    private volatile FlooringMasteryCatalogSnapshot catalog;
+
+    @Autowired
+    public FlooringMasteryOrderValidator(FlooringMasteryDao dao) {
+        this.dao = dao;
+        for (char c = 'a'; c <= 'z'; c++) {
+            NAME_CHARACTERS[c] = true;
+            NAME_CHARACTERS[Character.toUpperCase(c)] = true;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            NAME_CHARACTERS[c] = true;
+        }
+        NAME_CHARACTERS[' '] = true;
+        NAME_CHARACTERS['.'] = true;
+    }
+
+    /**
+     * Current catalog. Only copied from the dao when its version changed.
+     * @return  catalog snapshot
+     * @throws FlooringMasteryPersistenceException
+     */
+    public FlooringMasteryCatalogSnapshot getCatalog() throws FlooringMasteryPersistenceException {
+        long version = dao.getCatalogVersion();
+        FlooringMasteryCatalogSnapshot current = catalog;
+        if (current == null || current.getVersion() != version) {
+            current = new FlooringMasteryCatalogSnapshot(version, dao.getAllStates(), dao.getAllProducts());
+            catalog = current;
+        }
+        return current;
+    }
+
+    /**
+     * Checks one order. The rules are checked in the order of
+     * FlooringMasteryOrderViolation.Rule and the first broken one is thrown.
+     * @param order order with customer name, state, product type and area
+     * @return  the catalog the order was checked against, to take its
+     * state and product from
+     * @throws FlooringMasteryPersistenceException
+     * @throws FlooringMasteryStateNotFoundException
+     * @throws FlooringMasteryInvalidCustomerNameException
+     * @throws FlooringMasteryProductNotFoundException
+     * @throws FlooringMasteryInvalidAreaException
+     */
+    public FlooringMasteryCatalogSnapshot validate(Order order) throws FlooringMasteryPersistenceException,
+            FlooringMasteryStateNotFoundException,
+            FlooringMasteryInvalidCustomerNameException,
+            FlooringMasteryProductNotFoundException,
+            FlooringMasteryInvalidAreaException {
+        FlooringMasteryCatalogSnapshot current = getCatalog();
+        FlooringMasteryOrderViolation.Rule rule = firstViolation(order, current);
+        if (rule == null) {
+            return current;
+        }
+        switch (rule) {
+            case STATE_NOT_FOUND:
+                throw new FlooringMasteryStateNotFoundException(rule.getMessage());
+            case INVALID_CUSTOMER_NAME:
+                throw new FlooringMasteryInvalidCustomerNameException(rule.getMessage());
+            case PRODUCT_NOT_FOUND:
+                throw new FlooringMasteryProductNotFoundException(rule.getMessage());
+            default:
+                throw new FlooringMasteryInvalidAreaException(rule.getMessage());
+        }
+    }
+
+    /**
+     * Checks a batch of orders against one catalog snapshot.
+     * @param orders    orders to check
+     * @return  every broken rule of every order, by position in the batch.
+     * Empty if all orders are valid
+     * @throws FlooringMasteryPersistenceException
+     */
+    public List<FlooringMasteryOrderViolation> validateAll(List<Order> orders) throws FlooringMasteryPersistenceException {
+        FlooringMasteryCatalogSnapshot current = getCatalog();
+        List<FlooringMasteryOrderViolation> violations = new ArrayList<>();
+        int i = 0;
+        for (Order order : orders) {
+            for (FlooringMasteryOrderViolation.Rule rule : check(order, current)) {
+                violations.add(new FlooringMasteryOrderViolation(i, rule));
+            }
+            i++;
+        }
+        return violations;
+    }
+
+    /**
+     * Checks one order against a given catalog snapshot, without getting
+     * the catalog. Safe to call from several threads at once.
+     * @param order     order to check
+     * @param current   catalog to check it against
+     * @return  broken rules in the order they are checked, empty if none
+     */
+    public List<FlooringMasteryOrderViolation.Rule> check(Order order, FlooringMasteryCatalogSnapshot current) {
+        List<FlooringMasteryOrderViolation.Rule> rules = null;
+        for (FlooringMasteryOrderViolation.Rule rule : RULES) {
+            if (!passes(rule, order, current)) {
+                if (rules == null) {
+                    rules = new ArrayList<>(2);
+                }
+                rules.add(rule);
+            }
+        }
+        return rules == null ? Collections.emptyList() : rules;
+    }
+
+    /**
+     * Helper method to find the first broken rule of an order
+     * @return  broken rule, null if none
+     */
+    private FlooringMasteryOrderViolation.Rule firstViolation(Order order, FlooringMasteryCatalogSnapshot current) {
+        for (FlooringMasteryOrderViolation.Rule rule : RULES) {
+            if (!passes(rule, order, current)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    private boolean passes(FlooringMasteryOrderViolation.Rule rule, Order order, FlooringMasteryCatalogSnapshot current) {
+        switch (rule) {
+            case STATE_NOT_FOUND:
+                return current.getState(order.getState()) != null;
+            case INVALID_CUSTOMER_NAME:
+                return isValidName(order.getCustomerName());
+            case PRODUCT_NOT_FOUND:
+                return current.getProduct(order.getProductType()) != null;
+            default:
+                //an area that is not set is Order.NOT_SET, below any minimum
+                return order.getAreaHundredths() >= MIN_AREA;
+        }
+    }
+
+    /**
+     * Helper method to check a customer name. Same as matching
+     * [a-zA-Z0-9 \.]+ after trimming, without building the trimmed string.
+     * @param name  customer name
+     * @return  true if valid
+     */
+    private boolean isValidName(String name) {
+        if (name == null) {
+            return false;
+        }
+        int start = 0;
+        int end = name.length();
+        //String.trim() removes everything up to the space
+        while (start < end && name.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && name.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            char c = name.charAt(i);
+            if (c >= NAME_CHARACTERS.length || !NAME_CHARACTERS[c]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
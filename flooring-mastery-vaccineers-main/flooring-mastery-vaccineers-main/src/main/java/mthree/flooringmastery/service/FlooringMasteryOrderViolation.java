@@ -0,0 +1,85 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.service;
+
+import java.util.Objects;
+
+/**
+ * One broken rule of one order in a batch.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public final class FlooringMasteryOrderViolation {
+
+    /** Rules an order is checked against, in the order they are checked */
+    public enum Rule {
+        STATE_NOT_FOUND("ERROR: State was not found."),
+        INVALID_CUSTOMER_NAME("Name must be numbers, letters, dots, or space"),
+        PRODUCT_NOT_FOUND("ERROR: Product was not found."),
+        AREA_TOO_SMALL("ERROR: Area must be at least 100ft^2.");
+
+        private final String message;
+
+        Rule(String message) {
+            this.message = message;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    private final int index;
+    private final Rule rule;
+
+    /**
+     * Violation.
+     * @param index position of the order in the batch
+     * @param rule  broken rule
+     */
+    public FlooringMasteryOrderViolation(int index, Rule rule) {
+        this.index = index;
+        this.rule = rule;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Rule getRule() {
+        return rule;
+    }
+
+    public String getMessage() {
+        return rule.getMessage();
+    }
+
+    @Override
+    public String toString() {
+        return "Order " + index + ": " + rule.getMessage();
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * index + Objects.hashCode(rule);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        final FlooringMasteryOrderViolation other = (FlooringMasteryOrderViolation) obj;
+        return index == other.index && rule == other.rule;
+    }
+}
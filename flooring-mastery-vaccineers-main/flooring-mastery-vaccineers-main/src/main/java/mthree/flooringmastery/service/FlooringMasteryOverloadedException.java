@@ -0,0 +1,28 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.service;
+
+/**
+ * Overloaded Exception. Gets thrown if a write is not admitted because too
+ * many writes are already waiting or the write rate is used up.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public class FlooringMasteryOverloadedException extends Exception {
+
+    public FlooringMasteryOverloadedException(String message) {
+        super(message);
+    }
+
+    public FlooringMasteryOverloadedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
@@ -0,0 +1,96 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.service;
+
+import java.math.BigDecimal;
+import mthree.flooringmastery.dto.Money;
+import mthree.flooringmastery.dto.Order;
+
+/**
+ * Calculates the costs of an order with long arithmetic.
+ * 
+ * Gives the same results as the BigDecimal calculation:
+ * materialCost = area * costPerSquareFoot
+ * laborCost = area * laborCostPerSquareFoot
+ * tax = taxRate / 100 * (materialCost + laborCost)
+ * total = materialCost + laborCost + tax
+ * where every result is rounded half up to cents only at the end. Inputs are
+ * whole hundredths, so the unrounded values are whole numbers of 1/10000
+ * dollars (costs) and 1/100000000 dollars (tax and total).
+ * If a value does not fit in a long the BigDecimal calculation is used.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public final class FlooringMasteryPricing {
+
+    /** Unrounded costs are in 1/10000 dollars */
+    private static final long COST_UNITS_PER_CENT = 100;
+    /** Unrounded tax and total are in 1/100000000 dollars */
+    private static final long TAX_UNITS_PER_CENT = 1_000_000;
+    private static final long COST_TO_TAX_UNITS = 10_000;
+
+    private FlooringMasteryPricing() {}
+
+    /**
+     * Calculates materialCost, laborCost, tax and total of an order from its
+     * area, costs per square foot and tax rate.
+     * @param order order to update
+     */
+    public static void price(Order order) {
+        try {
+            long area = order.getAreaHundredths();
+            long materialCost = Math.multiplyExact(area, order.getCostPerSquareFootMoney().getCents());
+            long laborCost = Math.multiplyExact(area, order.getLaborCostPerSquareFootMoney().getCents());
+            long subtotal = Math.addExact(materialCost, laborCost);
+            long tax = Math.multiplyExact(order.getTaxRateBasisPoints(), subtotal);
+            long total = Math.addExact(Math.multiplyExact(subtotal, COST_TO_TAX_UNITS), tax);
+
+            order.setMaterialCost(Money.ofCents(roundHalfUp(materialCost, COST_UNITS_PER_CENT)));
+            order.setLaborCost(Money.ofCents(roundHalfUp(laborCost, COST_UNITS_PER_CENT)));
+            order.setTax(Money.ofCents(roundHalfUp(tax, TAX_UNITS_PER_CENT)));
+            order.setTotal(Money.ofCents(roundHalfUp(total, TAX_UNITS_PER_CENT)));
+        } catch (ArithmeticException e) {
+            priceDecimal(order);
+        }
+    }
+
+    /**
+     * Helper method to divide rounding half up, away from zero like
+     * RoundingMode.HALF_UP.
+     * @param value     value to divide
+     * @param divisor   positive divisor
+     * @return  rounded quotient
+     */
+    private static long roundHalfUp(long value, long divisor) {
+        long quotient = value / divisor;
+        long remainder = Math.abs(value % divisor);
+        if (remainder * 2 >= divisor) {
+            quotient += Long.signum(value);
+        }
+        return quotient;
+    }
+
+    /**
+     * Helper method with the BigDecimal calculation, for values too large
+     * for a long.
+     * @param order order to update
+     */
+    private static void priceDecimal(Order order) {
+        BigDecimal materialCost = order.getArea().multiply(order.getCostPerSquareFoot());
+        BigDecimal laborCost = order.getArea().multiply(order.getLaborCostPerSquareFoot());
+
+        BigDecimal tax = order.getTaxRate().movePointLeft(2).multiply(materialCost.add(laborCost));
+        BigDecimal total = materialCost.add(laborCost.add(tax));
+        order.setMaterialCost(materialCost);
+        order.setLaborCost(laborCost);
+        order.setTax(tax);
+        order.setTotal(total);
+    }
+}
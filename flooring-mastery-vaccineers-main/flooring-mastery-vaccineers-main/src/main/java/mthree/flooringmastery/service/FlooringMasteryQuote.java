@@ -0,0 +1,63 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.service;
+
+import java.util.List;
+import mthree.flooringmastery.dto.Order;
+
+/**
+ * Price of one order draft, never saved. Holds a priced copy of the draft,
+ * or the rules the draft broke.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public final class FlooringMasteryQuote {
+
+    private final Order order;
+    private final List<FlooringMasteryOrderViolation.Rule> violations;
+    private final long catalogVersion;
+
+    /**
+     * Quote.
+     * @param order             copy of the draft, priced if valid
+     * @param violations        broken rules, empty if valid
+     * @param catalogVersion    version of the catalog it was priced with
+     */
+    public FlooringMasteryQuote(Order order, List<FlooringMasteryOrderViolation.Rule> violations, long catalogVersion) {
+        this.order = order;
+        this.violations = List.copyOf(violations);
+        this.catalogVersion = catalogVersion;
+    }
+
+    /**
+     * Copy of the draft. Has costs, tax and total only if valid.
+     * @return  quoted order, without an order number
+     */
+    public Order getOrder() {
+        return order;
+    }
+
+    public List<FlooringMasteryOrderViolation.Rule> getViolations() {
+        return violations;
+    }
+
+    public boolean isValid() {
+        return violations.isEmpty();
+    }
+
+    public long getCatalogVersion() {
+        return catalogVersion;
+    }
+
+    @Override
+    public String toString() {
+        return isValid() ? "Quote{total=" + order.getTotal() + '}' : "Quote{violations=" + violations + '}';
+    }
+}
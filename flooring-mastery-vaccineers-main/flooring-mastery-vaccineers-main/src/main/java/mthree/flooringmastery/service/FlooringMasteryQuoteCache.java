@@ -0,0 +1,230 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import mthree.flooringmastery.dto.Money;
+import mthree.flooringmastery.dto.Order;
+
+/**
+ * Bounded cache of order prices keyed by state, product type and area.
+ *
+ * The prices only depend on those and on the rates of the catalog, so the
+ * cache belongs to one catalog version and is cleared when a lookup comes
+ * with another one. It is split into segments, each a least recently used
+ * map behind its own lock, so parallel quotes rarely wait on each other.
+ * Hits, misses and evictions are counted.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public final class FlooringMasteryQuoteCache {
+
+    private final int SEGMENTS = 16;
+
+    /** Prices of one key */
+    private static final class Prices {
+        private final long catalogVersion;
+        private final Money materialCost;
+        private final Money laborCost;
+        private final Money tax;
+        private final Money total;
+
+        private Prices(long catalogVersion, Order order) {
+            this.catalogVersion = catalogVersion;
+            this.materialCost = order.getMaterialCostMoney();
+            this.laborCost = order.getLaborCostMoney();
+            this.tax = order.getTaxMoney();
+            this.total = order.getTotalMoney();
+        }
+    }
+
+    private static final class Key {
+        private final String state;
+        private final String productType;
+        private final long area;
+
+        private Key(String state, String productType, long area) {
+            this.state = state;
+            this.productType = productType;
+            this.area = area;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 7;
+            hash = 31 * hash + Objects.hashCode(state);
+            hash = 31 * hash + Objects.hashCode(productType);
+            hash = 31 * hash + Long.hashCode(area);
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return area == other.area && Objects.equals(state, other.state)
+                    && Objects.equals(productType, other.productType);
+        }
+    }
+
+    private final boolean ENABLED;
+    private final Map<Key, Prices>[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /** Catalog version of the cached prices */
+    private volatile long version = Long.MIN_VALUE;
+
+    /**
+     * Quote cache.
+     * @param maxEntries    most prices kept, 0 to cache nothing
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public FlooringMasteryQuoteCache(int maxEntries) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("Quote cache size cannot be negative");
+        }
+        this.ENABLED = maxEntries > 0;
+        int perSegment = (maxEntries + SEGMENTS - 1) / SEGMENTS;
+        segments = new Map[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new LinkedHashMap<Key, Prices>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, Prices> eldest) {
+                    if (size() > perSegment) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+
+    /**
+     * Sets the prices of an order from the cache. The order must have the
+     * rates of the catalog of that version.
+     * @param catalogVersion    version of the catalog the order uses
+     * @param order             order with state, product type and area
+     * @return  true if the prices were found and set
+     */
+    public boolean applyPrices(long catalogVersion, Order order) {
+        if (catalogVersion != version) {
+            clear(catalogVersion);
+            misses.increment();
+            return false;
+        }
+        Key key = new Key(order.getState(), order.getProductType(), order.getAreaHundredths());
+        Map<Key, Prices> segment = segment(key);
+        Prices prices;
+        synchronized (segment) {
+            prices = segment.get(key);
+        }
+        //a put racing with a clear can leave prices of the old version
+        if (prices == null || prices.catalogVersion != catalogVersion) {
+            misses.increment();
+            return false;
+        }
+        hits.increment();
+        order.setMaterialCost(prices.materialCost);
+        order.setLaborCost(prices.laborCost);
+        order.setTax(prices.tax);
+        order.setTotal(prices.total);
+        return true;
+    }
+
+    /**
+     * Keeps the prices of a priced order.
+     * @param catalogVersion    version of the catalog it was priced with
+     * @param order             priced order
+     */
+    public void putPrices(long catalogVersion, Order order) {
+        if (!ENABLED || catalogVersion != version) {
+            return;
+        }
+        Key key = new Key(order.getState(), order.getProductType(), order.getAreaHundredths());
+        Map<Key, Prices> segment = segment(key);
+        Prices prices = new Prices(catalogVersion, order);
+        synchronized (segment) {
+            segment.put(key, prices);
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Share of lookups that were hits.
+     * @return  hit rate from 0 to 1, 0 before the first lookup
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    /**
+     * Number of cached prices.
+     * @return  entries in the cache
+     */
+    public int size() {
+        int size = 0;
+        for (Map<Key, Prices> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Helper method to drop every price when the catalog version changes.
+     */
+    private synchronized void clear(long catalogVersion) {
+        if (catalogVersion == version) {
+            return;
+        }
+        for (Map<Key, Prices> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+        version = catalogVersion;
+    }
+
+    private Map<Key, Prices> segment(Key key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits=%d, misses=%d, hitRate=%.3f, evictions=%d, size=%d",
+                getHits(), getMisses(), getHitRate(), getEvictions(), size());
+    }
+}
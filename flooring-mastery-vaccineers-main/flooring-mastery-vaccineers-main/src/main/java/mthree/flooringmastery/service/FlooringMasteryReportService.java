@@ -0,0 +1,71 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.service;
+
+import java.time.LocalDate;
+import java.util.List;
+import mthree.flooringmastery.dao.FlooringMasteryPersistenceException;
+
+/**
+ * Report service interface. Sales reports over the orders of the dao.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public interface FlooringMasteryReportService {
+
+    /**
+     * Revenue, tax and area sold between two dates.
+     * @param from      first date, inclusive
+     * @param to        last date, inclusive
+     * @param groupBy   what the rows are
+     * @return  report with one row per group which has orders
+     * @throws FlooringMasteryPersistenceException
+     * @throws FlooringMasteryInvalidDateException if the range ends before it starts
+     */
+    public FlooringMasterySalesReport getSalesReport(LocalDate from, LocalDate to, FlooringMasterySalesReport.GroupBy groupBy)
+            throws FlooringMasteryPersistenceException,
+            FlooringMasteryInvalidDateException;
+
+    /**
+     * Sales from the first of January up to today.
+     * @param groupBy   what the rows are
+     * @return  report of this year so far
+     * @throws FlooringMasteryPersistenceException
+     */
+    public FlooringMasterySalesReport getYearToDateReport(FlooringMasterySalesReport.GroupBy groupBy)
+            throws FlooringMasteryPersistenceException;
+
+    /**
+     * Customers who spent the most between two dates, by sum of their
+     * order totals.
+     * @param from  first date, inclusive
+     * @param to    last date, inclusive
+     * @param count how many customers, at least 1
+     * @return  up to count customers, biggest spender first
+     * @throws FlooringMasteryPersistenceException
+     * @throws FlooringMasteryInvalidDateException if the range ends before it starts
+     */
+    public List<FlooringMasteryCustomerSpend> getTopCustomers(LocalDate from, LocalDate to, int count)
+            throws FlooringMasteryPersistenceException,
+            FlooringMasteryInvalidDateException;
+
+    /**
+     * Orders with the largest totals between two dates.
+     * @param from  first date, inclusive
+     * @param to    last date, inclusive
+     * @param count how many orders, at least 1
+     * @return  up to count orders, largest first
+     * @throws FlooringMasteryPersistenceException
+     * @throws FlooringMasteryInvalidDateException if the range ends before it starts
+     */
+    public List<FlooringMasteryDatedOrder> getLargestOrders(LocalDate from, LocalDate to, int count)
+            throws FlooringMasteryPersistenceException,
+            FlooringMasteryInvalidDateException;
+}
@@ -0,0 +1,358 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.service;
+
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+import mthree.flooringmastery.dao.FlooringMasteryDao;
+import mthree.flooringmastery.dao.FlooringMasteryPersistenceException;
+import mthree.flooringmastery.dto.DailySummary;
+import mthree.flooringmastery.dto.Money;
+import mthree.flooringmastery.dto.Order;
+import mthree.flooringmastery.dto.PeriodSummary;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Report service implementation.
+ *
+ * A report is split by date. The rows of each date are summed on their own,
+ * in parallel, and then added up. Monthly and yearly rows come from the
+ * month and year rollups of the dao: every whole year or month in the range
+ * is one rollup, and only the days at either end are taken from the daily
+ * summaries, so a range of many years reads a few dozen records. Rows by
+ * state or product need the orders, so the
+ * rows of each closed date (before today) are cached and reused while the
+ * orders version of the date stays the same. Running a year to date report
+ * again only reads the dates which are new or changed since. Dates without
+ * a summary anymore are dropped when a report covers them, and past
+ * MAX_CACHED_DATES the oldest dates are dropped.
+ *
+ * Top customers and largest orders are found in one pass over the dates,
+ * reading one date at a time. The candidates are kept in a heap bounded to
+ * the number asked for, whose smallest entry is dropped when a bigger one
+ * comes.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+@Component
+public class FlooringMasteryReportServiceImpl implements FlooringMasteryReportService {
+
+    private final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    /** Rows of one date, with the orders version they were summed at */
+    private static final class CachedDate {
+        private final long version;
+        private final Map<String, FlooringMasterySalesTotals> rows;
+
+        private CachedDate(long version, Map<String, FlooringMasterySalesTotals> rows) {
+            this.version = version;
+            this.rows = rows;
+        }
+    }
+
+    /** Smaller spend first, ties broken by name so results do not depend on map order */
+    private static final Comparator<FlooringMasteryCustomerSpend> BY_SPEND = Comparator
+            .comparing(FlooringMasteryCustomerSpend::getTotal)
+            .thenComparing(FlooringMasteryCustomerSpend::getCustomerName, Comparator.reverseOrder());
+
+    /** Smaller total first, ties broken so earlier orders rank higher */
+    private static final Comparator<FlooringMasteryDatedOrder> BY_TOTAL = Comparator
+            .comparing((FlooringMasteryDatedOrder dated) -> dated.getOrder().getTotalMoney(),
+                    Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(FlooringMasteryDatedOrder::getDate, Comparator.reverseOrder())
+            .thenComparing(dated -> dated.getOrder().getOrderNumber(), Comparator.reverseOrder());
+
+    /** Most dates cached per group, ten years of dates */
+    private static final int MAX_CACHED_DATES = 3660;
+
+    private final FlooringMasteryDao dao;
+
+    /** Group --> ( closed date --> rows of the date) */
+    private final Map<FlooringMasterySalesReport.GroupBy, ConcurrentSkipListMap<LocalDate, CachedDate>> cache
+            = new EnumMap<>(FlooringMasterySalesReport.GroupBy.class);
+
+    @Autowired
+    public FlooringMasteryReportServiceImpl(FlooringMasteryDao dao) {
+        this.dao = dao;
+        for (FlooringMasterySalesReport.GroupBy groupBy : FlooringMasterySalesReport.GroupBy.values()) {
+            cache.put(groupBy, new ConcurrentSkipListMap<>());
+        }
+    }
+
+    @Override
+    public FlooringMasterySalesReport getSalesReport(LocalDate from, LocalDate to, FlooringMasterySalesReport.GroupBy groupBy)
+            throws FlooringMasteryPersistenceException, FlooringMasteryInvalidDateException {
+        if (to.isBefore(from)) {
+            throw new FlooringMasteryInvalidDateException("ERROR: Report ends before it starts.");
+        }
+        List<Map<String, FlooringMasterySalesTotals>> dateRows = new ArrayList<>();
+        if (groupBy == FlooringMasterySalesReport.GroupBy.MONTH || groupBy == FlooringMasterySalesReport.GroupBy.YEAR) {
+            addPeriodRows(from, to, groupBy, dateRows);
+            return new FlooringMasterySalesReport(groupBy, from, to, sumRows(dateRows), 0);
+        }
+        LocalDate today = LocalDate.now();
+        ConcurrentSkipListMap<LocalDate, CachedDate> cachedDates = cache.get(groupBy);
+        //the version is got before the orders, so a change in between is read next time
+        Map<LocalDate, Long> datesToRead = new HashMap<>();
+
+        Set<LocalDate> dates = dao.getDailySummaries(from, to).keySet();
+        //dates whose orders were all removed
+        cachedDates.subMap(from, true, to, true).keySet().retainAll(dates);
+        for (LocalDate date : dates) {
+            long version = dao.getOrdersVersion(date);
+            CachedDate cached = cachedDates.get(date);
+            if (cached != null && cached.version == version) {
+                dateRows.add(cached.rows);
+            } else {
+                datesToRead.put(date, version);
+            }
+        }
+
+        //the dao reads one date at a time, the summing runs in parallel
+        Map<LocalDate, Collection<Order>> ordersToSum = new HashMap<>();
+        for (LocalDate date : datesToRead.keySet()) {
+            Map<Integer, Order> dateOrders = dao.getAllOrders(date);
+            if (dateOrders != null) {
+                ordersToSum.put(date, dateOrders.values());
+            }
+        }
+        Map<LocalDate, Map<String, FlooringMasterySalesTotals>> summed = ordersToSum.entrySet().parallelStream()
+                .collect(Collectors.toConcurrentMap(Map.Entry::getKey, entry -> sumDate(entry.getValue(), groupBy)));
+        for (Map.Entry<LocalDate, Map<String, FlooringMasterySalesTotals>> entry : summed.entrySet()) {
+            if (entry.getKey().isBefore(today)) {
+                cachedDates.put(entry.getKey(), new CachedDate(datesToRead.get(entry.getKey()), entry.getValue()));
+            }
+            while (cachedDates.size() > MAX_CACHED_DATES) {
+                cachedDates.pollFirstEntry();
+            }
+            dateRows.add(entry.getValue());
+        }
+
+        return new FlooringMasterySalesReport(groupBy, from, to, sumRows(dateRows), ordersToSum.size());
+    }
+
+    @Override
+    public FlooringMasterySalesReport getYearToDateReport(FlooringMasterySalesReport.GroupBy groupBy)
+            throws FlooringMasteryPersistenceException {
+        LocalDate today = LocalDate.now();
+        try {
+            return getSalesReport(today.withDayOfYear(1), today, groupBy);
+        } catch (FlooringMasteryInvalidDateException e) {
+            //the first of January is never after today
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public List<FlooringMasteryCustomerSpend> getTopCustomers(LocalDate from, LocalDate to, int count)
+            throws FlooringMasteryPersistenceException, FlooringMasteryInvalidDateException {
+        checkTopQuery(from, to, count);
+        //one entry per customer, the sums cannot be ranked before every date is seen
+        Map<String, FlooringMasteryCustomerSpend> spends = new HashMap<>();
+        for (LocalDate date : dao.getDailySummaries(from, to).keySet()) {
+            Map<Integer, Order> dateOrders = dao.getAllOrders(date);
+            if (dateOrders == null) {
+                continue;
+            }
+            for (Order order : dateOrders.values()) {
+                Money total = order.getTotalMoney() == null ? Money.ZERO : order.getTotalMoney();
+                spends.merge(order.getCustomerName(), new FlooringMasteryCustomerSpend(order.getCustomerName(), 1, total),
+                        (spend, added) -> new FlooringMasteryCustomerSpend(spend.getCustomerName(),
+                                spend.getOrderCount() + 1, spend.getTotal().plus(added.getTotal())));
+            }
+        }
+        PriorityQueue<FlooringMasteryCustomerSpend> top = new PriorityQueue<>(count + 1, BY_SPEND);
+        for (FlooringMasteryCustomerSpend spend : spends.values()) {
+            offer(top, spend, count, BY_SPEND);
+        }
+        return largestFirst(top, BY_SPEND);
+    }
+
+    @Override
+    public List<FlooringMasteryDatedOrder> getLargestOrders(LocalDate from, LocalDate to, int count)
+            throws FlooringMasteryPersistenceException, FlooringMasteryInvalidDateException {
+        checkTopQuery(from, to, count);
+        PriorityQueue<FlooringMasteryDatedOrder> largest = new PriorityQueue<>(count + 1, BY_TOTAL);
+        for (LocalDate date : dao.getDailySummaries(from, to).keySet()) {
+            Map<Integer, Order> dateOrders = dao.getAllOrders(date);
+            if (dateOrders == null) {
+                continue;
+            }
+            for (Order order : dateOrders.values()) {
+                offer(largest, new FlooringMasteryDatedOrder(date, order), count, BY_TOTAL);
+            }
+        }
+        return largestFirst(largest, BY_TOTAL);
+    }
+
+    /**
+     * Number of closed dates whose rows are cached.
+     * @param groupBy   grouping of the rows
+     * @return  cached date count
+     */
+    int getCachedDateCount(FlooringMasterySalesReport.GroupBy groupBy) {
+        return cache.get(groupBy).size();
+    }
+
+    /**
+     * Helper method to check the arguments of a top query.
+     * @throws FlooringMasteryInvalidDateException if the range ends before it starts
+     */
+    private void checkTopQuery(LocalDate from, LocalDate to, int count) throws FlooringMasteryInvalidDateException {
+        if (count < 1) {
+            throw new IllegalArgumentException("Count must be at least 1");
+        }
+        if (to.isBefore(from)) {
+            throw new FlooringMasteryInvalidDateException("ERROR: Report ends before it starts.");
+        }
+    }
+
+    /**
+     * Helper method to add a candidate to a bounded heap. Once the heap is
+     * full, the candidate only goes in if it beats the smallest entry.
+     * @param heap      heap with the smallest entry on top
+     * @param candidate entry to offer
+     * @param count     most entries kept
+     * @param order     how entries compare
+     */
+    private static <T> void offer(PriorityQueue<T> heap, T candidate, int count, Comparator<T> order) {
+        if (heap.size() < count) {
+            heap.add(candidate);
+        } else if (order.compare(candidate, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(candidate);
+        }
+    }
+
+    /**
+     * Helper method to empty a heap into a list, largest entry first.
+     */
+    private static <T> List<T> largestFirst(PriorityQueue<T> heap, Comparator<T> order) {
+        List<T> sorted = new ArrayList<>(heap);
+        sorted.sort(order.reversed());
+        return sorted;
+    }
+
+    /**
+     * Helper method to add up partial rows by name.
+     * @param partRows  rows of each date, month or year
+     * @return  row name --> totals
+     */
+    private static Map<String, FlooringMasterySalesTotals> sumRows(List<Map<String, FlooringMasterySalesTotals>> partRows) {
+        return partRows.parallelStream()
+                .flatMap(row -> row.entrySet().stream())
+                .collect(Collectors.toConcurrentMap(Map.Entry::getKey, Map.Entry::getValue, FlooringMasterySalesTotals::plus));
+    }
+
+    /**
+     * Helper method to get the rows of a range by month or year. Whole
+     * years take the yearly rollups, the rest is done by month.
+     * @param from      first date, inclusive
+     * @param to        last date, inclusive
+     * @param groupBy   month or year
+     * @param rows      list the partial rows are added to
+     * @throws FlooringMasteryPersistenceException
+     */
+    private void addPeriodRows(LocalDate from, LocalDate to, FlooringMasterySalesReport.GroupBy groupBy,
+            List<Map<String, FlooringMasterySalesTotals>> rows) throws FlooringMasteryPersistenceException {
+        if (groupBy == FlooringMasterySalesReport.GroupBy.YEAR) {
+            Year first = from.getDayOfYear() == 1 ? Year.from(from) : Year.from(from).plusYears(1);
+            Year last = to.equals(Year.from(to).atMonth(12).atEndOfMonth()) ? Year.from(to) : Year.from(to).minusYears(1);
+            if (!last.isBefore(first)) {
+                for (PeriodSummary rollup : dao.getYearlySummaries(first, last).values()) {
+                    rows.add(Map.of(rollup.getPeriod(), FlooringMasterySalesTotals.of(rollup)));
+                }
+                addMonthRows(from, first.atDay(1).minusDays(1), groupBy, rows);
+                addMonthRows(last.atMonth(12).atEndOfMonth().plusDays(1), to, groupBy, rows);
+                return;
+            }
+        }
+        addMonthRows(from, to, groupBy, rows);
+    }
+
+    /**
+     * Helper method to get the rows of a range from the monthly rollups,
+     * and the daily summaries of the days before the first whole month and
+     * after the last one.
+     * @param from      first date, inclusive, may be after to
+     * @param to        last date, inclusive
+     * @param groupBy   month or year
+     * @param rows      list the partial rows are added to
+     * @throws FlooringMasteryPersistenceException
+     */
+    private void addMonthRows(LocalDate from, LocalDate to, FlooringMasterySalesReport.GroupBy groupBy,
+            List<Map<String, FlooringMasterySalesTotals>> rows) throws FlooringMasteryPersistenceException {
+        if (to.isBefore(from)) {
+            return;
+        }
+        YearMonth first = from.getDayOfMonth() == 1 ? YearMonth.from(from) : YearMonth.from(from).plusMonths(1);
+        YearMonth last = to.equals(YearMonth.from(to).atEndOfMonth()) ? YearMonth.from(to) : YearMonth.from(to).minusMonths(1);
+        if (last.isBefore(first)) {
+            addDayRows(from, to, groupBy, rows);
+            return;
+        }
+        for (Map.Entry<YearMonth, PeriodSummary> entry : dao.getMonthlySummaries(first, last).entrySet()) {
+            String row = groupBy == FlooringMasterySalesReport.GroupBy.YEAR
+                    ? String.valueOf(entry.getKey().getYear()) : entry.getValue().getPeriod();
+            rows.add(Map.of(row, FlooringMasterySalesTotals.of(entry.getValue())));
+        }
+        addDayRows(from, first.atDay(1).minusDays(1), groupBy, rows);
+        addDayRows(last.atEndOfMonth().plusDays(1), to, groupBy, rows);
+    }
+
+    /**
+     * Helper method to get the rows of a few days from the daily summaries.
+     * @param from      first date, inclusive, may be after to
+     * @param to        last date, inclusive
+     * @param groupBy   month or year
+     * @param rows      list the partial rows are added to
+     * @throws FlooringMasteryPersistenceException
+     */
+    private void addDayRows(LocalDate from, LocalDate to, FlooringMasterySalesReport.GroupBy groupBy,
+            List<Map<String, FlooringMasterySalesTotals>> rows) throws FlooringMasteryPersistenceException {
+        if (to.isBefore(from)) {
+            return;
+        }
+        for (DailySummary summary : dao.getDailySummaries(from, to).values()) {
+            String row = groupBy == FlooringMasterySalesReport.GroupBy.YEAR
+                    ? String.valueOf(summary.getDate().getYear()) : summary.getDate().format(MONTH);
+            rows.add(Map.of(row, FlooringMasterySalesTotals.of(summary)));
+        }
+    }
+
+    /**
+     * Helper method to sum the orders of one date by group.
+     * @param orders    orders of the date
+     * @param groupBy   state or product type
+     * @return  group --> totals of the date
+     */
+    private Map<String, FlooringMasterySalesTotals> sumDate(Collection<Order> orders, FlooringMasterySalesReport.GroupBy groupBy) {
+        Map<String, FlooringMasterySalesTotals> rows = new HashMap<>();
+        for (Order order : orders) {
+            String group = groupBy == FlooringMasterySalesReport.GroupBy.STATE ? order.getState() : order.getProductType();
+            rows.merge(group, FlooringMasterySalesTotals.EMPTY.plus(order), FlooringMasterySalesTotals::plus);
+        }
+        return Map.copyOf(rows);
+    }
+}
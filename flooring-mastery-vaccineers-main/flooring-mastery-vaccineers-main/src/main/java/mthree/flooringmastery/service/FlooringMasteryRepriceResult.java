@@ -0,0 +1,70 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.service;
+
+import java.time.Duration;
+
+/**
+ * Outcome of repricing the future orders against the current catalog.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public final class FlooringMasteryRepriceResult {
+
+    private final int ordersChecked;
+    private final int ordersRepriced;
+    private final int datesWritten;
+    private final int ordersSkipped;
+    private final Duration elapsed;
+
+    /**
+     * Reprice result.
+     * @param ordersChecked     future orders looked at
+     * @param ordersRepriced    orders whose rates were out of date
+     * @param datesWritten      dates saved, once each
+     * @param ordersSkipped     orders whose state or product is no longer sold
+     * @param elapsed           time the whole reprice took
+     */
+    public FlooringMasteryRepriceResult(int ordersChecked, int ordersRepriced, int datesWritten,
+            int ordersSkipped, Duration elapsed) {
+        this.ordersChecked = ordersChecked;
+        this.ordersRepriced = ordersRepriced;
+        this.datesWritten = datesWritten;
+        this.ordersSkipped = ordersSkipped;
+        this.elapsed = elapsed;
+    }
+
+    public int getOrdersChecked() {
+        return ordersChecked;
+    }
+
+    public int getOrdersRepriced() {
+        return ordersRepriced;
+    }
+
+    public int getDatesWritten() {
+        return datesWritten;
+    }
+
+    public int getOrdersSkipped() {
+        return ordersSkipped;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return "RepriceResult{" + "ordersChecked=" + ordersChecked + ", ordersRepriced=" + ordersRepriced
+                + ", datesWritten=" + datesWritten + ", ordersSkipped=" + ordersSkipped
+                + ", elapsed=" + elapsed + '}';
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.service;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Sales of a date range, one row per state, product type, month or year.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public final class FlooringMasterySalesReport {
+
+    /** What the rows of a report are */
+    public enum GroupBy {
+        /** State abbreviation */
+        STATE,
+        PRODUCT_TYPE,
+        /** Month of the order date, as yyyy-MM */
+        MONTH,
+        /** Year of the order date, as yyyy */
+        YEAR
+    }
+
+    private final GroupBy groupBy;
+    private final LocalDate from;
+    private final LocalDate to;
+    private final Map<String, FlooringMasterySalesTotals> rows;
+    private final FlooringMasterySalesTotals total;
+    private final int datesRead;
+
+    /**
+     * Sales report.
+     * @param groupBy   what the rows are
+     * @param from      first date, inclusive
+     * @param to        last date, inclusive
+     * @param rows      row name --> totals, copied in sorted order
+     * @param datesRead dates whose orders were read, the rest came from cache
+     */
+    public FlooringMasterySalesReport(GroupBy groupBy, LocalDate from, LocalDate to,
+            Map<String, FlooringMasterySalesTotals> rows, int datesRead) {
+        this.groupBy = groupBy;
+        this.from = from;
+        this.to = to;
+        this.rows = Collections.unmodifiableMap(new TreeMap<>(rows));
+        FlooringMasterySalesTotals sum = FlooringMasterySalesTotals.EMPTY;
+        for (FlooringMasterySalesTotals row : rows.values()) {
+            sum = sum.plus(row);
+        }
+        this.total = sum;
+        this.datesRead = datesRead;
+    }
+
+    public GroupBy getGroupBy() {
+        return groupBy;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    /**
+     * Rows in order of their names.
+     * @return  row name --> totals
+     */
+    public Map<String, FlooringMasterySalesTotals> getRows() {
+        return rows;
+    }
+
+    /**
+     * Sum of every row.
+     * @return  totals of the whole range
+     */
+    public FlooringMasterySalesTotals getTotal() {
+        return total;
+    }
+
+    /**
+     * Dates whose orders had to be read for this report. Closed dates
+     * already reported are taken from the cache.
+     * @return  number of dates read
+     */
+    public int getDatesRead() {
+        return datesRead;
+    }
+
+    @Override
+    public String toString() {
+        return "SalesReport{" + "groupBy=" + groupBy + ", from=" + from + ", to=" + to
+                + ", rows=" + rows.size() + ", total=" + total + '}';
+    }
+}
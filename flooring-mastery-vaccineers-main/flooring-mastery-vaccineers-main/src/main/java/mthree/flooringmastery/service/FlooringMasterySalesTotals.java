@@ -0,0 +1,141 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.service;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+import mthree.flooringmastery.dto.DailySummary;
+import mthree.flooringmastery.dto.Money;
+import mthree.flooringmastery.dto.Order;
+import mthree.flooringmastery.dto.PeriodSummary;
+
+/**
+ * Sales of one row of a report: number of orders, area sold, revenue and
+ * tax collected. Immutable, so partial totals of different dates can be
+ * added up from any thread.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public final class FlooringMasterySalesTotals {
+
+    public static final FlooringMasterySalesTotals EMPTY
+            = new FlooringMasterySalesTotals(0, 0, Money.ZERO, Money.ZERO);
+
+    private final int orderCount;
+    private final long area;
+    private final Money revenue;
+    private final Money tax;
+
+    /**
+     * Sales totals.
+     * @param orderCount        number of orders
+     * @param areaHundredths    area sold in hundredths of ft^2
+     * @param revenue           sum of the order totals
+     * @param tax               sum of the order taxes
+     */
+    public FlooringMasterySalesTotals(int orderCount, long areaHundredths, Money revenue, Money tax) {
+        this.orderCount = orderCount;
+        this.area = areaHundredths;
+        this.revenue = revenue;
+        this.tax = tax;
+    }
+
+    /**
+     * Totals of a whole date.
+     * @param summary   summary of the date
+     * @return  totals of every order on it
+     */
+    public static FlooringMasterySalesTotals of(DailySummary summary) {
+        return new FlooringMasterySalesTotals(summary.getOrderCount(), summary.getAreaHundredths(),
+                summary.getTotal(), summary.getTax());
+    }
+
+    /**
+     * Totals of a whole month or year.
+     * @param rollup    summary of the month or year
+     * @return  totals of every order in it
+     */
+    public static FlooringMasterySalesTotals of(PeriodSummary rollup) {
+        return new FlooringMasterySalesTotals(rollup.getOrderCount(), rollup.getAreaHundredths(),
+                rollup.getTotal(), rollup.getTax());
+    }
+
+    /**
+     * Totals with one more order.
+     * @param order order to add
+     * @return  new totals
+     */
+    public FlooringMasterySalesTotals plus(Order order) {
+        Money total = order.getTotalMoney();
+        Money orderTax = order.getTaxMoney();
+        return new FlooringMasterySalesTotals(orderCount + 1, Math.addExact(area, order.getAreaHundredths()),
+                total == null ? revenue : revenue.plus(total),
+                orderTax == null ? tax : tax.plus(orderTax));
+    }
+
+    /**
+     * Sum of two totals.
+     * @param other totals to add
+     * @return  new totals
+     */
+    public FlooringMasterySalesTotals plus(FlooringMasterySalesTotals other) {
+        return new FlooringMasterySalesTotals(orderCount + other.orderCount, Math.addExact(area, other.area),
+                revenue.plus(other.revenue), tax.plus(other.tax));
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    public BigDecimal getArea() {
+        return BigDecimal.valueOf(area, 2);
+    }
+
+    public long getAreaHundredths() {
+        return area;
+    }
+
+    public Money getRevenue() {
+        return revenue;
+    }
+
+    public Money getTax() {
+        return tax;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 3;
+        hash = 67 * hash + orderCount;
+        hash = 67 * hash + Long.hashCode(area);
+        hash = 67 * hash + Objects.hashCode(revenue);
+        hash = 67 * hash + Objects.hashCode(tax);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        final FlooringMasterySalesTotals other = (FlooringMasterySalesTotals) obj;
+        return orderCount == other.orderCount && area == other.area
+                && Objects.equals(revenue, other.revenue) && Objects.equals(tax, other.tax);
+    }
+
+    @Override
+    public String toString() {
+        return "SalesTotals{" + "orderCount=" + orderCount + ", area=" + getArea()
+                + ", revenue=" + revenue + ", tax=" + tax + '}';
+    }
+}
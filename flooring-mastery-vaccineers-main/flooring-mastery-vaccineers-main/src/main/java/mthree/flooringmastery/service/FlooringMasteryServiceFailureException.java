@@ -0,0 +1,88 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.service;
+
+import mthree.flooringmastery.dao.FlooringMasteryPersistenceException;
+
+/**
+ * Service Failure Exception. Completes the futures of the asynchronous
+ * service when a call fails. The kind tells which error it was, the cause is
+ * the exception the blocking service threw.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public class FlooringMasteryServiceFailureException extends RuntimeException {
+
+    /** What went wrong */
+    public enum Kind {
+        PERSISTENCE,
+        INVALID_DATE,
+        INVALID_ORDER_NUMBER,
+        STATE_NOT_FOUND,
+        PRODUCT_NOT_FOUND,
+        INVALID_CUSTOMER_NAME,
+        INVALID_AREA,
+        /** The service was closed before the call ran */
+        CLOSED,
+        /** The write was not admitted, too many writes were queued */
+        OVERLOADED,
+        /** Any other error, e.g. a bug */
+        UNEXPECTED
+    }
+
+    private final Kind kind;
+
+    public FlooringMasteryServiceFailureException(Kind kind, String message) {
+        super(message);
+        this.kind = kind;
+    }
+
+    public FlooringMasteryServiceFailureException(Kind kind, String message, Throwable cause) {
+        super(message, cause);
+        this.kind = kind;
+    }
+
+    /**
+     * Failure of an exception thrown by the blocking service.
+     * @param cause exception thrown
+     * @return  failure of the matching kind, with the same message
+     */
+    public static FlooringMasteryServiceFailureException of(Throwable cause) {
+        if (cause instanceof FlooringMasteryServiceFailureException) {
+            return (FlooringMasteryServiceFailureException) cause;
+        }
+        return new FlooringMasteryServiceFailureException(kindOf(cause), cause.getMessage(), cause);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    private static Kind kindOf(Throwable cause) {
+        if (cause instanceof FlooringMasteryPersistenceException) {
+            return Kind.PERSISTENCE;
+        } else if (cause instanceof FlooringMasteryInvalidDateException) {
+            return Kind.INVALID_DATE;
+        } else if (cause instanceof FlooringMasteryInvalidOrderNumberException) {
+            return Kind.INVALID_ORDER_NUMBER;
+        } else if (cause instanceof FlooringMasteryStateNotFoundException) {
+            return Kind.STATE_NOT_FOUND;
+        } else if (cause instanceof FlooringMasteryProductNotFoundException) {
+            return Kind.PRODUCT_NOT_FOUND;
+        } else if (cause instanceof FlooringMasteryInvalidCustomerNameException) {
+            return Kind.INVALID_CUSTOMER_NAME;
+        } else if (cause instanceof FlooringMasteryInvalidAreaException) {
+            return Kind.INVALID_AREA;
+        } else if (cause instanceof FlooringMasteryOverloadedException) {
+            return Kind.OVERLOADED;
+        }
+        return Kind.UNEXPECTED;
+    }
+}
@@ -7,8 +7,11 @@
 package mthree.flooringmastery.service;
 
 import java.time.LocalDate;
+import java.time.Period;
+import java.util.List;
 import java.util.Map;
 import mthree.flooringmastery.dao.FlooringMasteryPersistenceException;
+import mthree.flooringmastery.dto.DailySummary;
 import mthree.flooringmastery.dto.Order;
 import mthree.flooringmastery.dto.Product;
 import mthree.flooringmastery.dto.State;
@@ -41,6 +44,27 @@ public interface FlooringMasteryServiceLayer {
             FlooringMasteryInvalidCustomerNameException,
             FlooringMasteryInvalidAreaException;
 
+    /**
+     * Adds an order once per client request id, so a retried request does
+     * not create a second order.
+     * @param date      date of the order
+     * @param order     complete order object
+     * @param requestId client request id, null to always add
+     * @return          the added Order with populated order number, or the
+     *                  order already added for the request id
+     * @throws FlooringMasteryPersistenceException
+     * @throws FlooringMasteryInvalidDateException
+     * @throws FlooringMasteryStateNotFoundException
+     * @throws FlooringMasteryProductNotFoundException 
+     */
+    public Order addOrder(LocalDate date, Order order, String requestId)
+            throws FlooringMasteryPersistenceException, 
+            FlooringMasteryInvalidDateException, 
+            FlooringMasteryStateNotFoundException, 
+            FlooringMasteryProductNotFoundException,
+            FlooringMasteryInvalidCustomerNameException,
+            FlooringMasteryInvalidAreaException;
+
     /**
      * Creates an order with the minumum information provided.
      * This does not save to anywhere, only constructs the full objecti without
@@ -72,6 +96,25 @@ public interface FlooringMasteryServiceLayer {
             FlooringMasteryInvalidDateException,
             FlooringMasteryInvalidOrderNumberException;
 
+    /**
+     * Checks a batch of orders without adding them.
+     * @param orders    orders with customer name, state, product type and area
+     * @return  every broken rule of every order, empty if all are valid
+     * @throws FlooringMasteryPersistenceException 
+     */
+    public List<FlooringMasteryOrderViolation> validateOrders(List<Order> orders)
+            throws FlooringMasteryPersistenceException;
+
+    /**
+     * Prices a batch of order drafts against one catalog snapshot. Nothing
+     * is saved or audited.
+     * @param drafts    orders with customer name, state, product type and area
+     * @return  one quote per draft, in the order of the drafts
+     * @throws FlooringMasteryPersistenceException 
+     */
+    public List<FlooringMasteryQuote> quoteOrders(List<Order> drafts)
+            throws FlooringMasteryPersistenceException;
+
     /**
      * Returns all orders for given date
      * @param date  order date
@@ -127,6 +170,40 @@ public interface FlooringMasteryServiceLayer {
     public void exportData()
             throws FlooringMasteryPersistenceException;
 
+    /**
+     * Archives orders older than the given age.
+     * @param age   orders dated before today minus this age are archived
+     * @return      number of order dates archived
+     * @throws FlooringMasteryPersistenceException 
+     */
+    public int archiveOrders(Period age)
+            throws FlooringMasteryPersistenceException;
+
+    /**
+     * Starts a batch of calls, e.g. a batch script. Added orders may be
+     * written later, together, until endBatch.
+     * @throws FlooringMasteryPersistenceException 
+     */
+    public void beginBatch()
+            throws FlooringMasteryPersistenceException;
+
+    /**
+     * Ends a batch, writing the orders it added.
+     * @throws FlooringMasteryPersistenceException 
+     */
+    public void endBatch()
+            throws FlooringMasteryPersistenceException;
+
+    /**
+     * Reprices every future order whose tax rate or product costs no longer
+     * match the state and product files, e.g. after either file changed.
+     * Each changed date is saved once and one audit record sums it up.
+     * @return  how many orders changed and how long it took
+     * @throws FlooringMasteryPersistenceException 
+     */
+    public FlooringMasteryRepriceResult repriceFutureOrders()
+            throws FlooringMasteryPersistenceException;
+
     /**
      * Gets all products
      * @return  Map of products. Name of product (key) and product dto (value)
@@ -141,4 +218,14 @@ public interface FlooringMasteryServiceLayer {
      * @throws FlooringMasteryPersistenceException 
      */
     public Map<String, State> getAllStates()
-            throws FlooringMasteryPersistenceException;}
+            throws FlooringMasteryPersistenceException;
+
+    /**
+     * Totals of the orders on a date, without reading the orders
+     * @param date  order date
+     * @return  summary of the date, with everything 0 if it has no orders
+     * @throws FlooringMasteryPersistenceException 
+     */
+    public DailySummary getDailySummary(LocalDate date)
+            throws FlooringMasteryPersistenceException;
+}
@@ -7,12 +7,23 @@
 package mthree.flooringmastery.service;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Period;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import mthree.flooringmastery.dao.FlooringMasteryAuditDao;
 import mthree.flooringmastery.dao.FlooringMasteryDao;
 import mthree.flooringmastery.dao.FlooringMasteryPersistenceException;
+import mthree.flooringmastery.dto.AuditRecord;
+import mthree.flooringmastery.dto.DailySummary;
 import mthree.flooringmastery.dto.Order;
 
 import mthree.flooringmastery.dto.Product;
@@ -34,11 +45,44 @@ public class FlooringMasteryServiceLayerImpl implements FlooringMasteryServiceLa
 
     private FlooringMasteryDao dao;
     private FlooringMasteryAuditDao auditDao;
+    private FlooringMasteryOrderValidator validator;
+    private FlooringMasteryQuoteCache quoteCache;
+    private FlooringMasteryOrderCache orderCache;
+
+    /** Quote batches smaller than this are priced on the calling thread */
+    private final int PARALLEL_QUOTES = 256;
 
-    @Autowired
     public FlooringMasteryServiceLayerImpl(FlooringMasteryDao dao, FlooringMasteryAuditDao auditDao) {
+        this(dao, auditDao, new FlooringMasteryOrderValidator(dao));
+    }
+
+    /**
+     * Service with the quote cache size of
+     * -Dflooringmastery.quoteCacheSize, 0 to turn it off (10000)
+     * and the order cache budget in bytes of
+     * -Dflooringmastery.orderCacheBytes, 0 to turn it off (32 MB)
+     */
+    @Autowired
+    public FlooringMasteryServiceLayerImpl(FlooringMasteryDao dao, FlooringMasteryAuditDao auditDao,
+            FlooringMasteryOrderValidator validator) {
+        this(dao, auditDao, validator,
+                new FlooringMasteryQuoteCache(Integer.getInteger("flooringmastery.quoteCacheSize", 10_000)));
+    }
+
+    public FlooringMasteryServiceLayerImpl(FlooringMasteryDao dao, FlooringMasteryAuditDao auditDao,
+            FlooringMasteryOrderValidator validator, FlooringMasteryQuoteCache quoteCache) {
+        this(dao, auditDao, validator, quoteCache,
+                new FlooringMasteryOrderCache(Long.getLong("flooringmastery.orderCacheBytes", 32L << 20)));
+    }
+
+    public FlooringMasteryServiceLayerImpl(FlooringMasteryDao dao, FlooringMasteryAuditDao auditDao,
+            FlooringMasteryOrderValidator validator, FlooringMasteryQuoteCache quoteCache,
+            FlooringMasteryOrderCache orderCache) {
         this.dao = dao;
         this.auditDao = auditDao;
+        this.validator = validator;
+        this.quoteCache = quoteCache;
+        this.orderCache = orderCache;
     }
 
     /**
@@ -53,13 +97,50 @@ public class FlooringMasteryServiceLayerImpl implements FlooringMasteryServiceLa
      */
     @Override
     public Order addOrder(LocalDate date, Order order) throws FlooringMasteryPersistenceException, FlooringMasteryInvalidDateException, FlooringMasteryStateNotFoundException, FlooringMasteryProductNotFoundException, FlooringMasteryInvalidCustomerNameException, FlooringMasteryInvalidAreaException {
+        return addOrder(date, order, null);
+    }
+
+    /**
+     * Adds an order once per client request id. A retry gets the order
+     * already added back from the dao, which is not audited again. The
+     * request id is looked up before the order is checked, so a retry still
+     * gets its order once the date is no longer in the future.
+     * @param date      date of the order
+     * @param order     complete order object
+     * @param requestId client request id, null to always add
+     * @return          the added Order with populated order number, or the
+     *                  order already added for the request id
+     * @throws FlooringMasteryPersistenceException
+     * @throws FlooringMasteryInvalidDateException
+     * @throws FlooringMasteryStateNotFoundException
+     * @throws FlooringMasteryProductNotFoundException 
+     */
+    @Override
+    public Order addOrder(LocalDate date, Order order, String requestId) throws FlooringMasteryPersistenceException, FlooringMasteryInvalidDateException, FlooringMasteryStateNotFoundException, FlooringMasteryProductNotFoundException, FlooringMasteryInvalidCustomerNameException, FlooringMasteryInvalidAreaException {
+        if (requestId != null) {
+            Order placed = dao.getRequestedOrder(requestId);
+            if (placed != null) {
+                return placed;
+            }
+        }
         if(date.isBefore(LocalDate.now()) || date.isEqual(LocalDate.now())){
             throw new FlooringMasteryInvalidDateException("ERROR: Order date is not in the future.");
         }
         updateRemainingInfo(order);
-        order = dao.addOrder(date, order);
-        auditDao.writeAuditEntry("NEW ORDER ADDED | Order Date: " + date.format(DateTimeFormatter.ISO_DATE) + " | " + order.toString());
-        return order;
+        Order added;
+        try {
+            added = requestId == null ? dao.addOrder(date, order) : dao.addOrder(date, order, requestId);
+        } finally {
+            orderCache.invalidate(date);
+        }
+        if (added != order) {
+            //a retry, the first request added and audited the order
+            return added;
+        }
+        auditDao.writeAuditRecord(new AuditRecord(LocalDateTime.now(), AuditRecord.Operation.ORDER_ADDED,
+                date, added.getOrderNumber(), null, AuditRecord.describe(added),
+                requestId == null ? null : "Request: " + requestId));
+        return added;
     }
 
     /**
@@ -89,7 +170,7 @@ public class FlooringMasteryServiceLayerImpl implements FlooringMasteryServiceLa
      */
     @Override
     public Order getOrder(LocalDate date, int orderNumber) throws FlooringMasteryPersistenceException, FlooringMasteryInvalidOrderNumberException, FlooringMasteryInvalidDateException{
-        Map<Integer, Order> orders = dao.getAllOrders(date);
+        Map<Integer, Order> orders = readOrders(date);
         if (orders == null) {
             throw new FlooringMasteryInvalidDateException("ERROR: No orders exist for this date.");
         }
@@ -107,7 +188,7 @@ public class FlooringMasteryServiceLayerImpl implements FlooringMasteryServiceLa
      * @param date
      * @param orderNumber
      * @param newOrder
-     * @return
+     * @return  the order as it was saved
      * @throws FlooringMasteryPersistenceException
      * @throws mthree.flooringmastery.service.FlooringMasteryStateNotFoundException
      * @throws mthree.flooringmastery.service.FlooringMasteryProductNotFoundException
@@ -116,29 +197,36 @@ public class FlooringMasteryServiceLayerImpl implements FlooringMasteryServiceLa
      */
     @Override
     public Order editOrder(LocalDate date, int orderNumber, Order newOrder) throws FlooringMasteryPersistenceException, FlooringMasteryStateNotFoundException, FlooringMasteryProductNotFoundException, FlooringMasteryInvalidOrderNumberException, FlooringMasteryInvalidDateException, FlooringMasteryInvalidCustomerNameException, FlooringMasteryInvalidAreaException {
-        Order editingOrder  = getOrder(date, orderNumber);
+        Order savedOrder = getOrder(date, orderNumber);
+        //a copy is changed, readers of the saved order never see half an edit
+        Order editingOrder = new Order(savedOrder);
         updateOrder(editingOrder, newOrder);
         updateRemainingInfo(editingOrder);
-        Order oldOrder = dao.editOrder(date, orderNumber, editingOrder);
-        auditDao.writeAuditEntry("ORDER EDITED | Order Date: " +  date.format(DateTimeFormatter.ISO_DATE) + " | " + editingOrder.toString());
-        return oldOrder;
+        try {
+            dao.editOrder(date, orderNumber, editingOrder);
+        } finally {
+            orderCache.invalidate(date);
+        }
+        auditDao.writeAuditRecord(new AuditRecord(LocalDateTime.now(), AuditRecord.Operation.ORDER_EDITED,
+                date, orderNumber, AuditRecord.describe(savedOrder), AuditRecord.describe(editingOrder), null));
+        return editingOrder;
     }
     
     /**
      * Returns all orders for given date
      * @param date  order date
-     * @return      map of order num --> order object
+     * @return      read only map of order num --> order object
      * @throws FlooringMasteryPersistenceException
      * @throws FlooringMasteryInvalidDateException 
      */
     @Override
     public Map<Integer, Order> getAllOrders(LocalDate date) throws FlooringMasteryPersistenceException, FlooringMasteryInvalidDateException{
-        Map<Integer, Order> allOrders = dao.getAllOrders(date);
+        Map<Integer, Order> allOrders = readOrders(date);
         if(allOrders == null || allOrders.isEmpty()) {
             throw new FlooringMasteryInvalidDateException("Error, no orders exist for that date.");
         }
         
-        return dao.getAllOrders(date);
+        return allOrders;
     }
 
     /**
@@ -153,12 +241,39 @@ public class FlooringMasteryServiceLayerImpl implements FlooringMasteryServiceLa
     @Override
     public Order removeOrder(LocalDate date, int orderNumber) throws FlooringMasteryPersistenceException, FlooringMasteryInvalidOrderNumberException, FlooringMasteryInvalidDateException {
         getOrder(date, orderNumber);
-        Order order = dao.removeOrder(date, orderNumber);
-        auditDao.writeAuditEntry("ORDER DELETED | Order Date: " + date.format(DateTimeFormatter.ISO_DATE) + " | " + order.toString());
+        Order order;
+        try {
+            order = dao.removeOrder(date, orderNumber);
+        } finally {
+            orderCache.invalidate(date);
+        }
+        auditDao.writeAuditRecord(new AuditRecord(LocalDateTime.now(), AuditRecord.Operation.ORDER_REMOVED,
+                date, orderNumber, AuditRecord.describe(order), null, null));
         
         return order;
     }
     
+    /**
+     * Helper method to read the orders of a date through the order cache,
+     * checking the orders version of the date in the dao first.
+     * @param date  order date
+     * @return  read only orders, null if there are none
+     * @throws FlooringMasteryPersistenceException 
+     */
+    private Map<Integer, Order> readOrders(LocalDate date) throws FlooringMasteryPersistenceException {
+        //the version is got before the orders, so a change in between is read next time
+        long version = dao.getOrdersVersion(date);
+        Map<Integer, Order> orders = orderCache.get(date, version);
+        if (orders == null) {
+            long ticket = orderCache.ticket();
+            orders = dao.getAllOrders(date);
+            if (orders != null) {
+                orderCache.put(date, orders, version, ticket);
+            }
+        }
+        return orders;
+    }
+
     /**
      * This method will get the remaining order that has only what the user
      * has sent input for. This method will update the remaining variables that
@@ -174,33 +289,51 @@ public class FlooringMasteryServiceLayerImpl implements FlooringMasteryServiceLa
             FlooringMasteryProductNotFoundException,
             FlooringMasteryInvalidCustomerNameException,
             FlooringMasteryInvalidAreaException{
-        State state = dao.getAllStates().get(order.getState());
-        if(state == null) {
-            throw new FlooringMasteryStateNotFoundException("ERROR: State was not found.");
-        }
+        FlooringMasteryCatalogSnapshot catalog = validator.validate(order);
+        applyCatalog(order, catalog);
+    }
+
+    /**
+     * Points a validated order at its state and product, takes their rates
+     * and calculates the rest.
+     * @param order     validated order
+     * @param catalog   catalog it was validated against
+     */
+    private void applyCatalog(Order order, FlooringMasteryCatalogSnapshot catalog) {
+        State state = catalog.getState(order.getState());
+        Product product = catalog.getProduct(order.getProductType());
         
-        if(!order.getCustomerName().trim().matches("[a-zA-Z0-9 \\.]+")) {
-            throw new FlooringMasteryInvalidCustomerNameException("Name must be numbers, letters, dots, or space");
-        }
+        order.setStateEntry(state);
+        order.setProductEntry(product);
+        order.setCostPerSquareFoot(product.getCostPerSquareFootMoney());
+        order.setLaborCostPerSquareFoot(product.getLaborCostPerSquareFootMoney());
+        order.setTaxRateBasisPoints(state.getTaxRateBasisPoints());
         
-        Product product = dao.getAllProducts().get(order.getProductType());
-        if(product == null) {
-            throw new FlooringMasteryProductNotFoundException("ERROR: Product was not found.");
+        //the rates are the catalog's, so the version keys them
+        if (!quoteCache.applyPrices(catalog.getVersion(), order)) {
+            calculateRemainingInfo(order);
+            quoteCache.putPrices(catalog.getVersion(), order);
         }
-        
-        if(order.getArea().compareTo(new BigDecimal("100")) < 0){
-            throw new FlooringMasteryInvalidAreaException("ERROR: Area must be at least 100ft^2.");
+    }
+
+    /**
+     * Helper method to quote one draft. Prices a copy, so the draft can be
+     * changed and quoted again.
+     * @param draft     order draft
+     * @param catalog   catalog of the whole batch
+     * @return  quote of the draft
+     */
+    private FlooringMasteryQuote quote(Order draft, FlooringMasteryCatalogSnapshot catalog) {
+        Order order = new Order();
+        order.setCustomerName(draft.getCustomerName());
+        order.setState(draft.getState());
+        order.setProductType(draft.getProductType());
+        order.setAreaHundredths(draft.getAreaHundredths());
+        List<FlooringMasteryOrderViolation.Rule> violations = validator.check(order, catalog);
+        if (violations.isEmpty()) {
+            applyCatalog(order, catalog);
         }
-        
-        BigDecimal costPerSquareFoot = product.getCostPerSquareFoot();
-        BigDecimal laborCostPerSquareFoot = product.getLaborCostPerSquareFoot();
-        BigDecimal taxRate = state.getTaxRate();
-        
-        order.setCostPerSquareFoot(costPerSquareFoot);
-        order.setLaborCostPerSquareFoot(laborCostPerSquareFoot);
-        order.setTaxRate(taxRate);
-        
-        calculateRemainingInfo(order);
+        return new FlooringMasteryQuote(order, violations, catalog.getVersion());
     }
 
     /**
@@ -211,15 +344,7 @@ public class FlooringMasteryServiceLayerImpl implements FlooringMasteryServiceLa
      * @param order 
      */
     private void calculateRemainingInfo(Order order) {
-        BigDecimal materialCost = order.getArea().multiply(order.getCostPerSquareFoot());
-        BigDecimal laborCost = order.getArea().multiply(order.getLaborCostPerSquareFoot());
-        
-        BigDecimal tax = order.getTaxRate().divide(new BigDecimal("100")).multiply(materialCost.add(laborCost));
-        BigDecimal total = materialCost.add(laborCost.add(tax));
-        order.setMaterialCost(materialCost);
-        order.setLaborCost(laborCost);
-        order.setTax(tax);
-        order.setTotal(total);
+        FlooringMasteryPricing.price(order);
     }
 
     /**
@@ -253,6 +378,52 @@ public class FlooringMasteryServiceLayerImpl implements FlooringMasteryServiceLa
         }
     }
     
+    /**
+     * Checks a batch of orders without adding them.
+     * @param orders    orders with customer name, state, product type and area
+     * @return  every broken rule of every order, empty if all are valid
+     * @throws FlooringMasteryPersistenceException 
+     */
+    @Override
+    public List<FlooringMasteryOrderViolation> validateOrders(List<Order> orders) throws FlooringMasteryPersistenceException {
+        return validator.validateAll(orders);
+    }
+
+    /**
+     * Prices a batch of order drafts against one catalog snapshot. Nothing
+     * is saved or audited. Large batches are priced in parallel on the
+     * common fork-join pool.
+     * @param drafts    orders with customer name, state, product type and area
+     * @return  one quote per draft, in the order of the drafts
+     * @throws FlooringMasteryPersistenceException 
+     */
+    @Override
+    public List<FlooringMasteryQuote> quoteOrders(List<Order> drafts) throws FlooringMasteryPersistenceException {
+        FlooringMasteryCatalogSnapshot catalog = validator.getCatalog();
+        Stream<Order> stream = drafts.stream();
+        if (drafts.size() >= PARALLEL_QUOTES) {
+            //an ordered stream keeps the results in input order
+            stream = stream.parallel();
+        }
+        return stream.map(draft -> quote(draft, catalog)).collect(Collectors.toList());
+    }
+
+    /**
+     * Cache of prices by state, product type and area, with its hit rate.
+     * @return  the quote cache
+     */
+    public FlooringMasteryQuoteCache getQuoteCache() {
+        return quoteCache;
+    }
+
+    /**
+     * Read-through cache of the orders of a date, with its hit rate.
+     * @return  the order cache
+     */
+    public FlooringMasteryOrderCache getOrderCache() {
+        return orderCache;
+    }
+
     /**
      * Gets all products
      * @return  Map of products. Name of product (key) and product dto (value)
@@ -270,7 +441,142 @@ public class FlooringMasteryServiceLayerImpl implements FlooringMasteryServiceLa
     @Override
     public void exportData() throws FlooringMasteryPersistenceException{
         dao.exportData();
-        auditDao.writeAuditEntry("DATA EXPORTED TO BACKUP");
+        auditDao.writeAuditRecord(new AuditRecord(LocalDateTime.now(), AuditRecord.Operation.DATA_EXPORTED,
+                null, 0, null, null, "Data exported to backup"));
+    }
+
+    /**
+     * Archives orders older than the given age.
+     * @param age   orders dated before today minus this age are archived
+     * @return      number of order dates archived
+     * @throws FlooringMasteryPersistenceException 
+     */
+    @Override
+    public int archiveOrders(Period age) throws FlooringMasteryPersistenceException {
+        LocalDate cutoff = LocalDate.now().minus(age);
+        int archivedDates;
+        try {
+            archivedDates = dao.archiveOrders(cutoff);
+        } finally {
+            orderCache.invalidateAll();
+        }
+        auditDao.writeAuditRecord(new AuditRecord(LocalDateTime.now(), AuditRecord.Operation.ORDERS_ARCHIVED,
+                null, 0, null, null, "Before: " + cutoff.format(DateTimeFormatter.ISO_DATE) + " | Dates: " + archivedDates));
+        return archivedDates;
+    }
+
+    /**
+     * Starts a batch in the dao. Reads still see the added orders at once.
+     * @throws FlooringMasteryPersistenceException 
+     */
+    @Override
+    public void beginBatch() throws FlooringMasteryPersistenceException {
+        dao.beginBatch();
+    }
+
+    /**
+     * Ends the batch of the dao, writing the orders it added.
+     * @throws FlooringMasteryPersistenceException 
+     */
+    @Override
+    public void endBatch() throws FlooringMasteryPersistenceException {
+        dao.endBatch();
+    }
+
+    /**
+     * Reprices every future order whose tax rate or product costs no longer
+     * match the catalog. The dao reads one date at a time, the orders are
+     * checked in parallel, and each changed date is priced and saved once
+     * with all of its changed orders. Orders whose state or product is no
+     * longer in the catalog are left alone, and so are orders edited or
+     * removed since they were read.
+     * @return  how many orders changed and how long it took
+     * @throws FlooringMasteryPersistenceException 
+     */
+    @Override
+    public FlooringMasteryRepriceResult repriceFutureOrders() throws FlooringMasteryPersistenceException {
+        long start = System.nanoTime();
+        FlooringMasteryCatalogSnapshot catalog = validator.getCatalog();
+        List<FlooringMasteryDatedOrder> futureOrders = new ArrayList<>();
+        for (LocalDate date : dao.getDailySummaries(LocalDate.now().plusDays(1), LocalDate.MAX).keySet()) {
+            Map<Integer, Order> dateOrders = dao.getAllOrders(date);
+            if (dateOrders != null) {
+                for (Order order : dateOrders.values()) {
+                    futureOrders.add(new FlooringMasteryDatedOrder(date, order));
+                }
+            }
+        }
+        
+        int skipped = (int) futureOrders.parallelStream()
+                .filter(dated -> catalog.getState(dated.getOrder().getState()) == null
+                        || catalog.getProduct(dated.getOrder().getProductType()) == null)
+                .count();
+        //priced in parallel, each date then saved once: date --> (read order --> repriced copy)
+        Map<LocalDate, List<Map.Entry<Order, Order>>> stale = futureOrders.parallelStream()
+                .filter(dated -> isStale(dated.getOrder(), catalog))
+                .collect(Collectors.groupingByConcurrent(FlooringMasteryDatedOrder::getDate,
+                        Collectors.mapping(dated -> Map.entry(dated.getOrder(), reprice(dated.getOrder(), catalog)),
+                                Collectors.toList())));
+        //orders changed since they were read are left to the next reprice
+        int repricedOrders = 0;
+        int datesWritten = 0;
+        for (Map.Entry<LocalDate, List<Map.Entry<Order, Order>>> entry : new TreeMap<>(stale).entrySet()) {
+            List<Order> read = new ArrayList<>();
+            List<Order> repriced = new ArrayList<>();
+            for (Map.Entry<Order, Order> pair : entry.getValue()) {
+                read.add(pair.getKey());
+                repriced.add(pair.getValue());
+            }
+            List<Order> saved;
+            try {
+                saved = dao.editUnchangedOrders(entry.getKey(), read, repriced);
+            } finally {
+                orderCache.invalidate(entry.getKey());
+            }
+            repricedOrders += saved.size();
+            datesWritten += saved.isEmpty() ? 0 : 1;
+        }
+        
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        auditDao.writeAuditRecord(new AuditRecord(LocalDateTime.now(), AuditRecord.Operation.ORDERS_REPRICED,
+                null, 0, null, null, "Orders: " + repricedOrders + " of " + futureOrders.size()
+                + " | Dates: " + datesWritten + " | Skipped: " + skipped + " | Took: " + elapsed.toMillis() + "ms"));
+        return new FlooringMasteryRepriceResult(futureOrders.size(), repricedOrders, datesWritten, skipped, elapsed);
+    }
+
+    /**
+     * Helper method to check if an order has other rates than the catalog.
+     * @param order     saved order
+     * @param catalog   current catalog
+     * @return  true if its state and product are sold and any rate changed
+     */
+    private boolean isStale(Order order, FlooringMasteryCatalogSnapshot catalog) {
+        State state = catalog.getState(order.getState());
+        Product product = catalog.getProduct(order.getProductType());
+        if (state == null || product == null) {
+            return false;
+        }
+        return order.getTaxRateBasisPoints() != state.getTaxRateBasisPoints()
+                || !Objects.equals(order.getCostPerSquareFootMoney(), product.getCostPerSquareFootMoney())
+                || !Objects.equals(order.getLaborCostPerSquareFootMoney(), product.getLaborCostPerSquareFootMoney());
+    }
+
+    /**
+     * Helper method to price a copy of a saved order at the catalog rates.
+     * The saved order is not changed, since other threads may be reading it.
+     * @param order     saved order
+     * @param catalog   current catalog
+     * @return  repriced copy with the same order number
+     */
+    private Order reprice(Order order, FlooringMasteryCatalogSnapshot catalog) {
+        Order repriced = new Order();
+        repriced.setOrderNumber(order.getOrderNumber());
+        repriced.setCustomerName(order.getCustomerName());
+        repriced.setState(order.getState());
+        repriced.setProductType(order.getProductType());
+        repriced.setAreaHundredths(order.getAreaHundredths());
+        applyCatalog(repriced, catalog);
+        return repriced;
     }
 
     /**
@@ -283,4 +589,15 @@ public class FlooringMasteryServiceLayerImpl implements FlooringMasteryServiceLa
         return dao.getAllStates();
 
     }
+
+    /**
+     * Totals of the orders on a date, without reading the orders
+     * @param date  order date
+     * @return  summary of the date, with everything 0 if it has no orders
+     * @throws FlooringMasteryPersistenceException 
+     */
+    @Override
+    public DailySummary getDailySummary(LocalDate date) throws FlooringMasteryPersistenceException {
+        return dao.getDailySummary(date);
+    }
 }
@@ -13,6 +13,9 @@ import java.util.List;
 import mthree.flooringmastery.dto.Order;
 import mthree.flooringmastery.dto.Product;
 import mthree.flooringmastery.dto.State;
+import mthree.flooringmastery.service.FlooringMasteryCustomerSpend;
+import mthree.flooringmastery.service.FlooringMasteryDatedOrder;
+import mthree.flooringmastery.service.FlooringMasteryRepriceResult;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -57,11 +60,14 @@ public class FlooringMasteryView {
         io.print("* 3. Edit an Order");
         io.print("* 4. Remove an Order");
         io.print("* 5. Export All Data");
-        io.print("* 6. Quit");
+        io.print("* 6. Top Customers");
+        io.print("* 7. Largest Orders");
+        io.print("* 8. Reprice Future Orders");
+        io.print("* 9. Quit");
         io.print("*");
         displayLine();
 
-        return io.readInt("Choose from menu above: ", 1, 6);
+        return io.readInt("Choose from menu above: ", 1, 9);
     }
 
     /**
@@ -327,6 +333,63 @@ public class FlooringMasteryView {
         displayLine("=");
     }
 
+    public void displayArchivedDates(int archivedDates) {
+        displayLine("=");
+        io.print("Archived " + archivedDates + " order date(s).");
+        displayLine("=");
+    }
+
+    public int getReportSize(String prompt) {
+        return io.readInt(prompt + " (1-1000): ", 1, 1000);
+    }
+
+    /**
+     * Displays customers ranked by spend
+     *
+     * @param customers customers, biggest spender first
+     */
+    public void displayTopCustomers(List<FlooringMasteryCustomerSpend> customers) {
+        displayLine("-");
+        for (int i = 0; i < customers.size(); i++) {
+            FlooringMasteryCustomerSpend customer = customers.get(i);
+            displayLine((i + 1) + ". " + customer.getCustomerName(), " ",
+                    customer.getOrderCount() + " order(s)  $" + customer.getTotal());
+        }
+        if (customers.isEmpty()) {
+            io.print("No orders in this range.");
+        }
+        displayLine("-");
+    }
+
+    /**
+     * Displays orders ranked by total
+     *
+     * @param orders orders, largest first
+     */
+    public void displayLargestOrders(List<FlooringMasteryDatedOrder> orders) {
+        displayLine("-");
+        for (int i = 0; i < orders.size(); i++) {
+            Order order = orders.get(i).getOrder();
+            displayLine((i + 1) + ". " + orders.get(i).getDate().format(DateTimeFormatter.ISO_DATE)
+                    + " #" + order.getOrderNumber() + " " + order.getCustomerName(), " ", "$" + order.getTotal());
+        }
+        if (orders.isEmpty()) {
+            io.print("No orders in this range.");
+        }
+        displayLine("-");
+    }
+
+    public void displayRepriceResult(FlooringMasteryRepriceResult result) {
+        displayLine("=");
+        io.print("Repriced " + result.getOrdersRepriced() + " of " + result.getOrdersChecked()
+                + " future order(s) on " + result.getDatesWritten() + " date(s) in "
+                + result.getElapsed().toMillis() + "ms.");
+        if (result.getOrdersSkipped() > 0) {
+            io.print(result.getOrdersSkipped() + " order(s) have a state or product no longer sold and were not changed.");
+        }
+        displayLine("=");
+    }
+
     public void displayNoSuchOrder() {
         displayLine("=");
         io.print("No such order found.");
@@ -0,0 +1,110 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.benchmark;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import mthree.flooringmastery.dao.FlooringMasteryAuditDaoFileImpl;
+import mthree.flooringmastery.dao.FlooringMasteryLatencyHistogram;
+import mthree.flooringmastery.dto.Order;
+import mthree.flooringmastery.service.FlooringMasteryDaoFileImplTestStub;
+import mthree.flooringmastery.service.FlooringMasteryServiceLayerImpl;
+
+/**
+ * Throughput and latency of FlooringMasteryServiceLayerImpl.addOrder under
+ * each audit durability mode. The order dao is the test stub, so the
+ * numbers show the audit log and not the order files.
+ * Not a unit test, run the main method by hand, with the working directory
+ * on the disk to measure:
+ * java -cp target/classes:target/test-classes mthree.flooringmastery.benchmark.AuditDurabilityBenchmark [ordersPerThread]
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public class AuditDurabilityBenchmark {
+
+    private static final int[] THREADS = {1, 8};
+
+    public static void main(String[] args) throws Exception {
+        int ordersPerThread = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        Path folder = Files.createTempDirectory(Path.of("."), "audit-benchmark");
+        try {
+            for (int threads : THREADS) {
+                for (FlooringMasteryAuditDaoFileImpl.Durability durability : FlooringMasteryAuditDaoFileImpl.Durability.values()) {
+                    //twice, the first run warms up
+                    for (int run = 0; run < 2; run++) {
+                        FlooringMasteryAuditDaoFileImpl auditDao = new FlooringMasteryAuditDaoFileImpl(
+                                folder.resolve("audit.txt").toString(), 1024, 100,
+                                FlooringMasteryAuditDaoFileImpl.Backpressure.BLOCK, 10L * 1024 * 1024, ChronoUnit.DAYS,
+                                0, Duration.ZERO, durability);
+                        FlooringMasteryServiceLayerImpl service = new FlooringMasteryServiceLayerImpl(
+                                new FlooringMasteryDaoFileImplTestStub(), auditDao);
+                        FlooringMasteryLatencyHistogram latency = new FlooringMasteryLatencyHistogram();
+                        long start = System.nanoTime();
+                        run(service, threads, ordersPerThread, latency);
+                        long nanos = System.nanoTime() - start;
+                        auditDao.close();
+                        if (run == 1) {
+                            System.out.printf("%d threads %-15s %9.0f orders/s, p99<=%dns, max=%dns%n",
+                                    threads, durability, (double) threads * ordersPerThread * 1e9 / nanos,
+                                    latency.getPercentile(99), latency.getMax());
+                        }
+                        for (File file : folder.toFile().listFiles()) {
+                            file.delete();
+                        }
+                    }
+                }
+            }
+        } finally {
+            for (File file : folder.toFile().listFiles()) {
+                file.delete();
+            }
+            folder.toFile().delete();
+        }
+    }
+
+    /**
+     * Helper method to add orders from several threads at once
+     */
+    private static void run(FlooringMasteryServiceLayerImpl service, int threads, int ordersPerThread,
+            FlooringMasteryLatencyHistogram latency) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> callers = new ArrayList<>();
+        LocalDate date = LocalDate.now().plusDays(1);
+        for (int t = 0; t < threads; t++) {
+            Thread caller = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < ordersPerThread; i++) {
+                        Order order = new Order("Benchmark Customer", "TX", "Test Product", new BigDecimal("150.00"));
+                        long callStart = System.nanoTime();
+                        service.addOrder(date, order);
+                        latency.record(System.nanoTime() - callStart);
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            callers.add(caller);
+            caller.start();
+        }
+        start.countDown();
+        for (Thread caller : callers) {
+            caller.join();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.benchmark;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import mthree.flooringmastery.dao.FlooringMasteryAuditDaoFileImpl;
+import mthree.flooringmastery.dao.FlooringMasteryLatencyHistogram;
+import mthree.flooringmastery.dto.AuditRecord;
+
+/**
+ * Measures what queueing an audit record costs the calling thread, for the
+ * ring buffer of the audit dao and for the blocking queue it replaced.
+ * The old path marshalled the line on the caller and put it on an
+ * ArrayBlockingQueue; here a thread drains that queue without writing, so
+ * it only shows the cost of the hand-off.
+ * Not a unit test, run the main method by hand:
+ * java -cp target/classes:target/test-classes mthree.flooringmastery.benchmark.AuditPipelineBenchmark [recordsPerThread]
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public class AuditPipelineBenchmark {
+
+    private static final int[] THREADS = {1, 2, 4, 8};
+    private static final int QUEUE_SIZE = 1024;
+    private static final String BEFORE = "CustomerName=Doctor Who;State=WA;TaxRate=9.25;ProductType=Wood;Area=243.00;"
+            + "CostPerSquareFoot=5.15;LaborCostPerSquareFoot=4.75;MaterialCost=1251.45;LaborCost=1154.25;"
+            + "Tax=222.53;Total=2628.23";
+
+    /** Hands a record to the audit log */
+    private interface Sink {
+        void accept(AuditRecord record) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int recordsPerThread = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        Path folder = Files.createTempDirectory("audit-benchmark");
+        try {
+            for (int threads : THREADS) {
+                //twice, the first run warms up
+                for (int run = 0; run < 2; run++) {
+                    FlooringMasteryLatencyHistogram ring = runRing(folder, threads, recordsPerThread);
+                    FlooringMasteryLatencyHistogram queue = runQueue(threads, recordsPerThread);
+                    if (run == 1) {
+                        System.out.printf("%d threads%n  ring buffer:    %s%n  blocking queue: %s%n", threads, ring, queue);
+                    }
+                }
+            }
+        } finally {
+            File[] files = folder.toFile().listFiles();
+            for (File file : files) {
+                file.delete();
+            }
+            folder.toFile().delete();
+        }
+    }
+
+    private static FlooringMasteryLatencyHistogram runRing(Path folder, int threads, int recordsPerThread)
+            throws Exception {
+        FlooringMasteryAuditDaoFileImpl auditDao = new FlooringMasteryAuditDaoFileImpl(
+                folder.resolve("audit.txt").toString(), QUEUE_SIZE, 100, FlooringMasteryAuditDaoFileImpl.Backpressure.BLOCK);
+        run(threads, recordsPerThread, auditDao::writeAuditRecord);
+        auditDao.close();
+        return auditDao.getWriteLatency();
+    }
+
+    private static FlooringMasteryLatencyHistogram runQueue(int threads, int recordsPerThread) throws Exception {
+        BlockingQueue<String> queue = new ArrayBlockingQueue<>(QUEUE_SIZE + 1);
+        Thread consumer = new Thread(() -> {
+            List<String> batch = new ArrayList<>();
+            long left = (long) threads * recordsPerThread;
+            try {
+                while (left > 0) {
+                    batch.add(queue.take());
+                    left -= 1 + queue.drainTo(batch);
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        consumer.start();
+        FlooringMasteryLatencyHistogram latency = new FlooringMasteryLatencyHistogram();
+        run(threads, recordsPerThread, record -> {
+            long start = System.nanoTime();
+            queue.put(marshall(record) + System.lineSeparator());
+            latency.record(System.nanoTime() - start);
+        });
+        consumer.join();
+        return latency;
+    }
+
+    /**
+     * Helper method to write records from several threads at once
+     */
+    private static void run(int threads, int recordsPerThread, Sink sink) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread producer = new Thread(() -> {
+                try {
+                    start.await();
+                    LocalDate orderDate = LocalDate.of(2022, 3, 1);
+                    for (int i = 0; i < recordsPerThread; i++) {
+                        sink.accept(new AuditRecord(LocalDateTime.now(), AuditRecord.Operation.ORDER_EDITED,
+                                orderDate, i % 1000 + 1, BEFORE, BEFORE, null));
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        start.countDown();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+    }
+
+    /**
+     * The marshalling the callers did before, without escaping
+     */
+    private static String marshall(AuditRecord record) {
+        return record.getTimestamp() + "|" + record.getOperation() + "|" + record.getOrderDate() + "|"
+                + record.getOrderNumber() + "|" + record.getBefore() + "|" + record.getAfter() + "|";
+    }
+}
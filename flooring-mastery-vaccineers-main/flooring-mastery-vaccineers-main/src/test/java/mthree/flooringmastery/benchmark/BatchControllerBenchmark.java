@@ -0,0 +1,109 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import mthree.flooringmastery.controller.FlooringMasteryBatchController;
+import mthree.flooringmastery.dao.FlooringMasteryAuditDaoFileImpl;
+import mthree.flooringmastery.dao.FlooringMasteryDaoFileImpl;
+import mthree.flooringmastery.service.FlooringMasteryReportServiceImpl;
+import mthree.flooringmastery.service.FlooringMasteryServiceLayerImpl;
+
+/**
+ * Throughput of FlooringMasteryBatchController over the file dao. A script
+ * of adds all on one date, then one of adds spread over 100 dates, then one
+ * getting each added order. Each script is one dao batch: the order folder
+ * is scanned once, added orders are appended per date and the summary and
+ * rollup files written once, every 4096 orders and at the end. Each add
+ * queues an audit entry.
+ * Not a unit test, run the main method by hand, with the working directory
+ * on the disk to measure and next to Test/Data:
+ * java -cp target/classes:target/test-classes:[dependencies] mthree.flooringmastery.benchmark.BatchControllerBenchmark [commands]
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public class BatchControllerBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int commands = args.length > 0 ? Integer.parseInt(args[0]) : 3_000;
+        Path folder = Files.createTempDirectory(Paths.get("."), "batch-benchmark");
+        try {
+            //twice, the first run warms up
+            for (int run = 0; run < 2; run++) {
+                Files.createDirectories(folder.resolve("Data"));
+                Files.copy(Paths.get("Test/Data/Products.txt"), folder.resolve("Data/Products.txt"));
+                Files.copy(Paths.get("Test/Data/Taxes.txt"), folder.resolve("Data/Taxes.txt"));
+                FlooringMasteryDaoFileImpl dao = new FlooringMasteryDaoFileImpl(folder.resolve("Orders").toString(),
+                        folder.resolve("Data/Products.txt").toString(), folder.resolve("Data/Taxes.txt").toString(),
+                        folder.resolve("DataExport.txt").toString());
+                FlooringMasteryAuditDaoFileImpl auditDao = new FlooringMasteryAuditDaoFileImpl(folder.resolve("audit.txt").toString());
+                FlooringMasteryBatchController batch = new FlooringMasteryBatchController(
+                        new FlooringMasteryServiceLayerImpl(dao, auditDao), new FlooringMasteryReportServiceImpl(dao));
+                LocalDate date = LocalDate.now().plusDays(1);
+
+                StringBuilder oneDate = new StringBuilder();
+                StringBuilder manyDates = new StringBuilder();
+                StringBuilder gets = new StringBuilder();
+                for (int i = 0; i < commands; i++) {
+                    oneDate.append("add|").append(date).append("|Benchmark Customer|TX|Tile|150.00\n");
+                    manyDates.append("add|").append(date.plusDays(1 + i % 100)).append("|Benchmark Customer|TX|Tile|150.00\n");
+                    gets.append("get|").append(date).append('|').append(i + 1).append('\n');
+                }
+                long oneDateNanos = time(batch, oneDate);
+                long manyDatesNanos = time(batch, manyDates);
+                long getNanos = time(batch, gets);
+                auditDao.close();
+                if (run == 1) {
+                    System.out.printf("add, one date    %9.0f commands/s%n", commands * 1e9 / oneDateNanos);
+                    System.out.printf("add, 100 dates   %9.0f commands/s%n", commands * 1e9 / manyDatesNanos);
+                    System.out.printf("get              %9.0f commands/s%n", commands * 1e9 / getNanos);
+                }
+                delete(folder.toFile());
+                Files.createDirectories(folder);
+            }
+        } finally {
+            delete(folder.toFile());
+        }
+    }
+
+    /**
+     * Helper method to run a script and time it
+     * @return  nanoseconds the script took
+     */
+    private static long time(FlooringMasteryBatchController batch, CharSequence script) throws Exception {
+        long start = System.nanoTime();
+        int failed = batch.run(new BufferedReader(new StringReader(script.toString())), Writer.nullWriter());
+        long nanos = System.nanoTime() - start;
+        if (failed > 0) {
+            throw new IllegalStateException(failed + " commands failed");
+        }
+        return nanos;
+    }
+
+    /**
+     * Helper method to delete a folder and everything in it
+     */
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import mthree.flooringmastery.dao.FlooringMasteryIntMap;
+
+/**
+ * Compares the int map with HashMap for order number --> order lookups.
+ * Reports lookup latency and bytes per entry.
+ * Not a unit test, run the main method by hand:
+ * java -cp target/classes:target/test-classes mthree.flooringmastery.benchmark.OrderNumberMapBenchmark [entries]
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public class OrderNumberMapBenchmark {
+
+    private static final int ROUNDS = 20;
+
+    public static void main(String[] args) {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Object value = new Object();
+
+        long before = usedHeap();
+        Map<Integer, Object> hashMap = new HashMap<>();
+        for (int i = 1; i <= entries; i++) {
+            hashMap.put(i, value);
+        }
+        long hashMapBytes = usedHeap() - before;
+
+        before = usedHeap();
+        FlooringMasteryIntMap<Object> intMap = new FlooringMasteryIntMap<>();
+        for (int i = 1; i <= entries; i++) {
+            intMap.put(i, value);
+        }
+        long intMapBytes = usedHeap() - before;
+
+        //warm up both before timing
+        lookupHashMap(hashMap, entries);
+        lookupIntMap(intMap, entries);
+
+        long start = System.nanoTime();
+        for (int r = 0; r < ROUNDS; r++) {
+            lookupHashMap(hashMap, entries);
+        }
+        double hashMapNanos = (System.nanoTime() - start) / (double) (ROUNDS * (long) entries);
+
+        start = System.nanoTime();
+        for (int r = 0; r < ROUNDS; r++) {
+            lookupIntMap(intMap, entries);
+        }
+        double intMapNanos = (System.nanoTime() - start) / (double) (ROUNDS * (long) entries);
+
+        System.out.printf("HashMap<Integer, Order>: %.1f bytes/entry, %.2f ns/lookup%n",
+                hashMapBytes / (double) entries, hashMapNanos);
+        System.out.printf("FlooringMasteryIntMap:   %.1f bytes/entry, %.2f ns/lookup%n",
+                intMapBytes / (double) entries, intMapNanos);
+    }
+
+    private static int lookupHashMap(Map<Integer, Object> map, int entries) {
+        int found = 0;
+        for (int i = 1; i <= entries; i++) {
+            if (map.get(i) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private static int lookupIntMap(FlooringMasteryIntMap<Object> map, int entries) {
+        int found = 0;
+        for (int i = 1; i <= entries; i++) {
+            if (map.get(i) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.benchmark;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import mthree.flooringmastery.dao.FlooringMasteryHeapOrderStore;
+import mthree.flooringmastery.dao.FlooringMasteryOffHeapOrderStore;
+import mthree.flooringmastery.dao.FlooringMasteryOrderStore;
+import mthree.flooringmastery.dto.Order;
+import mthree.flooringmastery.dto.Product;
+import mthree.flooringmastery.dto.State;
+
+/**
+ * Compares the memory used by the heap and off heap order stores.
+ * Not a unit test, run the main method by hand:
+ * java -cp target/classes:target/test-classes mthree.flooringmastery.benchmark.OrderStoreFootprintBenchmark [orders]
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public class OrderStoreFootprintBenchmark {
+
+    /** Orders spread over this many dates */
+    private static final int DATES = 3650;
+
+    /** Catalog entries, shared by the orders like orders loaded by the dao */
+    private static final State TEXAS = new State("TX", "Texas", new BigDecimal("4.45"));
+    private static final State KENTUCKY = new State("KY", "Kentucky", new BigDecimal("6.00"));
+    private static final Product TILE = new Product("Tile", new BigDecimal("3.50"), new BigDecimal("4.15"));
+    private static final Product WOOD = new Product("Wood", new BigDecimal("5.15"), new BigDecimal("4.75"));
+
+    public static void main(String[] args) {
+        int orderCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        long heapBytes = measure(new FlooringMasteryHeapOrderStore(), orderCount);
+        System.out.printf("Heap store:     %,d orders, %,d heap bytes (%d bytes/order)%n",
+                orderCount, heapBytes, heapBytes / orderCount);
+
+        FlooringMasteryOffHeapOrderStore offHeap = new FlooringMasteryOffHeapOrderStore();
+        long offHeapHeapBytes = measure(offHeap, orderCount);
+        System.out.printf("Off heap store: %,d orders, %,d heap bytes (%d bytes/order), %,d direct bytes (%d bytes/order)%n",
+                orderCount, offHeapHeapBytes, offHeapHeapBytes / orderCount,
+                offHeap.getOffHeapBytes(), offHeap.getOffHeapBytes() / orderCount);
+    }
+
+    /**
+     * Fills a store and returns how much the used heap grew.
+     * @param store         store to fill
+     * @param orderCount    number of orders to add
+     * @return  heap bytes retained by the store
+     */
+    private static long measure(FlooringMasteryOrderStore store, int orderCount) {
+        long before = usedHeap();
+        LocalDate start = LocalDate.of(2010, 1, 1);
+        for (int i = 1; i <= orderCount; i++) {
+            store.putOrder(start.plusDays(i % DATES), i, buildOrder(i));
+        }
+        long after = usedHeap();
+        //keep the store reachable until measured
+        if (store.getDates().isEmpty()) {
+            throw new IllegalStateException();
+        }
+        return after - before;
+    }
+
+    private static Order buildOrder(int orderNumber) {
+        Order order = new Order();
+        order.setOrderNumber(orderNumber);
+        order.setCustomerName("Customer " + (orderNumber % 50_000));
+        State state = orderNumber % 2 == 0 ? TEXAS : KENTUCKY;
+        Product product = orderNumber % 3 == 0 ? TILE : WOOD;
+        order.setStateEntry(state);
+        order.setProductEntry(product);
+        //one order in a hundred was placed at older rates
+        order.setTaxRate(orderNumber % 100 == 0 ? new BigDecimal("4.00") : state.getTaxRate());
+        order.setArea(BigDecimal.valueOf(10_000 + orderNumber % 5_000, 2));
+        order.setCostPerSquareFoot(product.getCostPerSquareFoot());
+        order.setLaborCostPerSquareFoot(product.getLaborCostPerSquareFoot());
+        order.setMaterialCost(BigDecimal.valueOf(orderNumber * 7L, 2));
+        order.setLaborCost(BigDecimal.valueOf(orderNumber * 5L, 2));
+        order.setTax(BigDecimal.valueOf(orderNumber, 2));
+        order.setTotal(BigDecimal.valueOf(orderNumber * 13L, 2));
+        return order;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
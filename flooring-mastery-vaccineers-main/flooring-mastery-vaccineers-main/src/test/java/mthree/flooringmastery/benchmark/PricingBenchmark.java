@@ -0,0 +1,82 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.benchmark;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import mthree.flooringmastery.dto.Order;
+import mthree.flooringmastery.service.FlooringMasteryPricing;
+
+/**
+ * Compares the long pricing with the BigDecimal pricing it replaced.
+ * Not a unit test, run the main method by hand:
+ * java -cp target/classes:target/test-classes mthree.flooringmastery.benchmark.PricingBenchmark [orders]
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public class PricingBenchmark {
+
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) {
+        int orderCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Order[] orders = buildOrders(orderCount);
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            long start = System.nanoTime();
+            long decimalCheck = 0;
+            for (Order order : orders) {
+                decimalCheck += priceDecimal(order).unscaledValue().longValue();
+            }
+            long decimalNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long longCheck = 0;
+            for (Order order : orders) {
+                FlooringMasteryPricing.price(order);
+                longCheck += order.getTotalMoney().getCents();
+            }
+            long longNanos = System.nanoTime() - start;
+
+            if (decimalCheck != longCheck) {
+                throw new IllegalStateException("Totals differ");
+            }
+            System.out.printf("Round %2d: BigDecimal %6.1f ns/order, long %6.1f ns/order%n",
+                    round, (double) decimalNanos / orderCount, (double) longNanos / orderCount);
+        }
+    }
+
+    private static Order[] buildOrders(int orderCount) {
+        Random random = new Random(42);
+        Order[] orders = new Order[orderCount];
+        for (int i = 0; i < orderCount; i++) {
+            Order order = new Order();
+            order.setArea(BigDecimal.valueOf(10_000 + random.nextInt(1_000_000), 2));
+            order.setCostPerSquareFoot(BigDecimal.valueOf(100 + random.nextInt(1_000), 2));
+            order.setLaborCostPerSquareFoot(BigDecimal.valueOf(100 + random.nextInt(1_000), 2));
+            order.setTaxRate(BigDecimal.valueOf(random.nextInt(3_000), 2));
+            orders[i] = order;
+        }
+        return orders;
+    }
+
+    /**
+     * The BigDecimal calculation the service used before
+     * @return  total rounded to cents
+     */
+    private static BigDecimal priceDecimal(Order order) {
+        BigDecimal materialCost = order.getArea().multiply(order.getCostPerSquareFoot());
+        BigDecimal laborCost = order.getArea().multiply(order.getLaborCostPerSquareFoot());
+        BigDecimal tax = order.getTaxRate().divide(new BigDecimal("100")).multiply(materialCost.add(laborCost));
+        BigDecimal total = materialCost.add(laborCost.add(tax));
+        return total.setScale(2, RoundingMode.HALF_UP);
+    }
+}
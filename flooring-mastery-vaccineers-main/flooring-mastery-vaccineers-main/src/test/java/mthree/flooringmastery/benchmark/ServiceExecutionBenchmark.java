@@ -0,0 +1,103 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.benchmark;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import mthree.flooringmastery.dao.FlooringMasteryAuditDaoFileImpl;
+import mthree.flooringmastery.dao.FlooringMasteryLatencyHistogram;
+import mthree.flooringmastery.dto.Order;
+import mthree.flooringmastery.service.FlooringMasteryAsyncServiceLayerImpl;
+import mthree.flooringmastery.service.FlooringMasteryDaoFileImplTestStub;
+import mthree.flooringmastery.service.FlooringMasteryServiceLayerImpl;
+
+/**
+ * Load test of FlooringMasteryAsyncServiceLayerImpl in each execution mode.
+ * Every request is an addOrder whose audit entry is forced to disk before
+ * it returns, so each request blocks on file I/O. The more requests wait at
+ * once, the more entries the audit writer forces together.
+ * Not a unit test, run the main method by hand, with the working directory
+ * on the disk to measure. The virtual mode only runs on Java 21 and later:
+ * java -cp target/classes:target/test-classes mthree.flooringmastery.benchmark.ServiceExecutionBenchmark [requests] [platformThreads]
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public class ServiceExecutionBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        int platformThreads = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        Path folder = Files.createTempDirectory(Path.of("."), "service-benchmark");
+        try {
+            for (FlooringMasteryAsyncServiceLayerImpl.ExecutionMode mode : FlooringMasteryAsyncServiceLayerImpl.ExecutionMode.values()) {
+                if (mode == FlooringMasteryAsyncServiceLayerImpl.ExecutionMode.VIRTUAL
+                        && !FlooringMasteryAsyncServiceLayerImpl.isVirtualThreadsSupported()) {
+                    System.out.println("VIRTUAL    skipped, this JDK has no virtual threads");
+                    continue;
+                }
+                //twice, the first run warms up
+                for (int run = 0; run < 2; run++) {
+                    FlooringMasteryAuditDaoFileImpl auditDao = new FlooringMasteryAuditDaoFileImpl(
+                            folder.resolve("audit.txt").toString(), 64 * 1024, 100,
+                            FlooringMasteryAuditDaoFileImpl.Backpressure.BLOCK, 100L * 1024 * 1024, ChronoUnit.DAYS,
+                            0, Duration.ZERO, FlooringMasteryAuditDaoFileImpl.Durability.FSYNC_PER_BATCH);
+                    FlooringMasteryServiceLayerImpl service = new FlooringMasteryServiceLayerImpl(
+                            new FlooringMasteryDaoFileImplTestStub(), auditDao);
+                    FlooringMasteryLatencyHistogram latency = new FlooringMasteryLatencyHistogram();
+                    long nanos;
+                    try (FlooringMasteryAsyncServiceLayerImpl asyncService
+                            = new FlooringMasteryAsyncServiceLayerImpl(service, mode, platformThreads)) {
+                        long start = System.nanoTime();
+                        run(asyncService, requests, latency);
+                        nanos = System.nanoTime() - start;
+                    }
+                    auditDao.close();
+                    if (run == 1) {
+                        System.out.printf("%-10s %9.0f requests/s, p50<=%dns, p99<=%dns, max=%dns%n",
+                                mode, requests * 1e9 / nanos, latency.getPercentile(50),
+                                latency.getPercentile(99), latency.getMax());
+                    }
+                    for (File file : folder.toFile().listFiles()) {
+                        file.delete();
+                    }
+                }
+            }
+        } finally {
+            for (File file : folder.toFile().listFiles()) {
+                file.delete();
+            }
+            folder.toFile().delete();
+        }
+    }
+
+    /**
+     * Helper method to send every request at once and wait for all of them
+     */
+    private static void run(FlooringMasteryAsyncServiceLayerImpl asyncService, int requests,
+            FlooringMasteryLatencyHistogram latency) {
+        LocalDate date = LocalDate.now().plusDays(1);
+        List<CompletableFuture<Order>> futures = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            Order order = new Order("Benchmark Customer", "TX", "Test Product", new BigDecimal("150.00"));
+            long callStart = System.nanoTime();
+            futures.add(asyncService.addOrder(date, order)
+                    .whenComplete((added, e) -> latency.record(System.nanoTime() - callStart)));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+    }
+}
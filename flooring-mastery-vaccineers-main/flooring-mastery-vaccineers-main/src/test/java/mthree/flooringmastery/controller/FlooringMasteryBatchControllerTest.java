@@ -0,0 +1,86 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.controller;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.LocalDate;
+import mthree.flooringmastery.service.FlooringMasteryAuditDaoFileImplTestStub;
+import mthree.flooringmastery.service.FlooringMasteryDaoFileImplTestStub;
+import mthree.flooringmastery.service.FlooringMasteryReportServiceImpl;
+import mthree.flooringmastery.service.FlooringMasteryServiceLayerImpl;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the batch controller runs a script and writes one result per
+ * command, going on after a command fails.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public class FlooringMasteryBatchControllerTest {
+
+    private FlooringMasteryBatchController batch;
+
+    @BeforeEach
+    public void setUp() {
+        FlooringMasteryDaoFileImplTestStub dao = new FlooringMasteryDaoFileImplTestStub();
+        batch = new FlooringMasteryBatchController(
+                new FlooringMasteryServiceLayerImpl(dao, new FlooringMasteryAuditDaoFileImplTestStub()),
+                new FlooringMasteryReportServiceImpl(dao));
+    }
+
+    @Test
+    public void testRunScript() throws IOException {
+        LocalDate today = LocalDate.now();
+        LocalDate tomorrow = today.plusDays(1);
+        String script = "# nightly job\n"
+                + "add|" + tomorrow + "|Acme Inc.|TX|Test Product|100\n"
+                + "\n"
+                + "get|" + today + "\n"
+                + "get|" + today + "|1\n"
+                + "get|" + tomorrow + "\n"
+                + "add|" + today + "|Acme|TX|Test Product|100\n"
+                + "remove|" + today + "|one\n"
+                + "fly\n"
+                + "export\n";
+        StringWriter out = new StringWriter();
+
+        int failed = batch.run(new BufferedReader(new StringReader(script)), out);
+
+        String[] lines = out.toString().split("\n");
+        assertEquals(4, failed);
+        assertEquals("OK\t2\tadd\t" + tomorrow + "\t0\t" + "202.00", lines[0]);
+        assertTrue(lines[1].startsWith("ORDER\t4\t" + today + "\t1\tTest Subject\tTX\tTest Product\t"), lines[1]);
+        assertEquals("OK\t4\tget\t" + today + "\t1", lines[2]);
+        assertTrue(lines[3].startsWith("ORDER\t5\t" + today + "\t1\t"), lines[3]);
+        assertEquals("OK\t5\tget\t" + today + "\t1", lines[4]);
+        assertTrue(lines[5].startsWith("ERR\t6\tINVALID_DATE\t"), lines[5]);
+        assertTrue(lines[6].startsWith("ERR\t7\tINVALID_DATE\t"), lines[6]);
+        assertTrue(lines[7].startsWith("ERR\t8\tBAD_COMMAND\t"), lines[7]);
+        assertEquals("ERR\t9\tBAD_COMMAND\tUnknown command fly", lines[8]);
+        assertEquals("OK\t10\texport", lines[9]);
+        assertEquals("DONE\t8\t4", lines[10]);
+        assertEquals(11, lines.length);
+    }
+
+    @Test
+    public void testSplitKeepsEmptyFields() {
+        assertArrayEquals(new String[] {"edit", "2030-01-01", "1", "", "", "", "150"},
+                FlooringMasteryBatchController.split("edit|2030-01-01|1||||150"));
+        assertArrayEquals(new String[] {"export"}, FlooringMasteryBatchController.split("export"));
+        assertArrayEquals(new String[] {"get", ""}, FlooringMasteryBatchController.split("get|"));
+    }
+}
@@ -0,0 +1,315 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.dao;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import mthree.flooringmastery.dto.AuditRecord;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Audit dao test. Checks that queued entries all reach the file.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public class FlooringMasteryAuditDaoFileImplTest {
+
+    private final String AUDIT_FILE = "Test/audit.txt";
+
+    @AfterEach
+    public void tearDown() {
+        new File(AUDIT_FILE).delete();
+        File[] segments = new File("Test").listFiles((folder, name) -> name.startsWith("audit-"));
+        for (File segment : segments) {
+            segment.delete();
+        }
+    }
+
+    /**
+     * Helper method to read the lines of a compressed segment
+     */
+    private List<String> readSegment(Path segment) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(segment)), StandardCharsets.UTF_8))) {
+            List<String> lines = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+            return lines;
+        }
+    }
+
+    @Test
+    public void testWriteAuditEntries() throws Exception {
+        FlooringMasteryAuditDaoFileImpl testAuditDao = new FlooringMasteryAuditDaoFileImpl(AUDIT_FILE, 16, 5,
+                FlooringMasteryAuditDaoFileImpl.Backpressure.BLOCK);
+        List<Thread> threads = new ArrayList<>();
+        List<Exception> errors = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            String prefix = "T" + t + "-";
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 250; i++) {
+                        testAuditDao.writeAuditEntry(prefix + i);
+                    }
+                } catch (FlooringMasteryPersistenceException e) {
+                    synchronized (errors) {
+                        errors.add(e);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        testAuditDao.close();
+
+        assertTrue(errors.isEmpty(), "No entry should fail");
+        List<String> lines = Files.readAllLines(Paths.get(AUDIT_FILE));
+        assertEquals(1000, lines.size(), "Every entry should be written once");
+        int[] next = new int[4];
+        for (String line : lines) {
+            String entry = FlooringMasteryAuditFormat.unmarshallRecord(line).getMessage();
+            int thread = entry.charAt(1) - '0';
+            assertEquals("T" + thread + "-" + next[thread], entry, "Entries of a thread should keep their order");
+            next[thread]++;
+        }
+    }
+
+    @Test
+    public void testCloseWritesQueuedEntries() throws FlooringMasteryPersistenceException, IOException {
+        //long flush interval, close should not wait for it
+        FlooringMasteryAuditDaoFileImpl testAuditDao = new FlooringMasteryAuditDaoFileImpl(AUDIT_FILE, 1024, 60_000,
+                FlooringMasteryAuditDaoFileImpl.Backpressure.BLOCK);
+        testAuditDao.writeAuditEntry("NEW ORDER ADDED");
+        testAuditDao.writeAuditEntry("ORDER DELETED");
+        long start = System.nanoTime();
+        testAuditDao.close();
+        testAuditDao.close();
+
+        assertTrue(System.nanoTime() - start < 10_000_000_000L, "Close should not wait for the flush interval");
+        assertEquals(2, Files.readAllLines(Paths.get(AUDIT_FILE)).size(), "Queued entries should be written on close");
+        assertThrows(FlooringMasteryPersistenceException.class, () -> testAuditDao.writeAuditEntry("LATE"),
+                "Entries after close should fail");
+    }
+
+    @Test
+    public void testBackpressureWhenRingIsFull() throws FlooringMasteryPersistenceException, IOException {
+        //the writer keeps the first entry until close, so a ring of one stays full
+        FlooringMasteryAuditDaoFileImpl dropAuditDao = new FlooringMasteryAuditDaoFileImpl(AUDIT_FILE, 1, 60_000,
+                FlooringMasteryAuditDaoFileImpl.Backpressure.DROP);
+        dropAuditDao.writeAuditEntry("KEPT");
+        dropAuditDao.writeAuditEntry("DROPPED");
+        dropAuditDao.close();
+        assertEquals(1, dropAuditDao.getDroppedEntries(), "Entry should be dropped when the ring is full");
+        List<String> lines = Files.readAllLines(Paths.get(AUDIT_FILE));
+        assertEquals(1, lines.size(), "Only the first entry should be written");
+        assertEquals("KEPT", FlooringMasteryAuditFormat.unmarshallRecord(lines.get(0)).getMessage(),
+                "First entry should be written");
+
+        FlooringMasteryAuditDaoFileImpl failAuditDao = new FlooringMasteryAuditDaoFileImpl(AUDIT_FILE, 1, 60_000,
+                FlooringMasteryAuditDaoFileImpl.Backpressure.FAIL);
+        failAuditDao.writeAuditEntry("KEPT");
+        assertThrows(FlooringMasteryPersistenceException.class, () -> failAuditDao.writeAuditEntry("FAILED"),
+                "Entry should fail when the ring is full");
+        failAuditDao.close();
+        assertEquals(2, Files.readAllLines(Paths.get(AUDIT_FILE)).size(), "Failed entry should not be written");
+    }
+
+    @Test
+    public void testWriteLatencyHistogram() throws FlooringMasteryPersistenceException {
+        FlooringMasteryAuditDaoFileImpl testAuditDao = new FlooringMasteryAuditDaoFileImpl(AUDIT_FILE, 1024, 5,
+                FlooringMasteryAuditDaoFileImpl.Backpressure.BLOCK);
+        for (int i = 0; i < 100; i++) {
+            testAuditDao.writeAuditEntry("ENTRY " + i);
+        }
+        testAuditDao.close();
+
+        FlooringMasteryLatencyHistogram latency = testAuditDao.getWriteLatency();
+        assertEquals(100, latency.getCount(), "Every call should be recorded");
+        assertTrue(latency.getPercentile(50) <= latency.getPercentile(99), "Percentiles should not decrease");
+        assertTrue(latency.getPercentile(100) <= latency.getMax(), "Percentiles should not pass the maximum");
+
+        FlooringMasteryLatencyHistogram histogram = new FlooringMasteryLatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(100);
+        }
+        histogram.record(5_000);
+        //100 is in the bucket 64 to 127, 5000 in 4096 to 8191
+        assertEquals(127, histogram.getPercentile(99), "p99 should be the bound of the bucket of 100");
+        assertEquals(5_000, histogram.getPercentile(99.9), "p99.9 should be capped at the maximum");
+        histogram.reset();
+        assertEquals(0, histogram.getCount(), "Reset should clear the counts");
+    }
+
+    @Test
+    public void testDurabilityModes() throws Exception {
+        //a long flush interval, so only ASYNC leaves the entry queued
+        for (FlooringMasteryAuditDaoFileImpl.Durability durability : FlooringMasteryAuditDaoFileImpl.Durability.values()) {
+            FlooringMasteryAuditDaoFileImpl testAuditDao = new FlooringMasteryAuditDaoFileImpl(AUDIT_FILE, 1024, 60_000,
+                    FlooringMasteryAuditDaoFileImpl.Backpressure.BLOCK, 1_000_000, ChronoUnit.DAYS, 0, Duration.ZERO,
+                    durability);
+            List<Thread> threads = new ArrayList<>();
+            List<String> errors = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                String prefix = "T" + t + "-";
+                Thread thread = new Thread(() -> {
+                    try {
+                        for (int i = 0; i < 25; i++) {
+                            testAuditDao.writeAuditEntry(prefix + i);
+                            if (durability != FlooringMasteryAuditDaoFileImpl.Durability.ASYNC
+                                    && !new String(Files.readAllBytes(Paths.get(AUDIT_FILE)), StandardCharsets.UTF_8)
+                                            .contains("|" + prefix + i + System.lineSeparator())) {
+                                throw new IllegalStateException(prefix + i + " not in the file");
+                            }
+                        }
+                    } catch (FlooringMasteryPersistenceException | IOException | IllegalStateException e) {
+                        synchronized (errors) {
+                            errors.add(e.getMessage());
+                        }
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            if (durability == FlooringMasteryAuditDaoFileImpl.Durability.ASYNC) {
+                Path auditPath = Paths.get(AUDIT_FILE);
+                assertTrue(!Files.exists(auditPath) || Files.size(auditPath) == 0, "ASYNC should not wait for the write");
+            }
+            testAuditDao.close();
+
+            assertTrue(errors.isEmpty(), durability + " should write each entry before returning: " + errors);
+            assertEquals(100, Files.readAllLines(Paths.get(AUDIT_FILE)).size(), durability + " should write every entry");
+            tearDown();
+        }
+    }
+
+    @Test
+    public void testRotateBySize() throws Exception {
+        //each line is about 50 bytes, so a few lines per segment
+        FlooringMasteryAuditDaoFileImpl testAuditDao = new FlooringMasteryAuditDaoFileImpl(AUDIT_FILE, 1024, 0,
+                FlooringMasteryAuditDaoFileImpl.Backpressure.BLOCK, 200, ChronoUnit.DAYS, 0, Duration.ZERO);
+        for (int i = 0; i < 100; i++) {
+            testAuditDao.writeAuditEntry("ENTRY " + i);
+            //let each entry be its own batch
+            Thread.sleep(1);
+        }
+        testAuditDao.close();
+
+        List<Path> segments = testAuditDao.getAuditSegments();
+        assertTrue(segments.size() > 10, "Audit file should have been rotated");
+        List<String> lines = new ArrayList<>();
+        for (Path segment : segments) {
+            assertTrue(Files.size(segment) > 0, "Segment should not be empty");
+            lines.addAll(readSegment(segment));
+        }
+        lines.addAll(Files.readAllLines(Paths.get(AUDIT_FILE)));
+        assertTrue(Files.size(Paths.get(AUDIT_FILE)) <= 200, "Active file should stay under the maximum");
+        assertEquals(100, lines.size(), "No entry should be lost by rotation");
+        for (int i = 0; i < 100; i++) {
+            assertEquals("ENTRY " + i, FlooringMasteryAuditFormat.unmarshallRecord(lines.get(i)).getMessage(),
+                    "Entries should stay in order across segments");
+        }
+    }
+
+    @Test
+    public void testRotateByPeriodAndRetention() throws Exception {
+        //an audit file last written yesterday
+        Path auditPath = Paths.get(AUDIT_FILE);
+        Files.write(auditPath, "2020-01-01T10:00 : OLD ENTRY\n".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(auditPath, FileTime.from(Instant.now().minus(Duration.ofDays(1))));
+
+        FlooringMasteryAuditDaoFileImpl testAuditDao = new FlooringMasteryAuditDaoFileImpl(AUDIT_FILE, 1024, 0,
+                FlooringMasteryAuditDaoFileImpl.Backpressure.BLOCK, 1_000_000, ChronoUnit.DAYS, 2, Duration.ZERO);
+        testAuditDao.writeAuditEntry("NEW ENTRY");
+        testAuditDao.close();
+
+        List<Path> segments = testAuditDao.getAuditSegments();
+        assertEquals(1, segments.size(), "Yesterday's file should be rotated");
+        assertEquals(List.of("2020-01-01T10:00 : OLD ENTRY"), readSegment(segments.get(0)), "Segment should hold the old file");
+        assertEquals(1, Files.readAllLines(auditPath).size(), "Active file should only have today's entry");
+
+        //only the two newest segments are kept
+        for (int i = 0; i < 3; i++) {
+            FlooringMasteryAuditDaoFileImpl nextAuditDao = new FlooringMasteryAuditDaoFileImpl(AUDIT_FILE, 1024, 0,
+                    FlooringMasteryAuditDaoFileImpl.Backpressure.BLOCK, 1, ChronoUnit.DAYS, 2, Duration.ZERO);
+            nextAuditDao.writeAuditEntry("ENTRY " + i);
+            nextAuditDao.close();
+        }
+        segments = testAuditDao.getAuditSegments();
+        assertEquals(2, segments.size(), "Older segments should be deleted");
+        assertTrue(readSegment(segments.get(1)).get(0).endsWith("|ENTRY 1"), "Newest segments should be kept");
+    }
+
+    @Test
+    public void testQueryRecords() throws Exception {
+        //old format entry from before records
+        Files.write(Paths.get(AUDIT_FILE), "2020-01-01T10:00 : DATA EXPORTED TO BACKUP\n".getBytes(StandardCharsets.UTF_8));
+        FlooringMasteryAuditDaoFileImpl testAuditDao = new FlooringMasteryAuditDaoFileImpl(AUDIT_FILE, 1024, 0,
+                FlooringMasteryAuditDaoFileImpl.Backpressure.BLOCK, 50_000, ChronoUnit.DAYS, 0, Duration.ZERO);
+
+        LocalDateTime start = LocalDateTime.of(2022, 2, 1, 9, 0);
+        List<AuditRecord> written = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            int orderNumber = i % 50 + 1;
+            AuditRecord record = new AuditRecord(start.plusMinutes(i), AuditRecord.Operation.ORDER_EDITED,
+                    LocalDate.of(2022, 3, 1), orderNumber,
+                    "CustomerName=Pipe | Name\\" + i, "CustomerName=Two\nLines " + i, null);
+            testAuditDao.writeAuditRecord(record);
+            written.add(record);
+        }
+        //queries see queued entries without closing
+        assertEquals(written.subList(10, 20), testAuditDao.getAuditRecords(start.plusMinutes(10), start.plusMinutes(20)),
+                "Queued entries should be found");
+        testAuditDao.close();
+        assertTrue(testAuditDao.getAuditSegments().size() > 1, "Records should span segments");
+
+        List<AuditRecord> expected = new ArrayList<>();
+        for (AuditRecord record : written) {
+            if (record.getOrderNumber() == 7) {
+                expected.add(record);
+            }
+        }
+        assertEquals(expected, testAuditDao.getAuditRecords(7), "All records of the order should be found");
+        assertEquals(written.subList(300, 700), testAuditDao.getAuditRecords(start.plusMinutes(300), start.plusMinutes(700)),
+                "Records in the time range should be found");
+        assertTrue(testAuditDao.getAuditRecords(51).isEmpty(), "Unknown order should have no records");
+
+        List<AuditRecord> old = testAuditDao.getAuditRecords(LocalDateTime.of(2020, 1, 1, 0, 0), start);
+        assertEquals(1, old.size(), "Old format entry should be read");
+        assertEquals(AuditRecord.Operation.MESSAGE, old.get(0).getOperation(), "Old entry should be a message");
+        assertEquals("DATA EXPORTED TO BACKUP", old.get(0).getMessage(), "Old entry text should be kept");
+    }
+}
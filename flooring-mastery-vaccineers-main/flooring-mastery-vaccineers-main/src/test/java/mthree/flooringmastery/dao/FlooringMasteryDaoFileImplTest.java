@@ -7,16 +7,42 @@
 package mthree.flooringmastery.dao;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import mthree.flooringmastery.dto.DailySummary;
+import mthree.flooringmastery.dto.Money;
 import mthree.flooringmastery.dto.Order;
+import mthree.flooringmastery.dto.PeriodSummary;
 import mthree.flooringmastery.dto.State;
 import mthree.flooringmastery.dto.Product;
+import mthree.flooringmastery.service.FlooringMasteryAuditDaoFileImplTestStub;
+import mthree.flooringmastery.service.FlooringMasteryServiceLayer;
+import mthree.flooringmastery.service.FlooringMasteryServiceLayerImpl;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
@@ -35,12 +61,14 @@ public class FlooringMasteryDaoFileImplTest {
     private final String PRODUCTS_PATH;
     private final String TAXES_PATH;
     private final String EXPORT_PATH;
+    private final String ARCHIVE_PATH;
     
     public FlooringMasteryDaoFileImplTest () {
         ORDER_PATH = "Test/Orders";
         PRODUCTS_PATH ="Test/Data/Products.txt";
         TAXES_PATH = "Test/Data/Taxes.txt";
         EXPORT_PATH = "Test/Backup/DataExport.txt";
+        ARCHIVE_PATH = "Test/Archive";
         
         testDao = new FlooringMasteryDaoFileImpl(ORDER_PATH, 
                 PRODUCTS_PATH, 
@@ -55,6 +83,16 @@ public class FlooringMasteryDaoFileImplTest {
         for (File file : listOfFiles) {
             file.delete();
         }
+        
+        File archiveFolder = new File(ARCHIVE_PATH);
+        File[] listOfSegments = archiveFolder.listFiles();
+        if (listOfSegments != null) {
+            for (File file : listOfSegments) {
+                file.delete();
+            }
+        }
+        new File("Test/Rollups.txt").delete();
+        new File("Test/Requests.txt").delete();
     }
 
     @Test
@@ -263,6 +301,142 @@ public class FlooringMasteryDaoFileImplTest {
         assertNull(retrievedOrder, "Mia was remvoed, should be null.");
     }
     
+    @Test
+    public void testArchiveOrders() throws FlooringMasteryPersistenceException {
+        LocalDate oldDate = LocalDate.of(2020, 1, 15);
+        LocalDate newDate = LocalDate.now();
+        
+        Order firstOrder = new Order();
+        
+        firstOrder.setCustomerName("Joe Ma");
+        firstOrder.setState("KY");
+        firstOrder.setTaxRate(BigDecimal.ONE);
+        firstOrder.setProductType("Tile");
+        firstOrder.setMaterialCost(BigDecimal.ONE);
+        firstOrder.setLaborCost(BigDecimal.ONE);
+        firstOrder.setTax(BigDecimal.ONE);
+        firstOrder.setTotal(BigDecimal.ONE);
+        firstOrder.setArea(BigDecimal.ONE);
+        firstOrder.setCostPerSquareFoot(BigDecimal.ONE);
+        firstOrder.setLaborCostPerSquareFoot(BigDecimal.ONE);
+        
+        Order secondOrder = new Order();  
+
+        secondOrder.setCustomerName("Mia K");
+        secondOrder.setState("CA");
+        secondOrder.setTaxRate(BigDecimal.ONE);
+        secondOrder.setProductType("Wood");
+        secondOrder.setMaterialCost(BigDecimal.ONE);
+        secondOrder.setLaborCost(BigDecimal.ONE);
+        secondOrder.setTax(BigDecimal.ONE);
+        secondOrder.setTotal(BigDecimal.ONE);
+        secondOrder.setArea(BigDecimal.ONE);
+        secondOrder.setCostPerSquareFoot(BigDecimal.ONE);
+        secondOrder.setLaborCostPerSquareFoot(BigDecimal.ONE);
+        
+        testDao.addOrder(oldDate, firstOrder);
+        testDao.addOrder(newDate, secondOrder);
+        
+        assertEquals(1, testDao.archiveOrders(newDate), "Only the old date should be archived");
+        assertTrue(new File(ARCHIVE_PATH + "/Orders_012020.zip").exists(), "Segment for the month should exist");
+        assertFalse(new File(ORDER_PATH + "/Orders_01152020.txt").exists(), "Old order file should be gone");
+        
+        //a fresh dao only sees the old date through the archive
+        FlooringMasteryDao freshDao = new FlooringMasteryDaoFileImpl(ORDER_PATH, 
+                PRODUCTS_PATH, 
+                TAXES_PATH, 
+                EXPORT_PATH);
+        assertEquals(firstOrder, freshDao.getOrder(oldDate, firstOrder.getOrderNumber()), "Archived order should still be readable");
+        assertEquals(secondOrder, freshDao.getOrder(newDate, secondOrder.getOrderNumber()), "Active order should not change");
+        
+        //archiving the current orders too should not lose the order numbers
+        freshDao.archiveOrders(newDate.plusDays(1));
+        Order thirdOrder = freshDao.addOrder(newDate, firstOrder);
+        assertEquals(3, thirdOrder.getOrderNumber(), "Order numbers should continue after archived orders");
+        
+        //the date comes back from the archive, so its whole order file is written, not just the new order
+        Map<Integer, Order> reread = new FlooringMasteryDaoFileImpl(ORDER_PATH, PRODUCTS_PATH, TAXES_PATH, EXPORT_PATH)
+                .getAllOrders(newDate);
+        assertEquals(Set.of(secondOrder.getOrderNumber(), thirdOrder.getOrderNumber()), reread.keySet(),
+                "Archived orders of the date should be saved with the new one");
+    }
+    
+    @Test
+    public void testRemovedArchivedOrdersStayRemoved() throws FlooringMasteryPersistenceException {
+        LocalDate oldDate = LocalDate.of(2020, 1, 15);
+        Order order = new Order();
+        order.setCustomerName("Ada");
+        order.setState("KY");
+        order.setTaxRate(BigDecimal.ONE);
+        order.setProductType("Tile");
+        order.setMaterialCost(BigDecimal.ONE);
+        order.setLaborCost(BigDecimal.ONE);
+        order.setTax(BigDecimal.ONE);
+        order.setTotal(BigDecimal.ONE);
+        order.setArea(BigDecimal.ONE);
+        order.setCostPerSquareFoot(BigDecimal.ONE);
+        order.setLaborCostPerSquareFoot(BigDecimal.ONE);
+        
+        testDao.addOrder(oldDate, order);
+        assertEquals(1, testDao.archiveOrders(LocalDate.now()), "Old date should be archived");
+        assertEquals(order, testDao.removeOrder(oldDate, order.getOrderNumber()), "Archived order should be removed");
+        assertFalse(new File(ARCHIVE_PATH + "/Orders_012020.zip").exists(), "Segment left without dates should be gone");
+        
+        //the first reload deletes the empty order file, the second must not find the order in the archive
+        for (int restart = 1; restart <= 2; restart++) {
+            FlooringMasteryDao freshDao = new FlooringMasteryDaoFileImpl(ORDER_PATH, 
+                    PRODUCTS_PATH, 
+                    TAXES_PATH, 
+                    EXPORT_PATH);
+            Map<Integer, Order> reread = freshDao.getAllOrders(oldDate);
+            assertTrue(reread == null || reread.isEmpty(), "Removed order should not come back, restart " + restart);
+            assertNull(freshDao.getOrder(oldDate, order.getOrderNumber()), "Removed order should not come back, restart " + restart);
+            DailySummary summary = freshDao.getDailySummary(oldDate);
+            assertTrue(summary == null || summary.getOrderCount() == 0, "Summary should be gone, restart " + restart);
+        }
+    }
+    
+    @Test
+    public void testOrdersShareCatalogEntries() throws FlooringMasteryPersistenceException {
+        LocalDate date = LocalDate.of(2020, 2, 1);
+        Order firstOrder = new Order("Joe Ma", "KY", "Tile", new BigDecimal("100.00"));
+        firstOrder.setTaxRate(new BigDecimal("6.00"));
+        firstOrder.setCostPerSquareFoot(new BigDecimal("3.50"));
+        firstOrder.setLaborCostPerSquareFoot(new BigDecimal("4.15"));
+        firstOrder.setMaterialCost(new BigDecimal("350.00"));
+        firstOrder.setLaborCost(new BigDecimal("415.00"));
+        firstOrder.setTax(new BigDecimal("45.90"));
+        firstOrder.setTotal(new BigDecimal("810.90"));
+        
+        //placed before a tax change, so its rate differs from the catalog
+        Order secondOrder = new Order("Mia K", "KY", "Tile", new BigDecimal("100.00"));
+        secondOrder.setTaxRate(new BigDecimal("5.00"));
+        secondOrder.setCostPerSquareFoot(new BigDecimal("3.50"));
+        secondOrder.setLaborCostPerSquareFoot(new BigDecimal("4.15"));
+        secondOrder.setMaterialCost(new BigDecimal("350.00"));
+        secondOrder.setLaborCost(new BigDecimal("415.00"));
+        secondOrder.setTax(new BigDecimal("38.25"));
+        secondOrder.setTotal(new BigDecimal("803.25"));
+        
+        testDao.addOrder(date, firstOrder);
+        testDao.addOrder(date, secondOrder);
+        
+        FlooringMasteryDao freshDao = new FlooringMasteryDaoFileImpl(ORDER_PATH, 
+                PRODUCTS_PATH, 
+                TAXES_PATH, 
+                EXPORT_PATH);
+        Order getOne = freshDao.getOrder(date, firstOrder.getOrderNumber());
+        Order getTwo = freshDao.getOrder(date, secondOrder.getOrderNumber());
+        State kentucky = freshDao.getAllStates().get("KY");
+        
+        assertSame(kentucky, getOne.getStateEntry(), "Order should point at the catalog state");
+        assertSame(kentucky, getTwo.getStateEntry(), "Order should point at the catalog state");
+        assertSame(getOne.getProductEntry(), getTwo.getProductEntry(), "Orders should share the product");
+        assertEquals(firstOrder, getOne, "Order with catalog rates should not change");
+        assertEquals(secondOrder, getTwo, "Order should keep its own tax rate");
+        assertSame(kentucky, freshDao.getAllStates().get("KY"), "Unchanged state should keep its entry on reload");
+    }
+    
 //    @Test
 //    public void testExport() {
 //        fail("The test case is a prototype.");
@@ -295,4 +469,496 @@ public class FlooringMasteryDaoFileImplTest {
         assertTrue(states.containsValue(washington) , "Should have Washington");
         assertTrue(states.containsValue(texas) , "Should have Texas");
     }
+
+    @Test
+    public void testCatalogVersion() throws Exception {
+        //a copy of the tax file that the test can change
+        Path taxCopy = Paths.get("Test/Data/TaxesCopy.txt");
+        Files.copy(Paths.get(TAXES_PATH), taxCopy, StandardCopyOption.REPLACE_EXISTING);
+        try {
+            FlooringMasteryDao copyDao = new FlooringMasteryDaoFileImpl(ORDER_PATH, PRODUCTS_PATH,
+                    taxCopy.toString(), EXPORT_PATH);
+            long version = copyDao.getCatalogVersion();
+            assertTrue(version > 0, "Loading the catalog should set a version");
+            copyDao.getAllStates();
+            assertEquals(version, copyDao.getCatalogVersion(), "Reading unchanged files should keep the version");
+
+            //same content, newer file
+            Files.setLastModifiedTime(taxCopy, FileTime.fromMillis(Files.getLastModifiedTime(taxCopy).toMillis() + 2000));
+            assertEquals(version, copyDao.getCatalogVersion(), "Unchanged entries should keep the version");
+
+            Files.write(taxCopy, "\nNY,New York,8.00".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+            Files.setLastModifiedTime(taxCopy, FileTime.fromMillis(Files.getLastModifiedTime(taxCopy).toMillis() + 4000));
+            assertTrue(copyDao.getCatalogVersion() > version, "A new state should change the version");
+            assertNotNull(copyDao.getAllStates().get("NY"), "New state should be loaded");
+        } finally {
+            Files.delete(taxCopy);
+        }
+    }
+
+    @Test
+    public void testConcurrentAddOrder() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Order>> added = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Order order = new Order();
+            order.setCustomerName("Joe Ma");
+            order.setState("KY");
+            order.setTaxRate(BigDecimal.ONE);
+            order.setProductType("Tile");
+            order.setMaterialCost(BigDecimal.ONE);
+            order.setLaborCost(BigDecimal.ONE);
+            order.setTax(BigDecimal.ONE);
+            order.setTotal(BigDecimal.ONE);
+            order.setArea(BigDecimal.ONE);
+            order.setCostPerSquareFoot(BigDecimal.ONE);
+            order.setLaborCostPerSquareFoot(BigDecimal.ONE);
+            added.add(executor.submit(() -> testDao.addOrder(LocalDate.now(), order)));
+        }
+        Set<Integer> numbers = new HashSet<>();
+        for (Future<Order> order : added) {
+            numbers.add(order.get().getOrderNumber());
+        }
+        executor.shutdown();
+        assertEquals(200, numbers.size(), "Concurrent orders should get distinct numbers");
+        assertEquals(200, testDao.getAllOrders(LocalDate.now()).size(), "Every concurrent order should be saved");
+        assertEquals(200, new FlooringMasteryDaoFileImpl(ORDER_PATH, PRODUCTS_PATH, TAXES_PATH, EXPORT_PATH)
+                .getAllOrders(LocalDate.now()).size(), "Every concurrent order should be in the file");
+    }
+
+    @Test
+    public void testDailySummary() throws FlooringMasteryPersistenceException {
+        LocalDate date = LocalDate.of(2020, 3, 2);
+        Order firstOrder = new Order("Joe Ma", "KY", "Tile", new BigDecimal("100.00"));
+        firstOrder.setTaxRate(new BigDecimal("6.00"));
+        firstOrder.setCostPerSquareFoot(new BigDecimal("3.50"));
+        firstOrder.setLaborCostPerSquareFoot(new BigDecimal("4.15"));
+        firstOrder.setMaterialCost(new BigDecimal("350.00"));
+        firstOrder.setLaborCost(new BigDecimal("415.00"));
+        firstOrder.setTax(new BigDecimal("45.90"));
+        firstOrder.setTotal(new BigDecimal("810.90"));
+        Order secondOrder = new Order("Mia K", "CA", "Wood", new BigDecimal("200.25"));
+        secondOrder.setTaxRate(new BigDecimal("25.00"));
+        secondOrder.setCostPerSquareFoot(new BigDecimal("5.15"));
+        secondOrder.setLaborCostPerSquareFoot(new BigDecimal("4.75"));
+        secondOrder.setMaterialCost(new BigDecimal("1031.29"));
+        secondOrder.setLaborCost(new BigDecimal("951.19"));
+        secondOrder.setTax(new BigDecimal("495.62"));
+        secondOrder.setTotal(new BigDecimal("2478.10"));
+        
+        assertEquals(0, testDao.getDailySummary(date).getOrderCount(), "Date without orders should have an empty summary");
+        testDao.addOrder(date, firstOrder);
+        testDao.addOrder(date, secondOrder);
+        DailySummary summary = testDao.getDailySummary(date);
+        assertEquals(2, summary.getOrderCount(), "Both orders should be counted");
+        assertEquals(new BigDecimal("300.25"), summary.getArea(), "Areas should be summed");
+        assertEquals(Money.of(new BigDecimal("3289.00")), summary.getTotal(), "Totals should be summed");
+        assertEquals(DailySummary.of(date, testDao.getAllOrders(date).values()), summary, "Summary should match the orders");
+        
+        Order editedOrder = new Order("Joe Ma", "KY", "Tile", new BigDecimal("150.00"));
+        editedOrder.setOrderNumber(firstOrder.getOrderNumber());
+        editedOrder.setTaxRate(new BigDecimal("6.00"));
+        editedOrder.setCostPerSquareFoot(new BigDecimal("3.50"));
+        editedOrder.setLaborCostPerSquareFoot(new BigDecimal("4.15"));
+        editedOrder.setMaterialCost(new BigDecimal("525.00"));
+        editedOrder.setLaborCost(new BigDecimal("622.50"));
+        editedOrder.setTax(new BigDecimal("68.85"));
+        editedOrder.setTotal(new BigDecimal("1216.35"));
+        testDao.editOrder(date, firstOrder.getOrderNumber(), editedOrder);
+        testDao.removeOrder(date, secondOrder.getOrderNumber());
+        assertEquals(DailySummary.empty(date).plus(editedOrder), testDao.getDailySummary(date),
+                "Summary should follow edits and removals");
+        
+        //a fresh dao reads the summary file, also after the date is archived
+        testDao.archiveOrders(date.plusDays(1));
+        FlooringMasteryDao freshDao = new FlooringMasteryDaoFileImpl(ORDER_PATH, PRODUCTS_PATH, TAXES_PATH, EXPORT_PATH);
+        assertEquals(DailySummary.empty(date).plus(editedOrder), freshDao.getDailySummary(date),
+                "Summary should be persisted");
+        assertEquals(Map.of(date, DailySummary.empty(date).plus(editedOrder)),
+                freshDao.getDailySummaries(date.minusDays(1), date.plusDays(1)), "Range should include archived dates");
+        new File(ORDER_PATH + "/Summaries.txt").delete();
+        freshDao = new FlooringMasteryDaoFileImpl(ORDER_PATH, PRODUCTS_PATH, TAXES_PATH, EXPORT_PATH);
+        assertEquals(DailySummary.empty(date).plus(editedOrder), freshDao.getDailySummary(date),
+                "Missing summary should be summed from the archive");
+    }
+    
+    @Test
+    public void testRollups() throws Exception {
+        LocalDate[] dates = {LocalDate.of(2019, 12, 31), LocalDate.of(2020, 1, 5),
+            LocalDate.of(2020, 1, 20), LocalDate.of(2020, 2, 3)};
+        List<Order> added = new ArrayList<>();
+        for (LocalDate date : dates) {
+            Order order = new Order("Joe Ma", "KY", "Tile", new BigDecimal("100.00"));
+            order.setTaxRate(new BigDecimal("6.00"));
+            order.setCostPerSquareFoot(new BigDecimal("3.50"));
+            order.setLaborCostPerSquareFoot(new BigDecimal("4.15"));
+            order.setMaterialCost(new BigDecimal("350.00"));
+            order.setLaborCost(new BigDecimal("415.00"));
+            order.setTax(new BigDecimal("45.90"));
+            order.setTotal(new BigDecimal("810.90"));
+            added.add(testDao.addOrder(date, order));
+        }
+        
+        Map<YearMonth, PeriodSummary> months = testDao.getMonthlySummaries(YearMonth.of(2019, 1), YearMonth.of(2020, 12));
+        assertEquals(List.of(YearMonth.of(2019, 12), YearMonth.of(2020, 1), YearMonth.of(2020, 2)),
+                new ArrayList<>(months.keySet()), "One rollup per month with orders, in order");
+        assertEquals(2, months.get(YearMonth.of(2020, 1)).getOrderCount(), "January should have both its dates");
+        assertEquals(Money.of(new BigDecimal("1621.80")), months.get(YearMonth.of(2020, 1)).getTotal(), "January totals should be summed");
+        assertEquals("2020-01", months.get(YearMonth.of(2020, 1)).getPeriod(), "Month period name");
+        assertEquals(1, testDao.getMonthlySummaries(YearMonth.of(2020, 2), YearMonth.of(2020, 2)).size(), "Range should limit the months");
+        Map<Year, PeriodSummary> years = testDao.getYearlySummaries(Year.of(2019), Year.of(2020));
+        assertEquals(1, years.get(Year.of(2019)).getOrderCount(), "2019 orders");
+        assertEquals(3, years.get(Year.of(2020)).getOrderCount(), "2020 orders");
+        
+        testDao.removeOrder(dates[1], added.get(1).getOrderNumber());
+        testDao.removeOrder(dates[0], added.get(0).getOrderNumber());
+        years = testDao.getYearlySummaries(Year.of(2019), Year.of(2020));
+        assertFalse(years.containsKey(Year.of(2019)), "Year without orders should be dropped");
+        assertEquals(2, years.get(Year.of(2020)).getOrderCount(), "Removal should roll up");
+        assertEquals(1, testDao.getMonthlySummaries(YearMonth.of(2020, 1), YearMonth.of(2020, 1))
+                .get(YearMonth.of(2020, 1)).getOrderCount(), "Removal should reach the month");
+        
+        //a fresh dao reads the rollup file, and makes it again if it is missing
+        Map<YearMonth, PeriodSummary> expectedMonths = testDao.getMonthlySummaries(YearMonth.of(2019, 1), YearMonth.of(2020, 12));
+        assertTrue(new File("Test/Rollups.txt").exists(), "Rollups should be saved next to the orders folder");
+        FlooringMasteryDao freshDao = new FlooringMasteryDaoFileImpl(ORDER_PATH, PRODUCTS_PATH, TAXES_PATH, EXPORT_PATH);
+        assertEquals(expectedMonths, freshDao.getMonthlySummaries(YearMonth.of(2019, 1), YearMonth.of(2020, 12)),
+                "Rollups should be persisted");
+        new File("Test/Rollups.txt").delete();
+        freshDao = new FlooringMasteryDaoFileImpl(ORDER_PATH, PRODUCTS_PATH, TAXES_PATH, EXPORT_PATH);
+        assertEquals(expectedMonths, freshDao.getMonthlySummaries(YearMonth.of(2019, 1), YearMonth.of(2020, 12)),
+                "Missing rollups should be made from the summaries");
+    }
+    
+    @Test
+    public void testOrdersVersion() throws Exception {
+        LocalDate date = LocalDate.of(2020, 5, 1);
+        long unchanged = testDao.getOrdersVersion(date);
+        Order order = new Order("Joe Ma", "KY", "Tile", new BigDecimal("100.00"));
+        order.setTaxRate(new BigDecimal("6.00"));
+        order.setCostPerSquareFoot(new BigDecimal("3.50"));
+        order.setLaborCostPerSquareFoot(new BigDecimal("4.15"));
+        order.setMaterialCost(new BigDecimal("350.00"));
+        order.setLaborCost(new BigDecimal("415.00"));
+        order.setTax(new BigDecimal("45.90"));
+        order.setTotal(new BigDecimal("810.90"));
+        testDao.addOrder(date, order);
+        long added = testDao.getOrdersVersion(date);
+        assertTrue(added != unchanged, "Adding an order should change the version");
+        assertEquals(added, testDao.getOrdersVersion(date), "Version should stay while nothing changes");
+        assertEquals(0, testDao.getOrdersVersion(date.plusDays(1)), "Other dates should keep their version");
+        
+        //a file changed by hand is read again
+        Path file = Paths.get(ORDER_PATH, "Orders_05012020.txt");
+        Files.write(file, "99,Jane Doe,KY,6.00,Tile,100.00,3.50,4.15,350.00,415.00,45.90,810.90\n".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+        assertTrue(testDao.getOrdersVersion(date) != added, "A hand edit should change the version");
+        assertEquals(2, testDao.getAllOrders(date).size(), "Hand edited order should be read");
+    }
+    
+    @Test
+    public void testSummariesAreAppended() throws Exception {
+        LocalDate first = LocalDate.of(2020, 3, 1);
+        LocalDate second = LocalDate.of(2020, 3, 2);
+        List<Order> added = new ArrayList<>();
+        int summaryLines = 0;
+        int rollupLines = 0;
+        for (LocalDate date : new LocalDate[]{first, first, second}) {
+            Order order = new Order("Joe Ma", "KY", "Tile", new BigDecimal("100.00"));
+            order.setTaxRate(new BigDecimal("6.00"));
+            order.setCostPerSquareFoot(new BigDecimal("3.50"));
+            order.setLaborCostPerSquareFoot(new BigDecimal("4.15"));
+            order.setMaterialCost(new BigDecimal("350.00"));
+            order.setLaborCost(new BigDecimal("415.00"));
+            order.setTax(new BigDecimal("45.90"));
+            order.setTotal(new BigDecimal("810.90"));
+            added.add(testDao.addOrder(date, order));
+            if (added.size() == 1) {
+                summaryLines = Files.readAllLines(Paths.get(ORDER_PATH, "Summaries.txt")).size();
+                rollupLines = Files.readAllLines(Paths.get("Test/Rollups.txt")).size();
+            }
+        }
+        testDao.removeOrder(second, added.get(2).getOrderNumber());
+        
+        assertEquals(summaryLines + 3, Files.readAllLines(Paths.get(ORDER_PATH, "Summaries.txt")).size(),
+                "Each write should append one summary line");
+        assertEquals(rollupLines + 6, Files.readAllLines(Paths.get("Test/Rollups.txt")).size(),
+                "Each write should append its month and year");
+        
+        Map<LocalDate, DailySummary> expected = testDao.getDailySummaries(first, second);
+        FlooringMasteryDao freshDao = new FlooringMasteryDaoFileImpl(ORDER_PATH, PRODUCTS_PATH, TAXES_PATH, EXPORT_PATH);
+        assertEquals(expected, freshDao.getDailySummaries(first, second), "Last line of each date should win");
+        assertFalse(freshDao.getDailySummaries(first, second).containsKey(second), "Emptied date should be dropped");
+        assertEquals(2, freshDao.getMonthlySummaries(YearMonth.of(2020, 3), YearMonth.of(2020, 3))
+                .get(YearMonth.of(2020, 3)).getOrderCount(), "Last line of each month should win");
+    }
+    
+    @Test
+    public void testEditOrders() throws Exception {
+        LocalDate date = LocalDate.of(2020, 4, 1);
+        List<Order> added = new ArrayList<>();
+        for (String area : new String[]{"100.00", "200.00", "300.00"}) {
+            Order order = new Order("Joe Ma", "KY", "Tile", new BigDecimal(area));
+            order.setTaxRate(new BigDecimal("6.00"));
+            order.setCostPerSquareFoot(new BigDecimal("3.50"));
+            order.setLaborCostPerSquareFoot(new BigDecimal("4.15"));
+            order.setMaterialCost(new BigDecimal("1.00"));
+            order.setLaborCost(new BigDecimal("1.00"));
+            order.setTax(new BigDecimal("1.00"));
+            order.setTotal(new BigDecimal("3.00"));
+            added.add(testDao.addOrder(date, order));
+        }
+        
+        List<Order> edited = new ArrayList<>();
+        for (Order order : added.subList(0, 2)) {
+            Order newOrder = new Order(order.getCustomerName(), "KY", "Tile", order.getArea());
+            newOrder.setOrderNumber(order.getOrderNumber());
+            newOrder.setTaxRate(new BigDecimal("7.00"));
+            newOrder.setCostPerSquareFoot(new BigDecimal("3.50"));
+            newOrder.setLaborCostPerSquareFoot(new BigDecimal("4.15"));
+            newOrder.setMaterialCost(new BigDecimal("2.00"));
+            newOrder.setLaborCost(new BigDecimal("2.00"));
+            newOrder.setTax(new BigDecimal("2.00"));
+            newOrder.setTotal(new BigDecimal("6.00"));
+            edited.add(newOrder);
+        }
+        assertEquals(added.subList(0, 2), testDao.editOrders(date, edited), "Old orders should be returned in order");
+        
+        Map<Integer, Order> saved = testDao.getAllOrders(date);
+        assertEquals(edited.get(1), saved.get(edited.get(1).getOrderNumber()), "Edited order should be stored");
+        assertEquals(added.get(2), saved.get(added.get(2).getOrderNumber()), "Other orders should be kept");
+        assertEquals(Money.of(new BigDecimal("15.00")), testDao.getDailySummary(date).getTotal(),
+                "Summary should follow every edit");
+        FlooringMasteryDao freshDao = new FlooringMasteryDaoFileImpl(ORDER_PATH, PRODUCTS_PATH, TAXES_PATH, EXPORT_PATH);
+        assertEquals(saved, freshDao.getAllOrders(date), "Batch should be saved to the order file");
+    }
+    
+    @Test
+    public void testEditUnchangedOrders() throws Exception {
+        LocalDate date = LocalDate.of(2020, 4, 2);
+        for (String area : new String[]{"100.00", "200.00", "300.00"}) {
+            Order order = new Order("Joe Ma", "KY", "Tile", new BigDecimal(area));
+            order.setTaxRate(new BigDecimal("6.00"));
+            order.setCostPerSquareFoot(new BigDecimal("3.50"));
+            order.setLaborCostPerSquareFoot(new BigDecimal("4.15"));
+            order.setMaterialCost(new BigDecimal("1.00"));
+            order.setLaborCost(new BigDecimal("1.00"));
+            order.setTax(new BigDecimal("1.00"));
+            order.setTotal(new BigDecimal("3.00"));
+            testDao.addOrder(date, order);
+        }
+        List<Order> read = new ArrayList<>(new TreeMap<>(testDao.getAllOrders(date)).values());
+        List<Order> repriced = new ArrayList<>();
+        for (Order order : read) {
+            Order newOrder = new Order(order.getCustomerName(), "KY", "Tile", order.getArea());
+            newOrder.setOrderNumber(order.getOrderNumber());
+            newOrder.setTaxRate(new BigDecimal("7.00"));
+            newOrder.setCostPerSquareFoot(new BigDecimal("3.50"));
+            newOrder.setLaborCostPerSquareFoot(new BigDecimal("4.15"));
+            newOrder.setMaterialCost(new BigDecimal("2.00"));
+            newOrder.setLaborCost(new BigDecimal("2.00"));
+            newOrder.setTax(new BigDecimal("2.00"));
+            newOrder.setTotal(new BigDecimal("6.00"));
+            repriced.add(newOrder);
+        }
+        
+        //one order is edited and one removed after they were read
+        Order edited = new Order("Jane Doe", "KY", "Tile", read.get(0).getArea());
+        edited.setOrderNumber(read.get(0).getOrderNumber());
+        edited.setTaxRate(new BigDecimal("6.00"));
+        edited.setCostPerSquareFoot(new BigDecimal("3.50"));
+        edited.setLaborCostPerSquareFoot(new BigDecimal("4.15"));
+        edited.setMaterialCost(new BigDecimal("1.00"));
+        edited.setLaborCost(new BigDecimal("1.00"));
+        edited.setTax(new BigDecimal("1.00"));
+        edited.setTotal(new BigDecimal("3.00"));
+        testDao.editOrder(date, edited.getOrderNumber(), edited);
+        testDao.removeOrder(date, read.get(1).getOrderNumber());
+        
+        assertEquals(List.of(repriced.get(2)), testDao.editUnchangedOrders(date, read, repriced),
+                "Only the unchanged order should be saved");
+        Map<Integer, Order> saved = testDao.getAllOrders(date);
+        assertEquals(edited, saved.get(edited.getOrderNumber()), "Concurrent edit should be kept");
+        assertNull(saved.get(read.get(1).getOrderNumber()), "Removed order should not come back");
+        assertEquals(repriced.get(2), saved.get(read.get(2).getOrderNumber()), "Unchanged order should be repriced");
+        assertEquals(Money.of(new BigDecimal("9.00")), testDao.getDailySummary(date).getTotal(),
+                "Summary should follow the saved orders");
+    }
+    
+    @Test
+    public void testAddOrderWithRequestId() throws Exception {
+        LocalDate date = LocalDate.of(2020, 5, 1);
+        Order first = new Order("Joe Ma", "KY", "Tile", new BigDecimal("100.00"));
+        first.setTaxRate(new BigDecimal("6.00"));
+        first.setCostPerSquareFoot(new BigDecimal("3.50"));
+        first.setLaborCostPerSquareFoot(new BigDecimal("4.15"));
+        first.setMaterialCost(new BigDecimal("350.00"));
+        first.setLaborCost(new BigDecimal("415.00"));
+        first.setTax(new BigDecimal("45.90"));
+        first.setTotal(new BigDecimal("810.90"));
+        Order added = testDao.addOrder(date, first, "request-1");
+        
+        Order retry = new Order("Joe Ma", "KY", "Tile", new BigDecimal("100.00"));
+        retry.setTaxRate(new BigDecimal("6.00"));
+        retry.setCostPerSquareFoot(new BigDecimal("3.50"));
+        retry.setLaborCostPerSquareFoot(new BigDecimal("4.15"));
+        retry.setMaterialCost(new BigDecimal("350.00"));
+        retry.setLaborCost(new BigDecimal("415.00"));
+        retry.setTax(new BigDecimal("45.90"));
+        retry.setTotal(new BigDecimal("810.90"));
+        assertEquals(added.getOrderNumber(), testDao.addOrder(date, retry, "request-1").getOrderNumber(),
+                "Retry should get the first order back");
+        assertEquals(1, testDao.getAllOrders(date).size(), "Retry should not add an order");
+        
+        FlooringMasteryDao restartedDao = new FlooringMasteryDaoFileImpl(ORDER_PATH, PRODUCTS_PATH, TAXES_PATH, EXPORT_PATH);
+        assertEquals(added, restartedDao.addOrder(date, retry, "request-1"), "Request ids should survive a restart");
+        assertEquals(1, restartedDao.getAllOrders(date).size(), "Retry after a restart should not add an order");
+        
+        restartedDao.removeOrder(date, added.getOrderNumber());
+        Order again = restartedDao.addOrder(date, retry, "request-1");
+        assertSame(retry, again, "Request of a removed order should add it again");
+        assertEquals(1, restartedDao.getAllOrders(date).size(), "Only the new order should be on the date");
+    }
+    
+    private Order pricedOrder(String customerName) {
+        Order order = new Order(customerName, "KY", "Tile", new BigDecimal("100.00"));
+        order.setTaxRate(new BigDecimal("6.00"));
+        order.setCostPerSquareFoot(new BigDecimal("3.50"));
+        order.setLaborCostPerSquareFoot(new BigDecimal("4.15"));
+        order.setMaterialCost(new BigDecimal("350.00"));
+        order.setLaborCost(new BigDecimal("415.00"));
+        order.setTax(new BigDecimal("45.90"));
+        order.setTotal(new BigDecimal("810.90"));
+        return order;
+    }
+    
+    @Test
+    public void testReadsGetSnapshots() throws Exception {
+        LocalDate date = LocalDate.of(2020, 6, 1);
+        testDao.addOrder(date, pricedOrder("Joe Ma"));
+        Map<Integer, Order> before = testDao.getAllOrders(date);
+        assertSame(before, testDao.getAllOrders(date), "Unchanged date should not be copied");
+        assertThrows(UnsupportedOperationException.class, () -> before.put(0, new Order()), "Orders should be read only");
+        assertThrows(UnsupportedOperationException.class, () -> testDao.getAllProducts().clear(), "Products should be read only");
+        assertThrows(UnsupportedOperationException.class, () -> testDao.getAllStates().clear(), "States should be read only");
+        assertSame(testDao.getAllProducts(), testDao.getAllProducts(), "Unchanged products should not be copied");
+        
+        testDao.addOrder(date, pricedOrder("Mia K"));
+        assertEquals(1, before.size(), "Snapshot should not see later writes");
+        assertEquals(2, testDao.getAllOrders(date).size(), "New snapshot should see the write");
+        
+        //every snapshot a reader gets is whole, while a writer adds orders
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        Future<?> writes = writer.submit(() -> {
+            for (int i = 0; i < 100; i++) {
+                testDao.addOrder(date, pricedOrder("Writer"));
+            }
+            return null;
+        });
+        int lastSize = 2;
+        while (!writes.isDone()) {
+            Map<Integer, Order> snapshot = testDao.getAllOrders(date);
+            int entries = 0;
+            for (Map.Entry<Integer, Order> entry : snapshot.entrySet()) {
+                assertEquals((int) entry.getKey(), entry.getValue().getOrderNumber(), "Snapshot should be consistent");
+                entries++;
+            }
+            assertEquals(snapshot.size(), entries, "Snapshot should not change while it is read");
+            assertTrue(snapshot.size() >= lastSize, "Later snapshots should not lose orders");
+            lastSize = snapshot.size();
+        }
+        writes.get();
+        writer.shutdown();
+        assertEquals(102, testDao.getAllOrders(date).size(), "Every order should be added");
+    }
+
+    @Test
+    public void testStoredOrdersAreReadOnly() throws Exception {
+        LocalDate date = LocalDate.of(2020, 6, 2);
+        Order added = testDao.addOrder(date, pricedOrder("Joe Ma"));
+        DailySummary summary = testDao.getDailySummary(date);
+        
+        //the order passed in is not the one stored
+        added.setCustomerName("Changed");
+        added.setTotal(new BigDecimal("1.00"));
+        Order stored = testDao.getOrder(date, added.getOrderNumber());
+        assertEquals("Joe Ma", stored.getCustomerName(), "Changing the added order should not change the stored one");
+        assertThrows(UnsupportedOperationException.class, () -> stored.setTotal(new BigDecimal("1.00")),
+                "Stored order should be read only");
+        assertThrows(UnsupportedOperationException.class, () -> testDao.getAllOrders(date).get(added.getOrderNumber())
+                .setCustomerName("Changed"), "Orders of a date should be read only");
+        assertEquals(summary, testDao.getDailySummary(date), "Summary should not change");
+        
+        //orders read from the file and from the off heap store too
+        FlooringMasteryDao freshDao = new FlooringMasteryDaoFileImpl(ORDER_PATH, PRODUCTS_PATH, TAXES_PATH, EXPORT_PATH);
+        assertTrue(freshDao.getOrder(date, added.getOrderNumber()).isReadOnly(), "Loaded order should be read only");
+        FlooringMasteryDao offHeapDao = new FlooringMasteryDaoFileImpl(ORDER_PATH, PRODUCTS_PATH, TAXES_PATH, EXPORT_PATH,
+                ARCHIVE_PATH, new FlooringMasteryOffHeapOrderStore());
+        assertTrue(offHeapDao.getOrder(date, added.getOrderNumber()).isReadOnly(), "Off heap order should be read only");
+        
+        Order copy = new Order(stored);
+        copy.setCustomerName("Mia K");
+        assertEquals("Mia K", copy.getCustomerName(), "A copy should be changeable");
+        
+        //the service hands out the orders of its cache, which come from the dao
+        FlooringMasteryServiceLayer service = new FlooringMasteryServiceLayerImpl(testDao,
+                new FlooringMasteryAuditDaoFileImplTestStub());
+        LocalDate future = LocalDate.now().plusDays(1);
+        Order placed = service.addOrder(future, pricedOrder("Ada"));
+        Order read = service.getOrder(future, placed.getOrderNumber());
+        assertThrows(UnsupportedOperationException.class, () -> read.setCustomerName("Changed"),
+                "Order from the service should be read only");
+        assertThrows(UnsupportedOperationException.class, () -> service.getOrder(future, placed.getOrderNumber())
+                .setTotal(new BigDecimal("1.00")), "Cached order should be read only");
+        assertEquals("Ada", service.getAllOrders(future).get(placed.getOrderNumber()).getCustomerName(),
+                "Cached order should not change");
+    }
+
+    @Test
+    public void testBatchWritesAddsTogether() throws Exception {
+        LocalDate firstDate = LocalDate.of(2020, 7, 1);
+        LocalDate secondDate = LocalDate.of(2020, 7, 2);
+        testDao.beginBatch();
+        Order first = testDao.addOrder(firstDate, pricedOrder("Joe Ma"));
+        testDao.addOrder(secondDate, pricedOrder("Mia K"));
+        testDao.addOrder(firstDate, pricedOrder("Ada"));
+        
+        //reads see the adds at once, the files only when the batch ends
+        assertEquals(2, testDao.getAllOrders(firstDate).size(), "Batch should read its own adds");
+        assertEquals(2, testDao.getDailySummary(firstDate).getOrderCount(), "Summary should be kept at once");
+        assertFalse(new File(ORDER_PATH + "/Orders_07012020.txt").exists(), "Adds should wait for the batch");
+        
+        //any other change writes the adds before it
+        testDao.removeOrder(firstDate, first.getOrderNumber());
+        assertEquals(1, new FlooringMasteryDaoFileImpl(ORDER_PATH, PRODUCTS_PATH, TAXES_PATH, EXPORT_PATH)
+                .getAllOrders(secondDate).size(), "Adds should be written before a remove");
+        
+        Order last = testDao.addOrder(secondDate, pricedOrder("Lee"));
+        testDao.endBatch();
+        FlooringMasteryDao freshDao = new FlooringMasteryDaoFileImpl(ORDER_PATH, PRODUCTS_PATH, TAXES_PATH, EXPORT_PATH);
+        assertEquals(Set.of(first.getOrderNumber() + 1, last.getOrderNumber()), freshDao.getAllOrders(secondDate).keySet(),
+                "Adds after the remove should be written when the batch ends");
+        assertEquals(1, freshDao.getAllOrders(firstDate).size(), "Removed order should stay removed");
+        assertEquals(DailySummary.of(secondDate, freshDao.getAllOrders(secondDate).values()),
+                freshDao.getDailySummary(secondDate), "Summary should be written with the orders");
+        assertEquals(3, freshDao.getMonthlySummaries(YearMonth.of(2020, 7), YearMonth.of(2020, 7))
+                .get(YearMonth.of(2020, 7)).getOrderCount(), "Rollup should be written with the orders");
+    }
+
+    @Test
+    public void testDailySummaryAfterServiceEdit() throws Exception {
+        FlooringMasteryServiceLayer service = new FlooringMasteryServiceLayerImpl(testDao,
+                new FlooringMasteryAuditDaoFileImplTestStub());
+        LocalDate date = LocalDate.now().plusDays(1);
+        Order order = service.addOrder(date, new Order("Joe Ma", "KY", "Tile", new BigDecimal("100.00")));
+        Order edit = new Order("", "", "Wood", new BigDecimal("500.00"));
+        service.editOrder(date, order.getOrderNumber(), edit);
+        
+        DailySummary summary = testDao.getDailySummary(date);
+        assertEquals(1, summary.getOrderCount(), "Edit should not change the order count");
+        assertEquals(DailySummary.of(date, testDao.getAllOrders(date).values()), summary,
+                "Summary should take out the old totals of an edited order");
+        assertEquals(new BigDecimal("500.00"), summary.getArea(), "Summary should have the new area only");
+    }
 }
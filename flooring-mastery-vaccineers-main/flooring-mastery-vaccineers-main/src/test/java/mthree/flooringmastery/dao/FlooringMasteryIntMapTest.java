@@ -0,0 +1,64 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.dao;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Int map test. Checks the int map against a HashMap.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public class FlooringMasteryIntMapTest {
+
+    @Test
+    public void testMatchesHashMap() {
+        FlooringMasteryIntMap<String> testMap = new FlooringMasteryIntMap<>();
+        Map<Integer, String> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(2_000) - 1_000;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), testMap.remove(key), "Remove should match");
+            } else {
+                String value = "v" + i;
+                assertEquals(expected.put(key, value), testMap.put(key, value), "Put should match");
+            }
+        }
+
+        assertEquals(expected.size(), testMap.size(), "Size should match");
+        for (int key = -1_000; key < 1_000; key++) {
+            assertEquals(expected.get(key), testMap.get(key), "Get should match");
+        }
+        assertEquals(expected, testMap.asMap(), "View should equal the HashMap");
+    }
+
+    @Test
+    public void testReadOnlyView() {
+        FlooringMasteryIntMap<String> testMap = new FlooringMasteryIntMap<>();
+        testMap.put(1, "one");
+        Map<Integer, String> view = testMap.asMap();
+
+        assertThrows(UnsupportedOperationException.class, () -> view.put(2, "two"), "View should be read only");
+        assertThrows(UnsupportedOperationException.class, () -> view.remove(1), "View should be read only");
+        assertNull(view.get("1"), "Non int keys should not be found");
+
+        testMap.put(2, "two");
+        assertEquals(2, view.size(), "View should see later changes");
+        assertEquals("two", view.get(2), "View should see later changes");
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.dao;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import mthree.flooringmastery.dto.Order;
+import mthree.flooringmastery.dto.Product;
+import mthree.flooringmastery.dto.State;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Off heap order store test. Checks that orders come back exactly as stored.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public class FlooringMasteryOffHeapOrderStoreTest {
+
+    private FlooringMasteryOffHeapOrderStore testStore = new FlooringMasteryOffHeapOrderStore();
+
+    private Order buildOrder(int orderNumber, String customerName, String state) {
+        Order order = new Order();
+        order.setOrderNumber(orderNumber);
+        order.setCustomerName(customerName);
+        order.setState(state);
+        order.setTaxRate(new BigDecimal("25.00"));
+        order.setProductType("Tile");
+        order.setArea(new BigDecimal("249.00"));
+        order.setCostPerSquareFoot(new BigDecimal("3.50"));
+        order.setLaborCostPerSquareFoot(new BigDecimal("4.15"));
+        order.setMaterialCost(new BigDecimal("871.50"));
+        order.setLaborCost(new BigDecimal("1033.35"));
+        order.setTax(new BigDecimal("476.21"));
+        order.setTotal(new BigDecimal("2381.06"));
+        return order;
+    }
+
+    @Test
+    public void testPutGetOrder() {
+        LocalDate date = LocalDate.of(2013, 6, 1);
+        Order order = buildOrder(1, "Ada Lovelace", "CA");
+
+        assertNull(testStore.putOrder(date, 1, order), "Nothing should be replaced");
+        Order stored = testStore.getOrder(date, 1);
+
+        assertEquals(order, stored, "Stored order should come back the same");
+        assertNotSame(order, stored, "Orders should be built on access");
+        assertNull(testStore.getOrder(date, 2), "Unknown order should be null");
+        assertNull(testStore.getOrder(date.plusDays(1), 1), "Unknown date should be null");
+    }
+
+    @Test
+    public void testReplaceAndRemoveOrder() {
+        LocalDate date = LocalDate.of(2013, 6, 1);
+        Order first = buildOrder(1, "Ada Lovelace", "CA");
+        Order second = buildOrder(1, "Doctor Who", "WA");
+
+        testStore.putOrder(date, 1, first);
+        assertEquals(first, testStore.putOrder(date, 1, second), "Old order should be returned");
+        assertEquals(second, testStore.getOrder(date, 1), "New order should be stored");
+        assertEquals(3, testStore.getDictionarySize(), "Replaced name and state should be dropped");
+
+        assertEquals(second, testStore.removeOrder(date, 1), "Removed order should be returned");
+        assertTrue(testStore.getOrders(date).isEmpty(), "Date should stay with no orders");
+        assertEquals(0, testStore.getOrderCount(), "No orders should be left");
+    }
+
+    @Test
+    public void testPutRemoveDate() {
+        LocalDate date = LocalDate.of(2013, 6, 2);
+        Map<Integer, Order> dateOrders = new HashMap<>();
+        for (int i = 1; i <= 1000; i++) {
+            dateOrders.put(i, buildOrder(i, "Customer " + (i % 10), "KY"));
+        }
+
+        testStore.putDate(date, dateOrders);
+        assertTrue(testStore.hasDate(date), "Date should be stored");
+        assertEquals(dateOrders, testStore.getOrders(date), "All orders of the date should come back");
+        assertEquals(12, testStore.getDictionarySize(), "Repeated strings should be stored once");
+
+        testStore.removeDate(date);
+        assertFalse(testStore.hasDate(date), "Date should be gone");
+        assertNull(testStore.getOrders(date), "Date should be gone");
+        assertNull(testStore.getOrder(date, 5), "Orders of the date should be gone");
+        assertEquals(0, testStore.getOrderCount(), "No orders should be left");
+        assertEquals(0, testStore.getDictionarySize(), "Strings of removed orders should be dropped");
+    }
+
+    @Test
+    public void testOrdersShareCatalogEntries() {
+        State california = new State("CA", "California", new BigDecimal("25.00"));
+        Product tile = new Product("Tile", new BigDecimal("3.50"), new BigDecimal("4.15"));
+        FlooringMasteryOffHeapOrderStore catalogStore = new FlooringMasteryOffHeapOrderStore(
+                abbreviation -> abbreviation.equals("CA") ? california : null,
+                productType -> productType.equals("Tile") ? tile : null);
+        LocalDate date = LocalDate.of(2013, 6, 3);
+        catalogStore.putOrder(date, 1, buildOrder(1, "Ada Lovelace", "CA"));
+        catalogStore.putOrder(date, 2, buildOrder(2, "Alan Turing", "CA"));
+        catalogStore.putOrder(date, 3, buildOrder(3, "Grace Hopper", "KY"));
+
+        Map<Integer, Order> dateOrders = catalogStore.getOrders(date);
+        assertSame(california, dateOrders.get(1).getStateEntry(), "Order should point at the catalog state");
+        assertSame(california, dateOrders.get(2).getStateEntry(), "Orders should share the catalog state");
+        assertSame(tile, dateOrders.get(2).getProductEntry(), "Orders should share the catalog product");
+        assertEquals("KY", dateOrders.get(3).getState(), "State not in the catalog should be kept");
+        assertEquals(buildOrder(1, "Ada Lovelace", "CA"), dateOrders.get(1), "Order should come back as stored");
+    }
+}
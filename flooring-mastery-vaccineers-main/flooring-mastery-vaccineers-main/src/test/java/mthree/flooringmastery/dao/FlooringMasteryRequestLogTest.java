@@ -0,0 +1,83 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.dao;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the request log is bounded, expires old receipts and survives
+ * a restart.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public class FlooringMasteryRequestLogTest {
+
+    private static final String LOG_FILE = "Test/RequestLog.txt";
+    private static final LocalDate DATE = LocalDate.of(2030, 1, 1);
+    private static final LocalDateTime NOW = LocalDateTime.of(2029, 12, 1, 12, 0);
+
+    @AfterEach
+    public void tearDown() {
+        new File(LOG_FILE).delete();
+    }
+
+    @Test
+    public void testReceiptsExpireAndStayBounded() throws Exception {
+        FlooringMasteryRequestLog log = new FlooringMasteryRequestLog(LOG_FILE, 3, Duration.ofHours(1));
+        assertNull(log.get("a", NOW), "Unknown request");
+        log.put("a", DATE, 1, NOW);
+        log.put("b", DATE, 2, NOW.plusMinutes(30));
+        FlooringMasteryRequestLog.Receipt receipt = log.get("a", NOW.plusMinutes(59));
+        assertEquals(1, receipt.getOrderNumber(), "Receipt should point at the order");
+        assertEquals(DATE, receipt.getDate(), "Receipt should keep the order date");
+        assertNull(log.get("a", NOW.plusMinutes(60)), "Receipt should expire after its time to live");
+        assertNotNull(log.get("b", NOW.plusMinutes(60)), "Newer receipt should still be kept");
+
+        log.put("c", DATE, 3, NOW.plusMinutes(61));
+        log.put("d", DATE, 4, NOW.plusMinutes(62));
+        log.put("e", DATE, 5, NOW.plusMinutes(63));
+        assertEquals(3, log.size(NOW.plusMinutes(63)), "Log should not grow past its capacity");
+        assertNull(log.get("b", NOW.plusMinutes(63)), "Oldest receipt should be dropped first");
+        assertThrows(IllegalArgumentException.class, () -> log.put("x\ny", DATE, 6, NOW), "Request id must be one line");
+    }
+
+    @Test
+    public void testReceiptsArePersisted() throws Exception {
+        FlooringMasteryRequestLog log = new FlooringMasteryRequestLog(LOG_FILE, 2, Duration.ofHours(1));
+        log.put("a,with,commas", DATE, 1, NOW);
+        log.put("b", DATE, 2, NOW);
+        log.put("a,with,commas", DATE, 3, NOW.plusMinutes(1));
+
+        FlooringMasteryRequestLog restarted = new FlooringMasteryRequestLog(LOG_FILE, 2, Duration.ofHours(1));
+        assertEquals(3, restarted.get("a,with,commas", NOW.plusMinutes(2)).getOrderNumber(),
+                "Latest receipt of a request should win");
+        assertEquals(2, restarted.get("b", NOW.plusMinutes(2)).getOrderNumber(), "Other receipts should be read back");
+
+        for (int i = 0; i < 10; i++) {
+            restarted.put("r" + i, DATE, 10 + i, NOW.plusMinutes(3 + i));
+        }
+        assertTrue(Files.readAllLines(new File(LOG_FILE).toPath()).size() < 4,
+                "File should be written again once it has twice the capacity");
+        restarted = new FlooringMasteryRequestLog(LOG_FILE, 2, Duration.ofHours(1));
+        assertEquals(19, restarted.get("r9", NOW.plusMinutes(13)).getOrderNumber(), "Newest receipt should survive");
+        assertNull(restarted.get("r0", NOW.plusMinutes(13)), "Receipts over the capacity should not come back");
+    }
+}
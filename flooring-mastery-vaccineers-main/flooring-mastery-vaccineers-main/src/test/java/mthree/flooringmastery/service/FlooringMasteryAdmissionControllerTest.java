@@ -0,0 +1,149 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the admission controller bounds the queue and the rate of
+ * writes and counts what it admits, rejects and holds.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public class FlooringMasteryAdmissionControllerTest {
+
+    @Test
+    public void testQueueDepthIsBounded() throws Exception {
+        FlooringMasteryAdmissionController admission = new FlooringMasteryAdmissionController(
+                2, 0, 0, FlooringMasteryAdmissionController.Policy.REJECT, Duration.ofSeconds(5));
+        admission.acquire();
+        admission.acquire();
+        assertEquals(2, admission.getQueueDepth(), "Both writes should be in the queue");
+        assertThrows(FlooringMasteryOverloadedException.class, admission::acquire, "Full queue should reject");
+        admission.release();
+        admission.acquire();
+        admission.release();
+        admission.release();
+        assertEquals(0, admission.getQueueDepth(), "Released writes should leave the queue");
+        assertEquals(3, admission.getAdmitted(), "Admitted writes should be counted");
+        assertEquals(1, admission.getRejected(), "Rejected writes should be counted");
+        assertEquals(3, admission.getMaxQueueDepth(), "Rejected caller should show in the highest depth");
+    }
+
+    @Test
+    public void testWaitPolicyHoldsCaller() throws Exception {
+        FlooringMasteryAdmissionController admission = new FlooringMasteryAdmissionController(
+                1, 0, 0, FlooringMasteryAdmissionController.Policy.WAIT, Duration.ofSeconds(5));
+        admission.acquire();
+        CompletableFuture<Void> waiting = CompletableFuture.runAsync(() -> {
+            try {
+                admission.acquire();
+            } catch (FlooringMasteryOverloadedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        while (admission.getQueueDepth() < 2) {
+            Thread.sleep(1);
+        }
+        assertFalse(waiting.isDone(), "Caller should wait while the queue is full");
+        admission.release();
+        waiting.join();
+        assertEquals(1, admission.getWaited(), "Held caller should be counted");
+        assertTrue(admission.getTotalWait().compareTo(Duration.ZERO) > 0, "Wait should be timed");
+
+        FlooringMasteryAdmissionController shortWait = new FlooringMasteryAdmissionController(
+                1, 0, 0, FlooringMasteryAdmissionController.Policy.WAIT, Duration.ofMillis(20));
+        shortWait.acquire();
+        assertThrows(FlooringMasteryOverloadedException.class, shortWait::acquire, "Caller should give up after the longest wait");
+        assertEquals(1, shortWait.getQueueDepth(), "Caller which gave up should leave the queue");
+    }
+
+    @Test
+    public void testWaitingCallersAreBounded() throws Exception {
+        FlooringMasteryAdmissionController admission = new FlooringMasteryAdmissionController(
+                1, 1, 0, 0, FlooringMasteryAdmissionController.Policy.WAIT, Duration.ofSeconds(5));
+        admission.acquire();
+        CompletableFuture<Void> waiting = CompletableFuture.runAsync(() -> {
+            try {
+                admission.acquire();
+            } catch (FlooringMasteryOverloadedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        while (admission.getQueueDepth() < 2) {
+            Thread.sleep(1);
+        }
+        assertThrows(FlooringMasteryOverloadedException.class, admission::acquire, "Full waiting room should reject at once");
+        assertEquals(2, admission.getMaxQueueDepth(), "Rejected caller should not join the queue");
+        admission.release();
+        waiting.join();
+        assertEquals(1, admission.getRejected(), "Rejected caller should be counted");
+    }
+
+    @Test
+    public void testQueueDepthHoldsWhileWaitingForTokens() throws Exception {
+        FlooringMasteryAdmissionController admission = new FlooringMasteryAdmissionController(
+                2, 8, 100, 1, FlooringMasteryAdmissionController.Policy.WAIT, Duration.ofSeconds(5));
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger mostRunning = new AtomicInteger();
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            writes.add(CompletableFuture.runAsync(() -> {
+                try {
+                    admission.acquire();
+                    try {
+                        mostRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        Thread.sleep(50);
+                        running.decrementAndGet();
+                    } finally {
+                        admission.release();
+                    }
+                } catch (FlooringMasteryOverloadedException | InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(writes.toArray(new CompletableFuture<?>[0])).join();
+        executor.shutdown();
+        assertTrue(mostRunning.get() <= 2, "Callers woken for a token should not pass the queue depth");
+        assertEquals(8, admission.getAdmitted(), "Every write should be admitted");
+    }
+
+    @Test
+    public void testTokenBucketLimitsRate() throws Exception {
+        FlooringMasteryAdmissionController reject = new FlooringMasteryAdmissionController(
+                10, 0.1, 2, FlooringMasteryAdmissionController.Policy.REJECT, Duration.ofSeconds(5));
+        reject.acquire();
+        reject.acquire();
+        assertThrows(FlooringMasteryOverloadedException.class, reject::acquire, "Burst should be used up");
+        assertEquals(2, reject.getQueueDepth(), "Rejected caller should leave the queue");
+
+        FlooringMasteryAdmissionController wait = new FlooringMasteryAdmissionController(
+                10, 50, 1, FlooringMasteryAdmissionController.Policy.WAIT, Duration.ofSeconds(5));
+        wait.acquire();
+        long start = System.nanoTime();
+        wait.acquire();
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(10).toNanos(), "Caller should wait for the next token");
+        assertEquals(1, wait.getWaited(), "Held caller should be counted");
+        assertEquals(0, wait.getRejected(), "Nothing should be rejected");
+    }
+}
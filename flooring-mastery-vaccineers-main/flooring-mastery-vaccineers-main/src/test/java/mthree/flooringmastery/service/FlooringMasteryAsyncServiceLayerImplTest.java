@@ -0,0 +1,129 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import mthree.flooringmastery.dto.Order;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the asynchronous service completes its futures in order, maps
+ * errors to typed failures and admits writes through its controller.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public class FlooringMasteryAsyncServiceLayerImplTest {
+
+    private final FlooringMasteryServiceLayerImpl service = new FlooringMasteryServiceLayerImpl(
+            new FlooringMasteryDaoFileImplTestStub(), new FlooringMasteryAuditDaoFileImplTestStub());
+
+    private Order draft() {
+        return new Order("Test Subject", "TX", "Test Product", new BigDecimal("100"));
+    }
+
+    private FlooringMasteryServiceFailureException.Kind failureKind(CompletableFuture<?> future) {
+        CompletionException e = assertThrows(CompletionException.class, future::join, "Call should fail");
+        assertTrue(e.getCause() instanceof FlooringMasteryServiceFailureException, "Failure should be typed");
+        return ((FlooringMasteryServiceFailureException) e.getCause()).getKind();
+    }
+
+    @Test
+    public void testCallsCompleteInOrder() throws Exception {
+        try (FlooringMasteryAsyncServiceLayerImpl asyncService = new FlooringMasteryAsyncServiceLayerImpl(service)) {
+            LocalDate tomorrow = LocalDate.now().plusDays(1);
+            assertEquals(service.createOrder(draft()).getTotal(),
+                    asyncService.addOrder(tomorrow, draft()).join().getTotal(), "Order priced incorrectly");
+
+            ConcurrentLinkedQueue<Integer> completed = new ConcurrentLinkedQueue<>();
+            List<CompletableFuture<Order>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                int call = i;
+                futures.add(asyncService.addOrder(tomorrow, draft()).whenComplete((order, e) -> completed.add(call)));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+            int expected = 0;
+            for (int call : completed) {
+                assertEquals(expected++, call, "Calls should complete in the order they were made");
+            }
+            assertEquals(200, expected, "Every call should complete");
+            asyncService.exportData().join();
+        }
+    }
+
+    @Test
+    public void testFailuresAreTyped() {
+        FlooringMasteryAsyncServiceLayerImpl asyncService = new FlooringMasteryAsyncServiceLayerImpl(service);
+        assertEquals(FlooringMasteryServiceFailureException.Kind.INVALID_DATE,
+                failureKind(asyncService.addOrder(LocalDate.now(), draft())), "Today is not in the future");
+        Order badState = draft();
+        badState.setState("ZZ");
+        assertEquals(FlooringMasteryServiceFailureException.Kind.STATE_NOT_FOUND,
+                failureKind(asyncService.addOrder(LocalDate.now().plusDays(1), badState)), "State does not exist");
+
+        asyncService.close();
+        assertEquals(FlooringMasteryServiceFailureException.Kind.CLOSED,
+                failureKind(asyncService.getOrder(LocalDate.now(), 1)), "Closed service should refuse calls");
+    }
+
+    @Test
+    public void testExecutionModes() {
+        FlooringMasteryAsyncServiceLayerImpl.ExecutionMode expected
+                = FlooringMasteryAsyncServiceLayerImpl.isVirtualThreadsSupported()
+                ? FlooringMasteryAsyncServiceLayerImpl.ExecutionMode.VIRTUAL
+                : FlooringMasteryAsyncServiceLayerImpl.ExecutionMode.PLATFORM;
+        for (FlooringMasteryAsyncServiceLayerImpl.ExecutionMode mode : FlooringMasteryAsyncServiceLayerImpl.ExecutionMode.values()) {
+            try (FlooringMasteryAsyncServiceLayerImpl asyncService = new FlooringMasteryAsyncServiceLayerImpl(service, mode, 4)) {
+                assertEquals(mode == FlooringMasteryAsyncServiceLayerImpl.ExecutionMode.VIRTUAL ? expected : mode,
+                        asyncService.getExecutionMode(), "Virtual threads should fall back to the platform pool");
+                List<CompletableFuture<Order>> futures = new ArrayList<>();
+                for (int i = 0; i < 200; i++) {
+                    futures.add(asyncService.addOrder(LocalDate.now().plusDays(1), draft()));
+                }
+                for (CompletableFuture<Order> future : futures) {
+                    assertEquals(new BigDecimal("202.00"), future.join().getTotal(), "Order priced incorrectly in " + mode);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testWritesNeedAdmission() throws Exception {
+        FlooringMasteryAdmissionController admission = new FlooringMasteryAdmissionController(
+                1, 0, 0, FlooringMasteryAdmissionController.Policy.REJECT, Duration.ZERO);
+        try (FlooringMasteryAsyncServiceLayerImpl asyncService = new FlooringMasteryAsyncServiceLayerImpl(
+                service, FlooringMasteryAsyncServiceLayerImpl.ExecutionMode.SERIAL, 1, admission)) {
+            LocalDate tomorrow = LocalDate.now().plusDays(1);
+            admission.acquire();
+            assertEquals(FlooringMasteryServiceFailureException.Kind.OVERLOADED,
+                    failureKind(asyncService.addOrder(tomorrow, draft())), "Write over the queue depth should be rejected");
+            //reads do not need admission
+            asyncService.getAllOrders(LocalDate.now()).join();
+            admission.release();
+
+            asyncService.addOrder(tomorrow, draft()).join();
+            assertEquals(FlooringMasteryServiceFailureException.Kind.STATE_NOT_FOUND,
+                    failureKind(asyncService.addOrder(tomorrow, new Order("Test Subject", "ZZ", "Test Product", BigDecimal.TEN))),
+                    "Failed write should keep its kind");
+            assertEquals(0, admission.getQueueDepth(), "Done and failed writes should be released");
+            assertEquals(3, admission.getAdmitted(), "Admitted writes should be counted");
+            assertEquals(1, admission.getRejected(), "Rejected writes should be counted");
+        }
+    }
+}
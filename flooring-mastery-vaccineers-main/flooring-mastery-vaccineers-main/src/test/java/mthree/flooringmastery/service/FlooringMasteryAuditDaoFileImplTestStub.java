@@ -6,8 +6,12 @@
  */
 package mthree.flooringmastery.service;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import mthree.flooringmastery.dao.FlooringMasteryAuditDao;
 import mthree.flooringmastery.dao.FlooringMasteryPersistenceException;
+import mthree.flooringmastery.dto.AuditRecord;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -32,4 +36,24 @@ public class FlooringMasteryAuditDaoFileImplTestStub implements FlooringMasteryA
         //nothing
     }
     
+    @Override
+    public void writeAuditRecord(AuditRecord record) throws FlooringMasteryPersistenceException {
+        //nothing
+    }
+    
+    @Override
+    public List<AuditRecord> getAuditRecords(LocalDateTime from, LocalDateTime to) throws FlooringMasteryPersistenceException {
+        return new ArrayList<>();
+    }
+    
+    @Override
+    public List<AuditRecord> getAuditRecords(int orderNumber) throws FlooringMasteryPersistenceException {
+        return new ArrayList<>();
+    }
+    
+    @Override
+    public void close() throws FlooringMasteryPersistenceException {
+        //nothing
+    }
+    
 }
@@ -8,11 +8,20 @@ package mthree.flooringmastery.service;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import mthree.flooringmastery.dao.FlooringMasteryDao;
 import mthree.flooringmastery.dao.FlooringMasteryPersistenceException;
+import mthree.flooringmastery.dto.DailySummary;
 import mthree.flooringmastery.dto.Order;
+import mthree.flooringmastery.dto.PeriodSummary;
 import mthree.flooringmastery.dto.Product;
 import mthree.flooringmastery.dto.State;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -59,6 +68,16 @@ public class FlooringMasteryDaoFileImplTestStub implements FlooringMasteryDao{
         return order;
     }
 
+    @Override
+    public Order addOrder(LocalDate date, Order order, String requestId) throws FlooringMasteryPersistenceException {
+        return order;
+    }
+
+    @Override
+    public Order getRequestedOrder(String requestId) throws FlooringMasteryPersistenceException {
+        return null;
+    }
+
     @Override
     public Order getOrder(LocalDate date, int orderNumber) throws FlooringMasteryPersistenceException {
         return onlyOrder;
@@ -78,6 +97,21 @@ public class FlooringMasteryDaoFileImplTestStub implements FlooringMasteryDao{
         return onlyOrder;
     }
 
+    @Override
+    public List<Order> editOrders(LocalDate date, Collection<Order> newOrders) throws FlooringMasteryPersistenceException {
+        List<Order> oldOrders = new ArrayList<>();
+        for (Order newOrder : newOrders) {
+            oldOrders.add(onlyOrder);
+        }
+        return oldOrders;
+    }
+
+    @Override
+    public List<Order> editUnchangedOrders(LocalDate date, List<Order> readOrders, List<Order> newOrders) throws FlooringMasteryPersistenceException {
+        editOrders(date, newOrders);
+        return new ArrayList<>(newOrders);
+    }
+
     @Override
     public Order removeOrder(LocalDate date, int orderNumber) throws FlooringMasteryPersistenceException {
         return onlyOrder;
@@ -88,6 +122,19 @@ public class FlooringMasteryDaoFileImplTestStub implements FlooringMasteryDao{
         //nothing
     }
 
+    @Override
+    public int archiveOrders(LocalDate cutoff) throws FlooringMasteryPersistenceException {
+        return 0;
+    }
+
+    @Override
+    public void beginBatch() throws FlooringMasteryPersistenceException {
+    }
+
+    @Override
+    public void endBatch() throws FlooringMasteryPersistenceException {
+    }
+
     @Override
     public Map<String, Product> getAllProducts() throws FlooringMasteryPersistenceException {
         Map<String, Product> products = new HashMap<>();
@@ -101,5 +148,50 @@ public class FlooringMasteryDaoFileImplTestStub implements FlooringMasteryDao{
         states.put(onlyState.getStateAbbreviation(), onlyState);
         return states;
     }
+
+    @Override
+    public long getCatalogVersion() throws FlooringMasteryPersistenceException {
+        return 1;
+    }
+
+    @Override
+    public long getOrdersVersion(LocalDate date) throws FlooringMasteryPersistenceException {
+        return 1;
+    }
+
+    @Override
+    public DailySummary getDailySummary(LocalDate date) throws FlooringMasteryPersistenceException {
+        return DailySummary.empty(date).plus(onlyOrder);
+    }
+
+    @Override
+    public SortedMap<LocalDate, DailySummary> getDailySummaries(LocalDate from, LocalDate to) throws FlooringMasteryPersistenceException {
+        SortedMap<LocalDate, DailySummary> summaries = new TreeMap<>();
+        LocalDate today = LocalDate.now();
+        if (!today.isBefore(from) && !today.isAfter(to)) {
+            summaries.put(today, getDailySummary(today));
+        }
+        return summaries;
+    }
+
+    @Override
+    public SortedMap<YearMonth, PeriodSummary> getMonthlySummaries(YearMonth from, YearMonth to) throws FlooringMasteryPersistenceException {
+        SortedMap<YearMonth, PeriodSummary> rollups = new TreeMap<>();
+        YearMonth month = YearMonth.now();
+        if (!month.isBefore(from) && !month.isAfter(to)) {
+            rollups.put(month, PeriodSummary.empty(month.toString()).plus(getDailySummary(LocalDate.now())));
+        }
+        return rollups;
+    }
+
+    @Override
+    public SortedMap<Year, PeriodSummary> getYearlySummaries(Year from, Year to) throws FlooringMasteryPersistenceException {
+        SortedMap<Year, PeriodSummary> rollups = new TreeMap<>();
+        Year year = Year.now();
+        if (!year.isBefore(from) && !year.isAfter(to)) {
+            rollups.put(year, PeriodSummary.empty(year.toString()).plus(getDailySummary(LocalDate.now())));
+        }
+        return rollups;
+    }
     
 }
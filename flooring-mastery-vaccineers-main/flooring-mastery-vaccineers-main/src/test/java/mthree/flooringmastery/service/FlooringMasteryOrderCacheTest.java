@@ -0,0 +1,158 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import mthree.flooringmastery.dao.FlooringMasteryPersistenceException;
+import mthree.flooringmastery.dto.Order;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the order cache keeps frequently read dates through a scan,
+ * stays within its budget, drops changed dates and saves the service dao
+ * reads.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public class FlooringMasteryOrderCacheTest {
+
+    /** Stub dao which counts its reads */
+    private static class CountingDaoStub extends FlooringMasteryDaoFileImplTestStub {
+        private int reads = 0;
+        private long version = 1;
+
+        @Override
+        public long getOrdersVersion(LocalDate date) throws FlooringMasteryPersistenceException {
+            return version;
+        }
+
+        @Override
+        public Map<Integer, Order> getAllOrders(LocalDate date) throws FlooringMasteryPersistenceException {
+            reads++;
+            return super.getAllOrders(date);
+        }
+    }
+
+    private static final LocalDate DAY = LocalDate.of(2030, 1, 1);
+
+    private Map<Integer, Order> orders(String name) {
+        Order order = new Order(name, "TX", "Test Product", BigDecimal.ONE);
+        order.setOrderNumber(1);
+        Map<Integer, Order> orders = new HashMap<>();
+        orders.put(1, order);
+        return orders;
+    }
+
+    /** Reads a date through the cache, the way the service does */
+    private boolean read(FlooringMasteryOrderCache cache, LocalDate date) {
+        if (cache.get(date, 0) != null) {
+            return true;
+        }
+        cache.put(date, orders("A"), 0, cache.ticket());
+        return false;
+    }
+
+    @Test
+    public void testScanKeepsFrequentDates() {
+        long dateWeight = FlooringMasteryOrderCache.weigh(orders("A"));
+        FlooringMasteryOrderCache cache = new FlooringMasteryOrderCache(100 * dateWeight);
+        for (int round = 0; round < 5; round++) {
+            for (int day = 0; day < 20; day++) {
+                read(cache, DAY.plusDays(day));
+            }
+        }
+        //a least recently used cache of 100 dates would lose each hot date
+        //between two of its reads, 200 scanned dates apart
+        for (int day = 1000; day < 5000; day++) {
+            read(cache, DAY.plusDays(day));
+            if (day % 10 == 0) {
+                read(cache, DAY.plusDays(day / 10 % 20));
+            }
+        }
+        int hotHits = 0;
+        for (int day = 0; day < 20; day++) {
+            if (read(cache, DAY.plusDays(day))) {
+                hotHits++;
+            }
+        }
+        assertEquals(20, hotHits, "Dates read often should survive a scan of dates read once");
+        assertTrue(cache.getEvictions() > 0, "Scanned dates should be evicted");
+        assertTrue(cache.getWeight() <= cache.getMaxWeight(), "Cache should stay within its budget");
+        assertTrue(cache.size() <= 100, "Cache should not hold more dates than fit");
+    }
+
+    @Test
+    public void testInvalidation() {
+        FlooringMasteryOrderCache cache = new FlooringMasteryOrderCache(1 << 20);
+        assertNull(cache.get(DAY, 0), "Empty cache should miss");
+        cache.put(DAY, orders("A"), 0, cache.ticket());
+        assertEquals("A", cache.get(DAY, 0).get(1).getCustomerName(), "Cached orders should be returned");
+
+        cache.invalidate(DAY);
+        assertNull(cache.get(DAY, 0), "Invalidated date should miss");
+        long ticket = cache.ticket();
+        cache.invalidate(DAY.plusDays(1));
+        cache.put(DAY, orders("B"), 0, ticket);
+        assertNull(cache.get(DAY, 0), "Read which raced with a write should not be cached");
+
+        cache.put(DAY, orders("C"), 0, cache.ticket());
+        cache.invalidateAll();
+        assertEquals(0, cache.size(), "Every date should be dropped");
+        assertEquals(0, cache.getWeight(), "Dropped dates should not weigh anything");
+        assertEquals(2, cache.getInvalidations(), "Dropped dates should be counted");
+
+        FlooringMasteryOrderCache off = new FlooringMasteryOrderCache(0);
+        off.put(DAY, orders("A"), 0, off.ticket());
+        assertNull(off.get(DAY, 0), "Cache without a budget should hold nothing");
+    }
+
+    @Test
+    public void testOtherVersionMisses() {
+        FlooringMasteryOrderCache cache = new FlooringMasteryOrderCache(1 << 20);
+        cache.put(DAY, orders("A"), 1, cache.ticket());
+        assertEquals("A", cache.get(DAY, 1).get(1).getCustomerName(), "Same version should hit");
+        assertNull(cache.get(DAY, 2), "Date changed outside the cache should miss");
+        assertEquals(0, cache.size(), "Date at an old version should be dropped");
+        assertEquals(1, cache.getInvalidations(), "Dropped date should be counted");
+    }
+
+    @Test
+    public void testServiceReadsThrough() throws Exception {
+        CountingDaoStub dao = new CountingDaoStub();
+        FlooringMasteryOrderCache cache = new FlooringMasteryOrderCache(1 << 20);
+        FlooringMasteryServiceLayerImpl service = new FlooringMasteryServiceLayerImpl(dao,
+                new FlooringMasteryAuditDaoFileImplTestStub(), new FlooringMasteryOrderValidator(dao),
+                new FlooringMasteryQuoteCache(0), cache);
+        LocalDate today = LocalDate.now();
+        assertNotNull(service.getOrder(today, 1), "Order should be found");
+        assertThrows(UnsupportedOperationException.class, () -> service.getAllOrders(today).clear(),
+                "Cached orders should be read only");
+        assertNotNull(service.getOrder(today, 1), "Order should still be cached");
+        assertEquals(1, dao.reads, "Dao should be read once per date");
+        assertEquals(2, cache.getHits(), "Later reads should hit");
+
+        service.removeOrder(today, 1);
+        service.getAllOrders(today);
+        assertEquals(2, dao.reads, "Removing should drop the date");
+
+        //e.g. the order file was edited by hand
+        dao.version++;
+        service.getAllOrders(today);
+        assertEquals(3, dao.reads, "A change made outside the service should be read");
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.service;
+
+import java.math.BigDecimal;
+import java.util.List;
+import mthree.flooringmastery.dao.FlooringMasteryPersistenceException;
+import mthree.flooringmastery.dto.Order;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the order rules against the stub catalog (TX, Test Product).
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public class FlooringMasteryOrderValidatorTest {
+
+    private final FlooringMasteryOrderValidator validator =
+            new FlooringMasteryOrderValidator(new FlooringMasteryDaoFileImplTestStub());
+
+    private Order order(String name, String state, String product, String area) {
+        return new Order(name, state, product, area == null ? null : new BigDecimal(area));
+    }
+
+    @Test
+    public void testValidate() throws Exception {
+        FlooringMasteryCatalogSnapshot catalog = validator.validate(order(" Test Subject. 2 ", "TX", "Test Product", "100"));
+        assertEquals("TX", catalog.getState("TX").getStateAbbreviation(), "Catalog should have the state");
+        assertSame(catalog, validator.getCatalog(), "Catalog should be reused while its version is the same");
+
+        assertThrows(FlooringMasteryStateNotFoundException.class,
+                () -> validator.validate(order("Test Subject", "ZZ", "Test Product", "100")), "Unknown state");
+        assertThrows(FlooringMasteryInvalidCustomerNameException.class,
+                () -> validator.validate(order("Test, Subject", "TX", "Test Product", "100")), "Comma in name");
+        assertThrows(FlooringMasteryInvalidCustomerNameException.class,
+                () -> validator.validate(order("Test\tSubject", "TX", "Test Product", "100")), "Tab in name");
+        assertThrows(FlooringMasteryInvalidCustomerNameException.class,
+                () -> validator.validate(order("   ", "TX", "Test Product", "100")), "Blank name");
+        assertThrows(FlooringMasteryProductNotFoundException.class,
+                () -> validator.validate(order("Test Subject", "TX", "Gold", "100")), "Unknown product");
+        assertThrows(FlooringMasteryInvalidAreaException.class,
+                () -> validator.validate(order("Test Subject", "TX", "Test Product", "99.99")), "Small area");
+        assertThrows(FlooringMasteryInvalidAreaException.class,
+                () -> validator.validate(order("Test Subject", "TX", "Test Product", null)), "Missing area");
+        //the state is checked first, like before
+        assertThrows(FlooringMasteryStateNotFoundException.class,
+                () -> validator.validate(order("Test, Subject", "ZZ", "Gold", "1")), "First broken rule");
+    }
+
+    @Test
+    public void testValidateAll() throws FlooringMasteryPersistenceException {
+        List<Order> orders = List.of(
+                order("Test Subject", "TX", "Test Product", "100"),
+                order("Test, Subject", "ZZ", "Test Product", "100"),
+                order("Test Subject", "TX", "Gold", "5"));
+
+        List<FlooringMasteryOrderViolation> violations = validator.validateAll(orders);
+        assertEquals(List.of(
+                new FlooringMasteryOrderViolation(1, FlooringMasteryOrderViolation.Rule.STATE_NOT_FOUND),
+                new FlooringMasteryOrderViolation(1, FlooringMasteryOrderViolation.Rule.INVALID_CUSTOMER_NAME),
+                new FlooringMasteryOrderViolation(2, FlooringMasteryOrderViolation.Rule.PRODUCT_NOT_FOUND),
+                new FlooringMasteryOrderViolation(2, FlooringMasteryOrderViolation.Rule.AREA_TOO_SMALL)),
+                violations, "Every broken rule of every order should be returned");
+        assertTrue(validator.validateAll(orders.subList(0, 1)).isEmpty(), "Valid order should have no violations");
+    }
+}
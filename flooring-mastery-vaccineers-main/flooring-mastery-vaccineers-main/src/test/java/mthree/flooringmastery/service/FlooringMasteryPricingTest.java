@@ -0,0 +1,96 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import mthree.flooringmastery.dto.Order;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pricing test. Checks the long calculation against the BigDecimal
+ * calculation the service used before.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public class FlooringMasteryPricingTest {
+
+    private Order buildOrder(BigDecimal area, BigDecimal cost, BigDecimal laborCost, BigDecimal taxRate) {
+        Order order = new Order();
+        order.setArea(area);
+        order.setCostPerSquareFoot(cost);
+        order.setLaborCostPerSquareFoot(laborCost);
+        order.setTaxRate(taxRate);
+        return order;
+    }
+
+    /**
+     * The BigDecimal calculation, as the service did it
+     * @return  materialCost, laborCost, tax and total as saved in the file
+     */
+    private String[] priceDecimal(Order order) {
+        BigDecimal materialCost = order.getArea().multiply(order.getCostPerSquareFoot());
+        BigDecimal laborCost = order.getArea().multiply(order.getLaborCostPerSquareFoot());
+
+        BigDecimal tax = order.getTaxRate().divide(new BigDecimal("100")).multiply(materialCost.add(laborCost));
+        BigDecimal total = materialCost.add(laborCost.add(tax));
+        return new String[] {
+            materialCost.setScale(2, RoundingMode.HALF_UP).toString(),
+            laborCost.setScale(2, RoundingMode.HALF_UP).toString(),
+            tax.setScale(2, RoundingMode.HALF_UP).toString(),
+            total.setScale(2, RoundingMode.HALF_UP).toString()
+        };
+    }
+
+    private void assertSamePrice(Order order) {
+        String[] expected = priceDecimal(order);
+        FlooringMasteryPricing.price(order);
+        assertEquals(expected[0], order.getMaterialCost().toString(), "Material cost should match for " + order.getArea());
+        assertEquals(expected[1], order.getLaborCost().toString(), "Labor cost should match for " + order.getArea());
+        assertEquals(expected[2], order.getTax().toString(), "Tax should match for " + order.getArea());
+        assertEquals(expected[3], order.getTotal().toString(), "Total should match for " + order.getArea());
+    }
+
+    @Test
+    public void testMatchesDecimalOnRandomOrders() {
+        Random random = new Random(2201);
+        for (int i = 0; i < 500_000; i++) {
+            //areas from 100ft^2 up, catalog sized costs and rates
+            BigDecimal area = BigDecimal.valueOf(10_000 + (long) (random.nextDouble() * random.nextDouble() * 100_000_000L), 2);
+            BigDecimal cost = BigDecimal.valueOf(1 + random.nextInt(100_000), 2);
+            BigDecimal laborCost = BigDecimal.valueOf(1 + random.nextInt(100_000), 2);
+            BigDecimal taxRate = BigDecimal.valueOf(random.nextInt(10_000), 2);
+            assertSamePrice(buildOrder(area, cost, laborCost, taxRate));
+        }
+    }
+
+    @Test
+    public void testRoundingBoundaries() {
+        //material 0.005 over a cent, tax exactly half a cent
+        assertSamePrice(buildOrder(new BigDecimal("100.50"), new BigDecimal("0.01"),
+                new BigDecimal("0.01"), new BigDecimal("0.25")));
+        assertSamePrice(buildOrder(new BigDecimal("249.00"), new BigDecimal("3.50"),
+                new BigDecimal("4.15"), new BigDecimal("25.00")));
+        assertSamePrice(buildOrder(new BigDecimal("100.01"), new BigDecimal("0.05"),
+                new BigDecimal("0.05"), new BigDecimal("12.50")));
+        assertSamePrice(buildOrder(new BigDecimal("100"), BigDecimal.ZERO,
+                BigDecimal.ZERO, BigDecimal.ZERO));
+    }
+
+    @Test
+    public void testOverflowFallsBackToDecimal() {
+        Order order = buildOrder(new BigDecimal("1000000000000.00"), new BigDecimal("999.99"),
+                new BigDecimal("999.99"), new BigDecimal("99.99"));
+        //costs in cents still fit in a long, the unrounded products do not
+        assertSamePrice(order);
+    }
+}
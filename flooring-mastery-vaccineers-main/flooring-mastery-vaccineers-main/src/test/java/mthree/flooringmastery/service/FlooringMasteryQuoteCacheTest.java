@@ -0,0 +1,89 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import mthree.flooringmastery.dao.FlooringMasteryPersistenceException;
+import mthree.flooringmastery.dto.Order;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the quote cache hits, stays bounded and is cleared when the
+ * catalog version changes.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public class FlooringMasteryQuoteCacheTest {
+
+    /** Stub dao whose catalog version the test can change */
+    private static class VersionedDaoStub extends FlooringMasteryDaoFileImplTestStub {
+        private long version = 1;
+
+        @Override
+        public long getCatalogVersion() throws FlooringMasteryPersistenceException {
+            return version;
+        }
+    }
+
+    private final VersionedDaoStub dao = new VersionedDaoStub();
+
+    private FlooringMasteryServiceLayerImpl service(FlooringMasteryQuoteCache quoteCache) {
+        return new FlooringMasteryServiceLayerImpl(dao, new FlooringMasteryAuditDaoFileImplTestStub(),
+                new FlooringMasteryOrderValidator(dao), quoteCache);
+    }
+
+    private Order draft(String area) {
+        return new Order("Test Subject", "TX", "Test Product", new BigDecimal(area));
+    }
+
+    @Test
+    public void testCacheHits() throws Exception {
+        FlooringMasteryQuoteCache quoteCache = new FlooringMasteryQuoteCache(1024);
+        FlooringMasteryServiceLayerImpl service = service(quoteCache);
+        Order first = service.createOrder(draft("123.45"));
+        Order second = service.createOrder(draft("123.45"));
+        assertEquals(first, second, "Cached prices should match the calculated ones");
+        assertEquals(1, quoteCache.getHits(), "Second quote should hit");
+        assertEquals(1, quoteCache.getMisses(), "First quote should miss");
+        assertEquals(0.5, quoteCache.getHitRate(), 1e-9, "Hit rate should be hits over lookups");
+
+        List<Order> drafts = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            drafts.add(draft(String.valueOf(100 + i % 10)));
+        }
+        for (FlooringMasteryQuote quote : service.quoteOrders(drafts)) {
+            assertEquals(service.createOrder(draft(quote.getOrder().getArea().toString())).getTotal(),
+                    quote.getOrder().getTotal(), "Parallel quotes should get the right prices");
+        }
+        assertTrue(quoteCache.getHits() >= 1000, "Repeated quotes should mostly hit");
+    }
+
+    @Test
+    public void testCacheIsBoundedAndInvalidated() throws Exception {
+        FlooringMasteryQuoteCache quoteCache = new FlooringMasteryQuoteCache(32);
+        FlooringMasteryServiceLayerImpl service = service(quoteCache);
+        for (int i = 0; i < 1000; i++) {
+            service.createOrder(draft(String.valueOf(100 + i)));
+        }
+        assertTrue(quoteCache.size() <= 32, "Cache should stay bounded");
+        assertTrue(quoteCache.getEvictions() > 0, "Old prices should be evicted");
+
+        service.createOrder(draft("1099"));
+        long hits = quoteCache.getHits();
+        dao.version = 2;
+        service.createOrder(draft("1099"));
+        assertEquals(hits, quoteCache.getHits(), "A new catalog version should not hit old prices");
+        assertEquals(1, quoteCache.size(), "A new catalog version should clear the cache");
+    }
+}
@@ -0,0 +1,272 @@
+/**
+ * Team Vaccineers.
+ *
+ * Contains the full solution to assessment Flooring Mastery for
+ * C166 Full Stack Development with Java and Angular (2201).
+ */
+package mthree.flooringmastery.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import mthree.flooringmastery.dao.FlooringMasteryPersistenceException;
+import mthree.flooringmastery.dto.DailySummary;
+import mthree.flooringmastery.dto.Money;
+import mthree.flooringmastery.dto.Order;
+import mthree.flooringmastery.dto.PeriodSummary;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that sales reports group orders correctly and only read the dates
+ * which are not cached.
+ *
+ * @author Andy Bae
+ * @author Alexi Mellovich
+ * @author Adem Coklar
+ * @author Illarion Eremenko
+ */
+public class FlooringMasteryReportServiceImplTest {
+
+    /** Stub dao with orders on several dates, counting the dates read and summarized */
+    static class OrdersDaoStub extends FlooringMasteryDaoFileImplTestStub {
+        final Map<LocalDate, Map<Integer, Order>> orders = new HashMap<>();
+        final Map<LocalDate, Long> versions = new HashMap<>();
+        int datesRead = 0;
+        int datesSummarized = 0;
+
+        void add(LocalDate date, String state, String productType, String total) {
+            add(date, "Test Subject", state, productType, total);
+        }
+
+        void add(LocalDate date, String customerName, String state, String productType, String total) {
+            Order order = new Order(customerName, state, productType, new BigDecimal("100"));
+            order.setOrderNumber(orders.values().stream().mapToInt(Map::size).sum() + 1);
+            order.setTax(new BigDecimal("1.00"));
+            order.setTotal(new BigDecimal(total));
+            orders.computeIfAbsent(date, key -> new HashMap<>()).put(order.getOrderNumber(), order);
+            versions.merge(date, 1L, Long::sum);
+        }
+
+        void setState(LocalDate date, int orderNumber, String state) {
+            orders.get(date).get(orderNumber).setState(state);
+            versions.merge(date, 1L, Long::sum);
+        }
+
+        @Override
+        public long getOrdersVersion(LocalDate date) throws FlooringMasteryPersistenceException {
+            return versions.getOrDefault(date, 0L);
+        }
+
+        @Override
+        public Map<Integer, Order> getAllOrders(LocalDate date) throws FlooringMasteryPersistenceException {
+            datesRead++;
+            return orders.get(date);
+        }
+
+        @Override
+        public DailySummary getDailySummary(LocalDate date) throws FlooringMasteryPersistenceException {
+            Map<Integer, Order> dateOrders = orders.get(date);
+            return dateOrders == null ? DailySummary.empty(date) : DailySummary.of(date, dateOrders.values());
+        }
+
+        @Override
+        public SortedMap<LocalDate, DailySummary> getDailySummaries(LocalDate from, LocalDate to) throws FlooringMasteryPersistenceException {
+            SortedMap<LocalDate, DailySummary> summaries = new TreeMap<>();
+            for (LocalDate date : orders.keySet()) {
+                if (!date.isBefore(from) && !date.isAfter(to)) {
+                    summaries.put(date, getDailySummary(date));
+                }
+            }
+            datesSummarized += summaries.size();
+            return summaries;
+        }
+
+        @Override
+        public SortedMap<YearMonth, PeriodSummary> getMonthlySummaries(YearMonth from, YearMonth to) throws FlooringMasteryPersistenceException {
+            SortedMap<YearMonth, PeriodSummary> rollups = new TreeMap<>();
+            for (LocalDate date : orders.keySet()) {
+                YearMonth month = YearMonth.from(date);
+                if (!month.isBefore(from) && !month.isAfter(to)) {
+                    rollups.put(month, rollups.getOrDefault(month, PeriodSummary.empty(month.toString())).plus(getDailySummary(date)));
+                }
+            }
+            return rollups;
+        }
+
+        @Override
+        public SortedMap<Year, PeriodSummary> getYearlySummaries(Year from, Year to) throws FlooringMasteryPersistenceException {
+            SortedMap<Year, PeriodSummary> rollups = new TreeMap<>();
+            for (LocalDate date : orders.keySet()) {
+                Year year = Year.from(date);
+                if (!year.isBefore(from) && !year.isAfter(to)) {
+                    rollups.put(year, rollups.getOrDefault(year, PeriodSummary.empty(year.toString())).plus(getDailySummary(date)));
+                }
+            }
+            return rollups;
+        }
+    }
+
+    @Test
+    public void testSalesReport() throws Exception {
+        OrdersDaoStub dao = new OrdersDaoStub();
+        dao.add(LocalDate.of(2021, 1, 5), "TX", "Tile", "10.00");
+        dao.add(LocalDate.of(2021, 1, 5), "KY", "Tile", "20.00");
+        dao.add(LocalDate.of(2021, 2, 7), "TX", "Wood", "30.00");
+        dao.add(LocalDate.of(2021, 3, 1), "TX", "Tile", "40.00");
+        FlooringMasteryReportServiceImpl reports = new FlooringMasteryReportServiceImpl(dao);
+
+        FlooringMasterySalesReport byState = reports.getSalesReport(LocalDate.of(2021, 1, 1),
+                LocalDate.of(2021, 2, 28), FlooringMasterySalesReport.GroupBy.STATE);
+        assertEquals(Money.of(new BigDecimal("40.00")), byState.getRows().get("TX").getRevenue(), "TX revenue");
+        assertEquals(Money.of(new BigDecimal("20.00")), byState.getRows().get("KY").getRevenue(), "KY revenue");
+        assertEquals(3, byState.getTotal().getOrderCount(), "Orders outside the range should be left out");
+        assertEquals(Money.of(new BigDecimal("3.00")), byState.getTotal().getTax(), "Tax should be summed");
+        assertEquals(new BigDecimal("300.00"), byState.getTotal().getArea(), "Area should be summed");
+
+        FlooringMasterySalesReport byProduct = reports.getSalesReport(LocalDate.of(2021, 1, 1),
+                LocalDate.of(2021, 12, 31), FlooringMasterySalesReport.GroupBy.PRODUCT_TYPE);
+        assertEquals(3, byProduct.getRows().get("Tile").getOrderCount(), "Tile orders");
+        assertEquals(1, byProduct.getRows().get("Wood").getOrderCount(), "Wood orders");
+
+        int datesRead = dao.datesRead;
+        FlooringMasterySalesReport byMonth = reports.getSalesReport(LocalDate.of(2021, 1, 1),
+                LocalDate.of(2021, 12, 31), FlooringMasterySalesReport.GroupBy.MONTH);
+        assertEquals(datesRead, dao.datesRead, "Monthly rows should come from the rollups");
+        assertEquals(Money.of(new BigDecimal("30.00")), byMonth.getRows().get("2021-01").getRevenue(), "January revenue");
+        assertEquals(3, byMonth.getRows().size(), "One row per month with orders");
+
+        assertThrows(FlooringMasteryInvalidDateException.class, () -> reports.getSalesReport(
+                LocalDate.of(2021, 2, 1), LocalDate.of(2021, 1, 1), FlooringMasterySalesReport.GroupBy.STATE),
+                "Range should not end before it starts");
+    }
+
+    @Test
+    public void testClosedDatesAreCached() throws Exception {
+        OrdersDaoStub dao = new OrdersDaoStub();
+        LocalDate today = LocalDate.now();
+        dao.add(today.minusDays(2), "TX", "Tile", "10.00");
+        dao.add(today.minusDays(1), "TX", "Tile", "20.00");
+        dao.add(today, "TX", "Tile", "30.00");
+        FlooringMasteryReportServiceImpl reports = new FlooringMasteryReportServiceImpl(dao);
+        LocalDate from = today.minusDays(10);
+
+        FlooringMasterySalesReport first = reports.getSalesReport(from, today, FlooringMasterySalesReport.GroupBy.STATE);
+        assertEquals(3, first.getDatesRead(), "First report should read every date");
+        FlooringMasterySalesReport second = reports.getSalesReport(from, today, FlooringMasterySalesReport.GroupBy.STATE);
+        assertEquals(1, second.getDatesRead(), "Only today should be read again");
+        assertEquals(first.getRows(), second.getRows(), "Cached rows should give the same report");
+
+        dao.add(today.minusDays(1), "KY", "Tile", "5.00");
+        FlooringMasterySalesReport third = reports.getSalesReport(from, today, FlooringMasterySalesReport.GroupBy.STATE);
+        assertEquals(2, third.getDatesRead(), "A changed closed date should be read again");
+        assertEquals(Money.of(new BigDecimal("5.00")), third.getRows().get("KY").getRevenue(), "New order should be reported");
+    }
+
+    @Test
+    public void testSwappedStatesAreNotCached() throws Exception {
+        OrdersDaoStub dao = new OrdersDaoStub();
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        dao.add(yesterday, "TX", "Tile", "10.00");
+        dao.add(yesterday, "KY", "Tile", "20.00");
+        FlooringMasteryReportServiceImpl reports = new FlooringMasteryReportServiceImpl(dao);
+
+        FlooringMasterySalesReport before = reports.getSalesReport(yesterday, yesterday, FlooringMasterySalesReport.GroupBy.STATE);
+        assertEquals(Money.of(new BigDecimal("10.00")), before.getRows().get("TX").getRevenue(), "TX revenue");
+        DailySummary summary = dao.getDailySummary(yesterday);
+        dao.setState(yesterday, 1, "KY");
+        dao.setState(yesterday, 2, "TX");
+        assertEquals(summary, dao.getDailySummary(yesterday), "Swapping states should keep the daily totals");
+
+        FlooringMasterySalesReport after = reports.getSalesReport(yesterday, yesterday, FlooringMasterySalesReport.GroupBy.STATE);
+        assertEquals(1, after.getDatesRead(), "A changed date should be read again even with the same totals");
+        assertEquals(Money.of(new BigDecimal("20.00")), after.getRows().get("TX").getRevenue(), "TX revenue after the swap");
+        assertEquals(Money.of(new BigDecimal("10.00")), after.getRows().get("KY").getRevenue(), "KY revenue after the swap");
+    }
+
+    @Test
+    public void testRemovedDatesLeaveTheCache() throws Exception {
+        OrdersDaoStub dao = new OrdersDaoStub();
+        LocalDate today = LocalDate.now();
+        dao.add(today.minusDays(2), "TX", "Tile", "10.00");
+        dao.add(today.minusDays(1), "TX", "Tile", "20.00");
+        FlooringMasteryReportServiceImpl reports = new FlooringMasteryReportServiceImpl(dao);
+
+        reports.getSalesReport(today.minusDays(10), today, FlooringMasterySalesReport.GroupBy.STATE);
+        assertEquals(2, reports.getCachedDateCount(FlooringMasterySalesReport.GroupBy.STATE), "Closed dates should be cached");
+
+        //every order of the date removed, so it has no summary anymore
+        dao.orders.remove(today.minusDays(2));
+        FlooringMasterySalesReport after = reports.getSalesReport(today.minusDays(10), today,
+                FlooringMasterySalesReport.GroupBy.STATE);
+        assertEquals(1, reports.getCachedDateCount(FlooringMasterySalesReport.GroupBy.STATE), "Removed date should leave the cache");
+        assertEquals(Money.of(new BigDecimal("20.00")), after.getRows().get("TX").getRevenue(), "Only the kept date should be reported");
+    }
+
+    @Test
+    public void testTopCustomersAndLargestOrders() throws Exception {
+        OrdersDaoStub dao = new OrdersDaoStub();
+        LocalDate first = LocalDate.of(2021, 4, 1);
+        LocalDate second = LocalDate.of(2021, 5, 1);
+        for (int i = 1; i <= 100; i++) {
+            dao.add(i % 2 == 0 ? first : second, "Customer " + (i % 10), "TX", "Tile", i + ".00");
+        }
+        FlooringMasteryReportServiceImpl reports = new FlooringMasteryReportServiceImpl(dao);
+
+        List<FlooringMasteryDatedOrder> largest = reports.getLargestOrders(first, second, 3);
+        assertEquals(3, largest.size(), "Only the asked number of orders");
+        assertEquals(new BigDecimal("100.00"), largest.get(0).getOrder().getTotal(), "Largest order first");
+        assertEquals(new BigDecimal("98.00"), largest.get(2).getOrder().getTotal(), "Third largest order last");
+        assertEquals(first, largest.get(0).getDate(), "Order should keep its date");
+        assertEquals(1, reports.getLargestOrders(second, second, 1).size(), "Range should limit the orders");
+
+        List<FlooringMasteryCustomerSpend> top = reports.getTopCustomers(first, second, 2);
+        //customer 0 has orders 10, 20, ..., 100 and customer 9 has 9, 19, ..., 99
+        assertEquals(List.of(
+                new FlooringMasteryCustomerSpend("Customer 0", 10, Money.of(new BigDecimal("550.00"))),
+                new FlooringMasteryCustomerSpend("Customer 9", 10, Money.of(new BigDecimal("540.00")))),
+                top, "Biggest spenders first");
+        assertEquals(10, reports.getTopCustomers(first, second, 50).size(), "Fewer customers than asked for");
+        assertThrows(IllegalArgumentException.class, () -> reports.getLargestOrders(first, second, 0),
+                "Count should be positive");
+    }
+
+    @Test
+    public void testTrendReportUsesRollups() throws Exception {
+        OrdersDaoStub dao = new OrdersDaoStub();
+        dao.add(LocalDate.of(2019, 3, 10), "TX", "Tile", "1.00");
+        dao.add(LocalDate.of(2019, 3, 20), "TX", "Tile", "2.00");
+        dao.add(LocalDate.of(2019, 7, 4), "TX", "Tile", "4.00");
+        dao.add(LocalDate.of(2020, 2, 29), "TX", "Tile", "8.00");
+        dao.add(LocalDate.of(2020, 11, 1), "KY", "Wood", "16.00");
+        dao.add(LocalDate.of(2021, 1, 5), "TX", "Tile", "32.00");
+        dao.add(LocalDate.of(2021, 1, 31), "TX", "Tile", "64.00");
+        dao.add(LocalDate.of(2021, 2, 1), "TX", "Tile", "128.00");
+        FlooringMasteryReportServiceImpl reports = new FlooringMasteryReportServiceImpl(dao);
+        LocalDate from = LocalDate.of(2019, 3, 15);
+        LocalDate to = LocalDate.of(2021, 2, 1);
+
+        FlooringMasterySalesReport byYear = reports.getSalesReport(from, to, FlooringMasterySalesReport.GroupBy.YEAR);
+        assertEquals(Money.of(new BigDecimal("6.00")), byYear.getRows().get("2019").getRevenue(), "Only the days of 2019 in the range");
+        assertEquals(Money.of(new BigDecimal("24.00")), byYear.getRows().get("2020").getRevenue(), "Whole 2020");
+        assertEquals(Money.of(new BigDecimal("224.00")), byYear.getRows().get("2021").getRevenue(), "2021 up to the end of the range");
+        assertEquals(7, byYear.getTotal().getOrderCount(), "Every order in the range once");
+        //only the days of March 2019 after the 15th and the 1st of February 2021 are not whole months
+        assertEquals(2, dao.datesSummarized, "Whole months and years should not read daily summaries");
+        assertEquals(0, dao.datesRead, "Trend reports should not read orders");
+
+        FlooringMasterySalesReport byMonth = reports.getSalesReport(from, to, FlooringMasterySalesReport.GroupBy.MONTH);
+        assertEquals(Money.of(new BigDecimal("2.00")), byMonth.getRows().get("2019-03").getRevenue(), "Part of March 2019");
+        assertEquals(Money.of(new BigDecimal("96.00")), byMonth.getRows().get("2021-01").getRevenue(), "Whole January 2021");
+        assertEquals(byYear.getTotal(), byMonth.getTotal(), "Months and years should add up to the same");
+        assertEquals(Money.of(new BigDecimal("8.00")), reports.getSalesReport(LocalDate.of(2020, 2, 29),
+                LocalDate.of(2020, 2, 29), FlooringMasterySalesReport.GroupBy.YEAR).getTotal().getRevenue(), "Single day");
+    }
+}
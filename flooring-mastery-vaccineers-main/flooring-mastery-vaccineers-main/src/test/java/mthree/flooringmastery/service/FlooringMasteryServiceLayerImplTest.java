@@ -8,13 +8,23 @@ package mthree.flooringmastery.service;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import mthree.flooringmastery.dao.FlooringMasteryPersistenceException;
+import mthree.flooringmastery.dto.AuditRecord;
+import mthree.flooringmastery.dto.DailySummary;
 import mthree.flooringmastery.dto.Order;
 import mthree.flooringmastery.dto.Product;
 import mthree.flooringmastery.dto.State;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import org.junit.jupiter.api.Test;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
@@ -254,6 +264,17 @@ public class FlooringMasteryServiceLayerImplTest {
         }
     }
 
+    @Test
+    public void testEditOrderLeavesSavedOrder() throws Exception {
+        Order saved = testService.getOrder(LocalDate.now(), 1);
+        Order newOrder = new Order();
+        newOrder.setCustomerName("Shrek");
+        newOrder.setArea(new BigDecimal("100"));
+        Order edited = testService.editOrder(LocalDate.now(), 1, newOrder);
+        assertEquals("Shrek", edited.getCustomerName(), "Edited order should be returned");
+        assertEquals("Test Subject", saved.getCustomerName(), "Order other readers hold should not change");
+    }
+
     @Test
     public void testEditOrder() throws FlooringMasteryPersistenceException {
         Order testOrder = new Order();
@@ -455,4 +476,148 @@ public class FlooringMasteryServiceLayerImplTest {
         assertEquals(states.get("TX"), testState, "service getAllStates return didn't match test");
     }
 
+    @Test
+    public void testQuoteOrders() throws Exception {
+        //large enough to be priced in parallel
+        List<Order> drafts = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            String area = i % 3 == 0 ? "50" : String.valueOf(100 + i);
+            drafts.add(new Order("Customer " + i, "TX", "Test Product", new BigDecimal(area)));
+        }
+
+        List<FlooringMasteryQuote> quotes = testService.quoteOrders(drafts);
+        assertEquals(drafts.size(), quotes.size(), "Every draft should be quoted");
+        for (int i = 0; i < drafts.size(); i++) {
+            FlooringMasteryQuote quote = quotes.get(i);
+            assertEquals("Customer " + i, quote.getOrder().getCustomerName(), "Quotes should keep the input order");
+            if (i % 3 == 0) {
+                assertEquals(List.of(FlooringMasteryOrderViolation.Rule.AREA_TOO_SMALL), quote.getViolations(),
+                        "Small area should not be quoted");
+            } else {
+                Order expected = testService.createOrder(new Order("Customer " + i, "TX", "Test Product",
+                        new BigDecimal(100 + i)));
+                assertEquals(expected, quote.getOrder(), "Quote should price like createOrder");
+            }
+            assertNull(drafts.get(i).getTotal(), "Draft should not be changed");
+        }
+    }
+
+    @Test
+    public void testRepriceFutureOrders() throws Exception {
+        //the catalog has TX at 1.00% and Test Product at 1.00 + 1.00 per ft^2
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+        LocalDate nextWeek = LocalDate.now().plusDays(7);
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        Map<LocalDate, Map<Integer, Order>> orders = new TreeMap<>();
+        Map<LocalDate, Integer> writes = new TreeMap<>();
+        FlooringMasteryDaoFileImplTestStub dao = new FlooringMasteryDaoFileImplTestStub() {
+            @Override
+            public Map<Integer, Order> getAllOrders(LocalDate date) throws FlooringMasteryPersistenceException {
+                return orders.containsKey(date) ? new HashMap<>(orders.get(date)) : null;
+            }
+
+            @Override
+            public SortedMap<LocalDate, DailySummary> getDailySummaries(LocalDate from, LocalDate to) throws FlooringMasteryPersistenceException {
+                SortedMap<LocalDate, DailySummary> summaries = new TreeMap<>();
+                for (LocalDate date : orders.keySet()) {
+                    if (!date.isBefore(from) && !date.isAfter(to)) {
+                        summaries.put(date, DailySummary.of(date, orders.get(date).values()));
+                    }
+                }
+                return summaries;
+            }
+
+            @Override
+            public List<Order> editOrders(LocalDate date, Collection<Order> newOrders) throws FlooringMasteryPersistenceException {
+                writes.merge(date, 1, Integer::sum);
+                List<Order> oldOrders = new ArrayList<>();
+                for (Order newOrder : newOrders) {
+                    oldOrders.add(orders.get(date).put(newOrder.getOrderNumber(), newOrder));
+                }
+                return oldOrders;
+            }
+        };
+        int orderNumber = 0;
+        String[][] placed = {
+            //state, product, tax rate, cost per ft^2
+            {"TX", "Test Product", "2.00", "1.00"},
+            {"TX", "Test Product", "1.00", "1.00"},
+            {"TX", "Test Product", "1.00", "3.00"},
+            {"ZZ", "Test Product", "2.00", "1.00"}};
+        for (LocalDate date : new LocalDate[]{yesterday, tomorrow, nextWeek}) {
+            for (String[] fields : placed) {
+                Order order = new Order("Test Subject", fields[0], fields[1], new BigDecimal("100"));
+                order.setOrderNumber(++orderNumber);
+                order.setTaxRate(new BigDecimal(fields[2]));
+                order.setCostPerSquareFoot(new BigDecimal(fields[3]));
+                order.setLaborCostPerSquareFoot(BigDecimal.ONE);
+                order.setTotal(BigDecimal.ONE);
+                orders.computeIfAbsent(date, key -> new HashMap<>()).put(orderNumber, order);
+            }
+        }
+        List<AuditRecord> audit = new ArrayList<>();
+        FlooringMasteryServiceLayerImpl service = new FlooringMasteryServiceLayerImpl(dao,
+                new FlooringMasteryAuditDaoFileImplTestStub() {
+                    @Override
+                    public void writeAuditRecord(AuditRecord record) {
+                        audit.add(record);
+                    }
+                });
+
+        FlooringMasteryRepriceResult result = service.repriceFutureOrders();
+        assertEquals(8, result.getOrdersChecked(), "Only future orders should be checked");
+        assertEquals(4, result.getOrdersRepriced(), "Orders with an old tax rate or cost should be repriced");
+        assertEquals(2, result.getOrdersSkipped(), "Orders of a state no longer sold should be skipped");
+        assertEquals(Map.of(tomorrow, 1, nextWeek, 1), writes, "Each changed date should be saved once");
+        Order repriced = orders.get(tomorrow).get(5);
+        assertEquals(new BigDecimal("1.00"), repriced.getTaxRate(), "Tax rate should come from the catalog");
+        assertEquals(new BigDecimal("202.00"), repriced.getTotal(), "Total should be calculated again");
+        assertEquals(new BigDecimal("2.00"), orders.get(yesterday).get(1).getTaxRate(), "Past orders should not change");
+        assertEquals(1, audit.size(), "One audit record should sum up the reprice");
+        assertEquals(AuditRecord.Operation.ORDERS_REPRICED, audit.get(0).getOperation(), "Audit operation");
+        assertTrue(audit.get(0).getMessage().startsWith("Orders: 4 of 8"), "Audit should count the orders");
+
+        assertEquals(0, service.repriceFutureOrders().getOrdersRepriced(), "Nothing is left to reprice");
+    }
+
+    @Test
+    public void testAddOrderWithRequestId() throws Exception {
+        Map<String, Order> placed = new HashMap<>();
+        FlooringMasteryDaoFileImplTestStub dao = new FlooringMasteryDaoFileImplTestStub() {
+            @Override
+            public Order addOrder(LocalDate date, Order order, String requestId) throws FlooringMasteryPersistenceException {
+                order.setOrderNumber(placed.size() + 1);
+                return placed.computeIfAbsent(requestId, id -> order);
+            }
+
+            @Override
+            public Order getRequestedOrder(String requestId) throws FlooringMasteryPersistenceException {
+                return placed.get(requestId);
+            }
+        };
+        List<AuditRecord> audit = new ArrayList<>();
+        FlooringMasteryServiceLayerImpl service = new FlooringMasteryServiceLayerImpl(dao,
+                new FlooringMasteryAuditDaoFileImplTestStub() {
+                    @Override
+                    public void writeAuditRecord(AuditRecord record) {
+                        audit.add(record);
+                    }
+                });
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+
+        Order first = service.addOrder(tomorrow, new Order("Test Subject", "TX", "Test Product", new BigDecimal("100")), "abc");
+        Order retry = service.addOrder(tomorrow, new Order("Test Subject", "TX", "Test Product", new BigDecimal("100")), "abc");
+        assertEquals(first.getOrderNumber(), retry.getOrderNumber(), "Retry should get the first order");
+        assertEquals(1, audit.size(), "Retry should not be audited again");
+        assertEquals("Request: abc", audit.get(0).getMessage(), "Audit should name the request");
+        service.addOrder(tomorrow, new Order("Test Subject", "TX", "Test Product", new BigDecimal("100")), "def");
+        assertEquals(2, audit.size(), "New request id should add an order");
+
+        //a retry arriving after the order date, or with an order no longer valid, still gets its order
+        Order late = service.addOrder(LocalDate.now(), new Order("Test Subject", "ZZ", "Test Product", new BigDecimal("100")), "abc");
+        assertEquals(first.getOrderNumber(), late.getOrderNumber(), "Retry should be looked up before the order is checked");
+        assertThrows(FlooringMasteryInvalidDateException.class, () -> service.addOrder(LocalDate.now(),
+                new Order("Test Subject", "TX", "Test Product", new BigDecimal("100")), "ghi"),
+                "New request id should still be checked");
+    }
 }